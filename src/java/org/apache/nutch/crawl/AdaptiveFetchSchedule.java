@@ -105,10 +105,10 @@ public class AdaptiveFetchSchedule extends AbstractFetchSchedule {
     // https://issues.apache.org/jira/browse/NUTCH-1430
     interval = (interval == 0) ? defaultInterval : interval;
 
-    if (datum.getMetaData().containsKey(Nutch.WRITABLE_FIXED_INTERVAL_KEY)) {
+    FloatWritable customIntervalWritable = (FloatWritable) datum
+        .getMetaDataValue(Nutch.WRITABLE_FIXED_INTERVAL_KEY);
+    if (customIntervalWritable != null) {
       // Is fetch interval preset in CrawlDatum MD? Then use preset interval
-      FloatWritable customIntervalWritable = (FloatWritable) (datum
-          .getMetaData().get(Nutch.WRITABLE_FIXED_INTERVAL_KEY));
       interval = customIntervalWritable.get();
     } else {
       if (modifiedTime <= 0)
@@ -30,7 +30,7 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
   public static final String FETCH_DIR_NAME = "crawl_fetch";
   public static final String PARSE_DIR_NAME = "crawl_parse";
 
-  private final static byte CUR_VERSION = 7;
+  private final static byte CUR_VERSION = 8;
 
   /** Compatibility values for on-the-fly conversion from versions < 5. */
   private static final byte OLD_STATUS_SIGNATURE = 0;
@@ -124,6 +124,12 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
   private byte[] signature = null;
   private long modifiedTime;
   private org.apache.hadoop.io.MapWritable metaData;
+  /**
+   * Encoded metadata as read by {@link #readFields(DataInput)}, decoded lazily
+   * on first access. Only valid if {@link #rawMetaDataLength} is positive.
+   */
+  private byte[] rawMetaData;
+  private int rawMetaDataLength;
 
   public static boolean hasDbStatus(CrawlDatum datum) {
     if (datum.status <= STATUS_DB_MAX)
@@ -235,6 +241,7 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
 
   public void setMetaData(org.apache.hadoop.io.MapWritable mapWritable) {
     this.metaData = new org.apache.hadoop.io.MapWritable(mapWritable);
+    this.rawMetaDataLength = 0;
   }
 
   /**
@@ -255,11 +262,43 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
    * instantiated).
    */
   public org.apache.hadoop.io.MapWritable getMetaData() {
+    decodeMetaData();
     if (this.metaData == null)
       this.metaData = new org.apache.hadoop.io.MapWritable();
     return this.metaData;
   }
 
+  /**
+   * Returns the metadata value for the given key, or null. Other than
+   * <code>getMetaData().get(key)</code> this does not decode the entire
+   * metadata if it has not been accessed since the datum was read, which makes
+   * it the cheaper choice for jobs which only inspect a single value.
+   */
+  public Writable getMetaDataValue(Writable key) {
+    if (rawMetaDataLength > 0) {
+      try {
+        return MetaDataCodec.get(rawMetaData, rawMetaDataLength, key);
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to decode CrawlDatum metadata", e);
+      }
+    }
+    if (metaData == null)
+      return null;
+    return metaData.get(key);
+  }
+
+  /** Decode metadata kept in serialized form since the last read, if any. */
+  private void decodeMetaData() {
+    if (rawMetaDataLength > 0) {
+      try {
+        metaData = MetaDataCodec.read(rawMetaData, rawMetaDataLength);
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to decode CrawlDatum metadata", e);
+      }
+      rawMetaDataLength = 0;
+    }
+  }
+
   //
   // writable methods
   //
@@ -293,7 +332,19 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
         signature = null;
     }
 
-    if (version > 3) {
+    rawMetaDataLength = 0;
+    if (version > 7) {
+      // metadata is decoded lazily, see getMetaData()
+      metaData = null;
+      int length = WritableUtils.readVInt(in);
+      if (length > 0) {
+        if (rawMetaData == null || rawMetaData.length < length) {
+          rawMetaData = new byte[length];
+        }
+        in.readFully(rawMetaData, 0, length);
+        rawMetaDataLength = length;
+      }
+    } else if (version > 3) {
       boolean hasMetadata = false;
       if (version < 7) {
         org.apache.hadoop.io.MapWritable oldMetaData = new org.apache.hadoop.io.MapWritable();
@@ -329,6 +380,54 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
   private static final int SCORE_OFFSET = 1 + 1 + 8 + 1 + 4;
   private static final int SIG_OFFSET = SCORE_OFFSET + 4 + 8;
 
+  //
+  // raw accessor methods
+  //
+  // Read single fields from a serialized CrawlDatum starting at offset s
+  // without deserializing the record, e.g., in a RawComparator or when
+  // scanning raw SequenceFile values.
+  //
+
+  public static byte getVersion(byte[] b, int s) {
+    return b[s];
+  }
+
+  public static byte getStatus(byte[] b, int s) {
+    byte status = b[s + 1];
+    if (b[s] < 5) {
+      Byte newStatus = oldToNew.get(status);
+      return newStatus != null ? newStatus : STATUS_DB_UNFETCHED;
+    }
+    return status;
+  }
+
+  public static long getFetchTime(byte[] b, int s) {
+    return WritableComparator.readLong(b, s + 1 + 1);
+  }
+
+  public static byte getRetriesSinceFetch(byte[] b, int s) {
+    return b[s + 1 + 1 + 8];
+  }
+
+  public static int getFetchInterval(byte[] b, int s) {
+    if (b[s] > 5) {
+      return WritableComparator.readInt(b, s + 1 + 1 + 8 + 1);
+    }
+    return Math.round(WritableComparator.readFloat(b, s + 1 + 1 + 8 + 1));
+  }
+
+  public static float getScore(byte[] b, int s) {
+    return WritableComparator.readFloat(b, s + SCORE_OFFSET);
+  }
+
+  /** Modification time, 0 for versions which did not store it. */
+  public static long getModifiedTime(byte[] b, int s) {
+    if (b[s] > 2) {
+      return WritableComparator.readLong(b, s + SCORE_OFFSET + 4);
+    }
+    return 0L;
+  }
+
   public void write(DataOutput out) throws IOException {
     out.writeByte(CUR_VERSION); // store current version
     out.writeByte(status);
@@ -343,11 +442,12 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
       out.writeByte(signature.length);
       out.write(signature);
     }
-    if (metaData != null && metaData.size() > 0) {
-      out.writeBoolean(true);
-      metaData.write(out);
+    if (rawMetaDataLength > 0) {
+      // not accessed since read, pass through unchanged
+      WritableUtils.writeVInt(out, rawMetaDataLength);
+      out.write(rawMetaData, 0, rawMetaDataLength);
     } else {
-      out.writeBoolean(false);
+      MetaDataCodec.write(metaData, out);
     }
   }
 
@@ -360,7 +460,18 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
     this.score = that.score;
     this.modifiedTime = that.modifiedTime;
     this.signature = that.signature;
-    if (that.metaData != null) {
+    this.rawMetaDataLength = 0;
+    if (that.rawMetaDataLength > 0) {
+      // copy the still encoded metadata
+      this.metaData = null;
+      if (this.rawMetaData == null
+          || this.rawMetaData.length < that.rawMetaDataLength) {
+        this.rawMetaData = new byte[that.rawMetaDataLength];
+      }
+      System.arraycopy(that.rawMetaData, 0, this.rawMetaData, 0,
+          that.rawMetaDataLength);
+      this.rawMetaDataLength = that.rawMetaDataLength;
+    } else if (that.metaData != null) {
       this.metaData = new org.apache.hadoop.io.MapWritable(that.metaData); // make
                                                                            // a
                                                                            // deep
@@ -398,35 +509,35 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
     }
 
     public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
-      float score1 = readFloat(b1, s1 + SCORE_OFFSET);
-      float score2 = readFloat(b2, s2 + SCORE_OFFSET);
+      float score1 = getScore(b1, s1);
+      float score2 = getScore(b2, s2);
       if (score2 != score1) {
         return (score2 - score1) > 0 ? 1 : -1;
       }
-      int status1 = b1[s1 + 1];
-      int status2 = b2[s2 + 1];
+      int status1 = getStatus(b1, s1);
+      int status2 = getStatus(b2, s2);
       if (status2 != status1)
         return status1 - status2;
-      long fetchTime1 = readLong(b1, s1 + 1 + 1);
-      long fetchTime2 = readLong(b2, s2 + 1 + 1);
+      long fetchTime1 = getFetchTime(b1, s1);
+      long fetchTime2 = getFetchTime(b2, s2);
       if (fetchTime2 != fetchTime1)
         return (fetchTime2 - fetchTime1) > 0 ? 1 : -1;
-      int retries1 = b1[s1 + 1 + 1 + 8];
-      int retries2 = b2[s2 + 1 + 1 + 8];
+      int retries1 = getRetriesSinceFetch(b1, s1);
+      int retries2 = getRetriesSinceFetch(b2, s2);
       if (retries2 != retries1)
         return retries2 - retries1;
-      int fetchInterval1 = readInt(b1, s1 + 1 + 1 + 8 + 1);
-      int fetchInterval2 = readInt(b2, s2 + 1 + 1 + 8 + 1);
+      int fetchInterval1 = getFetchInterval(b1, s1);
+      int fetchInterval2 = getFetchInterval(b2, s2);
       if (fetchInterval2 != fetchInterval1)
         return (fetchInterval2 - fetchInterval1) > 0 ? 1 : -1;
-      long modifiedTime1 = readLong(b1, s1 + SCORE_OFFSET + 4);
-      long modifiedTime2 = readLong(b2, s2 + SCORE_OFFSET + 4);
+      long modifiedTime1 = getModifiedTime(b1, s1);
+      long modifiedTime2 = getModifiedTime(b2, s2);
       if (modifiedTime2 != modifiedTime1)
         return (modifiedTime2 - modifiedTime1) > 0 ? 1 : -1;
       int sigl1 = b1[s1 + SIG_OFFSET];
       int sigl2 = b2[s2 + SIG_OFFSET];
-      return SignatureComparator._compare(b1, SIG_OFFSET, sigl1, b2,
-          SIG_OFFSET, sigl2);
+      return SignatureComparator._compare(b1, s1 + SIG_OFFSET + 1, sigl1, b2,
+          s2 + SIG_OFFSET + 1, sigl2);
     }
   }
 
@@ -451,6 +562,7 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
     buf.append("Score: " + getScore() + "\n");
     buf.append("Signature: " + StringUtil.toHexString(getSignature()) + "\n");
     buf.append("Metadata: \n ");
+    decodeMetaData();
     if (metaData != null) {
       for (Entry<Writable, Writable> e : metaData.entrySet()) {
         buf.append("\t");
@@ -482,6 +594,8 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
     if (!(o instanceof CrawlDatum))
       return false;
     CrawlDatum other = (CrawlDatum) o;
+    this.decodeMetaData();
+    other.decodeMetaData();
     boolean res = (this.status == other.status)
         && (this.fetchTime == other.fetchTime)
         && (this.modifiedTime == other.modifiedTime)
@@ -501,6 +615,7 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
         res ^= (signature[i] << 24 + signature[i + 1] << 16 + signature[i + 2] << 8 + signature[i + 3]);
       }
     }
+    decodeMetaData();
     if (metaData != null) {
       res ^= metaData.entrySet().hashCode();
     }
@@ -510,7 +625,12 @@ public class CrawlDatum implements WritableComparable<CrawlDatum>, Cloneable {
 
   public Object clone() {
     try {
-      return super.clone();
+      CrawlDatum result = (CrawlDatum) super.clone();
+      if (rawMetaDataLength > 0) {
+        // the read buffer is reused, the clone needs its own copy
+        result.rawMetaData = Arrays.copyOf(rawMetaData, rawMetaDataLength);
+      }
+      return result;
     } catch (CloneNotSupportedException e) {
       throw new RuntimeException(e);
     }
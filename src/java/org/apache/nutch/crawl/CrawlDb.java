@@ -47,8 +47,35 @@ public class CrawlDb extends NutchTool implements Tool {
 
   public static final String CRAWLDB_PURGE_404 = "db.update.purge.404";
 
+  /**
+   * If true, updatedb writes only the entries of URLs contained in the
+   * segments into a new delta run below <code>crawldb/delta/</code> instead of
+   * rewriting <code>current</code>. Jobs reading the CrawlDb through
+   * {@link CrawlDbInputFormat} merge base and delta runs on the fly. Updates
+   * with URL filtering or normalizing are always full updates, as the existing
+   * entries must pass the filters and normalizers, too.
+   */
+  public static final String CRAWLDB_UPDATE_DELTA = "db.update.delta";
+
+  /**
+   * Maximum number of delta runs, if exceeded all runs are compacted into
+   * <code>current</code> (default: 10).
+   */
+  public static final String CRAWLDB_DELTA_MAX_RUNS = "db.update.delta.max.runs";
+
+  /**
+   * If true, the URLs are stored with reversed host names, so that the entries
+   * of a host are stored together (see {@link CrawlDbOutputFormat}). Existing
+   * CrawlDbs are converted by the next update or by
+   * <code>CrawlDb &lt;crawldb&gt; -compact</code>, readers detect the encoding
+   * of the stored URLs.
+   */
+  public static final String CRAWLDB_REVERSED_URLS = "db.url.reversed";
+
   public static final String CURRENT_NAME = "current";
 
+  public static final String DELTA_NAME = "delta";
+
   public static final String LOCK_NAME = ".locked";
 
   public CrawlDb() {
@@ -74,12 +101,25 @@ public class CrawlDb extends NutchTool implements Tool {
     SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     long start = System.currentTimeMillis();
 
-    JobConf job = CrawlDb.createJob(getConf(), crawlDb);
-    job.setBoolean(CRAWLDB_ADDITIONS_ALLOWED, additionsAllowed);
-    job.setBoolean(CrawlDbFilter.URL_FILTERING, filter);
-    job.setBoolean(CrawlDbFilter.URL_NORMALIZING, normalize);
+    boolean delta = getConf().getBoolean(CRAWLDB_UPDATE_DELTA, false);
+    if (delta && !fs.exists(new Path(crawlDb, CURRENT_NAME))) {
+      LOG.info("CrawlDb update: no current CrawlDb, delta update disabled");
+      delta = false;
+    }
+    boolean reversed = getConf().getBoolean(CRAWLDB_REVERSED_URLS, false);
+    if (delta
+        && reversed != hasReversedUrls(fs, new Path(crawlDb, CURRENT_NAME),
+            getConf())) {
+      LOG.info("CrawlDb update: URL encoding changed, delta update disabled");
+      delta = false;
+    }
+    if (delta && (filter || normalize)) {
+      LOG.info("CrawlDb update: URL filtering or normalizing requested, "
+          + "delta update disabled");
+      delta = false;
+    }
 
-    boolean url404Purging = job.getBoolean(CRAWLDB_PURGE_404, false);
+    boolean url404Purging = getConf().getBoolean(CRAWLDB_PURGE_404, false);
 
     if (LOG.isInfoEnabled()) {
       LOG.info("CrawlDb update: starting at " + sdf.format(start));
@@ -89,8 +129,58 @@ public class CrawlDb extends NutchTool implements Tool {
       LOG.info("CrawlDb update: URL normalizing: " + normalize);
       LOG.info("CrawlDb update: URL filtering: " + filter);
       LOG.info("CrawlDb update: 404 purging: " + url404Purging);
+      LOG.info("CrawlDb update: delta: " + delta);
     }
 
+    JobConf job = runUpdate(crawlDb, segments, normalize, filter,
+        additionsAllowed, delta, lock);
+    if (delta) {
+      Path newRun = FileOutputFormat.getOutputPath(job);
+      int numParts = getNumParts(fs, new Path(crawlDb, CURRENT_NAME));
+      if (getNumParts(fs, newRun) != numParts) {
+        // e.g., the local job runner runs only a single reduce task
+        LOG.warn("CrawlDb update: delta run not partitioned as current ("
+            + numParts + " parts), running a full update");
+        fs.delete(newRun, true);
+        delta = false;
+        job = runUpdate(crawlDb, segments, normalize, filter,
+            additionsAllowed, delta, lock);
+      }
+    }
+
+    if (delta) {
+      Path run = CrawlDb.installDelta(job, crawlDb);
+      LOG.info("CrawlDb update: installed delta run " + run);
+      int maxRuns = job.getInt(CRAWLDB_DELTA_MAX_RUNS, 10);
+      if (getDeltaRuns(fs, crawlDb).length > maxRuns) {
+        LOG.info("CrawlDb update: more than " + maxRuns
+            + " delta runs, compacting");
+        compact(crawlDb, lock);
+      } else {
+        LockUtil.removeLockFile(fs, lock);
+      }
+    } else {
+      CrawlDb.install(job, crawlDb);
+    }
+    long end = System.currentTimeMillis();
+    LOG.info("CrawlDb update: finished at " + sdf.format(end) + ", elapsed: "
+        + TimingUtil.elapsedTime(start, end));
+  }
+
+  private JobConf runUpdate(Path crawlDb, Path[] segments, boolean normalize,
+      boolean filter, boolean additionsAllowed, boolean delta, Path lock)
+      throws IOException {
+    FileSystem fs = FileSystem.get(getConf());
+    JobConf job;
+    if (delta) {
+      job = CrawlDb.createDeltaJob(getConf(), crawlDb);
+    } else {
+      job = CrawlDb.createJob(getConf(), crawlDb);
+    }
+    job.setBoolean(CRAWLDB_ADDITIONS_ALLOWED, additionsAllowed);
+    job.setBoolean(CrawlDbFilter.URL_FILTERING, filter);
+    job.setBoolean(CrawlDbFilter.URL_NORMALIZING, normalize);
+
     for (int i = 0; i < segments.length; i++) {
       Path fetch = new Path(segments[i], CrawlDatum.FETCH_DIR_NAME);
       Path parse = new Path(segments[i], CrawlDatum.PARSE_DIR_NAME);
@@ -106,7 +196,7 @@ public class CrawlDb extends NutchTool implements Tool {
       LOG.info("CrawlDb update: Merging segment data into db.");
     }
     try {
-      JobClient.runJob(job);
+      NutchJob.runJob(job);
     } catch (IOException e) {
       LockUtil.removeLockFile(fs, lock);
       Path outPath = FileOutputFormat.getOutputPath(job);
@@ -114,13 +204,42 @@ public class CrawlDb extends NutchTool implements Tool {
         fs.delete(outPath, true);
       throw e;
     }
+    return job;
+  }
 
-    CrawlDb.install(job, crawlDb);
+  /**
+   * Merge all delta runs into <code>current</code>.
+   */
+  public void compact(Path crawlDb, boolean force) throws IOException {
+    FileSystem fs = FileSystem.get(getConf());
+    Path lock = new Path(crawlDb, LOCK_NAME);
+    LockUtil.createLockFile(fs, lock, force);
+    SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    long start = System.currentTimeMillis();
+    LOG.info("CrawlDb compact: starting at " + sdf.format(start));
+    LOG.info("CrawlDb compact: db: " + crawlDb);
+    compact(crawlDb, lock);
     long end = System.currentTimeMillis();
-    LOG.info("CrawlDb update: finished at " + sdf.format(end) + ", elapsed: "
+    LOG.info("CrawlDb compact: finished at " + sdf.format(end) + ", elapsed: "
         + TimingUtil.elapsedTime(start, end));
   }
 
+  private void compact(Path crawlDb, Path lock) throws IOException {
+    FileSystem fs = FileSystem.get(getConf());
+    JobConf job = CrawlDb.createJob(getConf(), crawlDb);
+    job.setJobName("crawldb compact " + crawlDb);
+    try {
+      NutchJob.runJob(job);
+    } catch (IOException e) {
+      LockUtil.removeLockFile(fs, lock);
+      Path outPath = FileOutputFormat.getOutputPath(job);
+      if (fs.exists(outPath))
+        fs.delete(outPath, true);
+      throw e;
+    }
+    CrawlDb.install(job, crawlDb);
+  }
+
   /*
    * Configure a new CrawlDb in a temp folder at crawlDb/<rand>
    */
@@ -136,15 +255,45 @@ public class CrawlDb extends NutchTool implements Tool {
     if (FileSystem.get(job).exists(current)) {
       FileInputFormat.addInputPath(job, current);
     }
-    job.setInputFormat(SequenceFileInputFormat.class);
+    job.setInputFormat(CrawlDbInputFormat.class);
 
     job.setMapperClass(CrawlDbFilter.class);
     job.setReducerClass(CrawlDbReducer.class);
 
     FileOutputFormat.setOutputPath(job, newCrawlDb);
-    job.setOutputFormat(MapFileOutputFormat.class);
-    job.setOutputKeyClass(Text.class);
-    job.setOutputValueClass(CrawlDatum.class);
+    CrawlDbOutputFormat.setOutput(job);
+
+    // https://issues.apache.org/jira/browse/NUTCH-1110
+    job.setBoolean("mapreduce.fileoutputcommitter.marksuccessfuljobs", false);
+
+    return job;
+  }
+
+  /*
+   * Configure an incremental update writing a delta run into a temp folder at
+   * crawlDb/<rand>. The segments are partitioned the same way as current, the
+   * existing entries are looked up by the reducer.
+   */
+  public static JobConf createDeltaJob(Configuration config, Path crawlDb)
+      throws IOException {
+    Path newRun = new Path(crawlDb, Integer.toString(new Random()
+        .nextInt(Integer.MAX_VALUE)));
+
+    JobConf job = new NutchJob(config);
+    job.setJobName("crawldb delta " + crawlDb);
+
+    FileSystem fs = FileSystem.get(job);
+    // same partitioning as current, required to merge the runs by part
+    job.setNumReduceTasks(getNumParts(fs, new Path(crawlDb, CURRENT_NAME)));
+    job.set(CrawlDbDeltaReducer.CRAWLDB_PATH, fs.makeQualified(crawlDb)
+        .toString());
+    job.setInputFormat(SequenceFileInputFormat.class);
+
+    job.setMapperClass(CrawlDbFilter.class);
+    job.setReducerClass(CrawlDbDeltaReducer.class);
+
+    FileOutputFormat.setOutputPath(job, newRun);
+    CrawlDbOutputFormat.setOutput(job);
 
     // https://issues.apache.org/jira/browse/NUTCH-1110
     job.setBoolean("mapreduce.fileoutputcommitter.marksuccessfuljobs", false);
@@ -152,6 +301,103 @@ public class CrawlDb extends NutchTool implements Tool {
     return job;
   }
 
+  /**
+   * Get the delta runs of a CrawlDb, ordered from the oldest to the newest.
+   */
+  public static Path[] getDeltaRuns(FileSystem fs, Path crawlDb)
+      throws IOException {
+    Path deltaDir = new Path(crawlDb, DELTA_NAME);
+    if (!fs.exists(deltaDir))
+      return new Path[0];
+    List<Path> runs = new ArrayList<Path>();
+    for (FileStatus stat : fs.listStatus(deltaDir,
+        HadoopFSUtil.getPassDirectoriesFilter(fs))) {
+      try {
+        Long.parseLong(stat.getPath().getName());
+        runs.add(stat.getPath());
+      } catch (NumberFormatException e) {
+        // not a run
+      }
+    }
+    Collections.sort(runs, new Comparator<Path>() {
+      public int compare(Path p1, Path p2) {
+        long t1 = Long.parseLong(p1.getName());
+        long t2 = Long.parseLong(p2.getName());
+        return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+      }
+    });
+    return runs.toArray(new Path[runs.size()]);
+  }
+
+  /**
+   * Get the number of parts of a CrawlDb run (<code>current</code> or a delta
+   * run).
+   */
+  public static int getNumParts(FileSystem fs, Path run) throws IOException {
+    int numParts = 0;
+    for (FileStatus part : fs.listStatus(run,
+        HadoopFSUtil.getPassDirectoriesFilter(fs))) {
+      if (part.getPath().getName().startsWith("part-"))
+        numParts++;
+    }
+    return numParts;
+  }
+
+  /**
+   * Whether the URLs of a CrawlDb run (<code>current</code> or a delta run) are
+   * stored reversed, determined by the first part, see
+   * {@link #isReversedPart(FileSystem, Path)}.
+   * 
+   * @return false if the run has no parts
+   */
+  public static boolean hasReversedUrls(FileSystem fs, Path run,
+      Configuration conf) throws IOException {
+    if (!fs.exists(run))
+      return false;
+    FileStatus[] parts = fs.listStatus(run,
+        HadoopFSUtil.getPassDirectoriesFilter(fs));
+    Arrays.sort(parts);
+    for (FileStatus part : parts) {
+      if (part.getPath().getName().startsWith("part-"))
+        return isReversedPart(fs, part.getPath());
+    }
+    return false;
+  }
+
+  /**
+   * Whether the URLs of a part are stored reversed: such parts are written
+   * with a {@link CrawlDbHostIndex}. The keys are not inspected, plain URLs
+   * without authority (e.g., <code>mailto:</code> URLs) look like reversed
+   * ones.
+   */
+  public static boolean isReversedPart(FileSystem fs, Path part)
+      throws IOException {
+    return fs.exists(new Path(new Path(part, CrawlDbHostIndex.HOST_INDEX_NAME),
+        MapFile.DATA_FILE_NAME));
+  }
+
+  /**
+   * Move the output of an incremental update into a new delta run.
+   *
+   * @return the path of the new run
+   */
+  public static Path installDelta(JobConf job, Path crawlDb)
+      throws IOException {
+    Path newRun = FileOutputFormat.getOutputPath(job);
+    FileSystem fs = new JobClient(job).getFs();
+    Path deltaDir = new Path(crawlDb, DELTA_NAME);
+    fs.mkdirs(deltaDir);
+    long time = System.currentTimeMillis();
+    Path[] runs = getDeltaRuns(fs, crawlDb);
+    if (runs.length > 0) {
+      // keep the order of runs even if clocks differ
+      time = Math.max(time, Long.parseLong(runs[runs.length - 1].getName()) + 1);
+    }
+    Path run = new Path(deltaDir, Long.toString(time));
+    fs.rename(newRun, run);
+    return run;
+  }
+
   public static void install(JobConf job, Path crawlDb) throws IOException {
     boolean preserveBackup = job.getBoolean("db.preserve.backup", true);
 
@@ -166,6 +412,10 @@ public class CrawlDb extends NutchTool implements Tool {
     }
     fs.mkdirs(crawlDb);
     fs.rename(newCrawlDb, current);
+    // the new current contains all delta runs
+    Path delta = new Path(crawlDb, DELTA_NAME);
+    if (fs.exists(delta))
+      fs.delete(delta, true);
     if (!preserveBackup && fs.exists(old))
       fs.delete(old, true);
     Path lock = new Path(crawlDb, LOCK_NAME);
@@ -180,7 +430,8 @@ public class CrawlDb extends NutchTool implements Tool {
   public int run(String[] args) throws Exception {
     if (args.length < 1) {
       System.err
-          .println("Usage: CrawlDb <crawldb> (-dir <segments> | <seg1> <seg2> ...) [-force] [-normalize] [-filter] [-noAdditions]");
+          .println("Usage: CrawlDb <crawldb> (-dir <segments> | <seg1> <seg2> ...) [-force] [-normalize] [-filter] [-noAdditions] [-delta]");
+      System.err.println("       CrawlDb <crawldb> -compact [-force]");
       System.err.println("\tcrawldb\tCrawlDb to update");
       System.err
           .println("\t-dir segments\tparent directory containing all segments to update from");
@@ -194,6 +445,10 @@ public class CrawlDb extends NutchTool implements Tool {
           .println("\t-filter\tuse URLFilters on urls in CrawlDb and segment");
       System.err
           .println("\t-noAdditions\tonly update already existing URLs, don't add any newly discovered URLs");
+      System.err
+          .println("\t-delta\twrite the updated entries into a delta run instead of rewriting the CrawlDb");
+      System.err
+          .println("\t-compact\tmerge all delta runs into the CrawlDb, converting the URLs as configured by db.url.reversed");
 
       return -1;
     }
@@ -203,10 +458,15 @@ public class CrawlDb extends NutchTool implements Tool {
     boolean additionsAllowed = getConf().getBoolean(CRAWLDB_ADDITIONS_ALLOWED,
         true);
     boolean force = false;
+    boolean compact = false;
     final FileSystem fs = FileSystem.get(getConf());
     HashSet<Path> dirs = new HashSet<Path>();
     for (int i = 1; i < args.length; i++) {
-      if (args[i].equals("-normalize")) {
+      if (args[i].equals("-compact")) {
+        compact = true;
+      } else if (args[i].equals("-delta")) {
+        getConf().setBoolean(CRAWLDB_UPDATE_DELTA, true);
+      } else if (args[i].equals("-normalize")) {
         normalize = true;
       } else if (args[i].equals("-filter")) {
         filter = true;
@@ -223,6 +483,10 @@ public class CrawlDb extends NutchTool implements Tool {
       }
     }
     try {
+      if (compact) {
+        compact(new Path(args[0]), force);
+        return 0;
+      }
       update(new Path(args[0]), dirs.toArray(new Path[dirs.size()]), normalize,
           filter, additionsAllowed, force);
       return 0;
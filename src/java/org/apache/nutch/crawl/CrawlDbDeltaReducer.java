@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * Reducer of incremental CrawlDb updates: the input contains only the segment
+ * data, the current entry of every URL is looked up in the CrawlDb (base and
+ * delta runs) and merged the same way as by {@link CrawlDbReducer}. Only the
+ * entries of URLs contained in the segments are written into the new delta
+ * run.
+ */
+public class CrawlDbDeltaReducer extends CrawlDbReducer {
+
+  /** Path of the CrawlDb to look up existing entries. */
+  public static final String CRAWLDB_PATH = "db.update.delta.crawldb";
+
+  private CrawlDbLookup lookup;
+  private CrawlDatum old = new CrawlDatum();
+
+  public void configure(JobConf job) {
+    super.configure(job);
+    try {
+      // open only the part of this partition
+      lookup = new CrawlDbLookup(new Path(job.get(CRAWLDB_PATH)), job,
+          job.getInt("mapred.task.partition", -1), job.getNumReduceTasks());
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to open CrawlDb "
+          + job.get(CRAWLDB_PATH), e);
+    }
+  }
+
+  public void close() {
+    if (lookup != null)
+      lookup.close();
+    super.close();
+  }
+
+  public void reduce(Text key, final Iterator<CrawlDatum> values,
+      OutputCollector<Text, CrawlDatum> output, Reporter reporter)
+      throws IOException {
+    if (lookup.get(key, old) == null) {
+      super.reduce(key, values, output, reporter);
+      return;
+    }
+    // pass the existing entry first, followed by the segment data
+    super.reduce(key, new Iterator<CrawlDatum>() {
+      private boolean oldPassed = false;
+
+      public boolean hasNext() {
+        return !oldPassed || values.hasNext();
+      }
+
+      public CrawlDatum next() {
+        if (!oldPassed) {
+          oldPassed = true;
+          return old;
+        }
+        if (!values.hasNext())
+          throw new NoSuchElementException();
+        return values.next();
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    }, output, reporter);
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.nutch.util.ReversedUrl;
+
+/**
+ * Index of the hosts contained in a part of a CrawlDb with reversed URLs (see
+ * {@link CrawlDb#CRAWLDB_REVERSED_URLS}), written by
+ * {@link CrawlDbOutputFormat} into the MapFile directory of every part. The
+ * index maps the reversed host name followed by a colon, i.e. the common
+ * prefix of all stored URLs of the host, to the first and last stored URL and
+ * the number of URLs of the host in the part.
+ */
+public class CrawlDbHostIndex {
+
+  /** Name of the index, a MapFile inside the part directory. */
+  public static final String HOST_INDEX_NAME = "hosts";
+
+  /** Key range of a host in a part. */
+  public static class Entry implements Writable {
+
+    private Text first = new Text();
+    private Text last = new Text();
+    private long count;
+
+    /** First stored (reversed) URL of the host. */
+    public Text getFirst() {
+      return first;
+    }
+
+    /** Last stored (reversed) URL of the host. */
+    public Text getLast() {
+      return last;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public void readFields(DataInput in) throws IOException {
+      first.readFields(in);
+      last.readFields(in);
+      count = WritableUtils.readVLong(in);
+    }
+
+    public void write(DataOutput out) throws IOException {
+      first.write(out);
+      last.write(out);
+      WritableUtils.writeVLong(out, count);
+    }
+
+    public String toString() {
+      return first + " - " + last + " (" + count + ")";
+    }
+  }
+
+  /** Index key of a host name. */
+  public static Text getKey(String host) {
+    return new Text(ReversedUrl.reverseHost(host.toLowerCase()) + ":");
+  }
+
+  /**
+   * Builds the index while the part is written: the URLs of a host are
+   * contiguous, an entry is added whenever the host changes.
+   */
+  static class Writer {
+
+    private final MapFile.Writer out;
+    private final Text host = new Text();
+    private final Entry entry = new Entry();
+    private boolean open = false;
+
+    Writer(Configuration conf, FileSystem fs, Path part) throws IOException {
+      out = new MapFile.Writer(conf, fs, new Path(part, HOST_INDEX_NAME)
+          .toString(), Text.class, Entry.class);
+    }
+
+    /** Add a stored (reversed) URL. */
+    void add(Text key) throws IOException {
+      byte[] bytes = key.getBytes();
+      int hostLength = ReversedUrl.getHostLength(bytes, 0, key.getLength());
+      if (hostLength < 0) {
+        // not reversed, not indexed
+        flush();
+        return;
+      }
+      int prefixLength = hostLength + 1;
+      if (open
+          && host.getLength() == prefixLength
+          && WritableComparator.compareBytes(host.getBytes(), 0, prefixLength,
+              bytes, 0, prefixLength) == 0) {
+        entry.last.set(key);
+        entry.count++;
+        return;
+      }
+      flush();
+      host.set(bytes, 0, prefixLength);
+      entry.first.set(key);
+      entry.last.set(key);
+      entry.count = 1;
+      open = true;
+    }
+
+    private void flush() throws IOException {
+      if (open) {
+        out.append(host, entry);
+        open = false;
+      }
+    }
+
+    void close() throws IOException {
+      try {
+        flush();
+      } finally {
+        out.close();
+      }
+    }
+  }
+}
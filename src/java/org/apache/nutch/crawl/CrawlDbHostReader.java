@@ -0,0 +1,238 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.nutch.util.HadoopFSUtil;
+import org.apache.nutch.util.ReversedUrl;
+import org.apache.nutch.util.URLUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams the entries of all URLs of one host from a CrawlDb, including delta
+ * runs, without running a MapReduce job. The parts are read one after the
+ * other, the runs of a part are merged and for every URL only the most recent
+ * entry is returned.
+ *
+ * <p>
+ * In runs with reversed URLs (see {@link CrawlDb#CRAWLDB_REVERSED_URLS}) the
+ * URLs of a host are contiguous: the reader seeks to the first URL of the host
+ * and stops after the last one, parts not containing the host are skipped by
+ * the {@link CrawlDbHostIndex}. Runs with plain URLs are scanned completely.
+ * </p>
+ */
+public class CrawlDbHostReader implements Closeable {
+
+  public static final Logger LOG = LoggerFactory
+      .getLogger(CrawlDbHostReader.class);
+
+  /** Range of the host in one run of a part. */
+  private class Cursor {
+    MapFile.Reader reader;
+    boolean reversed;
+    Text key = new Text();
+    CrawlDatum datum = new CrawlDatum();
+    boolean valid;
+
+    Cursor(Path part, boolean reversed) throws IOException {
+      this.reversed = reversed;
+      if (reversed) {
+        Text first = hostKey;
+        Path index = new Path(part, CrawlDbHostIndex.HOST_INDEX_NAME);
+        if (fs.exists(index)) {
+          MapFile.Reader indexReader = new MapFile.Reader(fs, index.toString(),
+              conf);
+          CrawlDbHostIndex.Entry entry = new CrawlDbHostIndex.Entry();
+          try {
+            if (indexReader.get(hostKey, entry) == null)
+              return;
+          } finally {
+            indexReader.close();
+          }
+          first = entry.getFirst();
+        }
+        reader = new MapFile.Reader(fs, part.toString(), conf);
+        Text found = (Text) reader.getClosest(first, datum);
+        if (found != null) {
+          key.set(found);
+          valid = isHost();
+        }
+      } else {
+        reader = new MapFile.Reader(fs, part.toString(), conf);
+        valid = next();
+      }
+    }
+
+    /** Advance to the next entry of the host. */
+    boolean next() throws IOException {
+      while (reader.next(key, datum)) {
+        if (isHost())
+          return true;
+        if (reversed)
+          return false;
+      }
+      return false;
+    }
+
+    private boolean isHost() {
+      if (reversed) {
+        int length = hostKey.getLength();
+        return key.getLength() >= length
+            && WritableComparator.compareBytes(key.getBytes(), 0, length,
+                hostKey.getBytes(), 0, length) == 0;
+      }
+      return host.equalsIgnoreCase(URLUtil.getHost(key.toString()));
+    }
+
+    void close() {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+        }
+      }
+    }
+  }
+
+  private final FileSystem fs;
+  private final Configuration conf;
+  private final String host;
+  private final Text hostKey;
+  /** runs, newest first */
+  private final List<Path> runs = new ArrayList<Path>();
+  private final List<Boolean> reversed = new ArrayList<Boolean>();
+  private final List<String> parts = new ArrayList<String>();
+  private int part = -1;
+  private Cursor[] cursors = new Cursor[0];
+  private byte[] buf = new byte[256];
+
+  public CrawlDbHostReader(Path crawlDb, String host, Configuration conf)
+      throws IOException {
+    this.conf = conf;
+    this.fs = crawlDb.getFileSystem(conf);
+    this.host = host.toLowerCase();
+    this.hostKey = CrawlDbHostIndex.getKey(host);
+    Path[] deltas = CrawlDb.getDeltaRuns(fs, crawlDb);
+    for (int i = deltas.length - 1; i >= 0; i--) {
+      runs.add(deltas[i]);
+    }
+    runs.add(new Path(crawlDb, CrawlDb.CURRENT_NAME));
+    TreeSet<String> names = new TreeSet<String>();
+    for (Path run : runs) {
+      if (!fs.exists(run)) {
+        reversed.add(false);
+        continue;
+      }
+      reversed.add(CrawlDb.hasReversedUrls(fs, run, conf));
+      if (!reversed.get(reversed.size() - 1)) {
+        LOG.info("No reversed URLs in " + run + ", scanning all entries");
+      }
+      for (FileStatus stat : fs.listStatus(run,
+          HadoopFSUtil.getPassDirectoriesFilter(fs))) {
+        names.add(stat.getPath().getName());
+      }
+    }
+    parts.addAll(names);
+  }
+
+  /**
+   * Read the next entry of the host.
+   *
+   * @param url
+   *          set to the plain URL
+   * @param datum
+   *          set to the entry
+   * @return false if there are no more entries
+   */
+  public boolean next(Text url, CrawlDatum datum) throws IOException {
+    while (true) {
+      // the smallest key, newest run first
+      Cursor min = null;
+      for (Cursor cursor : cursors) {
+        if (cursor.valid && (min == null || cursor.key.compareTo(min.key) < 0))
+          min = cursor;
+      }
+      if (min != null) {
+        if (min.reversed) {
+          int length = min.key.getLength();
+          if (buf.length < length + 2)
+            buf = new byte[Math.max(length + 2, 2 * buf.length)];
+          url.set(buf, 0,
+              ReversedUrl.unreverse(min.key.getBytes(), 0, length, buf));
+        } else {
+          url.set(min.key);
+        }
+        datum.set(min.datum);
+        // skip older entries of the URL
+        for (Cursor cursor : cursors) {
+          if (cursor != min && cursor.valid && cursor.key.equals(min.key))
+            cursor.valid = cursor.next();
+        }
+        min.valid = min.next();
+        return true;
+      }
+      if (!openNextPart())
+        return false;
+    }
+  }
+
+  private boolean openNextPart() throws IOException {
+    closeCursors();
+    if (++part >= parts.size())
+      return false;
+    List<Cursor> open = new ArrayList<Cursor>();
+    for (int i = 0; i < runs.size(); i++) {
+      Path dir = new Path(runs.get(i), parts.get(part));
+      if (!fs.exists(new Path(dir, MapFile.DATA_FILE_NAME)))
+        continue;
+      Cursor cursor = new Cursor(dir, reversed.get(i));
+      if (cursor.valid) {
+        open.add(cursor);
+      } else {
+        cursor.close();
+      }
+    }
+    cursors = open.toArray(new Cursor[open.size()]);
+    return true;
+  }
+
+  private void closeCursors() {
+    for (Cursor cursor : cursors) {
+      cursor.close();
+    }
+    cursors = new Cursor[0];
+  }
+
+  public void close() {
+    closeCursors();
+    part = parts.size();
+  }
+}
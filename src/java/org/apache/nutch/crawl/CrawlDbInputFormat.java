@@ -0,0 +1,274 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MultiFileSplit;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.SequenceFileInputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.nutch.util.HadoopFSUtil;
+import org.apache.nutch.util.ReversedUrl;
+import org.apache.nutch.util.SortedMergeReader;
+
+/**
+ * Input format for jobs reading a CrawlDb. If the CrawlDb contains delta runs
+ * written by incremental updates (see {@link CrawlDb#CRAWLDB_UPDATE_DELTA}), an
+ * input path pointing to <code>crawldb/current</code> is read merged with all
+ * runs: one split per partition combines the part of <code>current</code>
+ * with the same parts of all runs, and for every URL only the most recent
+ * entry is passed to the mapper. All other input paths are read as plain
+ * sequence files. URLs of parts stored with reversed host names (see
+ * {@link CrawlDb#CRAWLDB_REVERSED_URLS} and
+ * {@link CrawlDb#isReversedPart(FileSystem, Path)}) are restored, so that
+ * mappers always get plain URLs. Keys of other inputs (e.g., segments) are
+ * passed unchanged.
+ */
+public class CrawlDbInputFormat extends SequenceFileInputFormat<Writable, Writable> {
+
+  @Override
+  public InputSplit[] getSplits(JobConf job, int numSplits) throws IOException {
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    List<Path> plain = new ArrayList<Path>();
+    for (Path input : FileInputFormat.getInputPaths(job)) {
+      FileSystem fs = input.getFileSystem(job);
+      Path[] deltas = null;
+      if (CrawlDb.CURRENT_NAME.equals(input.getName())) {
+        deltas = CrawlDb.getDeltaRuns(fs, input.getParent());
+      }
+      if (deltas == null || deltas.length == 0) {
+        plain.add(input);
+      } else {
+        getMergedSplits(job, fs, input, deltas, splits);
+      }
+    }
+    if (plain.size() > 0) {
+      JobConf plainJob = new JobConf(job);
+      FileInputFormat.setInputPaths(plainJob,
+          plain.toArray(new Path[plain.size()]));
+      splits.addAll(Arrays.asList(super.getSplits(plainJob, numSplits)));
+    }
+    return splits.toArray(new InputSplit[splits.size()]);
+  }
+
+  private void getMergedSplits(JobConf job, FileSystem fs, Path current,
+      Path[] deltas, List<InputSplit> splits) throws IOException {
+    Path[] runs = new Path[deltas.length + 1];
+    runs[0] = current;
+    System.arraycopy(deltas, 0, runs, 1, deltas.length);
+    TreeSet<String> parts = new TreeSet<String>();
+    for (Path run : runs) {
+      if (!fs.exists(run))
+        continue;
+      for (FileStatus part : fs.listStatus(run,
+          HadoopFSUtil.getPassDirectoriesFilter(fs))) {
+        String name = part.getPath().getName();
+        if (name.startsWith("part-"))
+          parts.add(name);
+      }
+    }
+    for (String part : parts) {
+      List<Path> files = new ArrayList<Path>();
+      List<Long> lengths = new ArrayList<Long>();
+      for (Path run : runs) {
+        Path data = new Path(new Path(run, part), MapFile.DATA_FILE_NAME);
+        if (fs.exists(data)) {
+          files.add(data);
+          lengths.add(fs.getFileStatus(data).getLen());
+        }
+      }
+      if (files.isEmpty())
+        continue;
+      long[] lens = new long[lengths.size()];
+      for (int i = 0; i < lens.length; i++) {
+        lens[i] = lengths.get(i);
+      }
+      splits.add(new MultiFileSplit(job, files.toArray(new Path[files.size()]),
+          lens));
+    }
+  }
+
+  @Override
+  public RecordReader<Writable, Writable> getRecordReader(InputSplit split,
+      JobConf job, Reporter reporter) throws IOException {
+    RecordReader<Writable, Writable> reader;
+    Path[] files;
+    if (split instanceof MultiFileSplit) {
+      reporter.setStatus(split.toString());
+      reader = new MergingRecordReader(job, (MultiFileSplit) split);
+      files = ((MultiFileSplit) split).getPaths();
+    } else {
+      reader = super.getRecordReader(split, job, reporter);
+      files = new Path[] { ((FileSplit) split).getPath() };
+    }
+    try {
+      if (isReversed(job, files))
+        return new UrlRestoringRecordReader(reader);
+    } catch (IOException e) {
+      reader.close();
+      throw e;
+    }
+    return reader;
+  }
+
+  /** Whether the parts of the data files store reversed URLs. */
+  private static boolean isReversed(JobConf job, Path[] files)
+      throws IOException {
+    boolean reversed = false;
+    for (int i = 0; i < files.length; i++) {
+      Path part = files[i].getParent();
+      boolean r = CrawlDb.isReversedPart(part.getFileSystem(job), part);
+      if (i > 0 && r != reversed)
+        throw new IOException("Cannot merge parts with plain and reversed URLs: "
+            + files[0].getParent() + ", " + part);
+      reversed = r;
+    }
+    return reversed;
+  }
+
+  /**
+   * Restores the URL keys of a part with reversed URLs.
+   */
+  static class UrlRestoringRecordReader implements
+      RecordReader<Writable, Writable> {
+
+    private final RecordReader<Writable, Writable> reader;
+    private byte[] buf = new byte[256];
+
+    UrlRestoringRecordReader(RecordReader<Writable, Writable> reader) {
+      this.reader = reader;
+    }
+
+    public boolean next(Writable key, Writable value) throws IOException {
+      if (!reader.next(key, value))
+        return false;
+      if (key instanceof Text) {
+        Text url = (Text) key;
+        int length = url.getLength();
+        if (buf.length < length + 2)
+          buf = new byte[Math.max(length + 2, 2 * buf.length)];
+        url.set(buf, 0, ReversedUrl.unreverse(url.getBytes(), 0, length, buf));
+      }
+      return true;
+    }
+
+    public Writable createKey() {
+      return reader.createKey();
+    }
+
+    public Writable createValue() {
+      return reader.createValue();
+    }
+
+    public long getPos() throws IOException {
+      return reader.getPos();
+    }
+
+    public float getProgress() throws IOException {
+      return reader.getProgress();
+    }
+
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads the merged parts of one partition, passing only the most recent
+   * value of every key.
+   */
+  static class MergingRecordReader implements
+      RecordReader<Writable, Writable> {
+
+    private final SequenceFile.Reader[] readers;
+    private final SortedMergeReader merger;
+    private final long length;
+
+    MergingRecordReader(JobConf job, MultiFileSplit split) throws IOException {
+      Path[] paths = split.getPaths();
+      readers = new SequenceFile.Reader[paths.length];
+      try {
+        for (int i = 0; i < paths.length; i++) {
+          readers[i] = new SequenceFile.Reader(paths[i].getFileSystem(job),
+              paths[i], job);
+        }
+      } catch (IOException e) {
+        for (SequenceFile.Reader reader : readers) {
+          if (reader != null)
+            reader.close();
+        }
+        throw e;
+      }
+      merger = new SortedMergeReader(readers, job);
+      length = split.getLength();
+    }
+
+    public boolean next(Writable key, Writable value) throws IOException {
+      if (!merger.next((WritableComparable<?>) key))
+        return false;
+      merger.getLastValue(value);
+      return true;
+    }
+
+    public Writable createKey() {
+      return (Writable) ReflectionUtils.newInstance(readers[0].getKeyClass(),
+          null);
+    }
+
+    public Writable createValue() {
+      return (Writable) ReflectionUtils.newInstance(
+          readers[0].getValueClass(), null);
+    }
+
+    public long getPos() throws IOException {
+      long pos = 0;
+      for (SequenceFile.Reader reader : readers) {
+        pos += reader.getPosition();
+      }
+      return pos;
+    }
+
+    public float getProgress() throws IOException {
+      if (length == 0)
+        return 0.0f;
+      return Math.min(1.0f, getPos() / (float) length);
+    }
+
+    public void close() throws IOException {
+      merger.close();
+    }
+  }
+}
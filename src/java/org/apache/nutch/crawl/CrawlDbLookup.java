@@ -0,0 +1,273 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.lib.HashPartitioner;
+import org.apache.nutch.util.BloomMapFileOutputFormat.LazyReaders;
+import org.apache.nutch.util.ReversedUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Random access to the entries of a CrawlDb, including delta runs written by
+ * incremental updates (see {@link CrawlDb#CRAWLDB_UPDATE_DELTA}). The runs are
+ * searched from the newest to the base in <code>current</code>, the first hit
+ * wins. URLs stored reversed (see {@link CrawlDb#CRAWLDB_REVERSED_URLS}) are
+ * looked up by their reversed form.
+ *
+ * <p>
+ * The parts are opened on first access and kept open until {@link #close()},
+ * so a lookup only loads the MapFile indexes and Bloom filters of the parts
+ * the URLs are partitioned to, and a long-lived instance loads them only once.
+ * Optionally, the most recently used entries (including absent URLs) are kept
+ * in a bounded cache. Instances are thread-safe.
+ * </p>
+ */
+public class CrawlDbLookup implements Closeable {
+
+  public static final Logger LOG = LoggerFactory.getLogger(CrawlDbLookup.class);
+
+  /** Max. number of entries cached by long-lived lookups (default: 10000). */
+  public static final String CACHE_SIZE = "db.lookup.cache.size";
+
+  /** Cached marker of URLs not contained in the CrawlDb. */
+  private static final CrawlDatum ABSENT = new CrawlDatum();
+
+  private final List<LazyReaders> runs = new ArrayList<LazyReaders>();
+  private final List<Boolean> reversed = new ArrayList<Boolean>();
+  private final HashPartitioner<Text, CrawlDatum> partitioner = new HashPartitioner<Text, CrawlDatum>();
+  private final Map<Text, CrawlDatum> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  /** Number of parts of <code>current</code>, at least 1. */
+  private int numParts = 1;
+  /** Whether <code>current</code> stores the URLs reversed. */
+  private boolean currentReversed = false;
+
+  public CrawlDbLookup(Path crawlDb, Configuration conf) throws IOException {
+    this(crawlDb, conf, 0);
+  }
+
+  /**
+   * @param cacheSize
+   *          max. number of cached entries, 0 to disable the cache
+   */
+  public CrawlDbLookup(Path crawlDb, Configuration conf, final int cacheSize)
+      throws IOException {
+    if (cacheSize > 0) {
+      cache = new LinkedHashMap<Text, CrawlDatum>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        protected boolean removeEldestEntry(Map.Entry<Text, CrawlDatum> eldest) {
+          return size() > cacheSize;
+        }
+      };
+    } else {
+      cache = null;
+    }
+    FileSystem fs = crawlDb.getFileSystem(conf);
+    try {
+      Path[] deltas = CrawlDb.getDeltaRuns(fs, crawlDb);
+      for (int i = deltas.length - 1; i >= 0; i--) {
+        addRun(fs, deltas[i], conf);
+      }
+      Path current = new Path(crawlDb, CrawlDb.CURRENT_NAME);
+      if (fs.exists(current)) {
+        addRun(fs, current, conf);
+        numParts = Math.max(1, CrawlDb.getNumParts(fs, current));
+        currentReversed = reversed.get(reversed.size() - 1);
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Open a lookup for the reduce task of one partition of a job partitioned
+   * the same way as the CrawlDb, e.g. an incremental update. Only the part of
+   * this partition is opened, at once. Runs with a different number of parts
+   * are still searched, opening their parts on first access.
+   * 
+   * @param partition
+   *          partition of the task (<code>mapred.task.partition</code>)
+   * @param numPartitions
+   *          number of partitions (reduce tasks) of the job
+   */
+  public CrawlDbLookup(Path crawlDb, Configuration conf, int partition,
+      int numPartitions) throws IOException {
+    this(crawlDb, conf, 0);
+    try {
+      for (LazyReaders readers : runs) {
+        if (readers.size() == 0)
+          continue;
+        if (partition >= 0 && readers.size() == numPartitions) {
+          readers.get(partition);
+        } else {
+          LOG.warn("CrawlDb run with " + readers.size()
+              + " parts, not partitioned as the job (" + numPartitions
+              + " partitions)");
+        }
+      }
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private void addRun(FileSystem fs, Path run, Configuration conf)
+      throws IOException {
+    reversed.add(CrawlDb.hasReversedUrls(fs, run, conf));
+    runs.add(new LazyReaders(fs, run, conf));
+  }
+
+  /**
+   * Get the most recent entry of a URL.
+   *
+   * @param url
+   *          the URL
+   * @param datum
+   *          filled with the entry, if found
+   * @return <code>datum</code>, or null if the URL is not in the CrawlDb
+   */
+  public CrawlDatum get(Text url, CrawlDatum datum) throws IOException {
+    if (cache != null) {
+      CrawlDatum cached;
+      synchronized (cache) {
+        cached = cache.get(url);
+      }
+      if (cached != null) {
+        hits.incrementAndGet();
+        if (cached == ABSENT)
+          return null;
+        datum.set(cached);
+        return datum;
+      }
+      misses.incrementAndGet();
+    }
+    CrawlDatum res = null;
+    Text reversedUrl = null;
+    for (int i = 0; i < runs.size(); i++) {
+      LazyReaders readers = runs.get(i);
+      if (readers.size() == 0)
+        continue;
+      Text key = url;
+      if (reversed.get(i)) {
+        if (reversedUrl == null) {
+          reversedUrl = new Text();
+          ReversedUrl.reverse(url, reversedUrl);
+        }
+        key = reversedUrl;
+      }
+      // partitioned by the plain URL
+      int part = partitioner.getPartition(url, datum, readers.size());
+      if (readers.get(part).get(key, datum) != null) {
+        res = datum;
+        break;
+      }
+    }
+    if (cache != null) {
+      CrawlDatum cached = ABSENT;
+      if (res != null) {
+        cached = new CrawlDatum();
+        cached.set(res);
+      }
+      synchronized (cache) {
+        cache.put(new Text(url), cached);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Get the most recent entries of multiple URLs. The lookups are done in the
+   * order of the parts and keys of <code>current</code>, so that the readers
+   * of current and of the delta runs (partitioned and stored the same way)
+   * only seek forward.
+   *
+   * @return the entries in the order of the URLs, null for absent URLs
+   */
+  public CrawlDatum[] get(final Text[] urls) throws IOException {
+    Integer[] order = new Integer[urls.length];
+    final int[] parts = new int[urls.length];
+    // the keys as stored in current
+    final Text[] keys = new Text[urls.length];
+    for (int i = 0; i < urls.length; i++) {
+      order[i] = i;
+      parts[i] = partitioner.getPartition(urls[i], null, numParts);
+      if (currentReversed) {
+        keys[i] = new Text();
+        ReversedUrl.reverse(urls[i], keys[i]);
+      } else {
+        keys[i] = urls[i];
+      }
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer i1, Integer i2) {
+        if (parts[i1] != parts[i2])
+          return parts[i1] < parts[i2] ? -1 : 1;
+        return keys[i1].compareTo(keys[i2]);
+      }
+    });
+    CrawlDatum[] result = new CrawlDatum[urls.length];
+    for (int i : order) {
+      result[i] = get(urls[i], new CrawlDatum());
+    }
+    return result;
+  }
+
+  /** Number of lookups answered from the cache. */
+  public long getCacheHits() {
+    return hits.get();
+  }
+
+  /** Number of lookups not found in the cache. */
+  public long getCacheMisses() {
+    return misses.get();
+  }
+
+  public void close() {
+    for (LazyReaders readers : runs) {
+      try {
+        readers.close();
+      } catch (IOException e) {
+      }
+    }
+    runs.clear();
+    reversed.clear();
+    if (cache != null) {
+      synchronized (cache) {
+        cache.clear();
+      }
+    }
+  }
+}
@@ -36,6 +36,9 @@ import org.apache.hadoop.util.*;
 import org.apache.hadoop.conf.*;
 import org.apache.nutch.util.NutchConfiguration;
 import org.apache.nutch.util.NutchJob;
+import org.apache.nutch.util.ReversedUrl;
+import org.apache.nutch.util.SortedMergeInputFormat;
+import org.apache.nutch.util.SortedMergeRunner;
 import org.apache.nutch.util.TimingUtil;
 
 /**
@@ -52,6 +55,11 @@ import org.apache.nutch.util.TimingUtil;
  * {@link org.apache.nutch.crawl.CrawlDatum#getFetchTime()}. However, all
  * metadata information from all versions is accumulated, with newer values
  * taking precedence over older values.
+ * </p>
+ * <p>
+ * If URLs are not normalized and all CrawlDb-s have the same partitioning and
+ * URL encoding, the parts are merged map-side without a shuffle (see
+ * {@link #MERGE_SORTED}).
  * 
  * @author Andrzej Bialecki
  */
@@ -59,6 +67,36 @@ public class CrawlDbMerger extends Configured implements Tool {
   private static final Logger LOG = LoggerFactory
       .getLogger(CrawlDbMerger.class);
 
+  /**
+   * If true (default), CrawlDb-s and LinkDb-s with compatible partitioning are
+   * merged part by part by a streaming k-way merge of the sorted parts,
+   * without sorting and shuffling.
+   */
+  public static final String MERGE_SORTED = "db.merge.sorted";
+
+  /** Reads parts of CrawlDb-s merged, restoring reversed URLs. */
+  public static class SortedInputFormat extends SortedMergeInputFormat
+      implements JobConfigurable {
+    private boolean reversed = false;
+    private byte[] buf = new byte[256];
+
+    public void configure(JobConf job) {
+      // all merged CrawlDbs use the URL encoding of the output
+      reversed = job.getBoolean(CrawlDb.CRAWLDB_REVERSED_URLS, false);
+    }
+
+    @Override
+    protected void restoreKey(Writable key) {
+      if (!reversed)
+        return;
+      Text url = (Text) key;
+      int length = url.getLength();
+      if (buf.length < length + 2)
+        buf = new byte[Math.max(length + 2, 2 * buf.length)];
+      url.set(buf, 0, ReversedUrl.unreverse(url.getBytes(), 0, length, buf));
+    }
+  }
+
   public static class Merger extends MapReduceBase implements
       Reducer<Text, CrawlDatum, Text, CrawlDatum> {
     private org.apache.hadoop.io.MapWritable meta;
@@ -132,8 +170,11 @@ public class CrawlDbMerger extends Configured implements Tool {
       }
       FileInputFormat.addInputPath(job, new Path(dbs[i], CrawlDb.CURRENT_NAME));
     }
-    JobClient.runJob(job);
     FileSystem fs = FileSystem.get(getConf());
+    if (!normalize && job.getBoolean(MERGE_SORTED, true)) {
+      setupSortedMerge(job, fs, dbs);
+    }
+    NutchJob.runJob(job);
     if (fs.exists(output))
       fs.delete(output, true);
     fs.mkdirs(output);
@@ -144,6 +185,30 @@ public class CrawlDbMerger extends Configured implements Tool {
         + TimingUtil.elapsedTime(start, end));
   }
 
+  /**
+   * Merge map-side if all CrawlDb-s have the same partitioning, no delta runs
+   * and the URL encoding of the output.
+   */
+  private static void setupSortedMerge(JobConf job, FileSystem fs, Path[] dbs)
+      throws IOException {
+    boolean reversed = job.getBoolean(CrawlDb.CRAWLDB_REVERSED_URLS, false);
+    for (Path db : dbs) {
+      if (CrawlDb.getDeltaRuns(fs, db).length > 0
+          || CrawlDb.hasReversedUrls(fs, new Path(db, CrawlDb.CURRENT_NAME),
+              job) != reversed)
+        return;
+    }
+    int numParts = ReflectionUtils.newInstance(SortedInputFormat.class, job)
+        .getCompatibleParts(job);
+    if (numParts < 0) {
+      LOG.info("CrawlDb merge: partitioning differs, merging by a shuffle");
+      return;
+    }
+    LOG.info("CrawlDb merge: merging " + numParts + " parts map-side");
+    job.setInputFormat(SortedInputFormat.class);
+    SortedMergeRunner.setup(job);
+  }
+
   public static JobConf createMergeJob(Configuration conf, Path output,
       boolean normalize, boolean filter) {
     Path newCrawlDb = new Path("crawldb-merge-"
@@ -152,7 +217,7 @@ public class CrawlDbMerger extends Configured implements Tool {
     JobConf job = new NutchJob(conf);
     job.setJobName("crawldb merge " + output);
 
-    job.setInputFormat(SequenceFileInputFormat.class);
+    job.setInputFormat(CrawlDbInputFormat.class);
 
     job.setMapperClass(CrawlDbFilter.class);
     job.setBoolean(CrawlDbFilter.URL_FILTERING, filter);
@@ -160,9 +225,7 @@ public class CrawlDbMerger extends Configured implements Tool {
     job.setReducerClass(Merger.class);
 
     FileOutputFormat.setOutputPath(job, newCrawlDb);
-    job.setOutputFormat(MapFileOutputFormat.class);
-    job.setOutputKeyClass(Text.class);
-    job.setOutputValueClass(CrawlDatum.class);
+    CrawlDbOutputFormat.setOutput(job);
 
     return job;
   }
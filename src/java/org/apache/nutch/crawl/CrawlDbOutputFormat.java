@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Progressable;
+import org.apache.nutch.util.BloomMapFileOutputFormat;
+import org.apache.nutch.util.ReversedUrl;
+
+/**
+ * Output format of jobs writing CrawlDb parts. If
+ * {@link CrawlDb#CRAWLDB_REVERSED_URLS} is set the URLs are stored with
+ * reversed host names (see {@link ReversedUrl}): the records of a host are
+ * stored together and common prefixes are shared by block compressed parts.
+ * Jobs must be configured by {@link #setOutput(JobConf)}, so that the URLs are
+ * sorted in the order of their reversed forms. The URLs are restored
+ * transparently by {@link CrawlDbInputFormat} and {@link CrawlDbLookup}. Parts
+ * with reversed URLs also get a {@link CrawlDbHostIndex}.
+ */
+public class CrawlDbOutputFormat extends BloomMapFileOutputFormat {
+
+  /**
+   * Configure a job to write CrawlDb parts using this output format.
+   */
+  public static void setOutput(JobConf job) {
+    job.setOutputFormat(CrawlDbOutputFormat.class);
+    job.setOutputKeyClass(Text.class);
+    job.setOutputValueClass(CrawlDatum.class);
+    if (job.getBoolean(CrawlDb.CRAWLDB_REVERSED_URLS, false)) {
+      job.setOutputKeyComparatorClass(ReversedUrl.Comparator.class);
+      FileOutputFormat.setCompressOutput(job, true);
+      SequenceFileOutputFormat.setOutputCompressionType(job,
+          CompressionType.BLOCK);
+    }
+  }
+
+  @Override
+  public RecordWriter<WritableComparable, Writable> getRecordWriter(
+      FileSystem ignored, JobConf job, String name, Progressable progress)
+      throws IOException {
+    final RecordWriter<WritableComparable, Writable> out = super
+        .getRecordWriter(ignored, job, name, progress);
+    if (!job.getBoolean(CrawlDb.CRAWLDB_REVERSED_URLS, false)) {
+      return out;
+    }
+    Path part = FileOutputFormat.getTaskOutputPath(job, name);
+    final CrawlDbHostIndex.Writer hosts;
+    try {
+      hosts = new CrawlDbHostIndex.Writer(job, part.getFileSystem(job), part);
+    } catch (IOException e) {
+      out.close(Reporter.NULL);
+      throw e;
+    }
+    return new RecordWriter<WritableComparable, Writable>() {
+      private Text reversed = new Text();
+      private byte[] buf = new byte[256];
+
+      public void write(WritableComparable key, Writable value)
+          throws IOException {
+        Text url = (Text) key;
+        if (buf.length < url.getLength())
+          buf = new byte[Math.max(url.getLength(), 2 * buf.length)];
+        reversed.set(buf, 0,
+            ReversedUrl.reverse(url.getBytes(), 0, url.getLength(), buf));
+        out.write(reversed, value);
+        hosts.add(reversed);
+      }
+
+      public void close(Reporter reporter) throws IOException {
+        try {
+          out.close(reporter);
+        } finally {
+          hosts.close();
+        }
+      }
+    };
+  }
+}
@@ -21,10 +21,11 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.Closeable;
-import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -50,13 +51,11 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.FloatWritable;
 import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.MapFile;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileOutputFormat;
-import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.MapFileOutputFormat;
 import org.apache.hadoop.mapred.Mapper;
@@ -67,16 +66,18 @@ import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapred.SequenceFileInputFormat;
 import org.apache.hadoop.mapred.SequenceFileOutputFormat;
 import org.apache.hadoop.mapred.TextOutputFormat;
-import org.apache.hadoop.mapred.lib.HashPartitioner;
 import org.apache.hadoop.mapred.lib.IdentityMapper;
 import org.apache.hadoop.mapred.lib.IdentityReducer;
 import org.apache.hadoop.util.Progressable;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import org.apache.nutch.util.HyperLogLog;
+import org.apache.nutch.util.LogHistogram;
 import org.apache.nutch.util.NutchConfiguration;
 import org.apache.nutch.util.NutchJob;
 import org.apache.nutch.util.NutchTool;
 import org.apache.nutch.util.StringUtil;
+import org.apache.nutch.util.URLParts;
 
 /**
  * Read utility for the CrawlDB.
@@ -88,27 +89,19 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
 
   public static final Logger LOG = LoggerFactory.getLogger(CrawlDbReader.class);
 
-  private MapFile.Reader[] readers = null;
+  private CrawlDbLookup lookup = null;
 
   private void openReaders(String crawlDb, JobConf config)
       throws IOException {
-    if (readers != null)
+    if (lookup != null)
       return;
-    FileSystem fs = FileSystem.get(config);
-    readers = MapFileOutputFormat.getReaders(fs, new Path(crawlDb,
-        CrawlDb.CURRENT_NAME), config);
+    lookup = new CrawlDbLookup(new Path(crawlDb), config);
   }
 
   private void closeReaders() {
-    if (readers == null)
+    if (lookup == null)
       return;
-    for (int i = 0; i < readers.length; i++) {
-      try {
-        readers[i].close();
-      } catch (Exception e) {
-
-      }
-    }
+    lookup.close();
   }
 
   public static class CrawlDatumCsvOutputFormat extends
@@ -181,81 +174,191 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     }
   }
 
+  /**
+   * Aggregates the statistics of all records of a task in memory and emits
+   * them once when the task is closed:
+   * <ul>
+   * <li>counts: "T", "status N", "retry N" and, if sorted by host,
+   * "status N host"</li>
+   * <li>min., max. and total of score (x1000): "scn", "scx", "sct"</li>
+   * <li>log-histograms of score (x1000), fetch interval (seconds) and age
+   * since last modification (seconds): "qs B", "qi B", "qa B" with the count of
+   * bucket B</li>
+   * <li>HyperLogLog sketches of hosts and domains: "hh I", "hd I" with the
+   * value of register I</li>
+   * </ul>
+   */
   public static class CrawlDbStatMapper implements
       Mapper<Text, CrawlDatum, Text, LongWritable> {
-    LongWritable COUNT_1 = new LongWritable(1);
+    /** Max. number of host counts held in memory before flushing. */
+    private static final int MAX_HOST_COUNTS = 10000;
+
     private boolean sort = false;
+    private long now;
+    private OutputCollector<Text, LongWritable> output;
+
+    private long total = 0;
+    private long[] statusCounts = new long[256];
+    private long[] retryCounts = new long[256];
+    private long scoreMin = Long.MAX_VALUE;
+    private long scoreMax = Long.MIN_VALUE;
+    private long scoreTotal = 0;
+    private LogHistogram scores = new LogHistogram();
+    private LogHistogram intervals = new LogHistogram();
+    private LogHistogram ages = new LogHistogram();
+    private HyperLogLog hosts = new HyperLogLog();
+    private HyperLogLog domains = new HyperLogLog();
+    private String lastHost = null;
+    /** Protocol and host of the last URL, if it starts with them. */
+    private byte[] lastPrefix = null;
+    private Map<String, long[]> hostCounts = new HashMap<String, long[]>();
+
+    private Text outKey = new Text();
+    private LongWritable outValue = new LongWritable();
 
     public void configure(JobConf job) {
       sort = job.getBoolean("db.reader.stats.sort", false);
-    }
-
-    public void close() {
+      now = System.currentTimeMillis();
     }
 
     public void map(Text key, CrawlDatum value,
         OutputCollector<Text, LongWritable> output, Reporter reporter)
         throws IOException {
-      output.collect(new Text("T"), COUNT_1);
-      output.collect(new Text("status " + value.getStatus()), COUNT_1);
-      output
-          .collect(new Text("retry " + value.getRetriesSinceFetch()), COUNT_1);
-      output.collect(new Text("s"), new LongWritable(
-          (long) (value.getScore() * 1000.0)));
+      this.output = output;
+      total++;
+      int status = value.getStatus() & 0xff;
+      statusCounts[status]++;
+      retryCounts[value.getRetriesSinceFetch() & 0xff]++;
+      long score = (long) (value.getScore() * 1000.0);
+      if (score < scoreMin)
+        scoreMin = score;
+      if (score > scoreMax)
+        scoreMax = score;
+      scoreTotal += score;
+      scores.add(score);
+      intervals.add(value.getFetchInterval());
+      if (value.getModifiedTime() > 0)
+        ages.add((now - value.getModifiedTime()) / 1000);
+
+      // URLs are sorted, so hosts of subsequent records are mostly the same:
+      // parse only URLs not starting with the protocol and host of the last
+      String host;
+      if (lastPrefix != null && hasHostPrefix(key, lastPrefix)) {
+        host = lastHost;
+      } else {
+        String url = key.toString();
+        URLParts u = URLParts.parseOrNull(url);
+        if (u == null) {
+          lastPrefix = null;
+          return;
+        }
+        host = u.getRawHost();
+        String prefix = u.getProtocol() + "://" + host;
+        lastPrefix = url.startsWith(prefix) ? prefix.getBytes("UTF-8") : null;
+        if (!host.equals(lastHost)) {
+          hosts.add(host);
+          domains.add(u.getDomainName());
+          lastHost = host;
+        }
+      }
       if (sort) {
-        URL u = new URL(key.toString());
-        String host = u.getHost();
-        output.collect(new Text("status " + value.getStatus() + " " + host),
-            COUNT_1);
+        long[] counts = hostCounts.get(host);
+        if (counts == null) {
+          if (hostCounts.size() >= MAX_HOST_COUNTS)
+            flushHostCounts();
+          counts = new long[256];
+          hostCounts.put(host, counts);
+        }
+        counts[status]++;
       }
     }
-  }
-
-  public static class CrawlDbStatCombiner implements
-      Reducer<Text, LongWritable, Text, LongWritable> {
-    LongWritable val = new LongWritable();
-
-    public CrawlDbStatCombiner() {
-    }
 
-    public void configure(JobConf job) {
+    /**
+     * Whether the URL starts with the prefix followed by the end of the host
+     * name.
+     */
+    private static boolean hasHostPrefix(Text url, byte[] prefix) {
+      int length = url.getLength();
+      if (length < prefix.length)
+        return false;
+      byte[] bytes = url.getBytes();
+      for (int i = 0; i < prefix.length; i++) {
+        if (bytes[i] != prefix[i])
+          return false;
+      }
+      if (length == prefix.length)
+        return true;
+      byte next = bytes[prefix.length];
+      return next == '/' || next == ':' || next == '?' || next == '#';
     }
 
-    public void close() {
+    private void emit(String key, long value) throws IOException {
+      outKey.set(key);
+      outValue.set(value);
+      output.collect(outKey, outValue);
     }
 
-    public void reduce(Text key, Iterator<LongWritable> values,
-        OutputCollector<Text, LongWritable> output, Reporter reporter)
-        throws IOException {
-      val.set(0L);
-      String k = key.toString();
-      if (!k.equals("s")) {
-        while (values.hasNext()) {
-          LongWritable cnt = values.next();
-          val.set(val.get() + cnt.get());
+    private void flushHostCounts() throws IOException {
+      for (Map.Entry<String, long[]> entry : hostCounts.entrySet()) {
+        long[] counts = entry.getValue();
+        for (int i = 0; i < counts.length; i++) {
+          if (counts[i] > 0)
+            emit("status " + i + " " + entry.getKey(), counts[i]);
         }
-        output.collect(key, val);
-      } else {
-        long total = 0;
-        long min = Long.MAX_VALUE;
-        long max = Long.MIN_VALUE;
-        while (values.hasNext()) {
-          LongWritable cnt = values.next();
-          if (cnt.get() < min)
-            min = cnt.get();
-          if (cnt.get() > max)
-            max = cnt.get();
-          total += cnt.get();
-        }
-        output.collect(new Text("scn"), new LongWritable(min));
-        output.collect(new Text("scx"), new LongWritable(max));
-        output.collect(new Text("sct"), new LongWritable(total));
       }
+      hostCounts.clear();
+    }
+
+    public void close() throws IOException {
+      if (output == null)
+        return; // no records
+      emit("T", total);
+      for (int i = 0; i < statusCounts.length; i++) {
+        if (statusCounts[i] > 0)
+          emit("status " + i, statusCounts[i]);
+        if (retryCounts[i] > 0)
+          emit("retry " + i, retryCounts[i]);
+      }
+      emit("scn", scoreMin);
+      emit("scx", scoreMax);
+      emit("sct", scoreTotal);
+      for (int i = 0; i < LogHistogram.NUM_BUCKETS; i++) {
+        if (scores.getCount(i) > 0)
+          emit("qs " + i, scores.getCount(i));
+        if (intervals.getCount(i) > 0)
+          emit("qi " + i, intervals.getCount(i));
+        if (ages.getCount(i) > 0)
+          emit("qa " + i, ages.getCount(i));
+      }
+      for (int i = 0; i < HyperLogLog.NUM_REGISTERS; i++) {
+        if (hosts.getRegister(i) > 0)
+          emit("hh " + i, hosts.getRegister(i));
+        if (domains.getRegister(i) > 0)
+          emit("hd " + i, domains.getRegister(i));
+      }
+      flushHostCounts();
     }
   }
 
-  public static class CrawlDbStatReducer implements
+  /**
+   * Combine two values of a statistics key: minimum for "scn", maximum for
+   * "scx" and HyperLogLog registers, otherwise the sum.
+   */
+  static long aggregate(String key, long v1, long v2) {
+    if (key.equals("scn"))
+      return Math.min(v1, v2);
+    if (key.equals("scx") || key.startsWith("hh ") || key.startsWith("hd "))
+      return Math.max(v1, v2);
+    return v1 + v2;
+  }
+
+  public static class CrawlDbStatCombiner implements
       Reducer<Text, LongWritable, Text, LongWritable> {
+    LongWritable val = new LongWritable();
+
+    public CrawlDbStatCombiner() {
+    }
+
     public void configure(JobConf job) {
     }
 
@@ -265,50 +368,19 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     public void reduce(Text key, Iterator<LongWritable> values,
         OutputCollector<Text, LongWritable> output, Reporter reporter)
         throws IOException {
-
       String k = key.toString();
-      if (k.equals("T")) {
-        // sum all values for this key
-        long sum = 0;
-        while (values.hasNext()) {
-          sum += values.next().get();
-        }
-        // output sum
-        output.collect(key, new LongWritable(sum));
-      } else if (k.startsWith("status") || k.startsWith("retry")) {
-        LongWritable cnt = new LongWritable();
-        while (values.hasNext()) {
-          LongWritable val = values.next();
-          cnt.set(cnt.get() + val.get());
-        }
-        output.collect(key, cnt);
-      } else if (k.equals("scx")) {
-        LongWritable cnt = new LongWritable(Long.MIN_VALUE);
-        while (values.hasNext()) {
-          LongWritable val = values.next();
-          if (cnt.get() < val.get())
-            cnt.set(val.get());
-        }
-        output.collect(key, cnt);
-      } else if (k.equals("scn")) {
-        LongWritable cnt = new LongWritable(Long.MAX_VALUE);
-        while (values.hasNext()) {
-          LongWritable val = values.next();
-          if (cnt.get() > val.get())
-            cnt.set(val.get());
-        }
-        output.collect(key, cnt);
-      } else if (k.equals("sct")) {
-        LongWritable cnt = new LongWritable();
-        while (values.hasNext()) {
-          LongWritable val = values.next();
-          cnt.set(cnt.get() + val.get());
-        }
-        output.collect(key, cnt);
+      long res = values.next().get();
+      while (values.hasNext()) {
+        res = aggregate(k, res, values.next().get());
       }
+      val.set(res);
+      output.collect(key, val);
     }
   }
 
+  public static class CrawlDbStatReducer extends CrawlDbStatCombiner {
+  }
+
   public static class CrawlDbTopNMapper implements
       Mapper<Text, CrawlDatum, FloatWritable, Text> {
     private static final FloatWritable fw = new FloatWritable();
@@ -366,7 +438,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
 	  job.setBoolean("db.reader.stats.sort", sort);
 
 	  FileInputFormat.addInputPath(job, new Path(crawlDb, CrawlDb.CURRENT_NAME));
-	  job.setInputFormat(SequenceFileInputFormat.class);
+	  job.setInputFormat(CrawlDbInputFormat.class);
 
 	  job.setMapperClass(CrawlDbStatMapper.class);
 	  job.setCombinerClass(CrawlDbStatCombiner.class);
@@ -380,7 +452,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
 	  // https://issues.apache.org/jira/browse/NUTCH-1029
 	  job.setBoolean("mapreduce.fileoutputcommitter.marksuccessfuljobs", false);
 
-	  JobClient.runJob(job);
+	  NutchJob.runJob(job);
 
 	  // reading the result
 	  FileSystem fileSystem = FileSystem.get(config);
@@ -397,29 +469,71 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
 			  String k = key.toString();
 			  LongWritable val = stats.get(k);
 			  if (val == null) {
-				  val = new LongWritable();
-				  if (k.equals("scx"))
-					  val.set(Long.MIN_VALUE);
-				  if (k.equals("scn"))
-					  val.set(Long.MAX_VALUE);
-				  stats.put(k, val);
-			  }
-			  if (k.equals("scx")) {
-				  if (val.get() < value.get())
-					  val.set(value.get());
-			  } else if (k.equals("scn")) {
-				  if (val.get() > value.get())
-					  val.set(value.get());
+				  stats.put(k, new LongWritable(value.get()));
 			  } else {
-				  val.set(val.get() + value.get());
+				  val.set(aggregate(k, val.get(), value.get()));
 			  }
 		  }
 		  reader.close();
 	  }
 	  // removing the tmp folder
 	  fileSystem.delete(tmpFolder, true);
+	  summarizeSketches(stats);
 	  return stats;
   }
+
+  private static final double[] QUANTILES = { 0.1, 0.5, 0.9, 0.99 };
+
+  /**
+   * Replace histograms and HyperLogLog registers by quantiles ("score p50",
+   * "fetch interval p50", "age p50") and cardinality estimates ("hosts",
+   * "domains").
+   */
+  static void summarizeSketches(TreeMap<String, LongWritable> stats) {
+    LogHistogram scores = new LogHistogram();
+    LogHistogram intervals = new LogHistogram();
+    LogHistogram ages = new LogHistogram();
+    HyperLogLog hosts = new HyperLogLog();
+    HyperLogLog domains = new HyperLogLog();
+    Iterator<Map.Entry<String, LongWritable>> it = stats.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, LongWritable> entry = it.next();
+      String k = entry.getKey();
+      if (k.length() < 4 || k.charAt(2) != ' ')
+        continue;
+      String prefix = k.substring(0, 2);
+      long v = entry.getValue().get();
+      int i = Integer.parseInt(k.substring(3));
+      if (prefix.equals("qs")) {
+        scores.add(i, v);
+      } else if (prefix.equals("qi")) {
+        intervals.add(i, v);
+      } else if (prefix.equals("qa")) {
+        ages.add(i, v);
+      } else if (prefix.equals("hh")) {
+        hosts.setRegister(i, (int) v);
+      } else if (prefix.equals("hd")) {
+        domains.setRegister(i, (int) v);
+      } else {
+        continue;
+      }
+      it.remove();
+    }
+    for (double q : QUANTILES) {
+      String p = "p" + Math.round(q * 100);
+      if (scores.getTotal() > 0)
+        stats.put("score " + p, new LongWritable(scores.getQuantile(q)));
+      if (intervals.getTotal() > 0)
+        stats.put("fetch interval " + p,
+            new LongWritable(intervals.getQuantile(q)));
+      if (ages.getTotal() > 0)
+        stats.put("age " + p, new LongWritable(ages.getQuantile(q)));
+    }
+    if (stats.containsKey("T")) {
+      stats.put("hosts", new LongWritable(hosts.getEstimate()));
+      stats.put("domains", new LongWritable(domains.getEstimate()));
+    }
+  }
   
   public void processStatJob(String crawlDb, Configuration config, boolean sort)
       throws IOException {
@@ -439,6 +553,13 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
         LongWritable val = entry.getValue();
         if (k.equals("scn")) {
           LOG.info("min score:\t" + (val.get() / 1000.0f));
+        } else if (k.startsWith("score p")) {
+          LOG.info(k + ":\t" + (val.get() / 1000.0f));
+        } else if (k.startsWith("fetch interval p") || k.startsWith("age p")) {
+          LOG.info(k + ":\t" + val.get() + " s ("
+              + (val.get() / (float) FetchSchedule.SECONDS_PER_DAY) + " days)");
+        } else if (k.equals("hosts") || k.equals("domains")) {
+          LOG.info(k + " (estimated):\t" + val.get());
         } else if (k.equals("scx")) {
           LOG.info("max score:\t" + (val.get() / 1000.0f));
         } else if (k.equals("sct")) {
@@ -467,9 +588,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     Text key = new Text(url);
     CrawlDatum val = new CrawlDatum();
     openReaders(crawlDb, config);
-    CrawlDatum res = (CrawlDatum) MapFileOutputFormat.getEntry(readers,
-        new HashPartitioner<Text, CrawlDatum>(), key, val);
-    return res;
+    return lookup.get(key, val);
   }
 
   public void readUrl(String crawlDb, String url, JobConf config)
@@ -483,6 +602,28 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     }
   }
 
+  /**
+   * Print the entries of all URLs of a host to System.out.
+   */
+  public void readHost(String crawlDb, String host, JobConf config)
+      throws IOException {
+    CrawlDbHostReader reader = new CrawlDbHostReader(new Path(crawlDb), host,
+        config);
+    Text url = new Text();
+    CrawlDatum datum = new CrawlDatum();
+    long count = 0;
+    try {
+      while (reader.next(url, datum)) {
+        System.out.println("URL: " + url);
+        System.out.println(datum);
+        count++;
+      }
+    } finally {
+      reader.close();
+    }
+    System.out.println(count + " URLs of host " + host);
+  }
+
   public void processDumpJob(String crawlDb, String output,
       JobConf config, String format, String regex, String status,
       Integer retry) throws IOException {
@@ -497,7 +638,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     job.setJobName("dump " + crawlDb);
 
     FileInputFormat.addInputPath(job, new Path(crawlDb, CrawlDb.CURRENT_NAME));
-    job.setInputFormat(SequenceFileInputFormat.class);
+    job.setInputFormat(CrawlDbInputFormat.class);
     FileOutputFormat.setOutputPath(job, outFolder);
 
     if (format.equals("csv")) {
@@ -519,7 +660,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     job.setOutputKeyClass(Text.class);
     job.setOutputValueClass(CrawlDatum.class);
 
-    JobClient.runJob(job);
+    NutchJob.runJob(job);
     if (LOG.isInfoEnabled()) {
       LOG.info("CrawlDb dump: done");
     }
@@ -588,7 +729,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     JobConf job = new NutchJob(config);
     job.setJobName("topN prepare " + crawlDb);
     FileInputFormat.addInputPath(job, new Path(crawlDb, CrawlDb.CURRENT_NAME));
-    job.setInputFormat(SequenceFileInputFormat.class);
+    job.setInputFormat(CrawlDbInputFormat.class);
     job.setMapperClass(CrawlDbTopNMapper.class);
     job.setReducerClass(IdentityReducer.class);
 
@@ -598,7 +739,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     job.setOutputValueClass(Text.class);
 
     job.setFloat("db.reader.topn.min", min);
-    JobClient.runJob(job);
+    NutchJob.runJob(job);
 
     if (LOG.isInfoEnabled()) {
       LOG.info("CrawlDb topN: collecting topN scores.");
@@ -619,7 +760,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
 
     job.setNumReduceTasks(1); // create a single file.
 
-    JobClient.runJob(job);
+    NutchJob.runJob(job);
     FileSystem fs = FileSystem.get(config);
     fs.delete(tempDir, true);
     if (LOG.isInfoEnabled()) {
@@ -634,7 +775,7 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
 
     if (args.length < 2) {
       System.err
-          .println("Usage: CrawlDbReader <crawldb> (-stats | -dump <out_dir> | -topN <nnnn> <out_dir> [<min>] | -url <url>)");
+          .println("Usage: CrawlDbReader <crawldb> (-stats | -dump <out_dir> | -topN <nnnn> <out_dir> [<min>] | -url <url> | -host <host>)");
       System.err
           .println("\t<crawldb>\tdirectory name where crawldb is located");
       System.err
@@ -652,6 +793,8 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
           .println("\t\t[-status <status>]\tfilter records by CrawlDatum status");
       System.err
           .println("\t-url <url>\tprint information on <url> to System.out");
+      System.err
+          .println("\t-host <host>\tprint information on all URLs of <host> to System.out");
       System.err
           .println("\t-topN <nnnn> <out_dir> [<min>]\tdump top <nnnn> urls sorted by score to <out_dir>");
       System.err
@@ -698,6 +841,9 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
       } else if (args[i].equals("-url")) {
         param = args[++i];
         dbr.readUrl(crawlDb, param, job);
+      } else if (args[i].equals("-host")) {
+        param = args[++i];
+        dbr.readHost(crawlDb, param, job);
       } else if (args[i].equals("-topN")) {
         param = args[++i];
         long topN = Long.parseLong(param);
@@ -744,6 +890,8 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
         if (k.equals("scn")) {
 
           results.put("minScore", String.valueOf((val.get() / 1000.0f)));
+        } else if (k.startsWith("score p")) {
+          results.put(k, String.valueOf((val.get() / 1000.0f)));
         } else if (k.equals("scx")) {
           results.put("maxScore", String.valueOf((val.get() / 1000.0f)));
         } else if (k.equals("sct")) {
@@ -814,23 +962,55 @@ public class CrawlDbReader extends Configured implements Closeable, Tool {
     if(type.equalsIgnoreCase("url")){
       String url = args.get("url");
       CrawlDatum res = get(crawlDb, url, new NutchJob(conf));
-      results.put("status", res.getStatus());
-      results.put("fetchTime", new Date(res.getFetchTime()));
-      results.put("modifiedTime", new Date(res.getModifiedTime()));
-      results.put("retriesSinceFetch", res.getRetriesSinceFetch());
-      results.put("retryInterval", res.getFetchInterval());
-      results.put("score", res.getScore());
-      results.put("signature", StringUtil.toHexString(res.getSignature()));
-      Map<String, String> metadata = new HashMap<String, String>();
-      if(res.getMetaData()!=null){
-        for (Entry<Writable, Writable> e : res.getMetaData().entrySet()) {
-          metadata.put(String.valueOf(e.getKey()), String.valueOf(e.getValue()));
+      if (res != null)
+        results.putAll(toMap(res));
+      return results;
+    }
+
+    if (type.equalsIgnoreCase("host")) {
+      String host = args.get("host");
+      int limit = Integer.MAX_VALUE;
+      if (args.containsKey("limit")) {
+        limit = Integer.parseInt(args.get("limit"));
+      }
+      List<Map<String, Object>> entries = new ArrayList<Map<String, Object>>();
+      CrawlDbHostReader reader = new CrawlDbHostReader(new Path(crawlDb), host,
+          conf);
+      Text url = new Text();
+      CrawlDatum datum = new CrawlDatum();
+      try {
+        while (entries.size() < limit && reader.next(url, datum)) {
+          Map<String, Object> entry = toMap(datum);
+          entry.put("url", url.toString());
+          entries.add(entry);
         }
+      } finally {
+        reader.close();
       }
-      results.put("metadata", metadata);
-
-      return results;
+      return entries;
     }
     return results;
     }
+
+  /**
+   * Fields of a CrawlDb entry as returned by the REST service.
+   */
+  public static Map<String, Object> toMap(CrawlDatum res) {
+    Map<String, Object> results = new HashMap<String, Object>();
+    results.put("status", res.getStatus());
+    results.put("fetchTime", new Date(res.getFetchTime()));
+    results.put("modifiedTime", new Date(res.getModifiedTime()));
+    results.put("retriesSinceFetch", res.getRetriesSinceFetch());
+    results.put("retryInterval", res.getFetchInterval());
+    results.put("score", res.getScore());
+    results.put("signature", StringUtil.toHexString(res.getSignature()));
+    Map<String, String> metadata = new HashMap<String, String>();
+    if(res.getMetaData()!=null){
+      for (Entry<Writable, Writable> e : res.getMetaData().entrySet()) {
+        metadata.put(String.valueOf(e.getKey()), String.valueOf(e.getValue()));
+      }
+    }
+    results.put("metadata", metadata);
+    return results;
+  }
 }
\ No newline at end of file
@@ -18,6 +18,8 @@
 package org.apache.nutch.crawl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
@@ -29,7 +31,6 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.hadoop.io.*;
 import org.apache.hadoop.mapred.*;
-import org.apache.hadoop.util.PriorityQueue;
 import org.apache.nutch.metadata.Nutch;
 import org.apache.nutch.scoring.ScoringFilterException;
 import org.apache.nutch.scoring.ScoringFilters;
@@ -42,7 +43,12 @@ public class CrawlDbReducer implements
 
   private int retryMax;
   private CrawlDatum result = new CrawlDatum();
-  private InlinkPriorityQueue linked = null;
+  // instances reused for every key
+  private CrawlDatum fetchDatum = new CrawlDatum();
+  private CrawlDatum oldDatum = new CrawlDatum();
+  private List<CrawlDatum> linkList = new ArrayList<CrawlDatum>();
+  private InlinkTopK linked = null;
+  private boolean needsInlinks;
   private ScoringFilters scfilters = null;
   private boolean additionsAllowed;
   private int maxInterval;
@@ -54,8 +60,12 @@ public class CrawlDbReducer implements
     additionsAllowed = job.getBoolean(CrawlDb.CRAWLDB_ADDITIONS_ALLOWED, true);
     maxInterval = job.getInt("db.fetch.interval.max", 0);
     schedule = FetchScheduleFactory.getFetchSchedule(job);
-    int maxLinks = job.getInt("db.update.max.inlinks", 10000);
-    linked = new InlinkPriorityQueue(maxLinks);
+    needsInlinks = scfilters.needsInlinks();
+    // if no scoring filter reads the inlinks only the best one is kept, it's
+    // used as new entry if there is neither a fetch nor an old one
+    int maxLinks = needsInlinks ? job.getInt("db.update.max.inlinks", 10000)
+        : 1;
+    linked = new InlinkTopK(maxLinks);
   }
 
   public void close() {
@@ -65,8 +75,8 @@ public class CrawlDbReducer implements
       OutputCollector<Text, CrawlDatum> output, Reporter reporter)
       throws IOException {
 
-    CrawlDatum fetch = new CrawlDatum();
-    CrawlDatum old = new CrawlDatum();
+    CrawlDatum fetch = fetchDatum;
+    CrawlDatum old = oldDatum;
 
     boolean fetchSet = false;
     boolean oldSet = false;
@@ -114,14 +124,7 @@ public class CrawlDbReducer implements
 
       switch (datum.getStatus()) { // collect other info
       case CrawlDatum.STATUS_LINKED:
-        CrawlDatum link;
-        if (multiple) {
-          link = new CrawlDatum();
-          link.set(datum);
-        } else {
-          link = datum;
-        }
-        linked.insert(link);
+        linked.insert(datum);
         break;
       case CrawlDatum.STATUS_SIGNATURE:
         signature = datum.getSignature();
@@ -134,13 +137,9 @@ public class CrawlDbReducer implements
       }
     }
 
-    // copy the content of the queue into a List
-    // in reversed order
-    int numLinks = linked.size();
-    List<CrawlDatum> linkList = new ArrayList<CrawlDatum>(numLinks);
-    for (int i = numLinks - 1; i >= 0; i--) {
-      linkList.add(linked.pop());
-    }
+    // best scoring inlinks first
+    linkList.clear();
+    linked.drainTo(linkList);
 
     // if it doesn't already exist, skip it
     if (!oldSet && !additionsAllowed)
@@ -308,7 +307,8 @@ public class CrawlDbReducer implements
     }
 
     try {
-      scfilters.updateDbScore(key, oldSet ? old : null, result, linkList);
+      scfilters.updateDbScore(key, oldSet ? old : null, result,
+          needsInlinks ? linkList : Collections.<CrawlDatum> emptyList());
     } catch (Exception e) {
       if (LOG.isWarnEnabled()) {
         LOG.warn("Couldn't update score, key=" + key + ": " + e);
@@ -323,17 +323,98 @@ public class CrawlDbReducer implements
 
 }
 
-class InlinkPriorityQueue extends PriorityQueue<CrawlDatum> {
+/**
+ * Selects the inlinked CrawlDatums with the highest scores. The selected datums
+ * are copied into a pool of instances reused for every key, the selection is
+ * done by a binary min-heap of indexes into the pool.
+ */
+class InlinkTopK {
+
+  private final int maxSize;
+  private CrawlDatum[] pool = new CrawlDatum[0];
+  // indexes into pool, the lowest score on top
+  private int[] heap = new int[0];
+  private int size = 0;
 
-  public InlinkPriorityQueue(int maxSize) {
-    initialize(maxSize);
+  public InlinkTopK(int maxSize) {
+    this.maxSize = maxSize;
   }
 
-  /** Determines the ordering of objects in this priority queue. **/
-  protected boolean lessThan(Object arg0, Object arg1) {
-    CrawlDatum candidate = (CrawlDatum) arg0;
-    CrawlDatum least = (CrawlDatum) arg1;
-    return candidate.getScore() > least.getScore();
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  /** Copy the datum into the selection if its score is high enough. */
+  public void insert(CrawlDatum datum) {
+    if (size < maxSize) {
+      if (size == pool.length) {
+        int capacity = (int) Math.min(maxSize, Math.max(16, 2L * size));
+        pool = Arrays.copyOf(pool, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+      }
+      if (pool[size] == null)
+        pool[size] = new CrawlDatum();
+      pool[size].set(datum);
+      heap[size] = size;
+      siftUp(size++);
+    } else if (size > 0 && datum.getScore() > pool[heap[0]].getScore()) {
+      pool[heap[0]].set(datum);
+      siftDown(0, size);
+    }
+  }
+
+  /**
+   * Add the selected datums to a list, sorted by decreasing score, and clear
+   * the selection. The datums are reused after the next call of
+   * {@link #insert(CrawlDatum)}.
+   */
+  public void drainTo(List<CrawlDatum> list) {
+    // heap sort, the lowest scores are moved to the end
+    for (int n = size - 1; n > 0; n--) {
+      int top = heap[0];
+      heap[0] = heap[n];
+      heap[n] = top;
+      siftDown(0, n);
+    }
+    for (int i = 0; i < size; i++) {
+      list.add(pool[heap[i]]);
+    }
+    size = 0;
+  }
+
+  private void siftUp(int i) {
+    int slot = heap[i];
+    float score = pool[slot].getScore();
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (pool[heap[parent]].getScore() <= score)
+        break;
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = slot;
+  }
+
+  private void siftDown(int i, int n) {
+    int slot = heap[i];
+    float score = pool[slot].getScore();
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= n)
+        break;
+      if (child + 1 < n
+          && pool[heap[child + 1]].getScore() < pool[heap[child]].getScore())
+        child++;
+      if (pool[heap[child]].getScore() >= score)
+        break;
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = slot;
   }
 
 }
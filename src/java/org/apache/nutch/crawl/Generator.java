@@ -18,7 +18,6 @@
 package org.apache.nutch.crawl;
 
 import java.io.*;
-import java.net.*;
 import java.util.*;
 import java.text.*;
 
@@ -44,6 +43,7 @@ import org.apache.nutch.util.NutchConfiguration;
 import org.apache.nutch.util.NutchJob;
 import org.apache.nutch.util.NutchTool;
 import org.apache.nutch.util.TimingUtil;
+import org.apache.nutch.util.URLParts;
 import org.apache.nutch.util.URLUtil;
 
 /**
@@ -169,19 +169,6 @@ public class Generator extends NutchTool implements Tool {
         OutputCollector<FloatWritable, SelectorEntry> output, Reporter reporter)
         throws IOException {
       Text url = key;
-      if (filter) {
-        // If filtering is on don't generate URLs that don't pass
-        // URLFilters
-        try {
-          if (filters.filter(url.toString()) == null)
-            return;
-        } catch (URLFilterException e) {
-          if (LOG.isWarnEnabled()) {
-            LOG.warn("Couldn't filter url: " + url + " (" + e.getMessage()
-                + ")");
-          }
-        }
-      }
       CrawlDatum crawlDatum = value;
 
       // check fetch schedule
@@ -191,13 +178,41 @@ public class Generator extends NutchTool implements Tool {
         return;
       }
 
-      LongWritable oldGenTime = (LongWritable) crawlDatum.getMetaData().get(
-          Nutch.WRITABLE_GENERATE_TIME_KEY);
+      // look up the generate time without decoding all metadata
+      LongWritable oldGenTime = (LongWritable) crawlDatum
+          .getMetaDataValue(Nutch.WRITABLE_GENERATE_TIME_KEY);
       if (oldGenTime != null) { // awaiting fetch & update
         if (oldGenTime.get() + genDelay > curTime) // still wait for
           // update
           return;
       }
+
+      if (restrictStatus != null
+          && !restrictStatus.equalsIgnoreCase(CrawlDatum
+              .getStatusName(crawlDatum.getStatus())))
+        return;
+
+      // consider only entries with a retry (or fetch) interval lower than
+      // threshold
+      if (intervalThreshold != -1
+          && crawlDatum.getFetchInterval() > intervalThreshold)
+        return;
+
+      // check the cheap conditions first, filtering is expensive
+      if (filter) {
+        // If filtering is on don't generate URLs that don't pass
+        // URLFilters
+        try {
+          if (filters.filter(url.toString()) == null)
+            return;
+        } catch (URLFilterException e) {
+          if (LOG.isWarnEnabled()) {
+            LOG.warn("Couldn't filter url: " + url + " (" + e.getMessage()
+                + ")");
+          }
+        }
+      }
+
       float sort = 1.0f;
       try {
         sort = scfilters.generatorSortValue(key, crawlDatum, sort);
@@ -207,21 +222,10 @@ public class Generator extends NutchTool implements Tool {
         }
       }
 
-      if (restrictStatus != null
-          && !restrictStatus.equalsIgnoreCase(CrawlDatum
-              .getStatusName(crawlDatum.getStatus())))
-        return;
-
       // consider only entries with a score superior to the threshold
       if (scoreThreshold != Float.NaN && sort < scoreThreshold)
         return;
 
-      // consider only entries with a retry (or fetch) interval lower than
-      // threshold
-      if (intervalThreshold != -1
-          && crawlDatum.getFetchInterval() > intervalThreshold)
-        return;
-
       // sort by decreasing score, using DecreasingFloatComparator
       sortValue.set(sort);
       // record generation time
@@ -257,7 +261,6 @@ public class Generator extends NutchTool implements Tool {
         SelectorEntry entry = values.next();
         Text url = entry.url;
         String urlString = url.toString();
-        URL u = null;
 
         String hostordomain = null;
 
@@ -266,11 +269,11 @@ public class Generator extends NutchTool implements Tool {
             urlString = normalizers.normalize(urlString,
                 URLNormalizers.SCOPE_GENERATE_HOST_COUNT);
           }
-          u = new URL(urlString);
+          URLParts u = URLParts.parse(urlString);
           if (byDomain) {
-            hostordomain = URLUtil.getDomainName(u);
+            hostordomain = u.getDomainName();
           } else {
-            hostordomain = new URL(urlString).getHost();
+            hostordomain = u.getRawHost();
           }
         } catch (Exception e) {
           LOG.warn("Malformed URL: '" + urlString + "', skipping ("
@@ -442,9 +445,9 @@ public class Generator extends NutchTool implements Tool {
       genTime.set(0L);
       while (values.hasNext()) {
         CrawlDatum val = values.next();
-        if (val.getMetaData().containsKey(Nutch.WRITABLE_GENERATE_TIME_KEY)) {
-          LongWritable gt = (LongWritable) val.getMetaData().get(
-              Nutch.WRITABLE_GENERATE_TIME_KEY);
+        LongWritable gt = (LongWritable) val
+            .getMetaDataValue(Nutch.WRITABLE_GENERATE_TIME_KEY);
+        if (gt != null) {
           genTime.set(gt.get());
           if (genTime.get() != generateTime) {
             orig.set(val);
@@ -554,7 +557,7 @@ public class Generator extends NutchTool implements Tool {
     job.setInt(GENERATOR_MAX_NUM_SEGMENTS, maxNumSegments);
 
     FileInputFormat.addInputPath(job, new Path(dbDir, CrawlDb.CURRENT_NAME));
-    job.setInputFormat(SequenceFileInputFormat.class);
+    job.setInputFormat(CrawlDbInputFormat.class);
 
     job.setMapperClass(Selector.class);
     job.setPartitionerClass(Selector.class);
@@ -568,7 +571,7 @@ public class Generator extends NutchTool implements Tool {
     job.setOutputFormat(GeneratorOutputFormat.class);
 
     try {
-      JobClient.runJob(job);
+      NutchJob.runJob(job);
     } catch (IOException e) {
       LockUtil.removeLockFile(fs, lock);
       fs.delete(tempDir, true);
@@ -615,15 +618,13 @@ public class Generator extends NutchTool implements Tool {
         FileInputFormat.addInputPath(job, subGenDir);
       }
       FileInputFormat.addInputPath(job, new Path(dbDir, CrawlDb.CURRENT_NAME));
-      job.setInputFormat(SequenceFileInputFormat.class);
+      job.setInputFormat(CrawlDbInputFormat.class);
       job.setMapperClass(CrawlDbUpdater.class);
       job.setReducerClass(CrawlDbUpdater.class);
-      job.setOutputFormat(MapFileOutputFormat.class);
-      job.setOutputKeyClass(Text.class);
-      job.setOutputValueClass(CrawlDatum.class);
+      CrawlDbOutputFormat.setOutput(job);
       FileOutputFormat.setOutputPath(job, tempDir2);
       try {
-        JobClient.runJob(job);
+        NutchJob.runJob(job);
         CrawlDb.install(job, dbDir);
       } catch (IOException e) {
         LockUtil.removeLockFile(fs, lock);
@@ -676,7 +677,7 @@ public class Generator extends NutchTool implements Tool {
     job.setOutputKeyClass(Text.class);
     job.setOutputValueClass(CrawlDatum.class);
     job.setOutputKeyComparatorClass(HashComparator.class);
-    JobClient.runJob(job);
+    NutchJob.runJob(job);
     return segment;
   }
 
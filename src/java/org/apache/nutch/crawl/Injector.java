@@ -28,11 +28,13 @@ import org.apache.hadoop.io.*;
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.conf.*;
 import org.apache.hadoop.mapred.*;
+import org.apache.hadoop.mapred.lib.MultithreadedMapRunner;
 import org.apache.hadoop.util.*;
 import org.apache.nutch.net.*;
 import org.apache.nutch.metadata.Nutch;
 import org.apache.nutch.scoring.ScoringFilterException;
 import org.apache.nutch.scoring.ScoringFilters;
+import org.apache.nutch.util.FingerprintSet;
 import org.apache.nutch.util.NutchConfiguration;
 import org.apache.nutch.util.NutchJob;
 import org.apache.nutch.util.NutchTool;
@@ -51,6 +53,14 @@ import org.apache.nutch.util.TimingUtil;
  * for a specific URL that is not changed by AdaptiveFetchSchedule <br>
  * e.g. http://www.nutch.org/ \t nutch.score=10 \t nutch.fetchInterval=2592000
  * \t userType=open_source
+ * <p>
+ * In streaming mode (see {@link #INJECTOR_STREAMING}) the injected URLs are
+ * written into a delta run of the existing CrawlDb: duplicate seeds may be
+ * skipped by the mappers (see {@link #INJECTOR_DEDUP_SIZE}), and URLs already
+ * contained in the CrawlDb are looked up by the reducers (Bloom filters skip
+ * most unknown URLs), so that the CrawlDb is neither read completely nor
+ * rewritten.
+ * </p>
  **/
 public class Injector extends NutchTool implements Tool {
   public static final Logger LOG = LoggerFactory.getLogger(Injector.class);
@@ -67,6 +77,26 @@ public class Injector extends NutchTool implements Tool {
    */
   public static String nutchFixedFetchIntervalMDName = "nutch.fetchInterval.fixed";
 
+  /**
+   * If true, inject into an existing CrawlDb by writing a delta run (see
+   * {@link CrawlDb#CRAWLDB_UPDATE_DELTA}) containing only new or updated URLs.
+   */
+  public static final String INJECTOR_STREAMING = "db.injector.streaming";
+
+  /**
+   * Number of threads per map task normalizing and filtering seeds (default:
+   * 1).
+   */
+  public static final String INJECTOR_THREADS = "db.injector.threads";
+
+  /**
+   * Max. number of fingerprints of injected URLs kept per map task to skip
+   * duplicate seeds, 0 to disable (default). The table takes 16 to 32 bytes
+   * per fingerprint, e.g. 16 MB for 1048576 fingerprints. At most
+   * {@link FingerprintSet#MAX_SIZE}.
+   */
+  public static final String INJECTOR_DEDUP_SIZE = "db.injector.dedup.size";
+
   /** Normalize and filter injected urls. */
   public static class InjectMapper implements
       Mapper<WritableComparable<?>, Text, Text, CrawlDatum> {
@@ -77,6 +107,7 @@ public class Injector extends NutchTool implements Tool {
     private URLFilters filters;
     private ScoringFilters scfilters;
     private long curTime;
+    private FingerprintSet seen;
 
     public void configure(JobConf job) {
       this.jobConf = job;
@@ -87,6 +118,9 @@ public class Injector extends NutchTool implements Tool {
       scoreInjected = jobConf.getFloat("db.score.injected", 1.0f);
       curTime = job
           .getLong("injector.current.time", System.currentTimeMillis());
+      int dedupSize = job.getInt(INJECTOR_DEDUP_SIZE, 0);
+      if (dedupSize > 0)
+        seen = new FingerprintSet(dedupSize);
     }
 
     public void close() {
@@ -150,6 +184,8 @@ public class Injector extends NutchTool implements Tool {
       }
       if (url == null) {
         reporter.getCounter("injector", "urls_filtered").increment(1);
+      } else if (!isFirst(url)) {
+        reporter.getCounter("injector", "urls_duplicated").increment(1);
       } else { // if it passes
         value.set(url); // collect it
         CrawlDatum datum = new CrawlDatum();
@@ -190,6 +226,17 @@ public class Injector extends NutchTool implements Tool {
         output.collect(value, datum);
       }
     }
+
+    /** Whether the URL is seen the first time by this mapper. */
+    private boolean isFirst(String url) {
+      if (seen == null)
+        return true;
+      long fingerprint = FingerprintSet.fingerprint(url);
+      // shared by the threads of a MultithreadedMapRunner
+      synchronized (seen) {
+        return seen.add(fingerprint);
+      }
+    }
   }
 
   /** Combine multiple new entries for a url. */
@@ -197,8 +244,8 @@ public class Injector extends NutchTool implements Tool {
       Reducer<Text, CrawlDatum, Text, CrawlDatum> {
     private int interval;
     private float scoreInjected;
-    private boolean overwrite = false;
-    private boolean update = false;
+    protected boolean overwrite = false;
+    protected boolean update = false;
 
     public void configure(JobConf job) {
       interval = job.getInt("db.fetch.interval.default", 2592000);
@@ -268,6 +315,71 @@ public class Injector extends NutchTool implements Tool {
     }
   }
 
+  /**
+   * Combine the new entries of a URL with the existing entry looked up in the
+   * CrawlDb, writing only new or updated entries into a delta run.
+   */
+  public static class InjectDeltaReducer extends InjectReducer {
+    private CrawlDbLookup lookup;
+    private CrawlDatum existing = new CrawlDatum();
+
+    public void configure(JobConf job) {
+      super.configure(job);
+      try {
+        // open only the part of this partition
+        lookup = new CrawlDbLookup(new Path(
+            job.get(CrawlDbDeltaReducer.CRAWLDB_PATH)), job, job.getInt(
+            "mapred.task.partition", -1), job.getNumReduceTasks());
+      } catch (IOException e) {
+        throw new RuntimeException("Failed to open CrawlDb "
+            + job.get(CrawlDbDeltaReducer.CRAWLDB_PATH), e);
+      }
+    }
+
+    public void close() {
+      if (lookup != null)
+        lookup.close();
+      super.close();
+    }
+
+    public void reduce(Text key, final Iterator<CrawlDatum> values,
+        OutputCollector<Text, CrawlDatum> output, Reporter reporter)
+        throws IOException {
+      if (lookup.get(key, existing) == null) {
+        reporter.getCounter("injector", "urls_new").increment(1);
+        super.reduce(key, values, output, reporter);
+        return;
+      }
+      if (!update && !overwrite) {
+        // existing entry is kept unchanged
+        reporter.getCounter("injector", "urls_merged").increment(1);
+        return;
+      }
+      // pass the existing entry first, followed by the injected ones
+      super.reduce(key, new Iterator<CrawlDatum>() {
+        private boolean existingPassed = false;
+
+        public boolean hasNext() {
+          return !existingPassed || values.hasNext();
+        }
+
+        public CrawlDatum next() {
+          if (!existingPassed) {
+            existingPassed = true;
+            return existing;
+          }
+          if (!values.hasNext())
+            throw new NoSuchElementException();
+          return values.next();
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      }, output, reporter);
+    }
+  }
+
   public Injector() {
   }
 
@@ -297,10 +409,27 @@ public class Injector extends NutchTool implements Tool {
     // determine if the crawldb already exists
     boolean dbExists = fs.exists(crawlDb);
 
+    if (dbExists && getConf().getBoolean(INJECTOR_STREAMING, false)) {
+      Path current = new Path(crawlDb, CrawlDb.CURRENT_NAME);
+      boolean reversed = getConf().getBoolean(CrawlDb.CRAWLDB_REVERSED_URLS,
+          false);
+      if (!fs.exists(current)) {
+        LOG.info("Injector: no current CrawlDb, streaming injection disabled");
+      } else if (reversed != CrawlDb.hasReversedUrls(fs, current, getConf())) {
+        LOG.info("Injector: URL encoding changed, streaming injection disabled");
+      } else if (injectDelta(crawlDb, urlDir)) {
+        long end = System.currentTimeMillis();
+        LOG.info("Injector: finished at " + sdf.format(end) + ", elapsed: "
+            + TimingUtil.elapsedTime(start, end));
+        return;
+      }
+    }
+
     JobConf sortJob = new NutchJob(getConf());
     sortJob.setJobName("inject " + urlDir);
     FileInputFormat.addInputPath(sortJob, urlDir);
     sortJob.setMapperClass(InjectMapper.class);
+    setThreads(sortJob);
 
     FileOutputFormat.setOutputPath(sortJob, tempDir);
     if (dbExists) {
@@ -309,7 +438,7 @@ public class Injector extends NutchTool implements Tool {
       sortJob.setOutputFormat(SequenceFileOutputFormat.class);
       sortJob.setNumReduceTasks(0);
     } else {
-      sortJob.setOutputFormat(MapFileOutputFormat.class);
+      CrawlDbOutputFormat.setOutput(sortJob);
       sortJob.setReducerClass(InjectReducer.class);
       sortJob.setBoolean("mapreduce.fileoutputcommitter.marksuccessfuljobs",
           false);
@@ -318,17 +447,17 @@ public class Injector extends NutchTool implements Tool {
     sortJob.setOutputValueClass(CrawlDatum.class);
     sortJob.setLong("injector.current.time", System.currentTimeMillis());
 
-    RunningJob mapJob = null;
+    Counters mapCounters = null;
     try {
-      mapJob = JobClient.runJob(sortJob);
+      mapCounters = NutchJob.runJob(sortJob);
     } catch (IOException e) {
       fs.delete(tempDir, true);
       throw e;
     }
-    long urlsInjected = mapJob.getCounters()
-        .findCounter("injector", "urls_injected").getValue();
-    long urlsFiltered = mapJob.getCounters()
-        .findCounter("injector", "urls_filtered").getValue();
+    long urlsInjected = mapCounters.findCounter("injector", "urls_injected")
+        .getValue();
+    long urlsFiltered = mapCounters.findCounter("injector", "urls_filtered")
+        .getValue();
     LOG.info("Injector: Total number of urls rejected by filters: "
         + urlsFiltered);
     LOG.info("Injector: Total number of urls after normalization: "
@@ -343,9 +472,8 @@ public class Injector extends NutchTool implements Tool {
       FileInputFormat.addInputPath(mergeJob, tempDir);
       mergeJob.setReducerClass(InjectReducer.class);
       try {
-        RunningJob merge = JobClient.runJob(mergeJob);
-        urlsMerged = merge.getCounters().findCounter("injector", "urls_merged")
-            .getValue();
+        Counters merge = NutchJob.runJob(mergeJob);
+        urlsMerged = merge.findCounter("injector", "urls_merged").getValue();
         LOG.info("Injector: URLs merged: " + urlsMerged);
       } catch (IOException e) {
         fs.delete(tempDir, true);
@@ -365,6 +493,71 @@ public class Injector extends NutchTool implements Tool {
         + TimingUtil.elapsedTime(start, end));
   }
 
+  private void setThreads(JobConf job) {
+    int threads = job.getInt(INJECTOR_THREADS, 1);
+    if (threads > 1) {
+      job.setMapRunnerClass(MultithreadedMapRunner.class);
+      job.setInt("mapred.map.multithreadedrunner.threads", threads);
+    }
+  }
+
+  /**
+   * Inject into an existing CrawlDb by writing a delta run.
+   * 
+   * @return false if the delta run could not be partitioned as the CrawlDb,
+   *         nothing is injected then
+   */
+  private boolean injectDelta(Path crawlDb, Path urlDir) throws IOException {
+    LOG.info("Injector: injecting new urls into a delta run");
+    JobConf job = CrawlDb.createDeltaJob(getConf(), crawlDb);
+    job.setJobName("inject " + urlDir + " into " + crawlDb);
+    job.setInputFormat(TextInputFormat.class);
+    FileInputFormat.addInputPath(job, urlDir);
+    job.setMapperClass(InjectMapper.class);
+    setThreads(job);
+    job.setReducerClass(InjectDeltaReducer.class);
+    job.setLong("injector.current.time", System.currentTimeMillis());
+
+    FileSystem fs = FileSystem.get(job);
+    Counters counters;
+    try {
+      counters = NutchJob.runJob(job);
+    } catch (IOException e) {
+      Path outPath = FileOutputFormat.getOutputPath(job);
+      if (fs.exists(outPath))
+        fs.delete(outPath, true);
+      throw e;
+    }
+    Path newRun = FileOutputFormat.getOutputPath(job);
+    int numParts = CrawlDb.getNumParts(fs, new Path(crawlDb,
+        CrawlDb.CURRENT_NAME));
+    if (CrawlDb.getNumParts(fs, newRun) != numParts) {
+      // e.g., the local job runner runs only a single reduce task
+      LOG.warn("Injector: delta run not partitioned as current (" + numParts
+          + " parts), streaming injection disabled");
+      fs.delete(newRun, true);
+      return false;
+    }
+    Path run = CrawlDb.installDelta(job, crawlDb);
+    LOG.info("Injector: installed delta run " + run);
+    long urlsMerged = counters.findCounter("injector", "urls_merged")
+        .getValue();
+    LOG.info("Injector: Total number of urls rejected by filters: "
+        + counters.findCounter("injector", "urls_filtered").getValue());
+    LOG.info("Injector: Total number of duplicate urls skipped: "
+        + counters.findCounter("injector", "urls_duplicated").getValue());
+    LOG.info("Injector: URLs merged: " + urlsMerged);
+    LOG.info("Injector: Total new urls injected: "
+        + counters.findCounter("injector", "urls_new").getValue());
+
+    int maxRuns = job.getInt(CrawlDb.CRAWLDB_DELTA_MAX_RUNS, 10);
+    if (CrawlDb.getDeltaRuns(fs, crawlDb).length > maxRuns) {
+      LOG.info("Injector: more than " + maxRuns + " delta runs, compacting");
+      new CrawlDb(getConf()).compact(crawlDb, false);
+    }
+    return true;
+  }
+
   public static void main(String[] args) throws Exception {
     int res = ToolRunner.run(NutchConfiguration.create(), new Injector(), args);
     System.exit(res);
@@ -372,9 +565,16 @@ public class Injector extends NutchTool implements Tool {
 
   public int run(String[] args) throws Exception {
     if (args.length < 2) {
-      System.err.println("Usage: Injector <crawldb> <url_dir>");
+      System.err.println("Usage: Injector <crawldb> <url_dir> [-streaming]");
+      System.err
+          .println("\t-streaming\twrite new urls into a delta run of an existing CrawlDb");
       return -1;
     }
+    for (int i = 2; i < args.length; i++) {
+      if (args[i].equals("-streaming")) {
+        getConf().setBoolean(INJECTOR_STREAMING, true);
+      }
+    }
     try {
       inject(new Path(args[0]), new Path(args[1]));
       return 0;
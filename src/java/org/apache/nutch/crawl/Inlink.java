@@ -25,6 +25,7 @@ public class Inlink implements Writable {
 
   private String fromUrl;
   private String anchor;
+  private float score;
 
   public Inlink() {
   }
@@ -34,6 +35,15 @@ public class Inlink implements Writable {
     this.anchor = anchor;
   }
 
+  /**
+   * @param score
+   *          score of the linking page, used to select the best inlinks
+   */
+  public Inlink(String fromUrl, String anchor, float score) {
+    this(fromUrl, anchor);
+    this.score = score;
+  }
+
   public void readFields(DataInput in) throws IOException {
     fromUrl = Text.readString(in);
     anchor = Text.readString(in);
@@ -64,6 +74,18 @@ public class Inlink implements Writable {
     return anchor;
   }
 
+  /**
+   * Score of the linking page, 0 if unknown. The score is only stored by
+   * {@link Inlinks}, not by {@link #write(DataOutput)}.
+   */
+  public float getScore() {
+    return score;
+  }
+
+  public void setScore(float score) {
+    this.score = score;
+  }
+
   public boolean equals(Object o) {
     if (!(o instanceof Inlink))
       return false;
@@ -18,13 +18,40 @@
 package org.apache.nutch.crawl;
 
 import java.io.*;
-import java.net.*;
 import java.util.*;
 
 import org.apache.hadoop.io.*;
+import org.apache.nutch.util.URLParts;
 
-/** A list of {@link Inlink}s. */
+/**
+ * A list of {@link Inlink}s.
+ *
+ * <p>
+ * Inlinks are written in a compact format: the common prefixes of the source
+ * URLs (scheme, host and port) and the anchor texts are stored once in
+ * dictionaries, the inlinks refer to them by index. The format starts with a
+ * negative version number, the old format (starting with the number of
+ * inlinks) is still read.
+ * </p>
+ */
 public class Inlinks implements Writable {
+
+  /** Version of the compact format, written as negative number. */
+  private static final int VERSION = 1;
+
+  /** Orders inlinks by decreasing score. */
+  private static final Comparator<Inlink> SCORE_COMPARATOR = new Comparator<Inlink>() {
+    public int compare(Inlink i1, Inlink i2) {
+      int res = Float.compare(i2.getScore(), i1.getScore());
+      if (res != 0)
+        return res;
+      res = i1.getFromUrl().compareTo(i2.getFromUrl());
+      if (res != 0)
+        return res;
+      return i1.getAnchor().compareTo(i2.getAnchor());
+    }
+  };
+
   private HashSet<Inlink> inlinks = new HashSet<Inlink>(1);
 
   public void add(Inlink inlink) {
@@ -47,20 +74,130 @@ public class Inlinks implements Writable {
     inlinks.clear();
   }
 
+  /**
+   * Keep only the best inlinks: the inlinks are selected by decreasing score
+   * of the linking page, in a first pass at most <code>maxPerHost</code>
+   * inlinks of every linking host (including scheme and port) are taken, the
+   * remaining slots are filled by a second pass.
+   *
+   * @param max
+   *          max. number of inlinks to keep
+   * @param maxPerHost
+   *          max. number of inlinks per host in the first pass, 0 for no limit
+   */
+  public void retainTop(int max, int maxPerHost) {
+    if (inlinks.size() <= max)
+      return;
+    Inlink[] sorted = inlinks.toArray(new Inlink[inlinks.size()]);
+    Arrays.sort(sorted, SCORE_COMPARATOR);
+    inlinks.clear();
+    List<Inlink> skipped = new ArrayList<Inlink>();
+    Map<String, Integer> perHost = new HashMap<String, Integer>();
+    for (Inlink inlink : sorted) {
+      if (inlinks.size() >= max)
+        break;
+      if (maxPerHost > 0) {
+        String url = inlink.getFromUrl();
+        String host = url.substring(0, getPrefixLength(url));
+        Integer count = perHost.get(host);
+        if (count == null)
+          count = 0;
+        if (count >= maxPerHost) {
+          skipped.add(inlink);
+          continue;
+        }
+        perHost.put(host, count + 1);
+      }
+      inlinks.add(inlink);
+    }
+    for (int i = 0; i < skipped.size() && inlinks.size() < max; i++) {
+      inlinks.add(skipped.get(i));
+    }
+  }
+
+  /**
+   * Length of the prefix of a URL shared by all URLs of the same host: the
+   * scheme, host and port, 0 if the URL has no authority.
+   */
+  private static int getPrefixLength(String url) {
+    int start = url.indexOf("://");
+    if (start < 0)
+      return 0;
+    int end = url.indexOf('/', start + 3);
+    return end < 0 ? url.length() : end;
+  }
+
   public void readFields(DataInput in) throws IOException {
     int length = in.readInt();
     inlinks.clear();
-    for (int i = 0; i < length; i++) {
-      add(Inlink.read(in));
+    if (length >= 0) {
+      // old format
+      for (int i = 0; i < length; i++) {
+        add(Inlink.read(in));
+      }
+      return;
+    }
+    if (-length != VERSION)
+      throw new IOException("Unknown Inlinks version: " + (-length));
+    String[] prefixes = new String[WritableUtils.readVInt(in)];
+    for (int i = 0; i < prefixes.length; i++) {
+      prefixes[i] = Text.readString(in);
+    }
+    String[] anchors = new String[WritableUtils.readVInt(in)];
+    for (int i = 0; i < anchors.length; i++) {
+      anchors[i] = Text.readString(in);
+    }
+    int size = WritableUtils.readVInt(in);
+    for (int i = 0; i < size; i++) {
+      String prefix = prefixes[WritableUtils.readVInt(in)];
+      String suffix = Text.readString(in);
+      String anchor = anchors[WritableUtils.readVInt(in)];
+      float score = in.readFloat();
+      add(new Inlink(prefix.concat(suffix), anchor, score));
     }
   }
 
   public void write(DataOutput out) throws IOException {
-    out.writeInt(inlinks.size());
-    Iterator<Inlink> it = inlinks.iterator();
-    while (it.hasNext()) {
-      it.next().write(out);
+    out.writeInt(-VERSION);
+    Map<String, Integer> prefixes = new LinkedHashMap<String, Integer>();
+    Map<String, Integer> anchors = new LinkedHashMap<String, Integer>();
+    int[] prefixIds = new int[inlinks.size()];
+    int[] prefixLengths = new int[inlinks.size()];
+    int[] anchorIds = new int[inlinks.size()];
+    int i = 0;
+    for (Inlink inlink : inlinks) {
+      String url = inlink.getFromUrl();
+      prefixLengths[i] = getPrefixLength(url);
+      prefixIds[i] = getId(prefixes, url.substring(0, prefixLengths[i]));
+      anchorIds[i] = getId(anchors, inlink.getAnchor());
+      i++;
+    }
+    WritableUtils.writeVInt(out, prefixes.size());
+    for (String prefix : prefixes.keySet()) {
+      Text.writeString(out, prefix);
+    }
+    WritableUtils.writeVInt(out, anchors.size());
+    for (String anchor : anchors.keySet()) {
+      Text.writeString(out, anchor);
+    }
+    WritableUtils.writeVInt(out, inlinks.size());
+    i = 0;
+    for (Inlink inlink : inlinks) {
+      WritableUtils.writeVInt(out, prefixIds[i]);
+      Text.writeString(out, inlink.getFromUrl().substring(prefixLengths[i]));
+      WritableUtils.writeVInt(out, anchorIds[i]);
+      out.writeFloat(inlink.getScore());
+      i++;
+    }
+  }
+
+  private static int getId(Map<String, Integer> dictionary, String s) {
+    Integer id = dictionary.get(s);
+    if (id == null) {
+      id = dictionary.size();
+      dictionary.put(s, id);
     }
+    return id;
   }
 
   public String toString() {
@@ -90,9 +227,9 @@ public class Inlinks implements Writable {
       if (anchor.length() == 0) // skip empty anchors
         continue;
       String domain = null; // extract domain name
-      try {
-        domain = new URL(inlink.getFromUrl()).getHost();
-      } catch (MalformedURLException e) {
+      URLParts from = URLParts.parseOrNull(inlink.getFromUrl());
+      if (from != null) {
+        domain = from.getRawHost();
       }
       Set<String> domainAnchors = domainToAnchors.get(domain);
       if (domainAnchors == null) {
@@ -20,7 +20,6 @@ package org.apache.nutch.crawl;
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.net.*;
 
 // Commons Logging imports
 import org.slf4j.Logger;
@@ -31,15 +30,20 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.conf.*;
 import org.apache.hadoop.mapred.*;
 import org.apache.hadoop.util.*;
+import org.apache.nutch.metadata.Nutch;
 import org.apache.nutch.net.URLFilters;
 import org.apache.nutch.net.URLNormalizers;
 import org.apache.nutch.parse.*;
+import org.apache.nutch.util.BloomMapFileOutputFormat;
 import org.apache.nutch.util.HadoopFSUtil;
 import org.apache.nutch.util.LockUtil;
 import org.apache.nutch.util.NutchConfiguration;
 import org.apache.nutch.util.NutchJob;
 import org.apache.nutch.util.NutchTool;
+import org.apache.nutch.util.SortedMergeInputFormat;
+import org.apache.nutch.util.SortedMergeRunner;
 import org.apache.nutch.util.TimingUtil;
+import org.apache.nutch.util.URLUtil;
 
 /** Maintains an inverted link map, listing incoming links for each url. */
 public class LinkDb extends NutchTool implements Tool,
@@ -50,6 +54,23 @@ public class LinkDb extends NutchTool implements Tool,
   public static final String IGNORE_INTERNAL_LINKS = "db.ignore.internal.links";
   public static final String IGNORE_EXTERNAL_LINKS = "db.ignore.external.links";
 
+  /**
+   * If a page has more than <code>db.max.inlinks</code> inlinks, the inlinks
+   * from the pages with the highest scores are kept, taking at most this number
+   * of inlinks from the same host before inlinks from other hosts with lower
+   * scores (default: 1, 0 to select by score only).
+   */
+  public static final String MAX_INLINKS_PER_HOST = "db.max.inlinks.per.host";
+
+  /**
+   * If true and the existing LinkDb is partitioned like the inverted links of
+   * the new segments, only the parts of the LinkDb which receive new inlinks
+   * are merged (map-side) and rewritten, all other parts are kept as they are.
+   * The inlinks of the existing LinkDb are not filtered or normalized again
+   * (default: false).
+   */
+  public static final String INCREMENTAL = "db.linkdb.incremental";
+
   public static final String CURRENT_NAME = "current";
   public static final String LOCK_NAME = ".locked";
 
@@ -107,6 +128,15 @@ public class LinkDb extends NutchTool implements Tool,
     }
     if (fromUrl == null)
       return; // discard all outlinks
+    // score of the linking page, if stored by the scoring filters
+    float score = 0.0f;
+    String scoreString = parseData.getContentMeta().get(Nutch.SCORE_KEY);
+    if (scoreString != null) {
+      try {
+        score = Float.parseFloat(scoreString);
+      } catch (NumberFormatException e) {
+      }
+    }
     Outlink[] outlinks = parseData.getOutlinks();
     Inlinks inlinks = new Inlinks();
     for (int i = 0; i < outlinks.length; i++) {
@@ -149,17 +179,13 @@ public class LinkDb extends NutchTool implements Tool,
       if (anchor.length() > maxAnchorLength) {
         anchor = anchor.substring(0, maxAnchorLength);
       }
-      inlinks.add(new Inlink(fromUrl, anchor)); // collect inverted link
+      inlinks.add(new Inlink(fromUrl, anchor, score)); // collect inverted link
       output.collect(new Text(toUrl), inlinks);
     }
   }
 
   private String getHost(String url) {
-    try {
-      return new URL(url).getHost().toLowerCase();
-    } catch (MalformedURLException e) {
-      return null;
-    }
+    return URLUtil.getHost(url);
   }
 
   public void invert(Path linkDb, final Path segmentsDir, boolean normalize,
@@ -199,6 +225,21 @@ public class LinkDb extends NutchTool implements Tool,
       return;
     }
 
+    int numParts = -1;
+    if (job.getBoolean(INCREMENTAL, false) && fs.exists(currentLinkDb)) {
+      numParts = getCompatibleParts(job, currentLinkDb);
+      if (numParts < 0) {
+        LOG.info("LinkDb: partitioning of existing linkdb differs, "
+            + "incremental update disabled");
+      } else {
+        LOG.info("LinkDb: incremental update of " + numParts + " parts");
+        // the existing linkdb is not filtered again, only the new links
+        job.setBoolean(LinkDbFilter.URL_FILTERING, filter);
+        job.setBoolean(LinkDbFilter.URL_NORMALIZING, normalize);
+        job.setNumReduceTasks(numParts);
+      }
+    }
+
     for (int i = 0; i < segments.length; i++) {
       if (LOG.isInfoEnabled()) {
         LOG.info("LinkDb: adding segment: " + segments[i]);
@@ -207,12 +248,31 @@ public class LinkDb extends NutchTool implements Tool,
           ParseData.DIR_NAME));
     }
     try {
-      JobClient.runJob(job);
+      NutchJob.runJob(job);
     } catch (IOException e) {
       LockUtil.removeLockFile(fs, lock);
       throw e;
     }
-    if (fs.exists(currentLinkDb)) {
+    if (numParts >= 0) {
+      int newParts = getNumParts(fs, FileOutputFormat.getOutputPath(job));
+      if (newParts != numParts) {
+        // e.g., the local job runner runs only a single reduce task
+        LOG.info("LinkDb: inverted links written into " + newParts
+            + " instead of " + numParts + " parts, incremental update disabled");
+        numParts = -1;
+      }
+    }
+    if (numParts >= 0) {
+      Path newLinkDb = FileOutputFormat.getOutputPath(job);
+      try {
+        mergeIncremental(linkDb, newLinkDb);
+      } catch (IOException e) {
+        LockUtil.removeLockFile(fs, lock);
+        throw e;
+      } finally {
+        fs.delete(newLinkDb, true);
+      }
+    } else if (fs.exists(currentLinkDb)) {
       if (LOG.isInfoEnabled()) {
         LOG.info("LinkDb: merging with existing linkdb: " + linkDb);
       }
@@ -222,7 +282,7 @@ public class LinkDb extends NutchTool implements Tool,
       FileInputFormat.addInputPath(job, currentLinkDb);
       FileInputFormat.addInputPath(job, newLinkDb);
       try {
-        JobClient.runJob(job);
+        NutchJob.runJob(job);
       } catch (IOException e) {
         LockUtil.removeLockFile(fs, lock);
         fs.delete(newLinkDb, true);
@@ -230,13 +290,104 @@ public class LinkDb extends NutchTool implements Tool,
       }
       fs.delete(newLinkDb, true);
     }
-    LinkDb.install(job, linkDb);
+    if (numParts < 0) {
+      LinkDb.install(job, linkDb);
+    }
 
     long end = System.currentTimeMillis();
     LOG.info("LinkDb: finished at " + sdf.format(end) + ", elapsed: "
         + TimingUtil.elapsedTime(start, end));
   }
 
+  /**
+   * Number of parts of the existing LinkDb if it is partitioned by the
+   * partitioner of the job, -1 otherwise.
+   */
+  private static int getCompatibleParts(JobConf job, Path currentLinkDb)
+      throws IOException {
+    JobConf conf = new JobConf(job);
+    FileInputFormat.setInputPaths(conf, currentLinkDb);
+    return new SortedMergeInputFormat().getCompatibleParts(conf);
+  }
+
+  /**
+   * Merge the inverted links of an incremental update into those parts of the
+   * existing LinkDb which receive new inlinks. The merge job only reads and
+   * writes these parts, the other parts are moved unchanged into the new
+   * LinkDb.
+   */
+  private void mergeIncremental(Path linkDb, Path newLinkDb)
+      throws IOException {
+    FileSystem fs = FileSystem.get(getConf());
+    Path currentLinkDb = new Path(linkDb, CURRENT_NAME);
+    List<String> parts = getNonEmptyParts(fs, newLinkDb, getConf());
+    LOG.info("LinkDb: merging " + parts.size()
+        + " parts with existing linkdb: " + linkDb);
+    if (parts.isEmpty()) {
+      LockUtil.removeLockFile(fs, new Path(linkDb, LOCK_NAME));
+      return;
+    }
+    JobConf job = LinkDbMerger.createMergeJob(getConf(), linkDb, false, false);
+    FileInputFormat.addInputPath(job, currentLinkDb);
+    FileInputFormat.addInputPath(job, newLinkDb);
+    job.setInputFormat(SortedMergeInputFormat.class);
+    job.setStrings(SortedMergeInputFormat.PARTS,
+        parts.toArray(new String[parts.size()]));
+    SortedMergeRunner.setup(job);
+    NutchJob.runJob(job);
+
+    Path mergedLinkDb = FileOutputFormat.getOutputPath(job);
+    List<Path> moved = new ArrayList<Path>();
+    for (FileStatus stat : fs.listStatus(currentLinkDb,
+        HadoopFSUtil.getPassDirectoriesFilter(fs))) {
+      Path part = new Path(mergedLinkDb, stat.getPath().getName());
+      if (fs.exists(part))
+        continue;
+      if (!fs.rename(stat.getPath(), part)) {
+        // restore the existing linkdb
+        for (Path done : moved) {
+          fs.rename(new Path(mergedLinkDb, done.getName()), done);
+        }
+        fs.delete(mergedLinkDb, true);
+        throw new IOException("Failed to move " + stat.getPath() + " to "
+            + part);
+      }
+      moved.add(stat.getPath());
+    }
+    LinkDb.install(job, linkDb);
+  }
+
+  /** Number of parts of a LinkDb directory. */
+  private static int getNumParts(FileSystem fs, Path dir) throws IOException {
+    int numParts = 0;
+    for (FileStatus stat : fs.listStatus(dir,
+        HadoopFSUtil.getPassDirectoriesFilter(fs))) {
+      if (stat.getPath().getName().startsWith("part-"))
+        numParts++;
+    }
+    return numParts;
+  }
+
+  /** Names of the parts of a LinkDb directory which are not empty. */
+  private static List<String> getNonEmptyParts(FileSystem fs, Path dir,
+      Configuration conf) throws IOException {
+    List<String> parts = new ArrayList<String>();
+    for (FileStatus stat : fs.listStatus(dir,
+        HadoopFSUtil.getPassDirectoriesFilter(fs))) {
+      Path data = new Path(stat.getPath(), MapFile.DATA_FILE_NAME);
+      if (!fs.exists(data))
+        continue;
+      SequenceFile.Reader reader = new SequenceFile.Reader(fs, data, conf);
+      try {
+        if (reader.next(new Text()))
+          parts.add(stat.getPath().getName());
+      } finally {
+        reader.close();
+      }
+    }
+    return parts;
+  }
+
   private static JobConf createJob(Configuration config, Path linkDb,
       boolean normalize, boolean filter) {
     Path newLinkDb = new Path("linkdb-"
@@ -264,7 +415,7 @@ public class LinkDb extends NutchTool implements Tool,
     job.setReducerClass(LinkDbMerger.class);
 
     FileOutputFormat.setOutputPath(job, newLinkDb);
-    job.setOutputFormat(MapFileOutputFormat.class);
+    job.setOutputFormat(BloomMapFileOutputFormat.class);
     job.setBoolean("mapred.output.compress", true);
     job.setOutputKeyClass(Text.class);
     job.setOutputValueClass(Inlinks.class);
@@ -297,7 +448,7 @@ public class LinkDb extends NutchTool implements Tool,
   public int run(String[] args) throws Exception {
     if (args.length < 2) {
       System.err
-          .println("Usage: LinkDb <linkdb> (-dir <segmentsDir> | <seg1> <seg2> ...) [-force] [-noNormalize] [-noFilter]");
+          .println("Usage: LinkDb <linkdb> (-dir <segmentsDir> | <seg1> <seg2> ...) [-force] [-noNormalize] [-noFilter] [-incremental]");
       System.err.println("\tlinkdb\toutput LinkDb to create or update");
       System.err
           .println("\t-dir segmentsDir\tparent directory of several segments, OR");
@@ -306,6 +457,8 @@ public class LinkDb extends NutchTool implements Tool,
           .println("\t-force\tforce update even if LinkDb appears to be locked (CAUTION advised)");
       System.err.println("\t-noNormalize\tdon't normalize link URLs");
       System.err.println("\t-noFilter\tdon't apply URLFilters to link URLs");
+      System.err
+          .println("\t-incremental\tonly rewrite the parts of the LinkDb which receive new inlinks");
       return -1;
     }
     final FileSystem fs = FileSystem.get(getConf());
@@ -325,6 +478,8 @@ public class LinkDb extends NutchTool implements Tool,
         filter = false;
       } else if (args[i].equalsIgnoreCase("-force")) {
         force = true;
+      } else if (args[i].equalsIgnoreCase("-incremental")) {
+        getConf().setBoolean(INCREMENTAL, true);
       } else
         segs.add(new Path(args[i]));
     }
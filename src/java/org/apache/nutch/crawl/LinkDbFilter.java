@@ -117,7 +117,7 @@ public class LinkDbFilter implements Mapper<Text, Inlinks, Text, Inlinks> {
         }
       }
       if (fromUrl != null) {
-        result.add(new Inlink(fromUrl, inlink.getAnchor()));
+        result.add(new Inlink(fromUrl, inlink.getAnchor(), inlink.getScore()));
       }
     }
     if (result.size() > 0) { // don't collect empty inlinks
@@ -31,9 +31,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileOutputFormat;
-import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
-import org.apache.hadoop.mapred.MapFileOutputFormat;
 import org.apache.hadoop.mapred.OutputCollector;
 import org.apache.hadoop.mapred.Reducer;
 import org.apache.hadoop.mapred.Reporter;
@@ -41,8 +39,11 @@ import org.apache.hadoop.mapred.SequenceFileInputFormat;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
+import org.apache.nutch.util.BloomMapFileOutputFormat;
 import org.apache.nutch.util.NutchConfiguration;
 import org.apache.nutch.util.NutchJob;
+import org.apache.nutch.util.SortedMergeInputFormat;
+import org.apache.nutch.util.SortedMergeRunner;
 import org.apache.nutch.util.TimingUtil;
 
 /**
@@ -56,7 +57,8 @@ import org.apache.nutch.util.TimingUtil;
  * <p>
  * If more than one LinkDb contains information about the same URL, all inlinks
  * are accumulated, but only at most <code>db.max.inlinks</code> inlinks will
- * ever be added.
+ * ever be kept: the inlinks from the pages with the highest scores, preferring
+ * different linking hosts (see {@link LinkDb#MAX_INLINKS_PER_HOST}).
  * </p>
  * <p>
  * If activated, URLFilters will be applied to both the target URLs and to any
@@ -64,6 +66,11 @@ import org.apache.nutch.util.TimingUtil;
  * will be removed, including the target URL. If some of incoming links are
  * prohibited, only they will be removed, and they won't count when checking the
  * above-mentioned maximum limit.
+ * </p>
+ * <p>
+ * If URLs are not normalized and all LinkDb-s have the same partitioning, the
+ * parts are merged map-side without a shuffle (see
+ * {@link CrawlDbMerger#MERGE_SORTED}).
  * 
  * @author Andrzej Bialecki
  */
@@ -72,6 +79,7 @@ public class LinkDbMerger extends Configured implements Tool,
   private static final Logger LOG = LoggerFactory.getLogger(LinkDbMerger.class);
 
   private int maxInlinks;
+  private int maxInlinksPerHost;
 
   public LinkDbMerger() {
 
@@ -88,15 +96,13 @@ public class LinkDbMerger extends Configured implements Tool,
     Inlinks result = new Inlinks();
 
     while (values.hasNext()) {
-      Inlinks inlinks = values.next();
-
-      int end = Math.min(maxInlinks - result.size(), inlinks.size());
-      Iterator<Inlink> it = inlinks.iterator();
-      int i = 0;
-      while (it.hasNext() && i++ < end) {
-        result.add(it.next());
+      result.add(values.next());
+      // bound the memory, select from at most twice the max. number
+      if (result.size() > 2 * maxInlinks) {
+        result.retainTop(maxInlinks, maxInlinksPerHost);
       }
     }
+    result.retainTop(maxInlinks, maxInlinksPerHost);
     if (result.size() == 0)
       return;
     output.collect(key, result);
@@ -105,6 +111,7 @@ public class LinkDbMerger extends Configured implements Tool,
 
   public void configure(JobConf job) {
     maxInlinks = job.getInt("db.max.inlinks", 10000);
+    maxInlinksPerHost = job.getInt(LinkDb.MAX_INLINKS_PER_HOST, 1);
   }
 
   public void close() throws IOException {
@@ -120,7 +127,17 @@ public class LinkDbMerger extends Configured implements Tool,
     for (int i = 0; i < dbs.length; i++) {
       FileInputFormat.addInputPath(job, new Path(dbs[i], LinkDb.CURRENT_NAME));
     }
-    JobClient.runJob(job);
+    if (!normalize && job.getBoolean(CrawlDbMerger.MERGE_SORTED, true)) {
+      int numParts = new SortedMergeInputFormat().getCompatibleParts(job);
+      if (numParts < 0) {
+        LOG.info("LinkDb merge: partitioning differs, merging by a shuffle");
+      } else {
+        LOG.info("LinkDb merge: merging " + numParts + " parts map-side");
+        job.setInputFormat(SortedMergeInputFormat.class);
+        SortedMergeRunner.setup(job);
+      }
+    }
+    NutchJob.runJob(job);
     FileSystem fs = FileSystem.get(getConf());
     fs.mkdirs(output);
     fs.rename(FileOutputFormat.getOutputPath(job), new Path(output,
@@ -147,7 +164,7 @@ public class LinkDbMerger extends Configured implements Tool,
     job.setReducerClass(LinkDbMerger.class);
 
     FileOutputFormat.setOutputPath(job, newLinkDb);
-    job.setOutputFormat(MapFileOutputFormat.class);
+    job.setOutputFormat(BloomMapFileOutputFormat.class);
     job.setBoolean("mapred.output.compress", true);
     job.setOutputKeyClass(Text.class);
     job.setOutputValueClass(Inlinks.class);
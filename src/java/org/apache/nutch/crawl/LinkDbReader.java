@@ -34,6 +34,7 @@ import org.apache.hadoop.mapred.lib.HashPartitioner;
 import org.apache.hadoop.util.*;
 import org.apache.hadoop.conf.Configuration;
 
+import org.apache.nutch.util.BloomMapFileOutputFormat;
 import org.apache.nutch.util.NutchConfiguration;
 import org.apache.nutch.util.NutchJob;
 import org.apache.nutch.util.TimingUtil;
@@ -50,7 +51,7 @@ public class LinkDbReader extends Configured implements Tool, Closeable {
 
   private FileSystem fs;
   private Path directory;
-  private MapFile.Reader[] readers;
+  private BloomMapFileOutputFormat.LazyReaders readers;
 
   public LinkDbReader() {
 
@@ -75,22 +76,22 @@ public class LinkDbReader extends Configured implements Tool, Closeable {
 
   public Inlinks getInlinks(Text url) throws IOException {
 
-    if (readers == null) {
-      synchronized (this) {
-        readers = MapFileOutputFormat.getReaders(fs, new Path(directory,
-            LinkDb.CURRENT_NAME), getConf());
+    BloomMapFileOutputFormat.LazyReaders readers;
+    synchronized (this) {
+      if (this.readers == null) {
+        // parts are opened on first access
+        this.readers = new BloomMapFileOutputFormat.LazyReaders(fs, new Path(
+            directory, LinkDb.CURRENT_NAME), getConf());
       }
+      readers = this.readers;
     }
 
-    return (Inlinks) MapFileOutputFormat.getEntry(readers, PARTITIONER, url,
-        new Inlinks());
+    return (Inlinks) readers.getEntry(PARTITIONER, url, new Inlinks());
   }
 
   public void close() throws IOException {
     if (readers != null) {
-      for (int i = 0; i < readers.length; i++) {
-        readers[i].close();
-      }
+      readers.close();
     }
   }
   
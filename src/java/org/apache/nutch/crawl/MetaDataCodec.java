@@ -0,0 +1,406 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.ByteWritable;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.nutch.metadata.HttpHeaders;
+import org.apache.nutch.metadata.Nutch;
+import org.apache.nutch.protocol.ProtocolStatus;
+
+/**
+ * Compact binary encoding of {@link CrawlDatum} metadata, used since
+ * CrawlDatum version 8.
+ *
+ * <p>
+ * Compared to {@link MapWritable} the encoding avoids writing class names and
+ * well-known key strings for every record:
+ * <ul>
+ * <li>keys used by Nutch itself (e.g. <code>_pst_</code>, <code>_ngt_</code>,
+ * <code>Content-Type</code>) are written as a small dictionary index,</li>
+ * <li>common value types (Text, IntWritable, LongWritable, ...) are written
+ * with a one-byte type tag, numbers as variable-length integers,</li>
+ * <li>other Writable types are written with their class name, or with a
+ * dictionary index for well-known classes such as {@link ProtocolStatus}, and
+ * are prefixed by their length so that they can be skipped.</li>
+ * </ul>
+ *
+ * <p>
+ * The dictionaries are part of the on-disk format: entries must never be
+ * removed or reordered, new entries may only be appended.
+ */
+final class MetaDataCodec {
+
+  /** Well-known metadata keys, referenced by (index + 1). Append only! */
+  private static final String[] KEYS = { Nutch.GENERATE_TIME_KEY,
+      Nutch.PROTO_STATUS_KEY, Nutch.REPR_URL_KEY, HttpHeaders.CONTENT_TYPE,
+      Nutch.FIXED_INTERVAL_KEY, Nutch.FETCH_TIME_KEY, Nutch.FETCH_STATUS_KEY,
+      "_rs_", "_depth_", "_maxdepth_" };
+
+  /** Well-known value classes, referenced by (index + 1). Append only! */
+  @SuppressWarnings("unchecked")
+  private static final Class<? extends Writable>[] CLASSES = (Class<? extends Writable>[]) new Class<?>[] { ProtocolStatus.class };
+
+  /** Key is an inline Text. */
+  private static final int KEY_TEXT = 0;
+  /** Key is any other Writable, encoded like a value. */
+  private static final int KEY_WRITABLE = -1;
+
+  private static final byte TYPE_WRITABLE = 0;
+  private static final byte TYPE_TEXT = 1;
+  private static final byte TYPE_INT = 2;
+  private static final byte TYPE_LONG = 3;
+  private static final byte TYPE_FLOAT = 4;
+  private static final byte TYPE_DOUBLE = 5;
+  private static final byte TYPE_BOOLEAN = 6;
+  private static final byte TYPE_BYTE = 7;
+  private static final byte TYPE_BYTES = 8;
+  private static final byte TYPE_NULL = 9;
+
+  private static final Text[] KEY_TEXTS = new Text[KEYS.length];
+  private static final HashMap<Text, Integer> KEY_IDS = new HashMap<Text, Integer>();
+  private static final HashMap<Class<?>, Integer> CLASS_IDS = new HashMap<Class<?>, Integer>();
+
+  static {
+    for (int i = 0; i < KEYS.length; i++) {
+      KEY_TEXTS[i] = new Text(KEYS[i]);
+      KEY_IDS.put(KEY_TEXTS[i], i + 1);
+    }
+    for (int i = 0; i < CLASSES.length; i++) {
+      CLASS_IDS.put(CLASSES[i], i + 1);
+    }
+  }
+
+  private static final ThreadLocal<DataOutputBuffer> BUFFER = new ThreadLocal<DataOutputBuffer>() {
+    @Override
+    protected DataOutputBuffer initialValue() {
+      return new DataOutputBuffer();
+    }
+  };
+
+  /** Buffer for length-prefixed Writables nested in {@link #BUFFER}. */
+  private static final ThreadLocal<DataOutputBuffer> WRITABLE_BUFFER = new ThreadLocal<DataOutputBuffer>() {
+    @Override
+    protected DataOutputBuffer initialValue() {
+      return new DataOutputBuffer();
+    }
+  };
+
+  private MetaDataCodec() {
+  }
+
+  /**
+   * Write the metadata block: its length in bytes as a VInt followed by the
+   * encoded entries. An empty or null map is written as a single zero byte.
+   */
+  static void write(MapWritable metaData, DataOutput out) throws IOException {
+    if (metaData == null || metaData.size() == 0) {
+      WritableUtils.writeVInt(out, 0);
+      return;
+    }
+    DataOutputBuffer buffer = BUFFER.get();
+    buffer.reset();
+    WritableUtils.writeVInt(buffer, metaData.size());
+    for (Entry<Writable, Writable> e : metaData.entrySet()) {
+      writeKey(e.getKey(), buffer);
+      writeValue(e.getValue(), buffer);
+    }
+    WritableUtils.writeVInt(out, buffer.getLength());
+    out.write(buffer.getData(), 0, buffer.getLength());
+  }
+
+  /** Decode a metadata block previously written by {@link #write}. */
+  static MapWritable read(byte[] data, int length) throws IOException {
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(data, length);
+    MapWritable metaData = new MapWritable();
+    int size = WritableUtils.readVInt(in);
+    for (int i = 0; i < size; i++) {
+      Writable key = readKey(in);
+      metaData.put(key, readValue(in));
+    }
+    return metaData;
+  }
+
+  /**
+   * Look up a single value in an encoded metadata block without decoding the
+   * other entries. Entries are skipped in place, only the value found is
+   * deserialized.
+   * 
+   * @return the value or null if the key is not contained
+   */
+  static Writable get(byte[] data, int length, Writable key)
+      throws IOException {
+    int id = 0;
+    Text textKey = null;
+    if (key.getClass() == Text.class) {
+      textKey = (Text) key;
+      Integer i = KEY_IDS.get(textKey);
+      if (i != null)
+        id = i;
+    }
+    int pos = 0;
+    int size = (int) WritableComparator.readVLong(data, pos);
+    pos += WritableUtils.decodeVIntSize(data[pos]);
+    for (int i = 0; i < size; i++) {
+      int ref = (int) WritableComparator.readVLong(data, pos);
+      pos += WritableUtils.decodeVIntSize(data[pos]);
+      boolean found = false;
+      if (ref > 0) {
+        found = (ref == id);
+      } else if (ref == KEY_TEXT) {
+        int len = (int) WritableComparator.readVLong(data, pos);
+        pos += WritableUtils.decodeVIntSize(data[pos]);
+        found = (textKey != null && id == 0 && textKey.getLength() == len && WritableComparator
+            .compareBytes(textKey.getBytes(), 0, len, data, pos, len) == 0);
+        pos += len;
+      } else if (ref == KEY_WRITABLE) {
+        if (textKey == null) {
+          DataInputBuffer in = new DataInputBuffer();
+          in.reset(data, pos, length - pos);
+          found = key.equals(readValue(in));
+        }
+        pos = skipValue(data, pos);
+      } else {
+        throw new IOException("Invalid metadata key reference: " + ref);
+      }
+      if (found) {
+        DataInputBuffer in = new DataInputBuffer();
+        in.reset(data, pos, length - pos);
+        return readValue(in);
+      }
+      pos = skipValue(data, pos);
+    }
+    return null;
+  }
+
+  /** Skip an encoded value, returns the position following it. */
+  private static int skipValue(byte[] data, int pos) throws IOException {
+    byte type = data[pos++];
+    switch (type) {
+    case TYPE_INT:
+    case TYPE_LONG:
+      return pos + WritableUtils.decodeVIntSize(data[pos]);
+    case TYPE_FLOAT:
+      return pos + 4;
+    case TYPE_DOUBLE:
+      return pos + 8;
+    case TYPE_BOOLEAN:
+    case TYPE_BYTE:
+      return pos + 1;
+    case TYPE_NULL:
+      return pos;
+    case TYPE_TEXT:
+    case TYPE_BYTES:
+      break;
+    case TYPE_WRITABLE:
+      if (WritableComparator.readVLong(data, pos) == 0) {
+        // skip the class name
+        pos += WritableUtils.decodeVIntSize(data[pos]);
+        int len = (int) WritableComparator.readVLong(data, pos);
+        pos += WritableUtils.decodeVIntSize(data[pos]) + len;
+      } else {
+        pos += WritableUtils.decodeVIntSize(data[pos]);
+      }
+      break;
+    default:
+      throw new IOException("Unknown metadata value type: " + type);
+    }
+    // length-prefixed
+    int len = (int) WritableComparator.readVLong(data, pos);
+    return pos + WritableUtils.decodeVIntSize(data[pos]) + len;
+  }
+
+  private static void writeKey(Writable key, DataOutput out)
+      throws IOException {
+    if (key.getClass() == Text.class) {
+      Integer id = KEY_IDS.get(key);
+      if (id != null) {
+        WritableUtils.writeVInt(out, id);
+      } else {
+        WritableUtils.writeVInt(out, KEY_TEXT);
+        key.write(out);
+      }
+    } else {
+      WritableUtils.writeVInt(out, KEY_WRITABLE);
+      writeValue(key, out);
+    }
+  }
+
+  private static Writable readKey(DataInput in) throws IOException {
+    int ref = WritableUtils.readVInt(in);
+    if (ref > 0) {
+      if (ref > KEY_TEXTS.length)
+        throw new IOException("Unknown metadata key id: " + ref);
+      return new Text(KEY_TEXTS[ref - 1]);
+    }
+    if (ref == KEY_TEXT) {
+      Text key = new Text();
+      key.readFields(in);
+      return key;
+    } else if (ref == KEY_WRITABLE) {
+      return readValue(in);
+    }
+    throw new IOException("Invalid metadata key reference: " + ref);
+  }
+
+  private static void writeValue(Writable value, DataOutput out)
+      throws IOException {
+    Class<?> clazz = value.getClass();
+    if (clazz == Text.class) {
+      out.writeByte(TYPE_TEXT);
+      value.write(out);
+    } else if (clazz == IntWritable.class) {
+      out.writeByte(TYPE_INT);
+      WritableUtils.writeVInt(out, ((IntWritable) value).get());
+    } else if (clazz == LongWritable.class) {
+      out.writeByte(TYPE_LONG);
+      WritableUtils.writeVLong(out, ((LongWritable) value).get());
+    } else if (clazz == FloatWritable.class) {
+      out.writeByte(TYPE_FLOAT);
+      value.write(out);
+    } else if (clazz == DoubleWritable.class) {
+      out.writeByte(TYPE_DOUBLE);
+      value.write(out);
+    } else if (clazz == BooleanWritable.class) {
+      out.writeByte(TYPE_BOOLEAN);
+      value.write(out);
+    } else if (clazz == ByteWritable.class) {
+      out.writeByte(TYPE_BYTE);
+      value.write(out);
+    } else if (clazz == BytesWritable.class) {
+      out.writeByte(TYPE_BYTES);
+      BytesWritable bytes = (BytesWritable) value;
+      WritableUtils.writeVInt(out, bytes.getLength());
+      out.write(bytes.getBytes(), 0, bytes.getLength());
+    } else if (clazz == NullWritable.class) {
+      out.writeByte(TYPE_NULL);
+    } else {
+      out.writeByte(TYPE_WRITABLE);
+      writeWritable(value, out);
+    }
+  }
+
+  private static Writable readValue(DataInput in) throws IOException {
+    byte type = in.readByte();
+    Writable value;
+    switch (type) {
+    case TYPE_TEXT:
+      value = new Text();
+      break;
+    case TYPE_INT:
+      return new IntWritable(WritableUtils.readVInt(in));
+    case TYPE_LONG:
+      return new LongWritable(WritableUtils.readVLong(in));
+    case TYPE_FLOAT:
+      value = new FloatWritable();
+      break;
+    case TYPE_DOUBLE:
+      value = new DoubleWritable();
+      break;
+    case TYPE_BOOLEAN:
+      value = new BooleanWritable();
+      break;
+    case TYPE_BYTE:
+      value = new ByteWritable();
+      break;
+    case TYPE_BYTES:
+      byte[] bytes = new byte[WritableUtils.readVInt(in)];
+      in.readFully(bytes);
+      return new BytesWritable(bytes);
+    case TYPE_NULL:
+      return NullWritable.get();
+    case TYPE_WRITABLE:
+      return readWritable(in);
+    default:
+      throw new IOException("Unknown metadata value type: " + type);
+    }
+    value.readFields(in);
+    return value;
+  }
+
+  /** Write class reference, length and serialized form of a Writable. */
+  private static void writeWritable(Writable writable, DataOutput out)
+      throws IOException {
+    writeClass(writable.getClass(), out);
+    DataOutputBuffer buffer = WRITABLE_BUFFER.get();
+    buffer.reset();
+    writable.write(buffer);
+    WritableUtils.writeVInt(out, buffer.getLength());
+    out.write(buffer.getData(), 0, buffer.getLength());
+  }
+
+  private static Writable readWritable(DataInput in) throws IOException {
+    Writable writable = ReflectionUtils.newInstance(readClass(in), null);
+    WritableUtils.readVInt(in); // length, only needed to skip
+    writable.readFields(in);
+    return writable;
+  }
+
+  private static void writeClass(Class<?> clazz, DataOutput out)
+      throws IOException {
+    Integer id = CLASS_IDS.get(clazz);
+    if (id != null) {
+      WritableUtils.writeVInt(out, id);
+    } else {
+      WritableUtils.writeVInt(out, 0);
+      Text.writeString(out, clazz.getName());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<? extends Writable> readClass(DataInput in)
+      throws IOException {
+    int id = WritableUtils.readVInt(in);
+    if (id > 0) {
+      if (id > CLASSES.length)
+        throw new IOException("Unknown metadata class id: " + id);
+      return CLASSES[id - 1];
+    }
+    String className = Text.readString(in);
+    ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    if (loader == null) {
+      loader = MetaDataCodec.class.getClassLoader();
+    }
+    try {
+      return (Class<? extends Writable>) Class.forName(className, true, loader);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Can't find metadata class " + className, e);
+    }
+  }
+}
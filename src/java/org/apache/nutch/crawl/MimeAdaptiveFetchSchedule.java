@@ -110,10 +110,11 @@ public class MimeAdaptiveFetchSchedule extends AdaptiveFetchSchedule {
     DEC_RATE = defaultDecRate;
 
     // Check if the Content-Type field is available in the CrawlDatum
-    if (datum.getMetaData().containsKey(HttpHeaders.WRITABLE_CONTENT_TYPE)) {
+    Writable contentType = datum
+        .getMetaDataValue(HttpHeaders.WRITABLE_CONTENT_TYPE);
+    if (contentType != null) {
       // Get the MIME-type of the current URL
-      String currentMime = MimeUtil.cleanMimeType(datum.getMetaData()
-          .get(HttpHeaders.WRITABLE_CONTENT_TYPE).toString());
+      String currentMime = MimeUtil.cleanMimeType(contentType.toString());
 
       // Check if this MIME-type exists in our map
       if (mimeMap.containsKey(currentMime)) {
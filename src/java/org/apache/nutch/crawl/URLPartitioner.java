@@ -18,7 +18,6 @@
 package org.apache.nutch.crawl;
 
 import java.net.InetAddress;
-import java.net.URL;
 import java.net.MalformedURLException;
 import java.net.UnknownHostException;
 
@@ -27,7 +26,7 @@ import org.slf4j.LoggerFactory;
 import org.apache.hadoop.io.*;
 import org.apache.hadoop.mapred.*;
 import org.apache.nutch.net.URLNormalizers;
-import org.apache.nutch.util.URLUtil;
+import org.apache.nutch.util.URLParts;
 
 /**
  * Partition urls by host, domain name or IP depending on the value of the
@@ -65,25 +64,25 @@ public class URLPartitioner implements Partitioner<Text, Writable> {
   /** Hash by domain name. */
   public int getPartition(Text key, Writable value, int numReduceTasks) {
     String urlString = key.toString();
-    URL url = null;
+    URLParts url = null;
     int hashCode = urlString.hashCode();
     try {
       urlString = normalizers.normalize(urlString,
           URLNormalizers.SCOPE_PARTITION);
-      url = new URL(urlString);
-      hashCode = url.getHost().hashCode();
+      url = URLParts.parse(urlString);
+      hashCode = url.getRawHost().hashCode();
     } catch (MalformedURLException e) {
       LOG.warn("Malformed URL: '" + urlString + "'");
     }
 
     if (mode.equals(PARTITION_MODE_DOMAIN) && url != null)
-      hashCode = URLUtil.getDomainName(url).hashCode();
+      hashCode = url.getDomainName().hashCode();
     else if (mode.equals(PARTITION_MODE_IP)) {
       try {
-        InetAddress address = InetAddress.getByName(url.getHost());
+        InetAddress address = InetAddress.getByName(url.getRawHost());
         hashCode = address.getHostAddress().hashCode();
       } catch (UnknownHostException e) {
-        Generator.LOG.info("Couldn't find IP for host: " + url.getHost());
+        Generator.LOG.info("Couldn't find IP for host: " + url.getRawHost());
       }
     }
 
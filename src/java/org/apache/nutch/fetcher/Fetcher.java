@@ -899,9 +899,8 @@ public class Fetcher extends NutchTool implements Tool,
 
       if (ignoreExternalLinks) {
         try {
-          String origHost = new URL(urlString).getHost().toLowerCase();
-          String newHost = new URL(newUrl).getHost().toLowerCase();
-          if (!origHost.equals(newHost)) {
+          URLParts orig = URLParts.parse(urlString);
+          if (!orig.isSameHost(URLParts.parse(newUrl))) {
             if (LOG.isDebugEnabled()) {
               LOG.debug(" - ignoring redirect " + redirType + " from "
                   + urlString + " to " + newUrl
@@ -1091,11 +1090,7 @@ public class Fetcher extends NutchTool implements Tool,
             Outlink[] links = parseData.getOutlinks();
             int outlinksToStore = Math.min(maxOutlinks, links.length);
             if (ignoreExternalLinks) {
-              try {
-                fromHost = new URL(url.toString()).getHost().toLowerCase();
-              } catch (MalformedURLException e) {
-                fromHost = null;
-              }
+              fromHost = URLUtil.getHost(url.toString());
             } else {
               fromHost = null;
             }
@@ -1105,19 +1100,31 @@ public class Fetcher extends NutchTool implements Tool,
             // Process all outlinks, normalize, filter and deduplicate
             List<Outlink> outlinkList = new ArrayList<Outlink>(outlinksToStore);
             HashSet<String> outlinks = new HashSet<String>(outlinksToStore);
-            for (int i = 0; i < links.length && validCount < outlinksToStore; i++) {
-              String toUrl = links[i].getToUrl();
-
-              toUrl = ParseOutputFormat.filterNormalize(url.toString(), toUrl,
-                  fromHost, ignoreExternalLinks, urlFilters, normalizers);
-              if (toUrl == null) {
-                continue;
+            int next = 0;
+            while (next < links.length && validCount < outlinksToStore) {
+              // normalize and filter as many links at once as are still needed
+              int end = Math.min(links.length, next + outlinksToStore
+                  - validCount);
+              String[] toUrls = new String[end - next];
+              for (int i = next; i < end; i++) {
+                toUrls[i - next] = links[i].getToUrl();
               }
+              ParseOutputFormat.filterNormalize(url.toString(), toUrls,
+                  fromHost, ignoreExternalLinks, urlFilters, normalizers,
+                  URLNormalizers.SCOPE_OUTLINK);
 
-              validCount++;
-              links[i].setUrl(toUrl);
-              outlinkList.add(links[i]);
-              outlinks.add(toUrl);
+              for (int i = next; i < end; i++) {
+                String toUrl = toUrls[i - next];
+                if (toUrl == null) {
+                  continue;
+                }
+
+                validCount++;
+                links[i].setUrl(toUrl);
+                outlinkList.add(links[i]);
+                outlinks.add(toUrl);
+              }
+              next = end;
             }
 
             // Only process depth N outlinks
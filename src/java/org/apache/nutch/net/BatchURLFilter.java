@@ -0,0 +1,32 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.net;
+
+/**
+ * A {@link URLFilter} which filters a batch of URLs at once, e.g., all
+ * outlinks of a page, see {@link URLFilters#filter(String[])}.
+ */
+public interface BatchURLFilter extends URLFilter {
+
+  /**
+   * Filter a batch of URLs in place, same as {@link #filter(String)} for every
+   * URL: rejected URLs are set to null, null entries must be skipped. URLs the
+   * filter fails on are rejected.
+   */
+  public void filter(String[] urls);
+}
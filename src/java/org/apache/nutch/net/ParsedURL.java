@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.net;
+
+import java.net.MalformedURLException;
+
+import org.apache.nutch.util.URLParts;
+import org.apache.nutch.util.URLUtil;
+import org.apache.nutch.util.domain.DomainSuffix;
+
+/**
+ * A URL string together with its parts, parsed once and shared by all
+ * {@link ParsedURLFilter}s of a {@link URLFilters} chain and all
+ * {@link ParsedURLNormalizer}s of a {@link URLNormalizers} chain. All parts
+ * are computed lazily on first access. Not thread-safe.
+ */
+public class ParsedURL {
+
+  private final String url;
+  private boolean parsed = false;
+  private URLParts parts;
+  private String error;
+  private String domainName;
+  private DomainSuffix domainSuffix;
+  private boolean domainSuffixDone = false;
+
+  public ParsedURL(String url) {
+    this.url = url;
+  }
+
+  /** The URL string. */
+  @Override
+  public String toString() {
+    return url;
+  }
+
+  /** The parsed URL, or null if the URL is malformed. */
+  public URLParts getParts() {
+    if (!parsed) {
+      parsed = true;
+      try {
+        parts = URLParts.parse(url);
+      } catch (MalformedURLException e) {
+        error = e.getMessage();
+      }
+    }
+    return parts;
+  }
+
+  /**
+   * The parsed URL.
+   *
+   * @throws MalformedURLException
+   *           if the URL is malformed
+   */
+  public URLParts parse() throws MalformedURLException {
+    if (getParts() == null)
+      throw new MalformedURLException(error);
+    return parts;
+  }
+
+  /**
+   * The lowercased host name (see {@link URLUtil#getHost(String)}), or null if
+   * the URL is malformed.
+   */
+  public String getHost() {
+    return getParts() == null ? null : parts.getHost();
+  }
+
+  /**
+   * The lowercased domain name (see {@link URLParts#getDomainName()}), or null
+   * if the URL is malformed.
+   */
+  public String getDomainName() {
+    if (domainName == null && getParts() != null) {
+      domainName = parts.getDomainName().toLowerCase();
+    }
+    return domainName;
+  }
+
+  /**
+   * The domain suffix (see {@link URLParts#getDomainSuffix()}), or null if the
+   * URL is malformed or has no known suffix.
+   */
+  public DomainSuffix getDomainSuffix() {
+    if (!domainSuffixDone && getParts() != null) {
+      domainSuffixDone = true;
+      domainSuffix = parts.getDomainSuffix();
+    }
+    return domainSuffix;
+  }
+
+  /** The path of the URL, or null if the URL is malformed. */
+  public String getPath() {
+    return getParts() == null ? null : parts.getPath();
+  }
+}
@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.net;
+
+/**
+ * A {@link URLFilter} working on a {@link ParsedURL}, so that the URL is
+ * parsed only once for all filters of a {@link URLFilters} chain.
+ */
+public interface ParsedURLFilter extends URLFilter {
+
+  /**
+   * Filter a parsed URL, same as {@link #filter(String)}.
+   *
+   * @return the URL string, a transformed URL string, or null to reject the
+   *         URL
+   */
+  public String filter(ParsedURL url);
+
+  /**
+   * Whether the decision of this filter only depends on the host name of the
+   * URL: all URLs of a host are either passed unchanged or rejected. The
+   * decisions of such filters are cached per host by {@link URLFilters}, see
+   * {@link URLFilters#URLFILTER_HOST_CACHE_SIZE}.
+   */
+  public boolean isHostOnly();
+}
@@ -0,0 +1,38 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.net;
+
+import java.net.MalformedURLException;
+
+/**
+ * A {@link URLNormalizer} working on a {@link ParsedURL}, so that the URL is
+ * parsed only once for all normalizers of a {@link URLNormalizers} chain, as
+ * long as it is not changed.
+ */
+public interface ParsedURLNormalizer extends URLNormalizer {
+
+  /**
+   * Normalize a parsed URL, same as {@link #normalize(String, String)}.
+   *
+   * @return the URL string (the same instance as returned by
+   *         {@link ParsedURL#toString()} if unchanged), a normalized URL
+   *         string, or null
+   */
+  public String normalize(ParsedURL url, String scope)
+      throws MalformedURLException;
+}
@@ -19,26 +19,183 @@ package org.apache.nutch.net;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.nutch.plugin.PluginRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** Creates and caches {@link URLFilter} implementing plugins. */
 public class URLFilters {
 
   public static final String URLFILTER_ORDER = "urlfilter.order";
+
+  /**
+   * Max. number of filter results to cache, shared by all instances using the
+   * same configuration (default: 0, no caching). Up to twice this number of
+   * results are kept.
+   */
+  public static final String URLFILTER_CACHE_SIZE = "urlfilter.cache.size";
+
+  /**
+   * Max. number of hosts for which the decisions of
+   * {@link ParsedURLFilter#isHostOnly() host-only} filters are cached, per
+   * filter and shared by all instances using the same configuration (default:
+   * 10000, 0 disables the cache).
+   */
+  public static final String URLFILTER_HOST_CACHE_SIZE = "urlfilter.host.cache.size";
+
+  public static final Logger LOG = LoggerFactory.getLogger(URLFilters.class);
+
   private URLFilter[] filters;
+  private URLResultCache cache;
+  /** Decisions by host of host-only filters, null for other filters. */
+  private URLResultCache[] hostCaches;
 
   public URLFilters(Configuration conf) {
     this.filters = (URLFilter[]) PluginRepository.get(conf).getOrderedPlugins(
         URLFilter.class, URLFilter.X_POINT_ID, URLFILTER_ORDER);
+    int cacheSize = conf.getInt(URLFILTER_CACHE_SIZE, 0);
+    if (cacheSize > 0) {
+      cache = URLResultCache.get(conf, URLFilter.X_POINT_ID + "_cache",
+          cacheSize);
+    }
+    hostCaches = new URLResultCache[filters.length];
+    int hostCacheSize = conf.getInt(URLFILTER_HOST_CACHE_SIZE, 10000);
+    for (int i = 0; i < filters.length && hostCacheSize > 0; i++) {
+      if (filters[i] instanceof ParsedURLFilter
+          && ((ParsedURLFilter) filters[i]).isHostOnly()) {
+        hostCaches[i] = URLResultCache.get(conf, URLFilter.X_POINT_ID
+            + "_host_cache_" + filters[i].getClass().getName(), hostCacheSize);
+      }
+    }
+  }
+
+  /** Chain of the given filters without caches, used in tests. */
+  URLFilters(URLFilter[] filters) {
+    this(filters, null);
+  }
+
+  /** Chain of the given filters with a result cache, used in tests. */
+  URLFilters(URLFilter[] filters, URLResultCache cache) {
+    this.filters = filters;
+    this.cache = cache;
+    this.hostCaches = new URLResultCache[filters.length];
   }
 
   /** Run all defined filters. Assume logical AND. */
   public String filter(String urlString) throws URLFilterException {
+    if (cache == null || urlString == null)
+      return filterAll(urlString);
+    String result = cache.get(urlString);
+    if (result == URLResultCache.MISSING) {
+      result = filterAll(urlString);
+      cache.put(urlString, result);
+    }
+    return result;
+  }
+
+  /** Number of results taken from the cache. */
+  public long getCacheHits() {
+    return cache == null ? 0 : cache.getHits();
+  }
+
+  /** Number of URLs not found in the cache. */
+  public long getCacheMisses() {
+    return cache == null ? 0 : cache.getMisses();
+  }
+
+  /**
+   * Run all defined filters on a batch of URLs, in place: rejected URLs are
+   * set to null, null entries are skipped. Filters implementing
+   * {@link BatchURLFilter} get all remaining URLs at once, other filters are
+   * called per URL. A URL is rejected if a filter fails on it, without caching
+   * the result.
+   */
+  public void filter(String[] urls) {
+    // URLs still to be filtered, null if rejected or taken from the cache
+    String[] work = new String[urls.length];
+    boolean[] cached = new boolean[urls.length];
+    // URLs a filter failed on, not cached as filter(String) throws
+    boolean[] failed = new boolean[urls.length];
+    for (int j = 0; j < urls.length; j++) {
+      if (urls[j] == null)
+        continue;
+      String result = cache == null ? URLResultCache.MISSING : cache
+          .get(urls[j]);
+      if (result == URLResultCache.MISSING) {
+        work[j] = urls[j];
+      } else {
+        urls[j] = result;
+        cached[j] = true;
+      }
+    }
+
+    ParsedURL[] parsed = new ParsedURL[urls.length];
+    for (int i = 0; i < filters.length; i++) {
+      if (filters[i] instanceof BatchURLFilter) {
+        ((BatchURLFilter) filters[i]).filter(work);
+        continue;
+      }
+      for (int j = 0; j < work.length; j++) {
+        if (work[j] == null)
+          continue;
+        try {
+          if (filters[i] instanceof ParsedURLFilter) {
+            if (parsed[j] == null || parsed[j].toString() != work[j]) {
+              parsed[j] = new ParsedURL(work[j]);
+            }
+            work[j] = filter(i, parsed[j]);
+          } else {
+            work[j] = filters[i].filter(work[j]);
+          }
+        } catch (Exception e) {
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Rejected " + work[j] + ": " + e);
+          }
+          work[j] = null;
+          failed[j] = true;
+        }
+      }
+    }
+
+    for (int j = 0; j < urls.length; j++) {
+      if (urls[j] == null || cached[j])
+        continue;
+      if (cache != null && !failed[j])
+        cache.put(urls[j], work[j]);
+      urls[j] = work[j];
+    }
+  }
+
+  private String filterAll(String urlString) throws URLFilterException {
+    ParsedURL parsed = null;
     for (int i = 0; i < this.filters.length; i++) {
       if (urlString == null)
         return null;
-      urlString = this.filters[i].filter(urlString);
-
+      if (!(filters[i] instanceof ParsedURLFilter)) {
+        urlString = this.filters[i].filter(urlString);
+        continue;
+      }
+      // parse again only if a filter has changed the URL
+      if (parsed == null || parsed.toString() != urlString) {
+        parsed = new ParsedURL(urlString);
+      }
+      urlString = filter(i, parsed);
     }
     return urlString;
   }
+
+  /** Run the i-th filter, a {@link ParsedURLFilter}. */
+  private String filter(int i, ParsedURL parsed) throws URLFilterException {
+    ParsedURLFilter filter = (ParsedURLFilter) filters[i];
+    URLResultCache hostCache = hostCaches[i];
+    if (hostCache == null || parsed.getParts() == null)
+      return filter.filter(parsed);
+    // the raw host, the domain suffixes are matched case-sensitive
+    String host = parsed.getParts().getRawHost();
+    String decision = hostCache.get(host);
+    if (decision == URLResultCache.MISSING) {
+      decision = filter.filter(parsed) == null ? null : host;
+      hostCache.put(host, decision);
+    }
+    return decision == null ? null : parsed.toString();
+  }
 }
@@ -82,7 +82,13 @@ import org.apache.nutch.util.ObjectCache;
  * you want to ensure that all possible combinations have been applied you may
  * want to run this loop up to the number of activated normalizers. This loop
  * count can be configured through <tt>urlnormalizer.loop.count</tt> property.
- * As soon as the url is unchanged the loop will stop and return the result.
+ * As soon as every normalizer has seen the current url without changing it the
+ * loop will stop and return the result.
+ * </p>
+ * <p>
+ * Normalizers implementing {@link ParsedURLNormalizer} share a
+ * {@link ParsedURL}, so that the url is parsed only once while it is
+ * unchanged.
  * </p>
  * 
  * @author Andrzej Bialecki
@@ -117,6 +123,13 @@ public final class URLNormalizers {
   /** Scope used when indexing URLs. */
   public static final String SCOPE_INDEXER = "indexer";
 
+  /**
+   * Max. number of normalized URLs to cache per scope, shared by all instances
+   * using the same configuration (default: 0, no caching). Up to twice this
+   * number of URLs are kept.
+   */
+  public static final String URLNORMALIZER_CACHE_SIZE = "urlnormalizer.cache.size";
+
   public static final Logger LOG = LoggerFactory
       .getLogger(URLNormalizers.class);
 
@@ -134,8 +147,13 @@ public final class URLNormalizers {
 
   private int loopCount;
 
+  private String scope;
+
+  private URLResultCache cache;
+
   public URLNormalizers(Configuration conf, String scope) {
     this.conf = conf;
+    this.scope = scope;
     this.extensionPoint = PluginRepository.get(conf).getExtensionPoint(
         URLNormalizer.X_POINT_ID);
     ObjectCache objectCache = ObjectCache.get(conf);
@@ -159,6 +177,26 @@ public final class URLNormalizers {
     }
 
     loopCount = conf.getInt("urlnormalizer.loop.count", 1);
+
+    int cacheSize = conf.getInt(URLNORMALIZER_CACHE_SIZE, 0);
+    if (cacheSize > 0) {
+      cache = URLResultCache.get(conf, URLNormalizer.X_POINT_ID + "_cache_"
+          + scope, cacheSize);
+    }
+  }
+
+  /** Chain of the given normalizers, used in tests. */
+  URLNormalizers(URLNormalizer[] normalizers, int loopCount, String scope) {
+    this(normalizers, loopCount, scope, null);
+  }
+
+  /** Chain of the given normalizers with a result cache, used in tests. */
+  URLNormalizers(URLNormalizer[] normalizers, int loopCount, String scope,
+      URLResultCache cache) {
+    this.normalizers = normalizers;
+    this.loopCount = loopCount;
+    this.scope = scope;
+    this.cache = cache;
   }
 
   /**
@@ -308,17 +346,161 @@ public final class URLNormalizers {
    */
   public String normalize(String urlString, String scope)
       throws MalformedURLException {
-    // optionally loop several times, and break if no further changes
-    String initialString = urlString;
-    for (int k = 0; k < loopCount; k++) {
-      for (int i = 0; i < this.normalizers.length; i++) {
-        if (urlString == null)
-          return null;
-        urlString = this.normalizers[i].normalize(urlString, scope);
+    // the cache is only valid for the scope of this instance
+    if (cache == null || urlString == null || !this.scope.equals(scope))
+      return normalizeAll(urlString, scope);
+    String result = cache.get(urlString);
+    if (result == URLResultCache.MISSING) {
+      result = normalizeAll(urlString, scope);
+      cache.put(urlString, result);
+    }
+    return result;
+  }
+
+  /**
+   * Normalize a batch of URLs in place, e.g., all outlinks of a page: null
+   * entries are skipped, malformed URLs are set to null. Normalizers
+   * implementing {@link BatchURLNormalizer} get all URLs still to be
+   * normalized at once, other normalizers are called per URL. Every URL passes
+   * the normalizers as in {@link #normalize(String, String)}.
+   */
+  public void normalize(String[] urls, String scope) {
+    boolean useCache = cache != null && this.scope.equals(scope);
+    // URLs still to be normalized, null if done
+    String[] work = new String[urls.length];
+    int active = 0;
+    for (int j = 0; j < urls.length; j++) {
+      if (urls[j] == null)
+        continue;
+      String result = useCache ? cache.get(urls[j]) : URLResultCache.MISSING;
+      if (result == URLResultCache.MISSING) {
+        work[j] = urls[j];
+        active++;
+      } else {
+        urls[j] = result;
+      }
+    }
+
+    int n = this.normalizers.length;
+    int steps = loopCount * n;
+    int[] unchanged = new int[urls.length];
+    ParsedURL[] parsed = new ParsedURL[urls.length];
+    String[] before = null;
+    for (int i = 0; i < steps && active > 0; i++) {
+      URLNormalizer normalizer = this.normalizers[i % n];
+      if (normalizer instanceof BatchURLNormalizer) {
+        if (before == null)
+          before = new String[urls.length];
+        System.arraycopy(work, 0, before, 0, work.length);
+        ((BatchURLNormalizer) normalizer).normalize(work, scope);
+        for (int j = 0; j < work.length; j++) {
+          if (before[j] != null
+              && update(urls, work, unchanged, j, before[j], work[j], useCache))
+            active--;
+        }
+        continue;
+      }
+      for (int j = 0; j < work.length; j++) {
+        if (work[j] == null)
+          continue;
+        String result;
+        try {
+          if (normalizer instanceof ParsedURLNormalizer) {
+            if (parsed[j] == null || parsed[j].toString() != work[j]) {
+              parsed[j] = new ParsedURL(work[j]);
+            }
+            result = ((ParsedURLNormalizer) normalizer).normalize(parsed[j],
+                scope);
+          } else {
+            result = normalizer.normalize(work[j], scope);
+          }
+        } catch (Exception e) {
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Skipped " + work[j] + ": " + e);
+          }
+          // not cached, as normalize(String, String) throws
+          done(urls, work, j, null, false);
+          active--;
+          continue;
+        }
+        if (update(urls, work, unchanged, j, work[j], result, useCache))
+          active--;
+      }
+    }
+
+    for (int j = 0; j < work.length; j++) {
+      if (work[j] != null)
+        done(urls, work, j, work[j], useCache);
+    }
+  }
+
+  /**
+   * Record the result of a normalizer for the j-th URL of a batch.
+   *
+   * @return true if the URL is done
+   */
+  private boolean update(String[] urls, String[] work, int[] unchanged, int j,
+      String urlString, String result, boolean useCache) {
+    if (result == urlString || (result != null && result.equals(urlString))) {
+      work[j] = urlString;
+      if (++unchanged[j] < normalizers.length)
+        return false;
+    } else if (result != null) {
+      work[j] = result;
+      unchanged[j] = 0;
+      return false;
+    }
+    done(urls, work, j, result, useCache);
+    return true;
+  }
+
+  private void done(String[] urls, String[] work, int j, String result,
+      boolean useCache) {
+    if (useCache)
+      cache.put(urls[j], result);
+    urls[j] = result;
+    work[j] = null;
+  }
+
+  /** Number of normalized URLs taken from the cache. */
+  public long getCacheHits() {
+    return cache == null ? 0 : cache.getHits();
+  }
+
+  /** Number of URLs not found in the cache. */
+  public long getCacheMisses() {
+    return cache == null ? 0 : cache.getMisses();
+  }
+
+  private String normalizeAll(String urlString, String scope)
+      throws MalformedURLException {
+    // optionally loop several times, and break as soon as all normalizers
+    // in a row have left the url unchanged
+    int n = this.normalizers.length;
+    int steps = loopCount * n;
+    int unchanged = 0;
+    ParsedURL parsed = null;
+    for (int i = 0; i < steps && unchanged < n; i++) {
+      if (urlString == null)
+        return null;
+      URLNormalizer normalizer = this.normalizers[i % n];
+      String result;
+      if (normalizer instanceof ParsedURLNormalizer) {
+        // parse again only if a normalizer has changed the url
+        if (parsed == null || parsed.toString() != urlString) {
+          parsed = new ParsedURL(urlString);
+        }
+        result = ((ParsedURLNormalizer) normalizer).normalize(parsed, scope);
+      } else {
+        result = normalizer.normalize(urlString, scope);
+      }
+      if (result == urlString
+          || (result != null && result.equals(urlString))) {
+        unchanged++;
+      } else {
+        urlString = result;
+        unchanged = 0;
       }
-      if (initialString.equals(urlString))
-        break;
-      initialString = urlString;
     }
     return urlString;
   }
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.net;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.nutch.util.ObjectCache;
+
+/**
+ * Bounded, thread-safe cache of the results of {@link URLFilters} or
+ * {@link URLNormalizers}, including <code>null</code> results. Entries are
+ * kept in two generations: new entries are added to the current generation,
+ * which replaces the old generation once it holds the max. number of entries.
+ * Entries found in the old generation are moved to the current one, so that
+ * frequently used URLs stay cached while at most twice the max. number of
+ * entries are kept.
+ */
+class URLResultCache {
+
+  /** Returned by {@link #get(String)} if a URL is not cached. */
+  static final String MISSING = new String("missing");
+
+  /** Stored for <code>null</code> results. */
+  private static final String NULL = new String("null");
+
+  private final int maxSize;
+  private volatile ConcurrentHashMap<String, String> current;
+  private volatile ConcurrentHashMap<String, String> old;
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  URLResultCache(int maxSize) {
+    this.maxSize = maxSize;
+    current = new ConcurrentHashMap<String, String>();
+    old = new ConcurrentHashMap<String, String>();
+  }
+
+  /**
+   * Get the cache shared by all instances using the same configuration.
+   *
+   * @param name
+   *          name of the cache
+   */
+  static URLResultCache get(Configuration conf, String name, int maxSize) {
+    ObjectCache objectCache = ObjectCache.get(conf);
+    synchronized (objectCache) {
+      URLResultCache cache = (URLResultCache) objectCache.getObject(name);
+      if (cache == null) {
+        cache = new URLResultCache(maxSize);
+        objectCache.setObject(name, cache);
+      }
+      return cache;
+    }
+  }
+
+  /**
+   * @return the cached result (may be <code>null</code>), or {@link #MISSING}
+   */
+  String get(String url) {
+    String result = current.get(url);
+    if (result == null) {
+      result = old.get(url);
+      if (result == null) {
+        misses.incrementAndGet();
+        return MISSING;
+      }
+      add(url, result);
+    }
+    hits.incrementAndGet();
+    return result == NULL ? null : result;
+  }
+
+  void put(String url, String result) {
+    add(url, result == null ? NULL : result);
+  }
+
+  private void add(String url, String result) {
+    if (current.put(url, result) == null
+        && size.incrementAndGet() >= maxSize) {
+      synchronized (this) {
+        if (size.get() >= maxSize) {
+          old = current;
+          current = new ConcurrentHashMap<String, String>();
+          size.set(0);
+        }
+      }
+    }
+  }
+
+  long getHits() {
+    return hits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+}
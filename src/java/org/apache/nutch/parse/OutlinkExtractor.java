@@ -25,17 +25,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.oro.text.regex.MatchResult;
-import org.apache.oro.text.regex.Pattern;
-import org.apache.oro.text.regex.PatternCompiler;
-import org.apache.oro.text.regex.PatternMatcher;
-import org.apache.oro.text.regex.PatternMatcherInput;
-import org.apache.oro.text.regex.Perl5Compiler;
-import org.apache.oro.text.regex.Perl5Matcher;
 
 /**
  * Extractor to extract {@link org.apache.nutch.parse.Outlink}s / URLs from
- * plain text using Regular Expressions.
+ * plain text. URLs are found by a scanner which matches the same URLs as the
+ * regular expression {@link #URL_PATTERN} in linear time, without compiling
+ * patterns or creating matchers. It is stateless and thread-safe.
  * 
  * @see <a
  *      href="http://wiki.java.net/bin/view/Javapedia/RegularExpressions">Comparison
@@ -59,7 +54,13 @@ public class OutlinkExtractor {
 
    *      </a>
    */
-  private static final String URL_PATTERN = "([A-Za-z][A-Za-z0-9+.-]{1,120}:[A-Za-z0-9/](([A-Za-z0-9$_.+!*,;/?:@&~=-])|%[A-Fa-f0-9]{2}){1,333}(#([a-zA-Z0-9][a-zA-Z0-9$_.+!*,;/?:@&~=%-]{0,1000}))?)";
+  static final String URL_PATTERN = "([A-Za-z][A-Za-z0-9+.-]{1,120}:[A-Za-z0-9/](([A-Za-z0-9$_.+!*,;/?:@&~=-])|%[A-Fa-f0-9]{2}){1,333}(#([a-zA-Z0-9][a-zA-Z0-9$_.+!*,;/?:@&~=%-]{0,1000}))?)";
+
+  /**
+   * Max. time in milliseconds to spend on extracting the outlinks of one text
+   * (default: 60000). Outlinks found until then are returned.
+   */
+  public static final String TIME_LIMIT = "parser.outlink.extractor.time.limit";
 
   /**
    * Extracts <code>Outlink</code> from given plain text. Applying this method
@@ -88,58 +89,135 @@ public class OutlinkExtractor {
    */
   public static Outlink[] getOutlinks(final String plainText, String anchor,
       Configuration conf) {
-    long start = System.currentTimeMillis();
+    if (plainText == null)
+      return new Outlink[0];
+    long timeLimit = conf == null ? 60000L : conf.getLong(TIME_LIMIT, 60000L);
     final List<Outlink> outlinks = new ArrayList<Outlink>();
 
-    try {
-      final PatternCompiler cp = new Perl5Compiler();
-      final Pattern pattern = cp.compile(URL_PATTERN,
-          Perl5Compiler.CASE_INSENSITIVE_MASK | Perl5Compiler.READ_ONLY_MASK
-              | Perl5Compiler.MULTILINE_MASK);
-      final PatternMatcher matcher = new Perl5Matcher();
-
-      final PatternMatcherInput input = new PatternMatcherInput(plainText);
-
-      MatchResult result;
-      String url;
-
-      // loop the matches
-      while (matcher.contains(input, pattern)) {
-        // if this is taking too long, stop matching
-        // (SHOULD really check cpu time used so that heavily loaded systems
-        // do not unnecessarily hit this limit.)
-        if (System.currentTimeMillis() - start >= 60000L) {
-          if (LOG.isWarnEnabled()) {
-            LOG.warn("Time limit exceeded for getOutLinks");
-          }
+    for (String url : getUrls(plainText, timeLimit)) {
+      try {
+        outlinks.add(new Outlink(url, anchor));
+      } catch (MalformedURLException mue) {
+        LOG.warn("Invalid url: '" + url + "', skipping.");
+      }
+    }
+
+    return outlinks.toArray(new Outlink[outlinks.size()]);
+  }
+
+  /**
+   * Returns the URLs in a text in order of appearance, the same as all
+   * matches of {@link #URL_PATTERN} (case-insensitive).
+   *
+   * @param timeLimit
+   *          max. time in milliseconds, the URLs found until then are returned
+   */
+  static List<String> getUrls(CharSequence text, long timeLimit) {
+    long start = System.currentTimeMillis();
+    List<String> urls = new ArrayList<String>();
+    int length = text.length();
+    int from = 0; // end of the last match
+    for (int colon = 0; colon < length; colon++) {
+      if ((colon & 0xFFFF) == 0xFFFF
+          && System.currentTimeMillis() - start >= timeLimit) {
+        LOG.warn("Time limit exceeded for getOutLinks");
+        break;
+      }
+      if (text.charAt(colon) != ':')
+        continue;
+
+      // scheme: a letter and 1 to 120 scheme characters before the colon
+      int i = colon - 1;
+      int min = Math.max(from, colon - 121);
+      while (i >= min && isSchemeChar(text.charAt(i))) {
+        i--;
+      }
+      int begin = -1;
+      for (i++; i < colon - 1; i++) {
+        if (isLetter(text.charAt(i))) {
+          begin = i;
           break;
         }
-        result = matcher.getMatch();
-        url = result.group(0);
-        try {
-          outlinks.add(new Outlink(url, anchor));
-        } catch (MalformedURLException mue) {
-          LOG.warn("Invalid url: '" + url + "', skipping.");
+      }
+      if (begin < 0)
+        continue;
+
+      // one of [A-Za-z0-9/] and 1 to 333 characters or escapes
+      int end = colon + 1;
+      if (end >= length || !(isAlnum(text.charAt(end)) || text.charAt(end) == '/'))
+        continue;
+      end++;
+      int n = 0;
+      while (n < 333 && end < length) {
+        char c = text.charAt(end);
+        if (isPathChar(c)) {
+          end++;
+        } else if (c == '%' && end + 2 < length && isHex(text.charAt(end + 1))
+            && isHex(text.charAt(end + 2))) {
+          end += 3;
+        } else {
+          break;
+        }
+        n++;
+      }
+      if (n == 0)
+        continue;
+
+      // optional fragment
+      if (end + 1 < length && text.charAt(end) == '#'
+          && isAlnum(text.charAt(end + 1))) {
+        int max = Math.min(length, end + 2 + 1000);
+        end += 2;
+        while (end < max && (isPathChar(text.charAt(end))
+            || text.charAt(end) == '%')) {
+          end++;
         }
       }
-    } catch (Exception ex) {
-      // if the matcher fails (perhaps a malformed URL) we just log it and move
-      // on
-      if (LOG.isErrorEnabled()) {
-        LOG.error("getOutlinks", ex);
+
+      urls.add(text.subSequence(begin, end).toString());
+      from = end;
+      colon = end - 1;
+      // if this is taking too long, stop matching
+      // (SHOULD really check cpu time used so that heavily loaded systems
+      // do not unnecessarily hit this limit.)
+      if (System.currentTimeMillis() - start >= timeLimit) {
+        LOG.warn("Time limit exceeded for getOutLinks");
+        break;
       }
     }
+    return urls;
+  }
 
-    final Outlink[] retval;
+  private static boolean isLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
 
-    // create array of the Outlinks
-    if (outlinks != null && outlinks.size() > 0) {
-      retval = outlinks.toArray(new Outlink[0]);
-    } else {
-      retval = new Outlink[0];
-    }
+  private static boolean isAlnum(char c) {
+    return isLetter(c) || (c >= '0' && c <= '9');
+  }
+
+  private static boolean isHex(char c) {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f')
+        || (c >= 'A' && c <= 'F');
+  }
 
-    return retval;
+  /** <code>[A-Za-z0-9+.-]</code> */
+  private static boolean isSchemeChar(char c) {
+    return isAlnum(c) || c == '+' || c == '.' || c == '-';
+  }
+
+  /** <code>[A-Za-z0-9$_.+!*,;/?:@&~=-]</code> */
+  private static boolean isPathChar(char c) {
+    if (isAlnum(c))
+      return true;
+    switch (c) {
+    case '$': case '_': case '.': case '+': case '!': case '*': case ',':
+    case ';': case '/': case '?': case ':': case '@': case '&': case '~':
+    case '=': case '-':
+      return true;
+    default:
+      return false;
+    }
   }
 
   /**
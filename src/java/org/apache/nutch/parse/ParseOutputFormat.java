@@ -37,8 +37,6 @@ import org.apache.nutch.metadata.Nutch;
 import org.apache.nutch.net.*;
 
 import java.io.*;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
@@ -167,11 +165,7 @@ public class ParseOutputFormat implements OutputFormat<Text, Parse> {
 
         if (ignoreExternalLinks) {
           // need to determine fromHost (once for all outlinks)
-          try {
-            fromHost = new URL(fromUrl).getHost().toLowerCase();
-          } catch (MalformedURLException e) {
-            fromHost = null;
-          }
+          fromHost = URLUtil.getHost(fromUrl);
         } else {
           fromHost = null;
         }
@@ -207,43 +201,56 @@ public class ParseOutputFormat implements OutputFormat<Text, Parse> {
         List<Entry<Text, CrawlDatum>> targets = new ArrayList<Entry<Text, CrawlDatum>>(
             outlinksToStore);
         List<Outlink> outlinkList = new ArrayList<Outlink>(outlinksToStore);
-        for (int i = 0; i < links.length && validCount < outlinksToStore; i++) {
-          String toUrl = links[i].getToUrl();
+        int next = 0;
+        while (next < links.length && validCount < outlinksToStore) {
+          // normalize and filter as many links at once as are still needed
+          int end = Math.min(links.length, next + outlinksToStore - validCount);
+          String[] toUrls = new String[end - next];
+          for (int i = next; i < end; i++) {
+            toUrls[i - next] = links[i].getToUrl();
+          }
 
           // Only normalize and filter if fetcher.parse = false
           if (!isParsing) {
-            toUrl = ParseOutputFormat.filterNormalize(fromUrl, toUrl, fromHost,
-                ignoreExternalLinks, filters, normalizers);
+            ParseOutputFormat.filterNormalize(fromUrl, toUrls, fromHost,
+                ignoreExternalLinks, filters, normalizers,
+                URLNormalizers.SCOPE_OUTLINK);
+          }
+
+          for (int i = next; i < end; i++) {
+            String toUrl = toUrls[i - next];
             if (toUrl == null) {
               continue;
             }
-          }
 
-          CrawlDatum target = new CrawlDatum(CrawlDatum.STATUS_LINKED, interval);
-          Text targetUrl = new Text(toUrl);
+            CrawlDatum target = new CrawlDatum(CrawlDatum.STATUS_LINKED,
+                interval);
+            Text targetUrl = new Text(toUrl);
 
-          // see if the outlink has any metadata attached
-          // and if so pass that to the crawldatum so that
-          // the initial score or distribution can use that
-          MapWritable outlinkMD = links[i].getMetadata();
-          if (outlinkMD != null) {
-            target.getMetaData().putAll(outlinkMD);
-          }
+            // see if the outlink has any metadata attached
+            // and if so pass that to the crawldatum so that
+            // the initial score or distribution can use that
+            MapWritable outlinkMD = links[i].getMetadata();
+            if (outlinkMD != null) {
+              target.getMetaData().putAll(outlinkMD);
+            }
 
-          try {
-            scfilters.initialScore(targetUrl, target);
-          } catch (ScoringFilterException e) {
-            LOG.warn("Cannot filter init score for url " + key
-                + ", using default: " + e.getMessage());
-            target.setScore(0.0f);
-          }
+            try {
+              scfilters.initialScore(targetUrl, target);
+            } catch (ScoringFilterException e) {
+              LOG.warn("Cannot filter init score for url " + key
+                  + ", using default: " + e.getMessage());
+              target.setScore(0.0f);
+            }
 
-          targets.add(new SimpleEntry(targetUrl, target));
+            targets.add(new SimpleEntry(targetUrl, target));
 
-          // OVerwrite URL in Outlink object with normalized URL (NUTCH-1174)
-          links[i].setUrl(toUrl);
-          outlinkList.add(links[i]);
-          validCount++;
+            // OVerwrite URL in Outlink object with normalized URL (NUTCH-1174)
+            links[i].setUrl(toUrl);
+            outlinkList.add(links[i]);
+            validCount++;
+          }
+          next = end;
         }
 
         try {
@@ -284,6 +291,20 @@ public class ParseOutputFormat implements OutputFormat<Text, Parse> {
         textOut.close();
         dataOut.close();
         crawlOut.close();
+        if (reporter != null && filters != null
+            && filters.getCacheMisses() > 0) {
+          reporter.incrCounter("URLFilters", "cache_hits",
+              filters.getCacheHits());
+          reporter.incrCounter("URLFilters", "cache_misses",
+              filters.getCacheMisses());
+        }
+        if (reporter != null && normalizers != null
+            && normalizers.getCacheMisses() > 0) {
+          reporter.incrCounter("URLNormalizers", "cache_hits",
+              normalizers.getCacheHits());
+          reporter.incrCounter("URLNormalizers", "cache_misses",
+              normalizers.getCacheMisses());
+        }
       }
 
     };
@@ -297,6 +318,37 @@ public class ParseOutputFormat implements OutputFormat<Text, Parse> {
         filters, normalizers, URLNormalizers.SCOPE_OUTLINK);
   }
 
+  /**
+   * Normalize and filter a batch of outlinks of a page in place, same as
+   * {@link #filterNormalize(String, String, String, boolean, URLFilters,
+   * URLNormalizers, String)} for every outlink: skipped outlinks are set to
+   * null.
+   */
+  public static void filterNormalize(String fromUrl, String[] toUrls,
+      String fromHost, boolean ignoreExternalLinks, URLFilters filters,
+      URLNormalizers normalizers, String urlNormalizerScope) {
+    for (int i = 0; i < toUrls.length; i++) {
+      String toUrl = toUrls[i];
+      if (toUrl == null)
+        continue;
+      // ignore links to self (or anchors within the page)
+      if (fromUrl.equals(toUrl)) {
+        toUrls[i] = null;
+      } else if (ignoreExternalLinks) {
+        String toHost = URLUtil.getHost(toUrl);
+        if (toHost == null || !toHost.equals(fromHost)) { // external links
+          toUrls[i] = null; // skip it
+        }
+      }
+    }
+    if (normalizers != null) {
+      normalizers.normalize(toUrls, urlNormalizerScope);
+    }
+    if (filters != null) {
+      filters.filter(toUrls);
+    }
+  }
+
   public static String filterNormalize(String fromUrl, String toUrl,
       String fromHost, boolean ignoreExternalLinks, URLFilters filters,
       URLNormalizers normalizers, String urlNormalizerScope) {
@@ -305,12 +357,7 @@ public class ParseOutputFormat implements OutputFormat<Text, Parse> {
       return null;
     }
     if (ignoreExternalLinks) {
-      String toHost;
-      try {
-        toHost = new URL(toUrl).getHost().toLowerCase();
-      } catch (MalformedURLException e) {
-        toHost = null;
-      }
+      String toHost = URLUtil.getHost(toUrl);
       if (toHost == null || !toHost.equals(fromHost)) { // external links
         return null; // skip it
       }
@@ -73,6 +73,20 @@ public class ScoringFilters extends Configured implements ScoringFilter {
     }
   }
 
+  /**
+   * Whether any of the filters reads the inlinked CrawlDatums passed to
+   * {@link #updateDbScore(Text, CrawlDatum, CrawlDatum, List)}.
+   * 
+   * @see InlinkIndependentScoringFilter
+   */
+  public boolean needsInlinks() {
+    for (int i = 0; i < this.filters.length; i++) {
+      if (!(this.filters[i] instanceof InlinkIndependentScoringFilter))
+        return true;
+    }
+    return false;
+  }
+
   /** Calculate updated page score during CrawlDb.update(). */
   public void updateDbScore(Text url, CrawlDatum old, CrawlDatum datum,
       List<CrawlDatum> inlinked) throws ScoringFilterException {
@@ -41,17 +41,17 @@ import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileOutputFormat;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
-import org.apache.hadoop.mapred.MapFileOutputFormat;
 import org.apache.hadoop.mapred.Mapper;
 import org.apache.hadoop.mapred.OutputCollector;
 import org.apache.hadoop.mapred.Reducer;
 import org.apache.hadoop.mapred.Reporter;
-import org.apache.hadoop.mapred.SequenceFileInputFormat;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 import org.apache.nutch.crawl.CrawlDatum;
 import org.apache.nutch.crawl.CrawlDb;
+import org.apache.nutch.crawl.CrawlDbInputFormat;
+import org.apache.nutch.crawl.CrawlDbOutputFormat;
 import org.apache.nutch.util.NutchConfiguration;
 import org.apache.nutch.util.NutchJob;
 import org.apache.nutch.util.TimingUtil;
@@ -171,14 +171,12 @@ public class ScoreUpdater extends Configured implements Tool,
     FileInputFormat.addInputPath(updater, crawlDbCurrent);
     FileInputFormat.addInputPath(updater, nodeDb);
     FileOutputFormat.setOutputPath(updater, newCrawlDb);
-    updater.setInputFormat(SequenceFileInputFormat.class);
+    updater.setInputFormat(CrawlDbInputFormat.class);
     updater.setMapperClass(ScoreUpdater.class);
     updater.setReducerClass(ScoreUpdater.class);
     updater.setMapOutputKeyClass(Text.class);
     updater.setMapOutputValueClass(ObjectWritable.class);
-    updater.setOutputKeyClass(Text.class);
-    updater.setOutputValueClass(CrawlDatum.class);
-    updater.setOutputFormat(MapFileOutputFormat.class);
+    CrawlDbOutputFormat.setOutput(updater);
 
     try {
       JobClient.runJob(updater);
@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.service;
+
+import java.io.IOException;
+
+import org.apache.nutch.crawl.CrawlDatum;
+
+/**
+ * Long-lived point lookups in the CrawlDb of a crawl. Readers and caches are
+ * kept open between requests and are reopened once the CrawlDb is updated.
+ */
+public interface DbLookupManager {
+
+  /**
+   * Look up URLs in the CrawlDb of a crawl.
+   * 
+   * @return the entries in the order of the URLs, null for absent URLs
+   */
+  public CrawlDatum[] get(String crawlId, String confId, String[] urls)
+      throws IOException;
+
+  /** Close all open readers. */
+  public void close();
+}
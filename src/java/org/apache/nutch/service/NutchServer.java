@@ -37,6 +37,7 @@ import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
 import org.apache.cxf.jaxrs.lifecycle.ResourceProvider;
 import org.apache.cxf.jaxrs.lifecycle.SingletonResourceProvider;
 import org.apache.nutch.service.impl.ConfManagerImpl;
+import org.apache.nutch.service.impl.DbLookupManagerImpl;
 import org.apache.nutch.service.impl.JobFactory;
 import org.apache.nutch.service.impl.JobManagerImpl;
 import org.apache.nutch.service.impl.NutchServerPoolExecutor;
@@ -67,6 +68,7 @@ public class NutchServer {
   private boolean running;
   private ConfManager configManager;
   private JobManager jobManager;
+  private DbLookupManager dbLookupManager;
   private JAXRSServerFactoryBean sf; 
 
   private static NutchServer server;
@@ -80,6 +82,7 @@ public class NutchServer {
     BlockingQueue<Runnable> runnables = Queues.newArrayBlockingQueue(JOB_CAPACITY);
     NutchServerPoolExecutor executor = new NutchServerPoolExecutor(10, JOB_CAPACITY, 1, TimeUnit.HOURS, runnables);
     jobManager = new JobManagerImpl(new JobFactory(), configManager, executor);
+    dbLookupManager = new DbLookupManagerImpl(configManager);
 
     sf = new JAXRSServerFactoryBean();
     BindingFactoryManager manager = sf.getBus().getExtension(BindingFactoryManager.class);
@@ -139,6 +142,10 @@ public class NutchServer {
     return jobManager;
   }
 
+  public DbLookupManager getDbLookupManager() {
+    return dbLookupManager;
+  }
+
   public boolean isRunning(){
     return running;
   }
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nutch.service.impl;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.nutch.crawl.CrawlDatum;
+import org.apache.nutch.crawl.CrawlDb;
+import org.apache.nutch.crawl.CrawlDbLookup;
+import org.apache.nutch.service.ConfManager;
+import org.apache.nutch.service.DbLookupManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Maps;
+
+public class DbLookupManagerImpl implements DbLookupManager {
+
+  private static final Logger LOG = LoggerFactory
+      .getLogger(DbLookupManagerImpl.class);
+
+  /**
+   * Interval in milliseconds to check whether a CrawlDb has been updated and
+   * the readers need to be reopened (default: 10 seconds).
+   */
+  public static final String CHECK_INTERVAL = "db.lookup.check.interval";
+
+  /**
+   * An opened CrawlDb. Lookups in progress hold a reference, so that a
+   * replaced version is closed only when the last lookup is done.
+   */
+  private static class OpenCrawlDb {
+    CrawlDbLookup lookup;
+    String version;
+    long checked;
+    int users;
+    boolean retired;
+  }
+
+  private ConfManager configManager;
+
+  private Map<String, OpenCrawlDb> crawlDbs = Maps.newHashMap();
+
+  public DbLookupManagerImpl(ConfManager configManager) {
+    this.configManager = configManager;
+  }
+
+  public CrawlDatum[] get(String crawlId, String confId, String[] urls)
+      throws IOException {
+    Configuration conf = configManager.get(confId);
+    Path crawlDb = new Path(crawlId + "/crawldb");
+    Text[] keys = new Text[urls.length];
+    for (int i = 0; i < urls.length; i++) {
+      keys[i] = new Text(urls[i]);
+    }
+    OpenCrawlDb db = acquire(crawlDb, conf, null);
+    try {
+      return db.lookup.get(keys);
+    } catch (IOException e) {
+      // files may have been removed by a concurrent update, retry once
+      LOG.warn("Failed to read " + crawlDb + ", reopening: " + e.getMessage());
+    } finally {
+      release(db);
+    }
+    db = acquire(crawlDb, conf, db);
+    try {
+      return db.lookup.get(keys);
+    } finally {
+      release(db);
+    }
+  }
+
+  /**
+   * Get the opened CrawlDb, (re)opened if it has been updated, and add a
+   * reference. Must be released by {@link #release(OpenCrawlDb)}.
+   * 
+   * @param failed
+   *          reopen if this is still the opened CrawlDb, null if none
+   */
+  private synchronized OpenCrawlDb acquire(Path crawlDb, Configuration conf,
+      OpenCrawlDb failed) throws IOException {
+    String key = crawlDb.toString();
+    OpenCrawlDb db = crawlDbs.get(key);
+    long now = System.currentTimeMillis();
+    boolean reopen = db != null && db == failed;
+    if (db != null && !reopen
+        && now - db.checked < conf.getLong(CHECK_INTERVAL, 10000L)) {
+      db.users++;
+      return db;
+    }
+    String version = getVersion(crawlDb, conf);
+    if (db != null && !reopen && version.equals(db.version)) {
+      db.checked = now;
+      db.users++;
+      return db;
+    }
+    OpenCrawlDb opened = new OpenCrawlDb();
+    opened.lookup = new CrawlDbLookup(crawlDb, conf, conf.getInt(
+        CrawlDbLookup.CACHE_SIZE, 10000));
+    opened.version = version;
+    opened.checked = now;
+    opened.users = 1;
+    if (db != null) {
+      retire(db);
+    }
+    crawlDbs.put(key, opened);
+    LOG.info("Opened CrawlDb " + crawlDb + " for lookups");
+    return opened;
+  }
+
+  private synchronized void release(OpenCrawlDb db) {
+    db.users--;
+    if (db.retired && db.users == 0) {
+      db.lookup.close();
+    }
+  }
+
+  /** Close now or, if lookups are in progress, when the last is released. */
+  private void retire(OpenCrawlDb db) {
+    db.retired = true;
+    if (db.users == 0) {
+      db.lookup.close();
+    }
+  }
+
+  /**
+   * Updates replace <code>current</code> or add delta runs, both change the
+   * modification time of the directories.
+   */
+  private String getVersion(Path crawlDb, Configuration conf)
+      throws IOException {
+    FileSystem fs = crawlDb.getFileSystem(conf);
+    StringBuilder version = new StringBuilder();
+    for (String name : new String[] { CrawlDb.CURRENT_NAME, CrawlDb.DELTA_NAME }) {
+      Path path = new Path(crawlDb, name);
+      if (fs.exists(path)) {
+        FileStatus status = fs.getFileStatus(path);
+        version.append(status.getModificationTime());
+      }
+      version.append('/');
+    }
+    return version.toString();
+  }
+
+  public synchronized void close() {
+    for (OpenCrawlDb db : crawlDbs.values()) {
+      retire(db);
+    }
+    crawlDbs.clear();
+  }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.nutch.service.model.request;
 
+import java.util.List;
 import java.util.Map;
 
 public class DbQuery {
@@ -24,6 +25,7 @@ public class DbQuery {
   private String type;
   private Map<String, String> args;
   private String crawlId;
+  private List<String> urls;
 
   public String getConfId() {
     return confId;
@@ -49,6 +51,12 @@ public class DbQuery {
   public void setCrawlId(String crawlId) {
     this.crawlId = crawlId;
   }
+  public List<String> getUrls() {
+    return urls;
+  }
+  public void setUrls(List<String> urls) {
+    this.urls = urls;
+  }
 
 
 
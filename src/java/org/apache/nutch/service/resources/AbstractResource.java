@@ -23,6 +23,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import org.apache.nutch.service.ConfManager;
+import org.apache.nutch.service.DbLookupManager;
 import org.apache.nutch.service.JobManager;
 import org.apache.nutch.service.NutchServer;
 
@@ -31,10 +32,12 @@ public abstract class AbstractResource {
 
   protected JobManager jobManager;
   protected ConfManager configManager;
+  protected DbLookupManager dbLookupManager;
 
   public AbstractResource() {
     configManager = NutchServer.getInstance().getConfManager();
     jobManager = NutchServer.getInstance().getJobManager();
+    dbLookupManager = NutchServer.getInstance().getDbLookupManager();
   }
 
   protected void throwBadRequestException(String message) {
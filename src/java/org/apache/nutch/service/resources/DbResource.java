@@ -17,6 +17,10 @@
 package org.apache.nutch.service.resources;
 
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.ws.rs.Consumes;
@@ -27,7 +31,9 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.nutch.crawl.CrawlDatum;
 import org.apache.nutch.crawl.CrawlDbReader;
+import org.apache.nutch.service.DbLookupManager;
 import org.apache.nutch.service.model.request.DbQuery;
 
 @Path(value = "/db")
@@ -50,7 +56,19 @@ public class DbResource extends AbstractResource {
       return crawlDbTopN(conf, dbQuery.getArgs(), dbQuery.getCrawlId());
     }
     if(type.equalsIgnoreCase("url")){
-      return crawlDbUrl(conf, dbQuery.getArgs(), dbQuery.getCrawlId());
+      return crawlDbUrls(dbQuery.getConfId(), Collections.singletonList(
+          dbQuery.getArgs().get("url")), dbQuery.getCrawlId(), true);
+    }
+    if(type.equalsIgnoreCase("host")){
+      if (dbQuery.getArgs() == null || dbQuery.getArgs().get("host") == null)
+        throwBadRequestException("No host given");
+      return crawlDbHost(conf, dbQuery.getArgs(), dbQuery.getCrawlId());
+    }
+    if(type.equalsIgnoreCase("urls")){
+      if (dbQuery.getUrls() == null)
+        throwBadRequestException("No URLs given");
+      return crawlDbUrls(dbQuery.getConfId(), dbQuery.getUrls(),
+          dbQuery.getCrawlId(), false);
     }
     return null;
 
@@ -89,10 +107,39 @@ public class DbResource extends AbstractResource {
     }		
   }
 
-  private Response crawlDbUrl(Configuration conf, Map<String, String> args, String crawlId){
+  /**
+   * Entries of all URLs of a host, at most "limit" if given.
+   */
+  private Response crawlDbHost(Configuration conf, Map<String, String> args, String crawlId) {
     CrawlDbReader dbr = new CrawlDbReader();
     try{
-      return Response.ok(dbr.query(args, conf, "url", crawlId)).build();
+      return Response.ok(dbr.query(args, conf, "host", crawlId)).build();
+    }catch(Exception e){
+      e.printStackTrace();
+      return Response.serverError().entity(e.getMessage()).build();
+    }
+  }
+
+  /**
+   * Point lookups served by the long-lived {@link DbLookupManager}: for a
+   * single URL the fields of the entry are returned, for a batch a map from
+   * URL to the fields (null for absent URLs).
+   */
+  private Response crawlDbUrls(String confId, List<String> urls, String crawlId, boolean single){
+    try{
+      CrawlDatum[] res = dbLookupManager.get(crawlId, confId,
+          urls.toArray(new String[urls.size()]));
+      if (single) {
+        Map<String, Object> results = new HashMap<String, Object>();
+        if (res[0] != null)
+          results.putAll(CrawlDbReader.toMap(res[0]));
+        return Response.ok(results).build();
+      }
+      Map<String, Object> results = new LinkedHashMap<String, Object>();
+      for (int i = 0; i < res.length; i++) {
+        results.put(urls.get(i), res[i] == null ? null : CrawlDbReader.toMap(res[i]));
+      }
+      return Response.ok(results).build();
     }catch(Exception e){
       e.printStackTrace();
       return Response.serverError().entity(e.getMessage()).build();
@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BloomMapFile;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapFileOutputFormat;
+import org.apache.hadoop.mapred.Partitioner;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.SequenceFileOutputFormat;
+import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Writes {@link BloomMapFile}s: MapFiles with an additional Bloom filter of all
+ * keys, so that lookups of absent keys are answered without seeking in the
+ * index and data file. The parts stay readable as plain MapFiles and sequence
+ * files. The size and the error rate of the filter are configured by
+ * <code>io.mapfile.bloom.size</code> and
+ * <code>io.mapfile.bloom.error.rate</code>.
+ */
+public class BloomMapFileOutputFormat extends MapFileOutputFormat {
+
+  /** Write Bloom filters (default: true). */
+  public static final String BLOOM_FILTER = "db.bloom.filter";
+
+  @Override
+  public RecordWriter<WritableComparable, Writable> getRecordWriter(
+      FileSystem ignored, JobConf job, String name, Progressable progress)
+      throws IOException {
+    if (!job.getBoolean(BLOOM_FILTER, true)) {
+      return super.getRecordWriter(ignored, job, name, progress);
+    }
+
+    Path file = FileOutputFormat.getTaskOutputPath(job, name);
+    FileSystem fs = file.getFileSystem(job);
+    CompressionCodec codec = null;
+    CompressionType compressionType = CompressionType.NONE;
+    if (getCompressOutput(job)) {
+      compressionType = SequenceFileOutputFormat.getOutputCompressionType(job);
+      Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(
+          job, DefaultCodec.class);
+      codec = ReflectionUtils.newInstance(codecClass, job);
+    }
+
+    final MapFile.Writer out = new BloomMapFile.Writer(job, fs,
+        file.toString(), job.getOutputKeyClass().asSubclass(
+            WritableComparable.class), job.getOutputValueClass().asSubclass(
+            Writable.class), compressionType, codec, progress);
+
+    return new RecordWriter<WritableComparable, Writable>() {
+      public void write(WritableComparable key, Writable value)
+          throws IOException {
+        out.append(key, value);
+      }
+
+      public void close(Reporter reporter) throws IOException {
+        out.close();
+      }
+    };
+  }
+
+  /**
+   * Open the parts of an output directory, same as
+   * {@link MapFileOutputFormat#getReaders(FileSystem, Path, Configuration)}.
+   * Parts containing a Bloom filter are opened as {@link BloomMapFile.Reader},
+   * which consults the filter before any lookup, including lookups done by
+   * {@link MapFileOutputFormat#getEntry}.
+   */
+  public static MapFile.Reader[] getReaders(FileSystem fs, Path dir,
+      Configuration conf) throws IOException {
+    Path[] names = HadoopFSUtil.getPaths(fs.listStatus(dir,
+        HadoopFSUtil.getPassDirectoriesFilter(fs)));
+
+    // sort names, so that hash partitioning works
+    Arrays.sort(names);
+
+    MapFile.Reader[] parts = new MapFile.Reader[names.length];
+    for (int i = 0; i < names.length; i++) {
+      parts[i] = openReader(fs, names[i], conf);
+    }
+    return parts;
+  }
+
+  private static MapFile.Reader openReader(FileSystem fs, Path part,
+      Configuration conf) throws IOException {
+    if (fs.exists(new Path(part, BloomMapFile.BLOOM_FILE_NAME))) {
+      return new BloomMapFile.Reader(fs, part.toString(), conf);
+    }
+    return new MapFile.Reader(fs, part.toString(), conf);
+  }
+
+  /**
+   * The parts of an output directory, each opened on first access, see
+   * {@link #getReaders(FileSystem, Path, Configuration)}. Lookups of a few
+   * keys only load the index and the Bloom filter of the parts the keys are
+   * partitioned to. Instances are thread-safe.
+   */
+  public static class LazyReaders implements Closeable {
+
+    private final FileSystem fs;
+    private final Configuration conf;
+    private final Path[] names;
+    private final MapFile.Reader[] parts;
+
+    public LazyReaders(FileSystem fs, Path dir, Configuration conf)
+        throws IOException {
+      this.fs = fs;
+      this.conf = conf;
+      names = HadoopFSUtil.getPaths(fs.listStatus(dir,
+          HadoopFSUtil.getPassDirectoriesFilter(fs)));
+      // sort names, so that hash partitioning works
+      Arrays.sort(names);
+      parts = new MapFile.Reader[names.length];
+    }
+
+    /** Number of parts. */
+    public int size() {
+      return parts.length;
+    }
+
+    /** Get the reader of a part, opened on first access. */
+    public synchronized MapFile.Reader get(int part) throws IOException {
+      if (parts[part] == null) {
+        parts[part] = openReader(fs, names[part], conf);
+      }
+      return parts[part];
+    }
+
+    /**
+     * Get an entry from the part the key is partitioned to, same as
+     * {@link MapFileOutputFormat#getEntry}.
+     * 
+     * @return <code>value</code>, or null if the key is not found
+     */
+    public <K extends WritableComparable, V extends Writable> Writable getEntry(
+        Partitioner<K, V> partitioner, K key, V value) throws IOException {
+      if (parts.length == 0)
+        return null;
+      return get(partitioner.getPartition(key, value, parts.length)).get(key,
+          value);
+    }
+
+    public synchronized void close() throws IOException {
+      IOException error = null;
+      for (int i = 0; i < parts.length; i++) {
+        if (parts[i] == null)
+          continue;
+        try {
+          parts[i].close();
+        } catch (IOException e) {
+          error = e;
+        }
+        parts[i] = null;
+      }
+      if (error != null)
+        throw error;
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Trie of prefixes or suffixes kept in three arrays instead of a graph of
+ * {@link TrieStringMatcher.TrieNode}s. Nodes are numbered in breadth-first
+ * order, so the children of a node are consecutive nodes sorted by their
+ * character and a node is represented by the character of the edge to it, the
+ * index of its first child and a terminal bit: about 6 bytes per node. The
+ * trie is built once from the sorted patterns and is immutable and
+ * thread-safe.
+ */
+public class CompactTrieStringMatcher extends TrieStringMatcher {
+
+  private final boolean suffixes;
+
+  /** Characters of the edges to the nodes, the root has none. */
+  private final char[] chars;
+
+  /** Children of node n are the nodes firstChild[n] to firstChild[n + 1] - 1. */
+  private final int[] firstChild;
+
+  /** Bits of the nodes where a pattern ends. */
+  private final long[] terminal;
+
+  /**
+   * Creates a matcher for the given patterns. Zero-length patterns are
+   * ignored.
+   *
+   * @param suffixes
+   *          if true patterns are matched as suffixes, otherwise as prefixes
+   */
+  public CompactTrieStringMatcher(Collection<String> patterns, boolean suffixes) {
+    this(patterns.toArray(new String[patterns.size()]), suffixes);
+  }
+
+  /**
+   * Creates a matcher for the given patterns. Zero-length patterns are
+   * ignored.
+   *
+   * @param suffixes
+   *          if true patterns are matched as suffixes, otherwise as prefixes
+   */
+  public CompactTrieStringMatcher(String[] patterns, boolean suffixes) {
+    this.suffixes = suffixes;
+    String[] keys = new String[patterns.length];
+    int numKeys = 0;
+    for (String pattern : patterns) {
+      if (pattern.length() > 0)
+        keys[numKeys++] = suffixes ? reverse(pattern) : pattern;
+    }
+    Arrays.sort(keys, 0, numKeys);
+
+    // keys [start[n], end[n]) have the path to node n as prefix
+    int capacity = 16;
+    char[] chars = new char[capacity];
+    int[] firstChild = new int[capacity + 1];
+    int[] start = new int[capacity];
+    int[] end = new int[capacity];
+    int[] depth = new int[capacity];
+    long[] terminal = new long[1];
+    int numNodes = 1;
+    end[0] = numKeys;
+    for (int node = 0; node < numNodes; node++) {
+      int i = start[node];
+      int d = depth[node];
+      if (i < end[node] && keys[i].length() == d) {
+        if ((node >> 6) >= terminal.length)
+          terminal = Arrays.copyOf(terminal,
+              Math.max(2 * terminal.length, (node >> 6) + 1));
+        terminal[node >> 6] |= 1L << node;
+        // shorter keys sort first, skip duplicates
+        while (i < end[node] && keys[i].length() == d) {
+          i++;
+        }
+      }
+      firstChild[node] = numNodes;
+      while (i < end[node]) {
+        char c = keys[i].charAt(d);
+        int j = i + 1;
+        while (j < end[node] && keys[j].charAt(d) == c) {
+          j++;
+        }
+        if (numNodes == capacity) {
+          capacity *= 2;
+          chars = Arrays.copyOf(chars, capacity);
+          firstChild = Arrays.copyOf(firstChild, capacity + 1);
+          start = Arrays.copyOf(start, capacity);
+          end = Arrays.copyOf(end, capacity);
+          depth = Arrays.copyOf(depth, capacity);
+        }
+        chars[numNodes] = c;
+        start[numNodes] = i;
+        end[numNodes] = j;
+        depth[numNodes] = d + 1;
+        numNodes++;
+        i = j;
+      }
+    }
+    firstChild[numNodes] = numNodes;
+
+    this.chars = Arrays.copyOf(chars, numNodes);
+    this.firstChild = Arrays.copyOf(firstChild, numNodes + 1);
+    this.terminal = Arrays.copyOf(terminal, (numNodes + 63) >> 6);
+  }
+
+  private static String reverse(String s) {
+    char[] reversed = new char[s.length()];
+    for (int i = 0; i < reversed.length; i++) {
+      reversed[i] = s.charAt(reversed.length - 1 - i);
+    }
+    return new String(reversed);
+  }
+
+  /** Number of nodes of the trie, including the root. */
+  public int size() {
+    return chars.length;
+  }
+
+  private int getChild(int node, char c) {
+    int low = firstChild[node];
+    int high = firstChild[node + 1] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (chars[mid] < c) {
+        low = mid + 1;
+      } else if (chars[mid] > c) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isTerminal(int node) {
+    return (terminal[node >> 6] & (1L << node)) != 0;
+  }
+
+  /**
+   * Returns the length of the shortest or longest pattern matching the input,
+   * or -1.
+   */
+  private int match(String input, boolean longest) {
+    int length = input.length();
+    int node = 0;
+    int result = -1;
+    for (int i = 0; i < length; i++) {
+      node = getChild(node, input.charAt(suffixes ? length - 1 - i : i));
+      if (node < 0)
+        break;
+      if (isTerminal(node)) {
+        result = i + 1;
+        if (!longest)
+          break;
+      }
+    }
+    return result;
+  }
+
+  private String substring(String input, int length) {
+    if (length < 0)
+      return null;
+    return suffixes ? input.substring(input.length() - length) : input
+        .substring(0, length);
+  }
+
+  public boolean matches(String input) {
+    return match(input, false) >= 0;
+  }
+
+  public String shortestMatch(String input) {
+    return substring(input, match(input, false));
+  }
+
+  public String longestMatch(String input) {
+    return substring(input, match(input, true));
+  }
+}
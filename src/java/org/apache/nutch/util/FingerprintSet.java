@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.Arrays;
+
+/**
+ * Bounded set of 64-bit fingerprints of strings (e.g., URLs) in a primitive
+ * open addressing hash table, 8 bytes per entry. Used to skip duplicates
+ * cheaply: if the set is full it is cleared, and two distinct strings with the
+ * same fingerprint are considered equal, so the set may both miss and (very
+ * rarely) invent duplicates. Not thread-safe.
+ */
+public class FingerprintSet {
+
+  /** Max. size of a set: a table of 2^29 slots (4 GB). */
+  public static final int MAX_SIZE = 1 << 28;
+
+  /** Marks empty slots, the fingerprint 0 is stored as 1. */
+  private static final long EMPTY = 0L;
+
+  private final long[] table;
+  private final int mask;
+  private final int maxSize;
+  private int size = 0;
+
+  /**
+   * @param maxSize
+   *          max. number of fingerprints, the set is cleared if exceeded
+   * @throws IllegalArgumentException
+   *           if maxSize is not between 1 and {@link #MAX_SIZE}
+   */
+  public FingerprintSet(int maxSize) {
+    if (maxSize < 1 || maxSize > MAX_SIZE)
+      throw new IllegalArgumentException("Size of fingerprint set " + maxSize
+          + " not between 1 and " + MAX_SIZE);
+    int capacity = Integer.highestOneBit(Math.max(2, maxSize - 1)) << 2;
+    table = new long[capacity];
+    mask = capacity - 1;
+    this.maxSize = maxSize;
+  }
+
+  /** 64-bit fingerprint of a string. */
+  public static long fingerprint(CharSequence s) {
+    return HyperLogLog.hash(s);
+  }
+
+  /**
+   * Add a fingerprint.
+   *
+   * @return false if the fingerprint was already contained in the set
+   */
+  public boolean add(long fingerprint) {
+    if (fingerprint == EMPTY)
+      fingerprint = 1L;
+    int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    while (table[slot] != EMPTY) {
+      if (table[slot] == fingerprint)
+        return false;
+      slot = (slot + 1) & mask;
+    }
+    if (size >= maxSize) {
+      clear();
+      return add(fingerprint);
+    }
+    table[slot] = fingerprint;
+    size++;
+    return true;
+  }
+
+  /** Add the fingerprint of a string, see {@link #add(long)}. */
+  public boolean add(CharSequence s) {
+    return add(fingerprint(s));
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(table, EMPTY);
+    size = 0;
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch to estimate the number of distinct strings (e.g., hosts)
+ * in constant memory. With 2^14 registers the standard error is about 0.8%.
+ * Sketches are merged by taking the maximum of equal registers.
+ */
+public class HyperLogLog {
+
+  private static final int P = 14;
+
+  /** Number of registers. */
+  public static final int NUM_REGISTERS = 1 << P;
+
+  private final byte[] registers = new byte[NUM_REGISTERS];
+
+  /** 64-bit hash of a string (FNV-1a, finalized by the MurmurHash3 mix). */
+  public static long hash(CharSequence s) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < s.length(); i++) {
+      h ^= s.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  public void add(CharSequence s) {
+    long h = hash(s);
+    int index = (int) (h >>> (64 - P));
+    int rank = Math.min(Long.numberOfLeadingZeros(h << P), 64 - P) + 1;
+    if (registers[index] < rank)
+      registers[index] = (byte) rank;
+  }
+
+  public int getRegister(int index) {
+    return registers[index];
+  }
+
+  /** Merge a register, e.g., of another sketch. */
+  public void setRegister(int index, int value) {
+    if (registers[index] < value)
+      registers[index] = (byte) value;
+  }
+
+  /** Estimate the number of distinct strings added. */
+  public long getEstimate() {
+    double sum = 0.0;
+    int zeros = 0;
+    for (byte r : registers) {
+      sum += 1.0 / (1L << r);
+      if (r == 0)
+        zeros++;
+    }
+    double m = NUM_REGISTERS;
+    double estimate = 0.7213 / (1.0 + 1.079 / m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      // small range correction (linear counting)
+      estimate = m * Math.log(m / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  public void clear() {
+    Arrays.fill(registers, (byte) 0);
+  }
+}
@@ -0,0 +1,584 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.serializer.Deserializer;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.io.serializer.Serializer;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.FileOutputCommitter;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputFormat;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapRunnable;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Partitioner;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reducer;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.TaskAttemptID;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a MapReduce job in-process, without the overhead of the Hadoop
+ * <code>LocalJobRunner</code>. The map tasks (one per input split, e.g. one
+ * per CrawlDb part) and the reduce tasks (one per partition) are run in
+ * parallel by a fork-join pool. Map output is kept in memory: the output of a
+ * map task is only sorted if the keys were not already collected in sort
+ * order, e.g. when reading sorted MapFile parts, and the sorted outputs of
+ * all map tasks are combined by a k-way merge for every partition. Combiners
+ * are not run, the reducers receive the same groups as with Hadoop.
+ *
+ * <p>
+ * All intermediate data must fit into the heap, the engine is intended for
+ * small crawls on a single node. It is used by {@link NutchJob#runJob(JobConf)}
+ * if {@link #ENABLED} is set and the job tracker is <code>local</code>. The
+ * number of threads is set by {@link #THREADS}, the default is the number of
+ * processors.
+ * </p>
+ */
+public class LocalJobEngine {
+
+  public static final Logger LOG = LoggerFactory
+      .getLogger(LocalJobEngine.class);
+
+  /** Property to run jobs of a local job tracker by this engine. */
+  public static final String ENABLED = "nutch.local.engine";
+
+  /** Property to set the number of threads. */
+  public static final String THREADS = "nutch.local.engine.threads";
+
+  private static final AtomicInteger JOB_IDS = new AtomicInteger();
+
+  private final JobConf job;
+  private final Counters counters = new Counters();
+  private final int jobId = JOB_IDS.incrementAndGet();
+  private final int numPartitions;
+
+  public LocalJobEngine(JobConf job) {
+    this.job = job;
+    this.numPartitions = job.getNumReduceTasks();
+  }
+
+  /** Whether a job is run by this engine. */
+  public static boolean isEnabled(JobConf job) {
+    return job.getBoolean(ENABLED, false)
+        && "local".equals(job.get("mapred.job.tracker", "local"));
+  }
+
+  /**
+   * Run the job and wait for its completion.
+   *
+   * @return the counters of the job
+   */
+  public Counters run() throws IOException {
+    FileSystem fs = FileSystem.get(job);
+    job.getOutputFormat().checkOutputSpecs(fs, job);
+    Path output = FileOutputFormat.getOutputPath(job);
+    Path temp = null;
+    if (output != null) {
+      temp = new Path(output, FileOutputCommitter.TEMP_DIR_NAME);
+      fs = output.getFileSystem(job);
+      fs.mkdirs(temp);
+    }
+
+    InputFormat<?, ?> inputFormat = job.getInputFormat();
+    InputSplit[] splits = inputFormat.getSplits(job, job.getNumMapTasks());
+    int threads = job.getInt(THREADS, Runtime.getRuntime()
+        .availableProcessors());
+    LOG.info("LocalJobEngine: running " + job.getJobName() + " with "
+        + splits.length + " map tasks and " + numPartitions
+        + " reduce tasks on " + threads + " threads");
+
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+    try {
+      List<Callable<MapOutput[]>> mapTasks = new ArrayList<Callable<MapOutput[]>>();
+      for (int i = 0; i < splits.length; i++) {
+        mapTasks.add(new MapTask(i, splits[i]));
+      }
+      List<MapOutput[]> mapOutputs = invokeAll(pool, mapTasks);
+
+      if (numPartitions > 0) {
+        List<Callable<Object>> reduceTasks = new ArrayList<Callable<Object>>();
+        for (int p = 0; p < numPartitions; p++) {
+          List<MapOutput> runs = new ArrayList<MapOutput>();
+          for (MapOutput[] mapOutput : mapOutputs) {
+            runs.add(mapOutput[p]);
+          }
+          reduceTasks.add(new ReduceTask(p, runs));
+        }
+        invokeAll(pool, reduceTasks);
+      }
+    } catch (IOException | RuntimeException e) {
+      if (temp != null)
+        fs.delete(temp, true);
+      throw e;
+    } finally {
+      pool.shutdown();
+    }
+
+    if (output != null) {
+      for (FileStatus attempt : fs.listStatus(temp)) {
+        moveAll(fs, attempt.getPath(), output);
+      }
+      fs.delete(temp, true);
+      if (job.getBoolean("mapreduce.fileoutputcommitter.marksuccessfuljobs",
+          true)) {
+        fs.create(new Path(output, FileOutputCommitter.SUCCEEDED_FILE_NAME))
+            .close();
+      }
+    }
+    return counters;
+  }
+
+  private static <T> List<T> invokeAll(ForkJoinPool pool,
+      List<Callable<T>> tasks) throws IOException {
+    List<T> results = new ArrayList<T>(tasks.size());
+    for (Future<T> future : pool.invokeAll(tasks)) {
+      try {
+        results.add(future.get());
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException)
+          throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        if (cause instanceof Error)
+          throw (Error) cause;
+        throw new IOException(cause);
+      }
+    }
+    return results;
+  }
+
+  /** Move the task output into the job output, merging directories. */
+  private static void moveAll(FileSystem fs, Path from, Path to)
+      throws IOException {
+    for (FileStatus stat : fs.listStatus(from)) {
+      Path target = new Path(to, stat.getPath().getName());
+      if (stat.isDir() && fs.exists(target)) {
+        moveAll(fs, stat.getPath(), target);
+      } else if (!fs.rename(stat.getPath(), target)) {
+        throw new IOException("Failed to move " + stat.getPath() + " to "
+            + target);
+      }
+    }
+  }
+
+  /** Configuration of a task, task output is written to its work path. */
+  private JobConf getTaskConf(boolean isMap, int task) {
+    JobConf conf = new JobConf(job);
+    TaskAttemptID attempt = new TaskAttemptID("localengine", jobId, isMap,
+        task, 0);
+    conf.set("mapred.task.id", attempt.toString());
+    conf.setBoolean("mapred.task.is.map", isMap);
+    conf.setInt("mapred.task.partition", task);
+    Path output = FileOutputFormat.getOutputPath(job);
+    if (output != null) {
+      conf.set("mapred.work.output.dir", new Path(output,
+          FileOutputCommitter.TEMP_DIR_NAME + Path.SEPARATOR + "_" + attempt)
+          .toString());
+    }
+    return conf;
+  }
+
+  private static String getOutputName(int partition) {
+    return String.format("part-%05d", partition);
+  }
+
+  /** Reporter of a task, counters are shared by all tasks. */
+  private class TaskReporter implements Reporter {
+
+    private final InputSplit split;
+
+    TaskReporter(InputSplit split) {
+      this.split = split;
+    }
+
+    public void progress() {
+    }
+
+    public void setStatus(String status) {
+    }
+
+    public Counters.Counter getCounter(Enum<?> name) {
+      return counters.findCounter(name);
+    }
+
+    public Counters.Counter getCounter(String group, String name) {
+      return counters.findCounter(group, name);
+    }
+
+    public void incrCounter(Enum<?> key, long amount) {
+      counters.incrCounter(key, amount);
+    }
+
+    public void incrCounter(String group, String counter, long amount) {
+      counters.incrCounter(group, counter, amount);
+    }
+
+    public InputSplit getInputSplit() throws UnsupportedOperationException {
+      if (split == null)
+        throw new UnsupportedOperationException("Input only available on map");
+      return split;
+    }
+
+    public float getProgress() {
+      return 0.0f;
+    }
+  }
+
+  /**
+   * Serialized output of a map task for one partition. Records are stored one
+   * after the other, <code>keys[i]</code> and <code>values[i]</code> are the
+   * offsets of the i-th record.
+   */
+  private static class MapOutput implements IndexedSortable {
+
+    private final RawComparator<?> comparator;
+    private final DataOutputBuffer data = new DataOutputBuffer();
+    private final Serializer<Object> keySerializer;
+    private final Serializer<Object> valueSerializer;
+    private int[] keys = new int[64];
+    private int[] values = new int[64];
+    private int[] order;
+    private int size = 0;
+    private boolean sorted = true;
+
+    @SuppressWarnings("unchecked")
+    MapOutput(JobConf conf, RawComparator<?> comparator) throws IOException {
+      this.comparator = comparator;
+      SerializationFactory factory = new SerializationFactory(conf);
+      keySerializer = factory.getSerializer((Class<Object>) conf
+          .getMapOutputKeyClass());
+      keySerializer.open(data);
+      valueSerializer = factory.getSerializer((Class<Object>) conf
+          .getMapOutputValueClass());
+      valueSerializer.open(data);
+    }
+
+    void add(Object key, Object value) throws IOException {
+      if (size == keys.length) {
+        int[] k = new int[2 * size];
+        System.arraycopy(keys, 0, k, 0, size);
+        keys = k;
+        int[] v = new int[2 * size];
+        System.arraycopy(values, 0, v, 0, size);
+        values = v;
+      }
+      keys[size] = data.getLength();
+      keySerializer.serialize(key);
+      values[size] = data.getLength();
+      valueSerializer.serialize(value);
+      if (sorted && size > 0 && compare(size - 1, size) > 0)
+        sorted = false;
+      size++;
+    }
+
+    int getKeyStart(int i) {
+      return keys[i];
+    }
+
+    int getKeyLength(int i) {
+      return values[i] - keys[i];
+    }
+
+    int getValueStart(int i) {
+      return values[i];
+    }
+
+    int getValueLength(int i) {
+      return (i + 1 < size ? keys[i + 1] : data.getLength()) - values[i];
+    }
+
+    byte[] getData() {
+      return data.getData();
+    }
+
+    /** Sort the records if they were not added in sort order. */
+    void sort() {
+      order = new int[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      if (!sorted)
+        new QuickSort().sort(this, 0, size);
+    }
+
+    /** Index of the i-th record in sort order. */
+    int get(int i) {
+      return order[i];
+    }
+
+    int size() {
+      return size;
+    }
+
+    public int compare(int i, int j) {
+      int a = order == null ? i : order[i];
+      int b = order == null ? j : order[j];
+      byte[] buf = data.getData();
+      return comparator.compare(buf, getKeyStart(a), getKeyLength(a), buf,
+          getKeyStart(b), getKeyLength(b));
+    }
+
+    public void swap(int i, int j) {
+      int tmp = order[i];
+      order[i] = order[j];
+      order[j] = tmp;
+    }
+  }
+
+  private class MapTask implements Callable<MapOutput[]> {
+
+    private final int task;
+    private final InputSplit split;
+
+    MapTask(int task, InputSplit split) {
+      this.task = task;
+      this.split = split;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public MapOutput[] call() throws IOException {
+      final JobConf conf = getTaskConf(true, task);
+      if (split instanceof FileSplit) {
+        conf.set("map.input.file", ((FileSplit) split).getPath().toString());
+      }
+      final Reporter reporter = new TaskReporter(split);
+      final MapOutput[] outputs = new MapOutput[numPartitions];
+      OutputCollector collector;
+      RecordWriter writer = null;
+      if (numPartitions == 0) {
+        final RecordWriter out = conf.getOutputFormat().getRecordWriter(
+            FileSystem.get(conf), conf, getOutputName(task), reporter);
+        writer = out;
+        collector = new OutputCollector() {
+          public void collect(Object key, Object value) throws IOException {
+            out.write(key, value);
+          }
+        };
+      } else {
+        RawComparator<?> comparator = conf.getOutputKeyComparator();
+        for (int p = 0; p < numPartitions; p++) {
+          outputs[p] = new MapOutput(conf, comparator);
+        }
+        final Partitioner partitioner = numPartitions == 1 ? null
+            : (Partitioner) ReflectionUtils.newInstance(
+                conf.getPartitionerClass(), conf);
+        collector = new OutputCollector() {
+          public void collect(Object key, Object value) throws IOException {
+            int p = partitioner == null ? 0 : partitioner.getPartition(key,
+                value, numPartitions);
+            outputs[p].add(key, value);
+          }
+        };
+      }
+
+      RecordReader in = conf.getInputFormat().getRecordReader(split, conf,
+          reporter);
+      try {
+        MapRunnable runner = (MapRunnable) ReflectionUtils.newInstance(
+            conf.getMapRunnerClass(), conf);
+        runner.run(in, collector, reporter);
+      } finally {
+        in.close();
+        if (writer != null)
+          writer.close(reporter);
+      }
+      for (MapOutput output : outputs) {
+        output.sort();
+      }
+      return outputs;
+    }
+  }
+
+  /** Current record of a sorted map output. */
+  private static class Segment {
+    final MapOutput output;
+    final int index;
+    int pos = -1;
+    int record;
+
+    Segment(MapOutput output, int index) {
+      this.output = output;
+      this.index = index;
+    }
+
+    boolean next() {
+      if (++pos >= output.size())
+        return false;
+      record = output.get(pos);
+      return true;
+    }
+  }
+
+  private class ReduceTask implements Callable<Object> {
+
+    private final int partition;
+    private final List<MapOutput> runs;
+
+    ReduceTask(int partition, List<MapOutput> runs) {
+      this.partition = partition;
+      this.runs = runs;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Object call() throws IOException {
+      final JobConf conf = getTaskConf(false, partition);
+      final Reporter reporter = new TaskReporter(null);
+      final RawComparator comparator = conf.getOutputKeyComparator();
+      final RawComparator grouping = conf.getOutputValueGroupingComparator();
+
+      final PriorityQueue<Segment> queue = new PriorityQueue<Segment>(Math.max(
+          1, runs.size()), new Comparator<Segment>() {
+        public int compare(Segment s1, Segment s2) {
+          int c = comparator.compare(s1.output.getData(),
+              s1.output.getKeyStart(s1.record),
+              s1.output.getKeyLength(s1.record), s2.output.getData(),
+              s2.output.getKeyStart(s2.record),
+              s2.output.getKeyLength(s2.record));
+          return c != 0 ? c : s1.index - s2.index;
+        }
+      });
+      for (int i = 0; i < runs.size(); i++) {
+        Segment segment = new Segment(runs.get(i), i);
+        if (segment.next())
+          queue.add(segment);
+      }
+
+      SerializationFactory factory = new SerializationFactory(conf);
+      final DataInputBuffer buffer = new DataInputBuffer();
+      final Deserializer keyDeserializer = factory.getDeserializer(conf
+          .getMapOutputKeyClass());
+      keyDeserializer.open(buffer);
+      final Deserializer valueDeserializer = factory.getDeserializer(conf
+          .getMapOutputValueClass());
+      valueDeserializer.open(buffer);
+      final Object key = ReflectionUtils.newInstance(
+          conf.getMapOutputKeyClass(), conf);
+      final Object value = ReflectionUtils.newInstance(
+          conf.getMapOutputValueClass(), conf);
+
+      final RecordWriter out = conf.getOutputFormat().getRecordWriter(
+          FileSystem.get(conf), conf, getOutputName(partition), reporter);
+      OutputCollector collector = new OutputCollector() {
+        public void collect(Object k, Object v) throws IOException {
+          out.write(k, v);
+        }
+      };
+      Reducer reducer = (Reducer) ReflectionUtils.newInstance(
+          conf.getReducerClass(), conf);
+
+      // values of the current group, the key is updated with every value
+      class Values implements Iterator<Object> {
+        byte[] group = new byte[64];
+        int groupLength;
+
+        void start(Segment segment) throws IOException {
+          MapOutput output = segment.output;
+          groupLength = output.getKeyLength(segment.record);
+          if (group.length < groupLength)
+            group = new byte[Math.max(groupLength, 2 * group.length)];
+          System.arraycopy(output.getData(),
+              output.getKeyStart(segment.record), group, 0, groupLength);
+          buffer.reset(group, 0, groupLength);
+          keyDeserializer.deserialize(key);
+        }
+
+        public boolean hasNext() {
+          if (queue.isEmpty())
+            return false;
+          Segment segment = queue.peek();
+          MapOutput output = segment.output;
+          return grouping.compare(group, 0, groupLength, output.getData(),
+              output.getKeyStart(segment.record),
+              output.getKeyLength(segment.record)) == 0;
+        }
+
+        public Object next() {
+          if (!hasNext())
+            throw new NoSuchElementException();
+          Segment segment = queue.poll();
+          MapOutput output = segment.output;
+          int record = segment.record;
+          try {
+            buffer.reset(output.getData(), output.getKeyStart(record),
+                output.getKeyLength(record));
+            keyDeserializer.deserialize(key);
+            buffer.reset(output.getData(), output.getValueStart(record),
+                output.getValueLength(record));
+            valueDeserializer.deserialize(value);
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+          if (segment.next())
+            queue.add(segment);
+          return value;
+        }
+
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      }
+
+      Values values = new Values();
+      try {
+        while (!queue.isEmpty()) {
+          values.start(queue.peek());
+          reducer.reduce(key, values, collector, reporter);
+          // skip values not consumed by the reducer
+          while (values.hasNext())
+            values.next();
+        }
+      } finally {
+        reducer.close();
+        out.close(reporter);
+      }
+      return null;
+    }
+  }
+}
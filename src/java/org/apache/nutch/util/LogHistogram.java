@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative long values with logarithmic buckets: every power
+ * of two is split into 8 linear sub-buckets, so that the relative error of
+ * quantiles is below 12.5%. Histograms are merged by adding the counts of
+ * equal buckets. Negative values are counted as 0.
+ */
+public class LogHistogram {
+
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  /** Number of buckets, bucket 0 holds the value 0. */
+  public static final int NUM_BUCKETS = 1 + 64 * SUB_BUCKETS;
+
+  private final long[] counts = new long[NUM_BUCKETS];
+  private long total = 0;
+
+  /** Get the bucket of a value. */
+  public static int getBucket(long value) {
+    if (value <= 0)
+      return 0;
+    int exp = 63 - Long.numberOfLeadingZeros(value);
+    int sub;
+    if (exp >= SUB_BITS) {
+      sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+    } else {
+      sub = (int) (value << (SUB_BITS - exp)) & (SUB_BUCKETS - 1);
+    }
+    return 1 + exp * SUB_BUCKETS + sub;
+  }
+
+  /** Smallest value contained in a bucket. */
+  public static long getLowerBound(int bucket) {
+    if (bucket == 0)
+      return 0;
+    int exp = (bucket - 1) / SUB_BUCKETS;
+    long sub = (bucket - 1) % SUB_BUCKETS;
+    if (exp >= SUB_BITS)
+      return (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+    // small values: buckets without any integer are empty
+    return ((SUB_BUCKETS + sub) + (1 << (SUB_BITS - exp)) - 1) >> (SUB_BITS - exp);
+  }
+
+  /** Largest value contained in a bucket. */
+  public static long getUpperBound(int bucket) {
+    if (bucket == 0)
+      return 0;
+    if (bucket == NUM_BUCKETS - 1)
+      return Long.MAX_VALUE;
+    return getLowerBound(bucket + 1) - 1;
+  }
+
+  public void add(long value) {
+    counts[getBucket(value)]++;
+    total++;
+  }
+
+  /** Add the count of a bucket, e.g., from another histogram. */
+  public void add(int bucket, long count) {
+    counts[bucket] += count;
+    total += count;
+  }
+
+  public long getCount(int bucket) {
+    return counts[bucket];
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Estimate a quantile.
+   *
+   * @param q
+   *          quantile between 0.0 and 1.0
+   * @return the center of the bucket containing the quantile, 0 if the
+   *         histogram is empty
+   */
+  public long getQuantile(double q) {
+    long rank = (long) Math.ceil(q * total);
+    if (rank < 1)
+      rank = 1;
+    long seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        long lower = getLowerBound(i);
+        return lower + (getUpperBound(i) - lower) / 2;
+      }
+    }
+    return 0;
+  }
+
+  public void clear() {
+    Arrays.fill(counts, 0);
+    total = 0;
+  }
+}
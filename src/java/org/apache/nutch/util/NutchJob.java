@@ -17,7 +17,11 @@
 
 package org.apache.nutch.util;
 
+import java.io.IOException;
+
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 
 /** A {@link JobConf} for Nutch jobs. */
@@ -27,4 +31,18 @@ public class NutchJob extends JobConf {
     super(conf, NutchJob.class);
   }
 
+  /**
+   * Run a job and wait for its completion. If the job tracker is
+   * <code>local</code> and {@link LocalJobEngine#ENABLED} is set the job is run
+   * in-process by the {@link LocalJobEngine}.
+   *
+   * @return the counters of the job
+   */
+  public static Counters runJob(JobConf job) throws IOException {
+    if (LocalJobEngine.isEnabled(job)) {
+      return new LocalJobEngine(job).run();
+    }
+    return JobClient.runJob(job).getCounters();
+  }
+
 }
@@ -18,13 +18,12 @@
 package org.apache.nutch.util;
 
 import java.util.Collection;
-import java.util.Iterator;
 
 /**
  * A class for efficiently matching <code>String</code>s against a set of
  * prefixes.
  */
-public class PrefixStringMatcher extends TrieStringMatcher {
+public class PrefixStringMatcher extends CompactTrieStringMatcher {
 
   /**
    * Creates a new <code>PrefixStringMatcher</code> which will match
@@ -32,9 +31,7 @@ public class PrefixStringMatcher extends TrieStringMatcher {
    * <code>Strings</code> are ignored.
    */
   public PrefixStringMatcher(String[] prefixes) {
-    super();
-    for (int i = 0; i < prefixes.length; i++)
-      addPatternForward(prefixes[i]);
+    super(prefixes, false);
   }
 
   /**
@@ -47,59 +44,7 @@ public class PrefixStringMatcher extends TrieStringMatcher {
    *           <code>String</code>s
    */
   public PrefixStringMatcher(Collection<String> prefixes) {
-    super();
-    Iterator<String> iter = prefixes.iterator();
-    while (iter.hasNext())
-      addPatternForward(iter.next());
-  }
-
-  /**
-   * Returns true if the given <code>String</code> is matched by a prefix in the
-   * trie
-   */
-  public boolean matches(String input) {
-    TrieNode node = root;
-    for (int i = 0; i < input.length(); i++) {
-      node = node.getChild(input.charAt(i));
-      if (node == null)
-        return false;
-      if (node.isTerminal())
-        return true;
-    }
-    return false;
-  }
-
-  /**
-   * Returns the shortest prefix of <code>input<code> that is matched,
-   * or <code>null<code> if no match exists.
-   */
-  public String shortestMatch(String input) {
-    TrieNode node = root;
-    for (int i = 0; i < input.length(); i++) {
-      node = node.getChild(input.charAt(i));
-      if (node == null)
-        return null;
-      if (node.isTerminal())
-        return input.substring(0, i + 1);
-    }
-    return null;
-  }
-
-  /**
-   * Returns the longest prefix of <code>input<code> that is matched,
-   * or <code>null<code> if no match exists.
-   */
-  public String longestMatch(String input) {
-    TrieNode node = root;
-    String result = null;
-    for (int i = 0; i < input.length(); i++) {
-      node = node.getChild(input.charAt(i));
-      if (node == null)
-        break;
-      if (node.isTerminal())
-        result = input.substring(0, i + 1);
-    }
-    return result;
+    super(prefixes, false);
   }
 
   public static final void main(String[] argv) {
@@ -0,0 +1,298 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts literal strings from a {@link java.util.regex.Pattern regular
+ * expression} which are contained in every string matched by the expression,
+ * e.g. <code>example.com/</code> from
+ * <code>^https?://([a-z0-9]*\.)*example\.com/</code>. Checking for these
+ * literals by {@link String#indexOf(String)} is much cheaper than running the
+ * regular expression and allows to skip expressions which cannot match.
+ *
+ * <p>
+ * The analysis is conservative: alternatives, optional parts, character
+ * classes and look-arounds contribute no literals, and expressions with
+ * embedded flags (e.g., <code>(?i)</code>) or syntax errors yield no literals
+ * at all. Expressions compiled with flags (e.g.,
+ * {@link java.util.regex.Pattern#CASE_INSENSITIVE}) must not be analyzed.
+ * </p>
+ */
+public class RegexLiterals {
+
+  private final String regex;
+  private final List<String> literals = new ArrayList<String>();
+  private boolean failed = false;
+
+  private RegexLiterals(String regex) {
+    this.regex = regex;
+    parseSequence(0, regex.length(), literals);
+    if (failed)
+      literals.clear();
+  }
+
+  /**
+   * Returns the literal strings contained in every match of the regular
+   * expression, in the order of the expression, or an empty list.
+   */
+  public static List<String> getRequiredLiterals(String regex) {
+    return Collections.unmodifiableList(new RegexLiterals(regex).literals);
+  }
+
+  /**
+   * Returns the longest literal string contained in every match of the regular
+   * expression, or null if there is none.
+   */
+  public static String getRequiredLiteral(String regex) {
+    String longest = null;
+    for (String literal : new RegexLiterals(regex).literals) {
+      if (longest == null || literal.length() > longest.length())
+        longest = literal;
+    }
+    return longest;
+  }
+
+  /** Adds the required literals of <code>regex[start, end)</code>. */
+  private void parseSequence(int start, int end, List<String> result) {
+    if (hasAlternatives(start, end))
+      return;
+    StringBuilder run = new StringBuilder();
+    int i = start;
+    while (i < end && !failed) {
+      char c = regex.charAt(i);
+      // length of run before the last literal character of the atom, or -1 if
+      // the atom is not a literal
+      int atomStart = -1;
+      if (c == '\\') {
+        if (i + 1 >= end) {
+          failed = true;
+          return;
+        }
+        char next = regex.charAt(i + 1);
+        if (next == 'Q') {
+          int quoteEnd = regex.indexOf("\\E", i + 2);
+          if (quoteEnd < 0 || quoteEnd > end)
+            quoteEnd = end;
+          run.append(regex, i + 2, quoteEnd);
+          atomStart = run.length() - 1;
+          i = Math.min(end, quoteEnd + 2);
+        } else if (Character.isLetterOrDigit(next)) {
+          // character classes, assertions, back references, escape sequences
+          flush(run, result);
+          i = skip(i, end);
+        } else {
+          atomStart = run.length();
+          run.append(next);
+          i += 2;
+        }
+      } else if (c == '[') {
+        flush(run, result);
+        i = skip(i, end);
+      } else if (c == '(') {
+        flush(run, result);
+        i = parseGroup(i, end, result);
+        continue;
+      } else if (c == '.' || c == '^' || c == '$') {
+        flush(run, result);
+        i++;
+      } else if (c == ')' || c == '*' || c == '+' || c == '?' || c == '{') {
+        failed = true;
+        return;
+      } else {
+        atomStart = run.length();
+        if (Character.isLowSurrogate(c) && atomStart > 0
+            && Character.isHighSurrogate(run.charAt(atomStart - 1)))
+          atomStart--;
+        run.append(c);
+        i++;
+      }
+      if (failed)
+        return;
+
+      int quantifierEnd = skipQuantifier(i, end);
+      if (quantifierEnd > i) {
+        if (isOptional(i) && atomStart >= 0)
+          run.setLength(atomStart);
+        flush(run, result);
+        i = quantifierEnd;
+      }
+    }
+    flush(run, result);
+  }
+
+  /** Parse the group at regex[i], returns the offset after the group. */
+  private int parseGroup(int i, int end, List<String> result) {
+    int close = skip(i, end) - 1;
+    if (failed)
+      return end;
+    int contentStart = i + 1;
+    boolean capture = true;
+    if (regex.startsWith("(?", i)) {
+      char type = i + 2 < close ? regex.charAt(i + 2) : ')';
+      if (type == ':' || type == '>') {
+        contentStart = i + 3;
+      } else if (type == '=' || type == '!' || regex.startsWith("(?<=", i)
+          || regex.startsWith("(?<!", i)) {
+        capture = false;
+      } else if (type == '<') {
+        contentStart = regex.indexOf('>', i) + 1;
+        if (contentStart <= 0 || contentStart > close) {
+          failed = true;
+          return end;
+        }
+      } else {
+        // embedded flags change the matching
+        failed = true;
+        return end;
+      }
+    }
+    int groupEnd = close + 1;
+    int quantifierEnd = skipQuantifier(groupEnd, end);
+    if (capture && (quantifierEnd == groupEnd || !isOptional(groupEnd))) {
+      parseSequence(contentStart, close, result);
+    }
+    return quantifierEnd;
+  }
+
+  /** Whether the quantifier at regex[i] allows zero occurrences. */
+  private boolean isOptional(int i) {
+    char c = regex.charAt(i);
+    if (c == '*' || c == '?')
+      return true;
+    if (c == '{') {
+      int j = i + 1;
+      while (j < regex.length() && regex.charAt(j) == '0')
+        j++;
+      char next = regex.charAt(j);
+      return j > i + 1 && (next == ',' || next == '}');
+    }
+    return false;
+  }
+
+  /** Returns the offset after the quantifier at regex[i], or i. */
+  private int skipQuantifier(int i, int end) {
+    if (i >= end)
+      return i;
+    char c = regex.charAt(i);
+    int j;
+    if (c == '*' || c == '+' || c == '?') {
+      j = i + 1;
+    } else if (c == '{') {
+      j = regex.indexOf('}', i);
+      if (j < 0 || j >= end) {
+        failed = true;
+        return end;
+      }
+      j++;
+    } else {
+      return i;
+    }
+    // lazy or possessive
+    if (j < end && (regex.charAt(j) == '?' || regex.charAt(j) == '+'))
+      j++;
+    return j;
+  }
+
+  /**
+   * Returns the offset after the escape sequence, character class, group or
+   * single character at regex[i].
+   */
+  private int skip(int i, int end) {
+    char c = regex.charAt(i);
+    if (c == '\\') {
+      if (i + 1 >= end) {
+        failed = true;
+        return end;
+      }
+      char next = regex.charAt(i + 1);
+      if (next == 'Q') {
+        int quoteEnd = regex.indexOf("\\E", i + 2);
+        return quoteEnd < 0 || quoteEnd + 2 > end ? end : quoteEnd + 2;
+      }
+      if ((next == 'p' || next == 'P' || next == 'x' || next == 'N')
+          && i + 2 < end && regex.charAt(i + 2) == '{') {
+        int close = regex.indexOf('}', i);
+        if (close < 0 || close >= end) {
+          failed = true;
+          return end;
+        }
+        return close + 1;
+      }
+      int j = i + 2;
+      if (next == 'u') {
+        j = i + 6;
+      } else if (next == 'x') {
+        j = i + 4;
+      } else if (next == 'c') {
+        j = i + 3;
+      } else if (Character.isDigit(next)) {
+        // back references and octal escapes
+        while (j < end && Character.isDigit(regex.charAt(j)))
+          j++;
+      }
+      return Math.min(j, end);
+    } else if (c == '[') {
+      int j = i + 1;
+      if (j < end && regex.charAt(j) == '^')
+        j++;
+      if (j < end && regex.charAt(j) == ']')
+        j++;
+      while (j < end && regex.charAt(j) != ']') {
+        char d = regex.charAt(j);
+        // nested classes and escapes, anything else is a member
+        j = d == '[' || d == '\\' ? skip(j, end) : j + 1;
+      }
+      if (j >= end) {
+        failed = true;
+        return end;
+      }
+      return j + 1;
+    } else if (c == '(') {
+      int j = i + 1;
+      while (j < end && regex.charAt(j) != ')') {
+        j = skip(j, end);
+      }
+      if (j >= end) {
+        failed = true;
+        return end;
+      }
+      return j + 1;
+    }
+    return i + 1;
+  }
+
+  /** Whether <code>regex[start, end)</code> has top-level alternatives. */
+  private boolean hasAlternatives(int start, int end) {
+    for (int i = start; i < end && !failed; i = skip(i, end)) {
+      if (regex.charAt(i) == '|')
+        return true;
+    }
+    return false;
+  }
+
+  private static void flush(StringBuilder run, List<String> result) {
+    if (run.length() > 0) {
+      result.add(run.toString());
+      run.setLength(0);
+    }
+  }
+}
@@ -0,0 +1,303 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * URLs with reversed host names, e.g.
+ * <code>http://www.example.com:8080/index.html</code> becomes
+ * <code>com.example.www:http:8080/index.html</code>. Sorted reversed URLs
+ * cluster all pages of a host, including all schemes and ports, and all hosts
+ * of a domain.
+ *
+ * <p>
+ * Only URLs with an authority (<code>scheme://host</code>) are reversed, URLs
+ * with user info or IPv6 addresses and non-hierarchical URLs are kept as they
+ * are. A reversed URL is recognized by the host name followed by a colon and
+ * the scheme: plain URLs have <code>//</code> after the first colon.
+ * Non-hierarchical URLs (e.g., <code>mailto:</code>) may look like reversed
+ * URLs and are not supported as keys of data with reversed URLs.
+ * </p>
+ *
+ * <p>
+ * All methods work on UTF-8 bytes without decoding them, so that
+ * {@link Comparator} sorts plain URLs in the order of their reversed forms
+ * without object allocation.
+ * </p>
+ */
+public class ReversedUrl {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static boolean isSchemeChar(byte b, boolean first) {
+    if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z'))
+      return true;
+    if (first)
+      return false;
+    return (b >= '0' && b <= '9') || b == '+' || b == '-' || b == '.';
+  }
+
+  private static boolean isPathStart(byte b) {
+    return b == '/' || b == '?' || b == '#';
+  }
+
+  /**
+   * Reverse a URL.
+   *
+   * @param url
+   *          UTF-8 bytes of the URL
+   * @param out
+   *          buffer of at least <code>length</code> bytes
+   * @return the length of the reversed URL in <code>out</code>
+   */
+  public static int reverse(byte[] url, int start, int length, byte[] out) {
+    int end = start + length;
+    // scheme followed by "://"
+    int schemeEnd = -1;
+    for (int i = start; i < end; i++) {
+      byte b = url[i];
+      if (b == ':') {
+        if (i > start && i + 2 < end && url[i + 1] == '/' && url[i + 2] == '/')
+          schemeEnd = i;
+        break;
+      }
+      if (!isSchemeChar(b, i == start))
+        break;
+    }
+    if (schemeEnd < 0)
+      return copy(url, start, length, out);
+    int hostStart = schemeEnd + 3;
+    int pathStart = hostStart;
+    int portStart = -1;
+    while (pathStart < end && !isPathStart(url[pathStart])) {
+      byte b = url[pathStart];
+      if (b == '@' || b == '[' || b == ']')
+        return copy(url, start, length, out);
+      if (b == ':') {
+        if (portStart >= 0)
+          return copy(url, start, length, out);
+        portStart = pathStart;
+      } else if (portStart >= 0 && (b < '0' || b > '9')) {
+        return copy(url, start, length, out);
+      }
+      pathStart++;
+    }
+    int hostEnd = portStart >= 0 ? portStart : pathStart;
+    if (hostEnd == hostStart)
+      return copy(url, start, length, out);
+
+    // host labels in reversed order
+    int pos = 0;
+    int labelEnd = hostEnd;
+    for (int i = hostEnd - 1; i >= hostStart - 1; i--) {
+      if (i < hostStart || url[i] == '.') {
+        System.arraycopy(url, i + 1, out, pos, labelEnd - i - 1);
+        pos += labelEnd - i - 1;
+        if (i >= hostStart)
+          out[pos++] = '.';
+        labelEnd = i;
+      }
+    }
+    out[pos++] = ':';
+    System.arraycopy(url, start, out, pos, schemeEnd - start);
+    pos += schemeEnd - start;
+    // port and path
+    System.arraycopy(url, hostEnd, out, pos, end - hostEnd);
+    return pos + end - hostEnd;
+  }
+
+  /**
+   * Restore a reversed URL, a plain URL is copied unchanged.
+   *
+   * @param key
+   *          UTF-8 bytes of the reversed URL
+   * @param out
+   *          buffer of at least <code>length + 2</code> bytes
+   * @return the length of the URL in <code>out</code>
+   */
+  public static int unreverse(byte[] key, int start, int length, byte[] out) {
+    int hostEnd = findReversedHostEnd(key, start, length);
+    if (hostEnd < 0)
+      return copy(key, start, length, out);
+    int end = start + length;
+    int schemeEnd = hostEnd + 1;
+    while (schemeEnd < end && key[schemeEnd] != ':'
+        && !isPathStart(key[schemeEnd]))
+      schemeEnd++;
+    int pos = 0;
+    System.arraycopy(key, hostEnd + 1, out, pos, schemeEnd - hostEnd - 1);
+    pos += schemeEnd - hostEnd - 1;
+    out[pos++] = ':';
+    out[pos++] = '/';
+    out[pos++] = '/';
+    int labelEnd = hostEnd;
+    for (int i = hostEnd - 1; i >= start - 1; i--) {
+      if (i < start || key[i] == '.') {
+        System.arraycopy(key, i + 1, out, pos, labelEnd - i - 1);
+        pos += labelEnd - i - 1;
+        if (i >= start)
+          out[pos++] = '.';
+        labelEnd = i;
+      }
+    }
+    System.arraycopy(key, schemeEnd, out, pos, end - schemeEnd);
+    return pos + end - schemeEnd;
+  }
+
+  /**
+   * @return the position of the colon between reversed host and scheme, -1 if
+   *         the key is not a reversed URL
+   */
+  private static int findReversedHostEnd(byte[] key, int start, int length) {
+    int end = start + length;
+    int colon = start;
+    while (colon < end && key[colon] != ':') {
+      byte b = key[colon];
+      if (isPathStart(b) || b == '@' || b == '[' || b == ']')
+        return -1;
+      colon++;
+    }
+    if (colon == start || colon + 1 >= end || !isSchemeChar(key[colon + 1], true))
+      return -1;
+    int i = colon + 2;
+    while (i < end && isSchemeChar(key[i], false))
+      i++;
+    if (i < end && key[i] == ':') {
+      // port
+      i++;
+      while (i < end && key[i] >= '0' && key[i] <= '9')
+        i++;
+    }
+    if (i < end && !isPathStart(key[i]))
+      return -1;
+    return colon;
+  }
+
+  /**
+   * Length of the reversed host name of a reversed URL, the host name is
+   * followed by a colon.
+   *
+   * @return the length, or -1 if the key is not a reversed URL
+   */
+  public static int getHostLength(byte[] key, int start, int length) {
+    int end = findReversedHostEnd(key, start, length);
+    return end < 0 ? -1 : end - start;
+  }
+
+  /**
+   * Reverse a host name, e.g. <code>www.example.com</code> becomes
+   * <code>com.example.www</code>.
+   */
+  public static String reverseHost(String host) {
+    String[] labels = host.split("\\.", -1);
+    StringBuilder sb = new StringBuilder(host.length());
+    for (int i = labels.length - 1; i >= 0; i--) {
+      sb.append(labels[i]);
+      if (i > 0)
+        sb.append('.');
+    }
+    return sb.toString();
+  }
+
+  private static int copy(byte[] src, int start, int length, byte[] out) {
+    System.arraycopy(src, start, out, 0, length);
+    return length;
+  }
+
+  /** Whether a key is a reversed URL. */
+  public static boolean isReversed(Text key) {
+    return findReversedHostEnd(key.getBytes(), 0, key.getLength()) >= 0;
+  }
+
+  /** Reverse a URL, storing the result in <code>out</code>. */
+  public static void reverse(Text url, Text out) {
+    byte[] buf = new byte[url.getLength()];
+    out.set(buf, 0, reverse(url.getBytes(), 0, url.getLength(), buf));
+  }
+
+  /** Restore a reversed URL, storing the result in <code>out</code>. */
+  public static void unreverse(Text key, Text out) {
+    byte[] buf = new byte[key.getLength() + 2];
+    out.set(buf, 0, unreverse(key.getBytes(), 0, key.getLength(), buf));
+  }
+
+  public static String reverse(String url) {
+    byte[] bytes = url.getBytes(UTF_8);
+    byte[] buf = new byte[bytes.length];
+    return new String(buf, 0, reverse(bytes, 0, bytes.length, buf), UTF_8);
+  }
+
+  public static String unreverse(String key) {
+    byte[] bytes = key.getBytes(UTF_8);
+    byte[] buf = new byte[bytes.length + 2];
+    return new String(buf, 0, unreverse(bytes, 0, bytes.length, buf), UTF_8);
+  }
+
+  /**
+   * Sorts {@link Text} URLs in the order of their reversed forms. Instances
+   * reuse internal buffers and are not thread-safe.
+   */
+  public static class Comparator extends WritableComparator {
+
+    private byte[] buf1 = new byte[256];
+    private byte[] buf2 = new byte[256];
+
+    public Comparator() {
+      super(Text.class);
+    }
+
+    @Override
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+      try {
+        int n1 = WritableUtils.decodeVIntSize(b1[s1]);
+        int n2 = WritableUtils.decodeVIntSize(b2[s2]);
+        return compareUrls(b1, s1 + n1, readVInt(b1, s1), b2, s2 + n2,
+            readVInt(b2, s2));
+      } catch (IOException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public int compare(WritableComparable a, WritableComparable b) {
+      Text t1 = (Text) a;
+      Text t2 = (Text) b;
+      return compareUrls(t1.getBytes(), 0, t1.getLength(), t2.getBytes(), 0,
+          t2.getLength());
+    }
+
+    private int compareUrls(byte[] b1, int s1, int l1, byte[] b2, int s2,
+        int l2) {
+      if (buf1.length < l1)
+        buf1 = new byte[Math.max(l1, 2 * buf1.length)];
+      if (buf2.length < l2)
+        buf2 = new byte[Math.max(l2, 2 * buf2.length)];
+      int r1 = reverse(b1, s1, l1, buf1);
+      int r2 = reverse(b2, s2, l2, buf2);
+      return compareBytes(buf1, 0, r1, buf2, 0, r2);
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.InputFormat;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MultiFileSplit;
+import org.apache.hadoop.mapred.Partitioner;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Input format reading several directories of sorted MapFile parts with the
+ * same partitioning (e.g., the <code>current</code> directories of several
+ * CrawlDbs) merged partition by partition: every split holds the same part of
+ * all input directories and the record reader streams the records of all
+ * parts in key order by a k-way merge ({@link SortedMergeReader}), so that
+ * records with equal keys are adjacent. Records with equal keys are returned
+ * in the order of the input directories.
+ *
+ * <p>
+ * Together with {@link SortedMergeRunner} this merges the inputs map-side,
+ * without sorting and shuffling. Use {@link #getCompatibleParts(JobConf)} to
+ * check whether the inputs are partitioned by the job's partitioner.
+ * </p>
+ */
+public class SortedMergeInputFormat implements
+    InputFormat<Writable, Writable> {
+
+  /**
+   * Names of the parts to read (e.g., <code>part-00003</code>), if not set all
+   * parts are read.
+   */
+  public static final String PARTS = "sorted.merge.parts";
+
+  /**
+   * Convert a stored key into the key passed to the job, e.g., to restore
+   * encoded keys. The key order must not change. The default implementation
+   * does nothing.
+   */
+  protected void restoreKey(Writable key) {
+  }
+
+  /** Name of the part (e.g., <code>part-00000</code>) read by a split. */
+  public static String getPartName(InputSplit split) {
+    return ((MultiFileSplit) split).getPath(0).getParent().getName();
+  }
+
+  private static TreeSet<String> getParts(FileSystem fs, Path dir)
+      throws IOException {
+    TreeSet<String> parts = new TreeSet<String>();
+    if (!fs.exists(dir))
+      return parts;
+    for (FileStatus stat : fs.listStatus(dir,
+        HadoopFSUtil.getPassDirectoriesFilter(fs))) {
+      String name = stat.getPath().getName();
+      if (name.startsWith("part-")
+          && fs.exists(new Path(stat.getPath(), MapFile.DATA_FILE_NAME)))
+        parts.add(name);
+    }
+    return parts;
+  }
+
+  public InputSplit[] getSplits(JobConf job, int numSplits) throws IOException {
+    Path[] inputs = FileInputFormat.getInputPaths(job);
+    TreeSet<String> parts = new TreeSet<String>();
+    for (Path input : inputs) {
+      parts.addAll(getParts(input.getFileSystem(job), input));
+    }
+    String[] selected = job.getStrings(PARTS);
+    if (selected != null) {
+      parts.retainAll(Arrays.asList(selected));
+    }
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    for (String part : parts) {
+      List<Path> files = new ArrayList<Path>();
+      List<Long> lengths = new ArrayList<Long>();
+      for (Path input : inputs) {
+        FileSystem fs = input.getFileSystem(job);
+        Path data = new Path(new Path(input, part), MapFile.DATA_FILE_NAME);
+        if (fs.exists(data)) {
+          files.add(data);
+          lengths.add(fs.getFileStatus(data).getLen());
+        }
+      }
+      long[] lens = new long[lengths.size()];
+      for (int i = 0; i < lens.length; i++) {
+        lens[i] = lengths.get(i);
+      }
+      splits.add(new MultiFileSplit(job, files.toArray(new Path[files.size()]),
+          lens));
+    }
+    return splits.toArray(new InputSplit[splits.size()]);
+  }
+
+  /**
+   * Check whether the inputs can be merged map-side: all input directories
+   * must contain the same parts <code>part-00000</code> to
+   * <code>part-<i>n-1</i></code>, and the first key of every part must be
+   * assigned to this part by the partitioner of the job.
+   *
+   * @return the number of parts, or -1 if the inputs are not compatible
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public int getCompatibleParts(JobConf job) throws IOException {
+    Path[] inputs = FileInputFormat.getInputPaths(job);
+    TreeSet<String> parts = null;
+    for (Path input : inputs) {
+      TreeSet<String> names = getParts(input.getFileSystem(job), input);
+      if (parts == null) {
+        parts = names;
+      } else if (!parts.equals(names)) {
+        return -1;
+      }
+    }
+    if (parts == null || parts.isEmpty())
+      return -1;
+    int numParts = parts.size();
+    for (String part : parts) {
+      try {
+        if (Integer.parseInt(part.substring("part-".length())) >= numParts)
+          return -1;
+      } catch (NumberFormatException e) {
+        return -1;
+      }
+    }
+
+    Partitioner partitioner = (Partitioner) ReflectionUtils.newInstance(
+        job.getPartitionerClass(), job);
+    for (Path input : inputs) {
+      FileSystem fs = input.getFileSystem(job);
+      for (int i = 0; i < numParts; i++) {
+        Path data = new Path(new Path(input, String.format("part-%05d", i)),
+            MapFile.DATA_FILE_NAME);
+        SequenceFile.Reader reader = new SequenceFile.Reader(fs, data, job);
+        try {
+          Writable key = (Writable) ReflectionUtils.newInstance(
+              reader.getKeyClass(), job);
+          Writable value = (Writable) ReflectionUtils.newInstance(
+              reader.getValueClass(), job);
+          if (reader.next(key, value)) {
+            restoreKey(key);
+            if (partitioner.getPartition(key, value, numParts) != i)
+              return -1;
+          }
+        } finally {
+          reader.close();
+        }
+      }
+    }
+    return numParts;
+  }
+
+  public RecordReader<Writable, Writable> getRecordReader(InputSplit split,
+      JobConf job, Reporter reporter) throws IOException {
+    reporter.setStatus(split.toString());
+    return new MergingRecordReader(job, (MultiFileSplit) split);
+  }
+
+  /** Returns all records of a split in key order. */
+  private class MergingRecordReader implements
+      RecordReader<Writable, Writable> {
+
+    private final SequenceFile.Reader[] readers;
+    private final SortedMergeReader merger;
+    private final WritableComparable<?> current;
+    private final long length;
+    private int pos = 0;
+
+    MergingRecordReader(JobConf job, MultiFileSplit split) throws IOException {
+      Path[] paths = split.getPaths();
+      readers = new SequenceFile.Reader[paths.length];
+      try {
+        for (int i = 0; i < paths.length; i++) {
+          readers[i] = new SequenceFile.Reader(paths[i].getFileSystem(job),
+              paths[i], job);
+        }
+      } catch (IOException e) {
+        for (SequenceFile.Reader reader : readers) {
+          if (reader != null)
+            reader.close();
+        }
+        throw e;
+      }
+      merger = new SortedMergeReader(readers, job);
+      current = (WritableComparable<?>) createKey();
+      length = split.getLength();
+    }
+
+    public boolean next(Writable key, Writable value) throws IOException {
+      if (pos >= merger.getGroupSize()) {
+        if (!merger.next(current))
+          return false;
+        restoreKey(current);
+        pos = 0;
+      }
+      if (key instanceof Text) {
+        ((Text) key).set((Text) current);
+      } else {
+        WritableUtils.cloneInto(key, current);
+      }
+      merger.getValue(pos++, value);
+      return true;
+    }
+
+    public Writable createKey() {
+      return (Writable) ReflectionUtils.newInstance(readers[0].getKeyClass(),
+          null);
+    }
+
+    public Writable createValue() {
+      return (Writable) ReflectionUtils.newInstance(
+          readers[0].getValueClass(), null);
+    }
+
+    public long getPos() throws IOException {
+      long pos = 0;
+      for (SequenceFile.Reader reader : readers) {
+        pos += reader.getPosition();
+      }
+      return pos;
+    }
+
+    public float getProgress() throws IOException {
+      if (length == 0)
+        return 0.0f;
+      return Math.min(1.0f, getPos() / (float) length);
+    }
+
+    public void close() throws IOException {
+      merger.close();
+    }
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Streaming k-way merge of several {@link SequenceFile}s which are sorted by
+ * key (e.g., the data files of MapFiles of the same partition), without any
+ * re-sorting.
+ *
+ * <p>
+ * Every call of {@link #next(WritableComparable)} advances to the next
+ * distinct key and groups all sources containing this key. The sources are
+ * ordered by their index in the array passed to the constructor, so if later
+ * sources hold newer data the most recent value is the last one of the group.
+ * Values are only deserialized when requested by
+ * {@link #getValue(int, Writable)}, superseded values are skipped.
+ * </p>
+ *
+ * <p>
+ * Each source must contain any key at most once.
+ * </p>
+ */
+public class SortedMergeReader implements Closeable {
+
+  private static class Source {
+    int index;
+    SequenceFile.Reader reader;
+    WritableComparable<?> key;
+  }
+
+  private final Source[] sources;
+  private final WritableComparator comparator;
+  private final PriorityQueue<Source> queue;
+  private final List<Source> group = new ArrayList<Source>();
+
+  /**
+   * @param readers
+   *          sorted input files, all with the same key class
+   * @param conf
+   *          configuration used to instantiate keys
+   */
+  public SortedMergeReader(SequenceFile.Reader[] readers, Configuration conf)
+      throws IOException {
+    sources = new Source[readers.length];
+    Class<? extends WritableComparable> keyClass = null;
+    for (int i = 0; i < readers.length; i++) {
+      Source source = new Source();
+      source.index = i;
+      source.reader = readers[i];
+      if (keyClass == null) {
+        keyClass = readers[i].getKeyClass().asSubclass(
+            WritableComparable.class);
+      } else if (!keyClass.equals(readers[i].getKeyClass())) {
+        throw new IOException("Incompatible key classes: " + keyClass
+            + " and " + readers[i].getKeyClass());
+      }
+      source.key = ReflectionUtils.newInstance(keyClass, conf);
+      sources[i] = source;
+    }
+    comparator = keyClass == null ? null : WritableComparator.get(keyClass);
+    queue = new PriorityQueue<Source>(Math.max(1, readers.length),
+        new Comparator<Source>() {
+          public int compare(Source s1, Source s2) {
+            int res = comparator.compare(s1.key, s2.key);
+            if (res != 0)
+              return res;
+            return s1.index - s2.index;
+          }
+        });
+    for (Source source : sources) {
+      advance(source);
+    }
+  }
+
+  private void advance(Source source) throws IOException {
+    if (source.reader.next(source.key)) {
+      queue.add(source);
+    }
+  }
+
+  /**
+   * Advance to the next key.
+   *
+   * @param key
+   *          filled with the next key
+   * @return false if all sources are exhausted
+   */
+  public boolean next(WritableComparable<?> key) throws IOException {
+    // sources of the previous group are still positioned at its key
+    for (Source source : group) {
+      advance(source);
+    }
+    group.clear();
+    Source first = queue.poll();
+    if (first == null)
+      return false;
+    group.add(first);
+    while (!queue.isEmpty()
+        && comparator.compare(queue.peek().key, first.key) == 0) {
+      group.add(queue.poll());
+    }
+    if (key instanceof Text) {
+      ((Text) key).set((Text) first.key);
+    } else {
+      WritableUtils.cloneInto(key, first.key);
+    }
+    return true;
+  }
+
+  /** Number of sources containing the current key. */
+  public int getGroupSize() {
+    return group.size();
+  }
+
+  /**
+   * Index of the i-th source containing the current key, in ascending order.
+   */
+  public int getSource(int i) {
+    return group.get(i).index;
+  }
+
+  /** Read the value of the i-th source containing the current key. */
+  public void getValue(int i, Writable value) throws IOException {
+    group.get(i).reader.getCurrentValue(value);
+  }
+
+  /** Read the value of the current key from the last (newest) source. */
+  public void getLastValue(Writable value) throws IOException {
+    getValue(group.size() - 1, value);
+  }
+
+  public void close() throws IOException {
+    IOException ex = null;
+    for (Source source : sources) {
+      try {
+        source.reader.close();
+      } catch (IOException e) {
+        ex = e;
+      }
+    }
+    if (ex != null)
+      throw ex;
+  }
+}
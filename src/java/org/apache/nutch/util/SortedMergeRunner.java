@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapRunnable;
+import org.apache.hadoop.mapred.Mapper;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.OutputFormat;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reducer;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.lib.NullOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Runs the mapper and the reducer of a job map-side on the records of a
+ * {@link SortedMergeInputFormat} split, which are sorted by key. The values of
+ * a key collected by the mapper are passed to the reducer without any sorting
+ * or shuffling, and the reducer output is written to a part with the name of
+ * the input part. The mapper may drop or modify records, but must not change
+ * their keys.
+ *
+ * <p>
+ * Jobs are configured by {@link #setup(JobConf)}.
+ * </p>
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class SortedMergeRunner implements MapRunnable {
+
+  /** Output format writing the parts. */
+  public static final String OUTPUT_FORMAT = "sorted.merge.output.format";
+
+  private JobConf job;
+  private Mapper mapper;
+  private Reducer reducer;
+
+  /**
+   * Configure a job with a {@link SortedMergeInputFormat} to merge map-side:
+   * the configured mapper, reducer and output format are run by this runner.
+   */
+  public static void setup(JobConf job) {
+    job.setClass(OUTPUT_FORMAT, job.getOutputFormat().getClass(),
+        OutputFormat.class);
+    job.setOutputFormat(NullOutputFormat.class);
+    job.setMapRunnerClass(SortedMergeRunner.class);
+    job.setNumReduceTasks(0);
+  }
+
+  public void configure(JobConf job) {
+    this.job = job;
+    mapper = (Mapper) ReflectionUtils.newInstance(job.getMapperClass(), job);
+    reducer = (Reducer) ReflectionUtils.newInstance(job.getReducerClass(), job);
+  }
+
+  /** Values of one key collected by the mapper, value instances are reused. */
+  private class Group implements OutputCollector<Object, Writable> {
+    final WritableComparable key;
+    final WritableComparator comparator;
+    final List<Writable> values = new ArrayList<Writable>();
+    int size = 0;
+
+    Group(WritableComparable key) {
+      this.key = key;
+      this.comparator = WritableComparator.get(key.getClass());
+    }
+
+    public void collect(Object k, Writable value) throws IOException {
+      if (comparator.compare(key, (WritableComparable) k) != 0)
+        throw new IOException("Key changed by mapper: " + key + " -> " + k);
+      if (size == values.size()) {
+        values.add((Writable) ReflectionUtils.newInstance(value.getClass(),
+            job));
+      }
+      ReflectionUtils.copy(job, value, values.get(size++));
+    }
+  }
+
+  public void run(RecordReader input, OutputCollector ignored,
+      Reporter reporter) throws IOException {
+    String name = SortedMergeInputFormat.getPartName(reporter.getInputSplit());
+    OutputFormat format = (OutputFormat) ReflectionUtils.newInstance(
+        job.getClass(OUTPUT_FORMAT, null, OutputFormat.class), job);
+    final RecordWriter writer = format.getRecordWriter(FileSystem.get(job),
+        job, name, reporter);
+    OutputCollector output = new OutputCollector() {
+      public void collect(Object key, Object value) throws IOException {
+        writer.write(key, value);
+      }
+    };
+
+    Writable key = (Writable) input.createKey();
+    Writable value = (Writable) input.createValue();
+    Group group = new Group((WritableComparable) input.createKey());
+    boolean open = false;
+    try {
+      while (input.next(key, value)) {
+        if (open && group.comparator.compare(group.key, key) != 0) {
+          reduce(group, output, reporter);
+          open = false;
+        }
+        if (!open) {
+          ReflectionUtils.copy(job, key, group.key);
+          group.size = 0;
+          open = true;
+        }
+        mapper.map(key, value, group, reporter);
+      }
+      if (open)
+        reduce(group, output, reporter);
+    } finally {
+      mapper.close();
+      reducer.close();
+      writer.close(reporter);
+    }
+  }
+
+  private void reduce(Group group, OutputCollector output, Reporter reporter)
+      throws IOException {
+    if (group.size > 0) {
+      reducer.reduce(group.key, group.values.subList(0, group.size)
+          .iterator(), output, reporter);
+    }
+  }
+}
@@ -0,0 +1,322 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.apache.nutch.util.domain.DomainSuffix;
+
+/**
+ * Immutable components of an absolute URL, kept as offsets into the URL
+ * string. Parsing does not create any objects except this one, and there are
+ * no lookups of {@link java.net.URLStreamHandler}s, so it is a cheap
+ * replacement for {@link URL} where only the host, path or query are needed.
+ *
+ * <p>
+ * The components are the same as those of {@link URL}, and so is the set of
+ * URLs rejected as malformed. Only plain <code>http</code>,
+ * <code>https</code> and <code>ftp</code> URLs are parsed directly, all others
+ * (other protocols, user info, IPv6 addresses, ports other than a plain
+ * number, dot segments in the path, leading or trailing white space, etc.)
+ * are parsed by {@link URL}.
+ * </p>
+ */
+public final class URLParts {
+
+  private static final String[] PROTOCOLS = { "http", "https", "ftp" };
+
+  /** The string the offsets refer to. */
+  private final CharSequence spec;
+  /** The original URL if the components are not offsets into it, or null. */
+  private final CharSequence original;
+  private final String protocol;
+  private final int hostStart;
+  private final int hostEnd;
+  private final int port;
+  private final int pathStart;
+  private final int pathEnd;
+  /** Offset of the query after the '?', -1 if there is none. */
+  private final int queryStart;
+  /** Offset of the reference after the '#', -1 if there is none. */
+  private final int refStart;
+  private final int refEnd;
+
+  /** The lowercased host name, created on first access. */
+  private String host;
+
+  private URLParts(CharSequence spec, CharSequence original, String protocol,
+      int hostStart, int hostEnd, int port, int pathStart, int pathEnd,
+      int queryStart, int refStart, int refEnd) {
+    this.spec = spec;
+    this.original = original;
+    this.protocol = protocol;
+    this.hostStart = hostStart;
+    this.hostEnd = hostEnd;
+    this.port = port;
+    this.pathStart = pathStart;
+    this.pathEnd = pathEnd;
+    this.queryStart = queryStart;
+    this.refStart = refStart;
+    this.refEnd = refEnd;
+  }
+
+  /**
+   * Parse an absolute URL.
+   *
+   * @throws MalformedURLException
+   *           if the URL is rejected by {@link URL#URL(String)}
+   */
+  public static URLParts parse(CharSequence url) throws MalformedURLException {
+    if (url == null)
+      throw new MalformedURLException("null URL");
+    URLParts parts = parseSimple(url);
+    return parts != null ? parts : parseByURL(url);
+  }
+
+  /**
+   * Same as {@link #parse(CharSequence)} but returns null for malformed URLs.
+   */
+  public static URLParts parseOrNull(CharSequence url) {
+    try {
+      return parse(url);
+    } catch (MalformedURLException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Parse URLs of the form
+   * <code>protocol://host[:port][/path][?query][#ref]</code>, or return null
+   * to leave it to {@link URL}.
+   */
+  private static URLParts parseSimple(CharSequence s) {
+    int limit = s.length();
+    if (limit == 0 || s.charAt(0) <= ' ' || s.charAt(limit - 1) <= ' ')
+      return null;
+
+    int colon = 0;
+    while (colon < limit && s.charAt(colon) != ':') {
+      if (s.charAt(colon) == '/')
+        return null;
+      colon++;
+    }
+    String protocol = null;
+    for (String p : PROTOCOLS) {
+      if (regionMatchesIgnoreCase(s, 0, colon, p)) {
+        protocol = p;
+        break;
+      }
+    }
+    if (protocol == null)
+      return null;
+
+    // "//" starts the authority, "////" is parsed as UNC name by URL
+    int start = colon + 1;
+    if (start + 2 > limit || s.charAt(start) != '/'
+        || s.charAt(start + 1) != '/')
+      return null;
+    if (start + 4 <= limit && s.charAt(start + 2) == '/'
+        && s.charAt(start + 3) == '/')
+      return null;
+    start += 2;
+
+    int refStart = -1;
+    int refEnd = -1;
+    for (int i = start; i < limit; i++) {
+      if (s.charAt(i) == '#') {
+        refStart = i + 1;
+        refEnd = limit;
+        limit = i;
+        break;
+      }
+    }
+    int queryStart = -1;
+    for (int i = start; i < limit; i++) {
+      if (s.charAt(i) == '?') {
+        queryStart = i + 1;
+        break;
+      }
+    }
+    int pathEnd = queryStart < 0 ? limit : queryStart - 1;
+
+    // host and port, only plain host names and numeric ports
+    int hostStart = start;
+    int i = start;
+    char c = 0;
+    while (i < pathEnd && (c = s.charAt(i)) != '/' && c != ':') {
+      if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+          || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '_'))
+        return null;
+      i++;
+    }
+    int hostEnd = i;
+    int port = -1;
+    if (i < pathEnd && c == ':') {
+      i++;
+      int digits = 0;
+      int value = 0;
+      while (i < pathEnd && (c = s.charAt(i)) != '/') {
+        if (c < '0' || c > '9' || ++digits > 9)
+          return null;
+        value = 10 * value + (c - '0');
+        i++;
+      }
+      if (digits > 0)
+        port = value;
+    }
+
+    // URL removes dot segments, leave that to URL
+    for (int j = i; j < pathEnd - 1; j++) {
+      if (s.charAt(j) == '/' && s.charAt(j + 1) == '.')
+        return null;
+    }
+
+    return new URLParts(s, null, protocol, hostStart, hostEnd, port, i, pathEnd,
+        queryStart, refStart, refEnd);
+  }
+
+  private static boolean regionMatchesIgnoreCase(CharSequence s, int start,
+      int end, String lower) {
+    if (end - start != lower.length())
+      return false;
+    for (int i = start; i < end; i++) {
+      if (Character.toLowerCase(s.charAt(i)) != lower.charAt(i - start))
+        return false;
+    }
+    return true;
+  }
+
+  /** Parse by {@link URL} and keep the components in a new string. */
+  private static URLParts parseByURL(CharSequence spec)
+      throws MalformedURLException {
+    URL url = new URL(spec.toString());
+    StringBuilder sb = new StringBuilder();
+    sb.append(url.getProtocol()).append(':');
+    if (url.getAuthority() != null)
+      sb.append("//");
+    int hostStart = sb.length();
+    sb.append(url.getHost());
+    int hostEnd = sb.length();
+    if (url.getPort() != -1)
+      sb.append(':').append(url.getPort());
+    int pathStart = sb.length();
+    sb.append(url.getPath());
+    int pathEnd = sb.length();
+    int queryStart = -1;
+    if (url.getQuery() != null) {
+      sb.append('?');
+      queryStart = sb.length();
+      sb.append(url.getQuery());
+    }
+    int refStart = -1;
+    int refEnd = -1;
+    if (url.getRef() != null) {
+      sb.append('#');
+      refStart = sb.length();
+      sb.append(url.getRef());
+      refEnd = sb.length();
+    }
+    return new URLParts(sb.toString(), spec, url.getProtocol(), hostStart,
+        hostEnd, url.getPort(), pathStart, pathEnd, queryStart, refStart,
+        refEnd);
+  }
+
+  /** The lowercased protocol. */
+  public String getProtocol() {
+    return protocol;
+  }
+
+  /** The lowercased host name, empty if the URL has none. */
+  public String getHost() {
+    String h = host;
+    if (h == null) {
+      h = spec.subSequence(hostStart, hostEnd).toString().toLowerCase();
+      host = h;
+    }
+    return h;
+  }
+
+  /** The host name as given in the URL, see {@link URL#getHost()}. */
+  public String getRawHost() {
+    return spec.subSequence(hostStart, hostEnd).toString();
+  }
+
+  /**
+   * The domain name of the host, see {@link URLUtil#getDomainName(URL)}. Only
+   * the domain name string is created.
+   */
+  public String getDomainName() {
+    int end = hostEnd;
+    // it seems that java returns hostnames ending with .
+    if (end > hostStart && spec.charAt(end - 1) == '.')
+      end--;
+    return spec.subSequence(URLUtil.getDomainNameStart(spec, hostStart, end),
+        end).toString();
+  }
+
+  /**
+   * The {@link DomainSuffix} of the host, see
+   * {@link URLUtil#getDomainSuffix(URL)}.
+   */
+  public DomainSuffix getDomainSuffix() {
+    return URLUtil.getDomainSuffix(spec, hostStart, hostEnd);
+  }
+
+  /** The port number, -1 if not set. */
+  public int getPort() {
+    return port;
+  }
+
+  /** The path, empty if the URL has none. */
+  public String getPath() {
+    return spec.subSequence(pathStart, pathEnd).toString();
+  }
+
+  /** The query without the '?', or null if the URL has none. */
+  public String getQuery() {
+    if (queryStart < 0)
+      return null;
+    int end = refStart < 0 ? spec.length() : refStart - 1;
+    return spec.subSequence(queryStart, end).toString();
+  }
+
+  /** The path and the query, see {@link URL#getFile()}. */
+  public String getFile() {
+    int end = queryStart < 0 ? pathEnd : (refStart < 0 ? spec.length()
+        : refStart - 1);
+    return spec.subSequence(pathStart, end).toString();
+  }
+
+  /** The reference (fragment) without the '#', or null if the URL has none. */
+  public String getRef() {
+    return refStart < 0 ? null : spec.subSequence(refStart, refEnd)
+        .toString();
+  }
+
+  /** Whether both URLs have the same (lowercased) host name. */
+  public boolean isSameHost(URLParts other) {
+    return getHost().equals(other.getHost());
+  }
+
+  /** The URL string as passed to {@link #parse(CharSequence)}. */
+  @Override
+  public String toString() {
+    return original != null ? original.toString() : spec.toString();
+  }
+}
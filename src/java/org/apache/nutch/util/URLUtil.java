@@ -92,25 +92,43 @@ public class URLUtil {
    * <code> apache.org</code>
    * */
   public static String getDomainName(URL url) {
-    DomainSuffixes tlds = DomainSuffixes.getInstance();
     String host = url.getHost();
+    int end = host.length();
     // it seems that java returns hostnames ending with .
     if (host.endsWith("."))
-      host = host.substring(0, host.length() - 1);
-    if (IP_PATTERN.matcher(host).matches())
-      return host;
-
-    int index = 0;
-    String candidate = host;
-    for (; index >= 0;) {
-      index = candidate.indexOf('.');
-      String subCandidate = candidate.substring(index + 1);
-      if (tlds.isDomainSuffix(subCandidate)) {
-        return candidate;
+      end--;
+    return host.substring(getDomainNameStart(host, 0, end), end);
+  }
+
+  /**
+   * Returns the start offset of the domain name (see
+   * {@link #getDomainName(URL)}) within the hostname
+   * <code>host[start, end)</code>, which must not end with a dot. The domain
+   * suffixes are looked up in a trie without creating any objects.
+   */
+  public static int getDomainNameStart(CharSequence host, int start, int end) {
+    if (isIPv4(host, start, end))
+      return start;
+    return DomainSuffixes.getInstance().getDomainNameStart(host, start, end);
+  }
+
+  /** Whether <code>host[start, end)</code> matches {@link #IP_PATTERN}. */
+  private static boolean isIPv4(CharSequence host, int start, int end) {
+    int dots = 0;
+    int digits = 0;
+    for (int i = start; i < end; i++) {
+      char c = host.charAt(i);
+      if (c >= '0' && c <= '9') {
+        if (++digits > 3)
+          return false;
+      } else if (c == '.' && digits > 0 && dots < 3) {
+        dots++;
+        digits = 0;
+      } else {
+        return false;
       }
-      candidate = subCandidate;
     }
-    return candidate;
+    return dots == 3 && digits > 0;
   }
 
   /**
@@ -199,23 +217,15 @@ public class URLUtil {
    * the hostname
    */
   public static DomainSuffix getDomainSuffix(URL url) {
-    DomainSuffixes tlds = DomainSuffixes.getInstance();
     String host = url.getHost();
-    if (IP_PATTERN.matcher(host).matches())
-      return null;
+    return getDomainSuffix(host, 0, host.length());
+  }
 
-    int index = 0;
-    String candidate = host;
-    for (; index >= 0;) {
-      index = candidate.indexOf('.');
-      String subCandidate = candidate.substring(index + 1);
-      DomainSuffix d = tlds.get(subCandidate);
-      if (d != null) {
-        return d;
-      }
-      candidate = subCandidate;
-    }
-    return null;
+  /** The {@link DomainSuffix} of the hostname <code>host[start, end)</code>. */
+  static DomainSuffix getDomainSuffix(CharSequence host, int start, int end) {
+    if (isIPv4(host, start, end))
+      return null;
+    return DomainSuffixes.getInstance().getDomainSuffix(host, start, end);
   }
 
   /**
@@ -426,7 +436,7 @@ public class URLUtil {
    */
   public static String getHost(String url) {
     try {
-      return new URL(url).getHost().toLowerCase();
+      return URLParts.parse(url).getHost();
     } catch (MalformedURLException e) {
       return null;
     }
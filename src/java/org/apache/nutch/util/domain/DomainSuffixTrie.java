@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util.domain;
+
+import java.util.Arrays;
+
+/**
+ * Trie of {@link DomainSuffix}es by the labels of the suffix from right to
+ * left, e.g., <code>uk</code> &rarr; <code>co</code> for <code>co.uk</code>.
+ * The children of all nodes are kept in a single open addressing hash table
+ * keyed by the parent node and the label, so that host names are looked up
+ * label by label on any {@link CharSequence} without creating substrings or
+ * other objects.
+ *
+ * <p>
+ * Labels are compared case-sensitive. The trie is not thread-safe while
+ * suffixes are added, lookups may be done concurrently.
+ * </p>
+ */
+public class DomainSuffixTrie {
+
+  private static final int ROOT = 0;
+
+  private int numNodes = 1;
+  private int[] parents = new int[16];
+  private String[] labels = new String[16];
+  private DomainSuffix[] suffixes = new DomainSuffix[16];
+
+  /** Child nodes (id + 1) by the hash of parent and label, 0 if empty. */
+  private int[] table = new int[32];
+
+  public DomainSuffixTrie() {
+  }
+
+  public DomainSuffixTrie(Iterable<DomainSuffix> suffixes) {
+    for (DomainSuffix suffix : suffixes) {
+      add(suffix);
+    }
+  }
+
+  public void add(DomainSuffix suffix) {
+    String domain = suffix.getDomain();
+    int node = ROOT;
+    int end = domain.length();
+    while (true) {
+      int start = getLabelStart(domain, 0, end);
+      int child = getChild(node, domain, start, end);
+      if (child < 0) {
+        child = addChild(node, domain.substring(start, end));
+      }
+      node = child;
+      if (start == 0)
+        break;
+      end = start - 1;
+    }
+    suffixes[node] = suffix;
+  }
+
+  /**
+   * Returns the longest domain suffix of the host name
+   * <code>host[start, end)</code> which begins after a dot. The whole host
+   * name is only matched if it consists of a single label.
+   *
+   * @return the domain suffix or null if no suffix matches
+   */
+  public DomainSuffix getDomainSuffix(CharSequence host, int start, int end) {
+    int node = find(host, start, end);
+    return node < 0 ? null : suffixes[node];
+  }
+
+  /**
+   * Returns the start offset of the domain name of the host name
+   * <code>host[start, end)</code>: the longest domain suffix (see
+   * {@link #getDomainSuffix(CharSequence, int, int)}) together with the label
+   * before it. If no suffix matches, the domain name is the last label.
+   */
+  public int getDomainNameStart(CharSequence host, int start, int end) {
+    int node = find(host, start, end);
+    if (node < 0)
+      return getLabelStart(host, start, end);
+    int suffixStart = end - suffixes[node].getDomain().length();
+    if (suffixStart == start)
+      return start;
+    return getLabelStart(host, start, suffixStart - 1);
+  }
+
+  /** Returns the node of the longest matching suffix or -1. */
+  private int find(CharSequence host, int start, int end) {
+    int node = ROOT;
+    int best = -1;
+    int labelEnd = end;
+    while (true) {
+      int labelStart = getLabelStart(host, start, labelEnd);
+      if (labelStart == start && labelEnd != end)
+        break; // first label of a host with several labels
+      node = getChild(node, host, labelStart, labelEnd);
+      if (node < 0)
+        break;
+      if (suffixes[node] != null)
+        best = node;
+      if (labelStart == start)
+        break;
+      labelEnd = labelStart - 1;
+    }
+    return best;
+  }
+
+  /** Offset after the last dot in <code>s[start, end)</code>, or start. */
+  private static int getLabelStart(CharSequence s, int start, int end) {
+    for (int i = end - 1; i >= start; i--) {
+      if (s.charAt(i) == '.')
+        return i + 1;
+    }
+    return start;
+  }
+
+  private static int hash(int parent, CharSequence s, int start, int end) {
+    int h = parent * 0x9E3779B9;
+    for (int i = start; i < end; i++) {
+      h = 31 * h + s.charAt(i);
+    }
+    return h ^ (h >>> 16);
+  }
+
+  private static boolean equals(String label, CharSequence s, int start,
+      int end) {
+    if (label.length() != end - start)
+      return false;
+    for (int i = start; i < end; i++) {
+      if (label.charAt(i - start) != s.charAt(i))
+        return false;
+    }
+    return true;
+  }
+
+  private int getChild(int parent, CharSequence s, int start, int end) {
+    int mask = table.length - 1;
+    int slot = hash(parent, s, start, end) & mask;
+    int id;
+    while ((id = table[slot]) != 0) {
+      id--;
+      if (parents[id] == parent && equals(labels[id], s, start, end))
+        return id;
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private int addChild(int parent, String label) {
+    if (numNodes == parents.length) {
+      parents = Arrays.copyOf(parents, 2 * numNodes);
+      labels = Arrays.copyOf(labels, 2 * numNodes);
+      suffixes = Arrays.copyOf(suffixes, 2 * numNodes);
+    }
+    int id = numNodes++;
+    parents[id] = parent;
+    labels[id] = label;
+    if (2 * numNodes > table.length) {
+      // keep the load factor below 0.5
+      table = new int[2 * table.length];
+      for (int i = 1; i < id; i++) {
+        insert(i);
+      }
+    }
+    insert(id);
+    return id;
+  }
+
+  private void insert(int id) {
+    int mask = table.length - 1;
+    int slot = hash(parents[id], labels[id], 0, labels[id].length()) & mask;
+    while (table[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = id + 1;
+  }
+}
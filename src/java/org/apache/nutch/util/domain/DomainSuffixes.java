@@ -36,6 +36,8 @@ public class DomainSuffixes {
 
   private HashMap<String, DomainSuffix> domains = new HashMap<String, DomainSuffix>();
 
+  private DomainSuffixTrie trie = new DomainSuffixTrie();
+
   private static DomainSuffixes instance;
 
   /** private ctor */
@@ -64,6 +66,7 @@ public class DomainSuffixes {
 
   void addDomainSuffix(DomainSuffix tld) {
     domains.put(tld.getDomain(), tld);
+    trie.add(tld);
   }
 
   /** return whether the extension is a registered domain entry */
@@ -83,4 +86,22 @@ public class DomainSuffixes {
     return domains.get(extension);
   }
 
+  /**
+   * Return the longest {@link DomainSuffix} of the host name
+   * <code>host[start, end)</code>, see
+   * {@link DomainSuffixTrie#getDomainSuffix(CharSequence, int, int)}
+   */
+  public DomainSuffix getDomainSuffix(CharSequence host, int start, int end) {
+    return trie.getDomainSuffix(host, start, end);
+  }
+
+  /**
+   * Return the start offset of the domain name of the host name
+   * <code>host[start, end)</code>, see
+   * {@link DomainSuffixTrie#getDomainNameStart(CharSequence, int, int)}
+   */
+  public int getDomainNameStart(CharSequence host, int start, int end) {
+    return trie.getDomainNameStart(host, start, end);
+  }
+
 }
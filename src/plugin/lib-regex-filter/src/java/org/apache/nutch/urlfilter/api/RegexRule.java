@@ -61,4 +61,14 @@ public abstract class RegexRule {
    */
   protected abstract boolean match(String url);
 
+  /**
+   * Returns a string contained in every url matching this rule, or
+   * <code>null</code>. The rule is skipped without calling
+   * {@link #match(String)} if a url does not contain the string. The default
+   * implementation returns <code>null</code>.
+   */
+  protected String getRequiredLiteral() {
+    return null;
+  }
+
 }
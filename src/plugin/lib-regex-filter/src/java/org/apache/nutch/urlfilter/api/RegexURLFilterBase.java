@@ -56,6 +56,11 @@ import org.apache.nutch.net.*;
  * <code>-</code>)means no.
  * </p>
  * 
+ * <p>
+ * Rules which provide a {@link RegexRule#getRequiredLiteral() required
+ * literal} are only matched against URLs containing the literal.
+ * </p>
+ * 
  * @author J&eacute;r&ocirc;me Charron
  */
 public abstract class RegexURLFilterBase implements URLFilter {
@@ -143,6 +148,10 @@ public abstract class RegexURLFilterBase implements URLFilter {
   // Inherited Javadoc
   public String filter(String url) {
     for (RegexRule rule : rules) {
+      String literal = rule.getRequiredLiteral();
+      if (literal != null && url.indexOf(literal) < 0) {
+        continue; // cannot match
+      }
       if (rule.match(url)) {
         return rule.accept() ? url : null;
       }
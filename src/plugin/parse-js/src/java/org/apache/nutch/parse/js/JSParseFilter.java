@@ -42,9 +42,9 @@ import org.apache.nutch.parse.Parser;
 import org.apache.nutch.protocol.Content;
 import org.apache.nutch.util.NutchConfiguration;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.oro.text.regex.MalformedPatternException;
 import org.apache.oro.text.regex.MatchResult;
 import org.apache.oro.text.regex.Pattern;
-import org.apache.oro.text.regex.PatternCompiler;
 import org.apache.oro.text.regex.PatternMatcher;
 import org.apache.oro.text.regex.PatternMatcherInput;
 import org.apache.oro.text.regex.Perl5Compiler;
@@ -187,6 +187,20 @@ public class JSParseFilter implements HtmlParseFilter, Parser {
   // private static final String URI_PATTERN =
   // "(^|\\s*?)[A-Za-z0-9/](([A-Za-z0-9$_.+!*,;/?:@&~=-])|%[A-Fa-f0-9]{2})+[/.](([A-Za-z0-9$_.+!*,;/?:@&~=-])|%[A-Fa-f0-9]{2})+(#([a-zA-Z0-9][a-zA-Z0-9$_.+!*,;/?:@&~=%-]*))?($|\\s*)";
 
+  // read-only patterns are compiled once and shared by all threads
+  private static final Pattern STRING_REGEX = compile(STRING_PATTERN);
+  private static final Pattern URI_REGEX = compile(URI_PATTERN);
+
+  private static Pattern compile(String regex) {
+    try {
+      return new Perl5Compiler().compile(regex,
+          Perl5Compiler.CASE_INSENSITIVE_MASK | Perl5Compiler.READ_ONLY_MASK
+              | Perl5Compiler.MULTILINE_MASK);
+    } catch (MalformedPatternException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   /**
    * This method extracts URLs from literals embedded in JavaScript.
    */
@@ -204,13 +218,8 @@ public class JSParseFilter implements HtmlParseFilter, Parser {
     }
 
     try {
-      final PatternCompiler cp = new Perl5Compiler();
-      final Pattern pattern = cp.compile(STRING_PATTERN,
-          Perl5Compiler.CASE_INSENSITIVE_MASK | Perl5Compiler.READ_ONLY_MASK
-              | Perl5Compiler.MULTILINE_MASK);
-      final Pattern pattern1 = cp.compile(URI_PATTERN,
-          Perl5Compiler.CASE_INSENSITIVE_MASK | Perl5Compiler.READ_ONLY_MASK
-              | Perl5Compiler.MULTILINE_MASK);
+      final Pattern pattern = STRING_REGEX;
+      final Pattern pattern1 = URI_REGEX;
       final PatternMatcher matcher = new Perl5Matcher();
 
       final PatternMatcher matcher1 = new Perl5Matcher();
@@ -22,7 +22,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -53,6 +52,9 @@ public class CollectionManager extends Configured {
 
   transient URL configfile;
 
+  /** Index of all subcollections, built on demand and dropped on changes. */
+  private transient volatile SubcollectionMatcher matcher;
+
   public CollectionManager(Configuration conf) {
     super(conf);
     init();
@@ -99,7 +101,7 @@ public class CollectionManager extends Configured {
         Element scElem = (Element) nodeList.item(i);
         Subcollection subCol = new Subcollection(getConf());
         subCol.initialize(scElem);
-        collectionMap.put(subCol.name, subCol);
+        add(subCol.name, subCol);
       }
     } else if (LOG.isInfoEnabled()) {
       LOG.info("Cannot find collections");
@@ -144,6 +146,8 @@ public class CollectionManager extends Configured {
     final Subcollection subCol = getSubColection(id);
     if (subCol != null) {
       collectionMap.remove(id);
+      subCol.manager = null;
+      invalidate();
     }
   }
 
@@ -159,29 +163,49 @@ public class CollectionManager extends Configured {
 
     if (!collectionMap.containsKey(id)) {
       subCol = new Subcollection(id, name, getConf());
-      collectionMap.put(id, subCol);
+      add(id, subCol);
     }
 
     return subCol;
   }
 
+  private void add(String id, Subcollection subCol) {
+    Subcollection old = collectionMap.put(id, subCol);
+    if (old != null)
+      old.manager = null;
+    subCol.manager = this;
+    invalidate();
+  }
+
+  /** Called if a subcollection or its whitelist or blacklist changed. */
+  void invalidate() {
+    matcher = null;
+  }
+
+  private SubcollectionMatcher getMatcher() {
+    SubcollectionMatcher m = matcher;
+    if (m == null) {
+      synchronized (this) {
+        m = matcher;
+        if (m == null) {
+          m = new SubcollectionMatcher(collectionMap.values());
+          matcher = m;
+        }
+      }
+    }
+    return m;
+  }
+
   /**
-   * Return names of collections url is part of
+   * Return names of collections url is part of. All collections are matched
+   * in one pass over the url, see {@link SubcollectionMatcher}.
    * 
    * @param url
    *          The url to test against Collections
    * @return Subcollections
    */
   public List<Subcollection> getSubCollections(final String url) {
-    List<Subcollection> collections = new ArrayList<Subcollection>();
-    final Iterator iterator = collectionMap.values().iterator();
-
-    while (iterator.hasNext()) {
-      final Subcollection subCol = (Subcollection) iterator.next();
-      if (subCol.filter(url) != null) {
-        collections.add(subCol);
-      }
-    }
+    List<Subcollection> collections = getMatcher().getSubCollections(url);
     if (LOG.isTraceEnabled()) {
       LOG.trace("subcollections:" + Arrays.toString(collections.toArray()));
     }
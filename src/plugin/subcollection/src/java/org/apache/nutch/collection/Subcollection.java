@@ -17,6 +17,7 @@
 package org.apache.nutch.collection;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.StringTokenizer;
@@ -70,6 +71,9 @@ public class Subcollection extends Configured implements URLFilter {
    */
   String blString;
 
+  /** Manager holding this subcollection, notified of changes. */
+  CollectionManager manager;
+
   /**
    * public Constructor
    * 
@@ -123,12 +127,12 @@ public class Subcollection extends Configured implements URLFilter {
   }
 
   /**
-   * Returns whitelist
+   * Returns whitelist, change it through {@link #setWhiteList(String)}
    * 
-   * @return Whitelist entries
+   * @return Whitelist entries, unmodifiable
    */
   public List<String> getWhiteList() {
-    return whiteList;
+    return Collections.unmodifiableList(whiteList);
   }
 
   /**
@@ -154,7 +158,13 @@ public class Subcollection extends Configured implements URLFilter {
    *          The whiteList to set.
    */
   public void setWhiteList(ArrayList<String> whiteList) {
-    this.whiteList = whiteList;
+    this.whiteList = new ArrayList<String>(whiteList);
+    changed();
+  }
+
+  private void changed() {
+    if (manager != null)
+      manager.invalidate();
   }
 
   /**
@@ -215,6 +225,7 @@ public class Subcollection extends Configured implements URLFilter {
     if (nodeList.getLength() == 1) {
       this.key = DOMUtil.getChildText(nodeList.item(0)).trim();
     }
+    changed();
   }
 
   /**
@@ -244,6 +255,7 @@ public class Subcollection extends Configured implements URLFilter {
   public void setBlackList(String list) {
     this.blString = list;
     parseList(blackList, list);
+    changed();
   }
 
   /**
@@ -255,5 +267,6 @@ public class Subcollection extends Configured implements URLFilter {
   public void setWhiteList(String list) {
     this.wlString = list;
     parseList(whiteList, list);
+    changed();
   }
 }
@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds all subcollections a URL belongs to in one pass over the URL. The
+ * whitelist and blacklist entries of all subcollections are compiled into an
+ * Aho-Corasick automaton kept in arrays, so the cost of a lookup depends on
+ * the length of the URL and the number of matching entries, not on the number
+ * of subcollections. A URL belongs to the same subcollections as those whose
+ * {@link Subcollection#filter(String)} accepts it. Immutable and thread-safe.
+ */
+class SubcollectionMatcher {
+
+  private static final int ROOT = 0;
+
+  private final Subcollection[] collections;
+
+  /** Transitions of node n in [first[n], first[n + 1]), sorted by label. */
+  private final int[] first;
+  private final char[] labels;
+  private final int[] targets;
+
+  /** Failure links. */
+  private final int[] fail;
+
+  /** Next node other than the root on the failure chain with entries, or -1. */
+  private final int[] dict;
+
+  /**
+   * Entries of the patterns ending in node n in
+   * [entryFirst[n], entryFirst[n + 1]): the index of the subcollection times
+   * two, plus one for blacklist entries.
+   */
+  private final int[] entryFirst;
+  private final int[] entries;
+
+  SubcollectionMatcher(Collection<Subcollection> subcollections) {
+    collections = subcollections.toArray(new Subcollection[subcollections
+        .size()]);
+
+    // build the trie
+    List<TreeMap<Character, Integer>> children = new ArrayList<TreeMap<Character, Integer>>();
+    List<List<Integer>> nodeEntries = new ArrayList<List<Integer>>();
+    children.add(new TreeMap<Character, Integer>());
+    nodeEntries.add(new ArrayList<Integer>());
+    for (int i = 0; i < collections.length; i++) {
+      for (String pattern : collections[i].whiteList) {
+        add(children, nodeEntries, pattern, 2 * i);
+      }
+      for (String pattern : collections[i].blackList) {
+        add(children, nodeEntries, pattern, 2 * i + 1);
+      }
+    }
+
+    int numNodes = children.size();
+    first = new int[numNodes + 1];
+    labels = new char[numNodes - 1];
+    targets = new int[numNodes - 1];
+    entryFirst = new int[numNodes + 1];
+    int numEntries = 0;
+    for (int n = 0; n < numNodes; n++) {
+      first[n + 1] = first[n] + children.get(n).size();
+      int t = first[n];
+      for (Map.Entry<Character, Integer> child : children.get(n)
+          .entrySet()) {
+        labels[t] = child.getKey();
+        targets[t++] = child.getValue();
+      }
+      numEntries += nodeEntries.get(n).size();
+      entryFirst[n + 1] = numEntries;
+    }
+    entries = new int[numEntries];
+    for (int n = 0, e = 0; n < numNodes; n++) {
+      for (int entry : nodeEntries.get(n)) {
+        entries[e++] = entry;
+      }
+    }
+
+    // failure and dictionary links in breadth-first order
+    fail = new int[numNodes];
+    dict = new int[numNodes];
+    dict[ROOT] = -1;
+    int[] queue = new int[numNodes];
+    int head = 0, tail = 0;
+    queue[tail++] = ROOT;
+    while (head < tail) {
+      int node = queue[head++];
+      for (int t = first[node]; t < first[node + 1]; t++) {
+        int child = targets[t];
+        int f = ROOT;
+        if (node != ROOT) {
+          f = fail[node];
+          int next;
+          while ((next = getChild(f, labels[t])) < 0 && f != ROOT) {
+            f = fail[f];
+          }
+          f = next < 0 ? ROOT : next;
+        }
+        fail[child] = f;
+        dict[child] = f != ROOT && hasEntries(f) ? f : dict[f];
+        queue[tail++] = child;
+      }
+    }
+  }
+
+  private static void add(List<TreeMap<Character, Integer>> children,
+      List<List<Integer>> nodeEntries, String pattern, int entry) {
+    int node = ROOT;
+    for (int i = 0; i < pattern.length(); i++) {
+      Integer child = children.get(node).get(pattern.charAt(i));
+      if (child == null) {
+        child = children.size();
+        children.get(node).put(pattern.charAt(i), child);
+        children.add(new TreeMap<Character, Integer>());
+        nodeEntries.add(new ArrayList<Integer>());
+      }
+      node = child;
+    }
+    nodeEntries.get(node).add(entry);
+  }
+
+  private int getChild(int node, char c) {
+    int low = first[node];
+    int high = first[node + 1] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (labels[mid] < c) {
+        low = mid + 1;
+      } else if (labels[mid] > c) {
+        high = mid - 1;
+      } else {
+        return targets[mid];
+      }
+    }
+    return -1;
+  }
+
+  private boolean hasEntries(int node) {
+    return entryFirst[node + 1] > entryFirst[node];
+  }
+
+  /**
+   * Returns the subcollections the URL belongs to, in the order they were
+   * passed to the constructor.
+   */
+  List<Subcollection> getSubCollections(CharSequence url) {
+    int[] hits = new int[8];
+    int numHits = 0;
+    // empty patterns match every URL
+    for (int e = entryFirst[ROOT]; e < entryFirst[ROOT + 1]; e++) {
+      hits = add(hits, numHits++, entries[e]);
+    }
+    int node = ROOT;
+    for (int i = 0; i < url.length(); i++) {
+      char c = url.charAt(i);
+      int next;
+      while ((next = getChild(node, c)) < 0 && node != ROOT) {
+        node = fail[node];
+      }
+      node = next < 0 ? ROOT : next;
+      for (int n = hasEntries(node) ? node : dict[node]; n > ROOT; n = dict[n]) {
+        for (int e = entryFirst[n]; e < entryFirst[n + 1]; e++) {
+          if (numHits == 0 || hits[numHits - 1] != entries[e])
+            hits = add(hits, numHits++, entries[e]);
+        }
+      }
+    }
+
+    // sorted, the whitelist entries of a subcollection precede the blacklist
+    Arrays.sort(hits, 0, numHits);
+    List<Subcollection> result = new ArrayList<Subcollection>();
+    for (int h = 0; h < numHits;) {
+      int collection = hits[h] >> 1;
+      boolean white = false, black = false;
+      for (; h < numHits && hits[h] >> 1 == collection; h++) {
+        if ((hits[h] & 1) == 0) {
+          white = true;
+        } else {
+          black = true;
+        }
+      }
+      if (white && !black)
+        result.add(collections[collection]);
+    }
+    return result;
+  }
+
+  private static int[] add(int[] array, int size, int value) {
+    if (size == array.length)
+      array = Arrays.copyOf(array, 2 * size);
+    array[size] = value;
+    return array;
+  }
+}
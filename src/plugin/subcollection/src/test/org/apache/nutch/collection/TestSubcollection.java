@@ -18,8 +18,12 @@ package org.apache.nutch.collection;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Random;
 
+import org.apache.nutch.util.DomUtil;
 import org.apache.nutch.util.NutchConfiguration;
 import org.junit.Assert;
 import org.junit.Test;
@@ -109,4 +113,87 @@ public class TestSubcollection {
     // no match
     Assert.assertEquals(null, collection.filter("http://www.google.com/"));
   }
+
+  /**
+   * The subcollections found by the manager must be the same as those
+   * accepting the url by {@link Subcollection#filter(String)}.
+   */
+  @Test
+  public void testGetSubCollections() {
+    String[] parts = { "http://", "www.", "a", "b", "ab", "ba", ".org", "/",
+        "x", "" };
+    Random random = new Random(42);
+    CollectionManager cm = new CollectionManager();
+    for (int i = 0; i < 200; i++) {
+      Subcollection sc = cm.createSubCollection("c" + i, "c" + i);
+      sc.setWhiteList(randomList(random, parts));
+      if (random.nextBoolean())
+        sc.setBlackList(randomList(random, parts));
+    }
+    for (int i = 0; i < 2000; i++) {
+      String url = randomString(random, parts, 8);
+      List<Subcollection> expected = new ArrayList<Subcollection>();
+      for (Object sc : cm.getAll()) {
+        if (((Subcollection) sc).filter(url) != null)
+          expected.add((Subcollection) sc);
+      }
+      Assert.assertEquals(url, expected, cm.getSubCollections(url));
+    }
+
+    // changes are seen by the next lookup
+    cm = new CollectionManager();
+    Subcollection sc = cm.createSubCollection("c0", "c0");
+    Assert.assertEquals(0, cm.getSubCollections("http://zzz/").size());
+    sc.setWhiteList("zzz");
+    sc.setBlackList("");
+    Assert.assertEquals(1, cm.getSubCollections("http://zzz/").size());
+    sc.setBlackList("http");
+    Assert.assertEquals(0, cm.getSubCollections("http://zzz/").size());
+    cm.createSubCollection("new", "new").setWhiteList("zzz");
+    Assert.assertEquals("new", cm.getSubCollections("http://zzz/").get(0)
+        .getName());
+  }
+
+  /** Reinitializing or changing a subcollection is seen by the manager. */
+  @Test
+  public void testChanges() {
+    CollectionManager cm = new CollectionManager();
+    Subcollection sc = cm.createSubCollection("c0", "c0");
+    sc.setWhiteList("zzz");
+    Assert.assertEquals(1, cm.getSubCollections("http://zzz/").size());
+
+    String xml = "<subcollection><name>c0</name><id>c0</id>"
+        + "<whitelist>yyy</whitelist></subcollection>";
+    sc.initialize(DomUtil.getDom(new ByteArrayInputStream(xml.getBytes())));
+    Assert.assertEquals(0, cm.getSubCollections("http://zzz/").size());
+    Assert.assertEquals(1, cm.getSubCollections("http://yyy/").size());
+
+    ArrayList<String> whiteList = new ArrayList<String>();
+    whiteList.add("xxx");
+    sc.setWhiteList(whiteList);
+    whiteList.add("yyy");
+    Assert.assertEquals(0, cm.getSubCollections("http://yyy/").size());
+    try {
+      sc.getWhiteList().add("yyy");
+      Assert.fail("whitelist must not be modifiable");
+    } catch (UnsupportedOperationException e) {
+    }
+    Assert.assertEquals(1, cm.getSubCollections("http://xxx/").size());
+  }
+
+  private static String randomList(Random random, String[] parts) {
+    StringBuilder list = new StringBuilder();
+    for (int i = random.nextInt(3); i >= 0; i--) {
+      list.append(randomString(random, parts, 3)).append('\n');
+    }
+    return list.toString();
+  }
+
+  private static String randomString(Random random, String[] parts, int max) {
+    StringBuilder s = new StringBuilder();
+    for (int i = 1 + random.nextInt(max); i > 0; i--) {
+      s.append(parts[random.nextInt(parts.length)]);
+    }
+    return s.toString();
+  }
 }
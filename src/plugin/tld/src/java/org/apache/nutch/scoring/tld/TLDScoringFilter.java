@@ -30,7 +30,7 @@ import org.apache.nutch.indexer.NutchField;
 import org.apache.nutch.parse.Parse;
 import org.apache.nutch.parse.ParseData;
 import org.apache.nutch.protocol.Content;
-import org.apache.nutch.scoring.ScoringFilter;
+import org.apache.nutch.scoring.InlinkIndependentScoringFilter;
 import org.apache.nutch.scoring.ScoringFilterException;
 import org.apache.nutch.util.domain.DomainSuffix;
 import org.apache.nutch.util.domain.DomainSuffixes;
@@ -40,7 +40,7 @@ import org.apache.nutch.util.domain.DomainSuffixes;
  * 
  * @author Enis Soztutar &lt;enis.soz.nutch@gmail.com&gt;
  */
-public class TLDScoringFilter implements ScoringFilter {
+public class TLDScoringFilter implements InlinkIndependentScoringFilter {
 
   private Configuration conf;
   private DomainSuffixes tldEntries;
@@ -28,10 +28,11 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.nutch.net.ParsedURL;
+import org.apache.nutch.net.ParsedURLFilter;
 import org.apache.nutch.net.URLFilter;
 import org.apache.nutch.plugin.Extension;
 import org.apache.nutch.plugin.PluginRepository;
-import org.apache.nutch.util.URLUtil;
 import org.apache.nutch.util.domain.DomainSuffix;
 
 /**
@@ -73,7 +74,7 @@ import org.apache.nutch.util.domain.DomainSuffix;
  * 
  * the attribute "file" has higher precedence if defined.
  */
-public class DomainURLFilter implements URLFilter {
+public class DomainURLFilter implements ParsedURLFilter {
 
   private static final Logger LOG = LoggerFactory
       .getLogger(DomainURLFilter.class);
@@ -180,32 +181,35 @@ public class DomainURLFilter implements URLFilter {
   }
 
   public String filter(String url) {
+    return filter(new ParsedURL(url));
+  }
 
-    try {
+  public String filter(ParsedURL url) {
+    if (url.getParts() == null) {
+      LOG.error("Could not apply filter on malformed url: " + url);
+      return null;
+    }
 
-      // match for suffix, domain, and host in that order. more general will
-      // override more specific
-      String domain = URLUtil.getDomainName(url).toLowerCase().trim();
-      String host = URLUtil.getHost(url);
-      String suffix = null;
-      DomainSuffix domainSuffix = URLUtil.getDomainSuffix(url);
-      if (domainSuffix != null) {
-        suffix = domainSuffix.getDomain();
-      }
+    // match for suffix, domain, and host in that order. more general will
+    // override more specific
+    String domain = url.getDomainName().trim();
+    String host = url.getHost();
+    String suffix = null;
+    DomainSuffix domainSuffix = url.getDomainSuffix();
+    if (domainSuffix != null) {
+      suffix = domainSuffix.getDomain();
+    }
 
-      if (domainSet.contains(suffix) || domainSet.contains(domain)
-          || domainSet.contains(host)) {
-        return url;
-      }
+    if (domainSet.contains(suffix) || domainSet.contains(domain)
+        || domainSet.contains(host)) {
+      return url.toString();
+    }
 
-      // doesn't match, don't allow
-      return null;
-    } catch (Exception e) {
+    // doesn't match, don't allow
+    return null;
+  }
 
-      // if an error happens, allow the url to pass
-      LOG.error("Could not apply filter on url: " + url + "\n"
-          + org.apache.hadoop.util.StringUtils.stringifyException(e));
-      return null;
-    }
+  public boolean isHostOnly() {
+    return true;
   }
 }
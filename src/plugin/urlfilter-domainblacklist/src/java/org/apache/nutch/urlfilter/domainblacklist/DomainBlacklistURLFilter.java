@@ -28,10 +28,11 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.nutch.net.ParsedURL;
+import org.apache.nutch.net.ParsedURLFilter;
 import org.apache.nutch.net.URLFilter;
 import org.apache.nutch.plugin.Extension;
 import org.apache.nutch.plugin.PluginRepository;
-import org.apache.nutch.util.URLUtil;
 import org.apache.nutch.util.domain.DomainSuffix;
 
 /**
@@ -73,7 +74,7 @@ import org.apache.nutch.util.domain.DomainSuffix;
  * 
  * the attribute "file" has higher precedence if defined.
  */
-public class DomainBlacklistURLFilter implements URLFilter {
+public class DomainBlacklistURLFilter implements ParsedURLFilter {
 
   private static final Logger LOG = LoggerFactory
       .getLogger(DomainBlacklistURLFilter.class);
@@ -180,31 +181,36 @@ public class DomainBlacklistURLFilter implements URLFilter {
   }
 
   public String filter(String url) {
-    try {
-      // match for suffix, domain, and host in that order. more general will
-      // override more specific
-      String domain = URLUtil.getDomainName(url).toLowerCase().trim();
-      String host = URLUtil.getHost(url);
-      String suffix = null;
-      DomainSuffix domainSuffix = URLUtil.getDomainSuffix(url);
-      if (domainSuffix != null) {
-        suffix = domainSuffix.getDomain();
-      }
+    return filter(new ParsedURL(url));
+  }
 
-      if (domainSet.contains(suffix) || domainSet.contains(domain)
-          || domainSet.contains(host)) {
-        // Matches, filter!
-        return null;
-      }
+  public String filter(ParsedURL url) {
+    if (url.getParts() == null) {
+      LOG.error("Could not apply filter on malformed url: " + url);
+      return null;
+    }
 
-      // doesn't match, allow
-      return url;
-    } catch (Exception e) {
+    // match for suffix, domain, and host in that order. more general will
+    // override more specific
+    String domain = url.getDomainName().trim();
+    String host = url.getHost();
+    String suffix = null;
+    DomainSuffix domainSuffix = url.getDomainSuffix();
+    if (domainSuffix != null) {
+      suffix = domainSuffix.getDomain();
+    }
 
-      // if an error happens, allow the url to pass
-      LOG.error("Could not apply filter on url: " + url + "\n"
-          + org.apache.hadoop.util.StringUtils.stringifyException(e));
+    if (domainSet.contains(suffix) || domainSet.contains(domain)
+        || domainSet.contains(host)) {
+      // Matches, filter!
       return null;
     }
+
+    // doesn't match, allow
+    return url.toString();
+  }
+
+  public boolean isHostOnly() {
+    return true;
   }
 }
@@ -27,6 +27,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.nutch.urlfilter.api.RegexRule;
 import org.apache.nutch.urlfilter.api.RegexURLFilterBase;
 import org.apache.nutch.util.NutchConfiguration;
+import org.apache.nutch.util.RegexLiterals;
 
 /**
  * Filters URLs based on a file of regular expressions using the
@@ -87,15 +88,21 @@ public class RegexURLFilter extends RegexURLFilterBase {
   private class Rule extends RegexRule {
 
     private Pattern pattern;
+    private String literal;
 
     Rule(boolean sign, String regex) {
       super(sign, regex);
       pattern = Pattern.compile(regex);
+      literal = RegexLiterals.getRequiredLiteral(regex);
     }
 
     protected boolean match(String url) {
       return pattern.matcher(url).find();
     }
+
+    protected String getRequiredLiteral() {
+      return literal;
+    }
   }
 
 }
@@ -39,8 +39,6 @@ import java.io.StringReader;
 import java.util.List;
 import java.util.ArrayList;
 
-import java.net.URL;
-import java.net.MalformedURLException;
 
 /**
  * Filters URLs based on a file of URL suffixes. The file is named by
@@ -123,7 +121,7 @@ import java.net.MalformedURLException;
  * 
  * @author Andrzej Bialecki
  */
-public class SuffixURLFilter implements URLFilter {
+public class SuffixURLFilter implements ParsedURLFilter {
 
   private static final Logger LOG = LoggerFactory
       .getLogger(SuffixURLFilter.class);
@@ -149,19 +147,20 @@ public class SuffixURLFilter implements URLFilter {
   public String filter(String url) {
     if (url == null)
       return null;
-    String _url;
-    if (ignoreCase)
-      _url = url.toLowerCase();
-    else
-      _url = url;
+    return filter(new ParsedURL(url));
+  }
+
+  public String filter(ParsedURL parsedUrl) {
+    String url = parsedUrl.toString();
+    String _url = url;
     if (filterFromPath) {
-      try {
-        URL pUrl = new URL(_url);
-        _url = pUrl.getPath();
-      } catch (MalformedURLException e) {
-        // don't care
-      }
+      String path = parsedUrl.getPath();
+      // if malformed, don't care
+      if (path != null)
+        _url = path;
     }
+    if (ignoreCase)
+      _url = _url.toLowerCase();
 
     String a = suffixes.shortestMatch(_url);
     if (a == null) {
@@ -177,6 +176,10 @@ public class SuffixURLFilter implements URLFilter {
     }
   }
 
+  public boolean isHostOnly() {
+    return false;
+  }
+
   public void readConfiguration(Reader reader) throws IOException {
 
     // handle missing config file
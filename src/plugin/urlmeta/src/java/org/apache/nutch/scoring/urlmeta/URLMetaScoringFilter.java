@@ -33,6 +33,7 @@ import org.apache.nutch.indexer.NutchDocument;
 import org.apache.nutch.parse.Parse;
 import org.apache.nutch.parse.ParseData;
 import org.apache.nutch.protocol.Content;
+import org.apache.nutch.scoring.InlinkIndependentScoringFilter;
 import org.apache.nutch.scoring.ScoringFilter;
 import org.apache.nutch.scoring.ScoringFilterException;
 
@@ -41,7 +42,8 @@ import org.apache.nutch.scoring.ScoringFilterException;
  * 
  * @see URLMetaIndexingFilter
  */
-public class URLMetaScoringFilter extends Configured implements ScoringFilter {
+public class URLMetaScoringFilter extends Configured implements
+    InlinkIndependentScoringFilter {
 
   private static final Logger LOG = LoggerFactory
       .getLogger(URLMetaScoringFilter.class);
@@ -17,7 +17,6 @@
 
 package org.apache.nutch.net.urlnormalizer.ajax;
 
-import java.net.URL;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.net.URLDecoder;
@@ -29,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.nutch.net.URLNormalizer;
 import org.apache.nutch.net.URLNormalizers;
+import org.apache.nutch.util.URLParts;
 import org.apache.hadoop.conf.Configuration;
 
 /**
@@ -60,7 +60,9 @@ public class AjaxURLNormalizer implements URLNormalizer {
    * @return String
    */
   public String normalize(String urlString, String scope) throws MalformedURLException {
-    LOG.info(scope + " // " + urlString);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(scope + " // " + urlString);
+    }
   
     // When indexing, transform _escaped_fragment_ URL's to their #! counterpart
     if (scope.equals(URLNormalizers.SCOPE_INDEXER) && urlString.contains(ESCAPED_URL_PART)) {
@@ -69,8 +71,11 @@ public class AjaxURLNormalizer implements URLNormalizer {
     
     // Otherwise transform #! URL's to their _escaped_fragment_ counterpart
     if (urlString.contains(AJAX_URL_PART)) {
-      LOG.info(scope + " // " + normalizeHashedFragment(urlString));
-      return normalizeHashedFragment(urlString);
+      String normalized = normalizeHashedFragment(urlString);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(scope + " // " + normalized);
+      }
+      return normalized;
     }
 
     // Nothing to normalize here, return verbatim
@@ -85,7 +90,7 @@ public class AjaxURLNormalizer implements URLNormalizer {
    * @return String
    */
   protected String normalizeHashedFragment(String urlString) throws MalformedURLException {
-    URL u = new URL(urlString);
+    URLParts u = URLParts.parse(urlString);
     int pos = urlString.indexOf(AJAX_URL_PART);
     StringBuilder sb = new StringBuilder(urlString.substring(0, pos));
 
@@ -115,13 +120,13 @@ public class AjaxURLNormalizer implements URLNormalizer {
    */
   protected String normalizeEscapedFragment(String urlString) throws MalformedURLException {
     int pos = urlString.indexOf(ESCAPED_URL_PART);
-    URL u = new URL(urlString);
+    URLParts u = URLParts.parse(urlString);
     StringBuilder sb = new StringBuilder();
 
     // Write the URL without query string, we'll handle that later
     sb.append(u.getProtocol());
     sb.append("://");
-    sb.append(u.getHost());
+    sb.append(u.getRawHost());
     if (u.getPort() != -1) {
       sb.append(":");
       sb.append(u.getPort());
@@ -26,9 +26,11 @@ import java.net.URL;
 import java.util.regex.Pattern;
 
 import org.apache.hadoop.conf.Configured;
-import org.apache.nutch.net.URLNormalizer;
+import org.apache.nutch.net.ParsedURL;
+import org.apache.nutch.net.ParsedURLNormalizer;
 import org.apache.nutch.net.URLNormalizers;
 import org.apache.nutch.util.NutchConfiguration;
+import org.apache.nutch.util.URLParts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,7 +41,8 @@ import org.slf4j.LoggerFactory;
  * <li>remove default ports, e.g. 80 for protocol <code>http://</code></li>
  * </ul>
  */
-public class BasicURLNormalizer extends Configured implements URLNormalizer {
+public class BasicURLNormalizer extends Configured implements
+    ParsedURLNormalizer {
   public static final Logger LOG = LoggerFactory
       .getLogger(BasicURLNormalizer.class);
 
@@ -57,6 +60,9 @@ public class BasicURLNormalizer extends Configured implements URLNormalizer {
 
     urlString = urlString.trim(); // remove extra spaces
 
+    if (isNormalized(urlString, URLParts.parse(urlString)))
+      return urlString;
+
     URL url = new URL(urlString);
 
     String protocol = url.getProtocol();
@@ -109,6 +115,45 @@ public class BasicURLNormalizer extends Configured implements URLNormalizer {
     return urlString;
   }
 
+  /**
+   * Whether a http, https or ftp URL is already normalized. Checked on the
+   * {@link URLParts} to avoid creating {@link URL} objects for the majority of
+   * URLs which are left unchanged.
+   */
+  private static boolean isNormalized(String urlString, URLParts url) {
+    String protocol = url.getProtocol();
+    int defaultPort;
+    if ("http".equals(protocol)) {
+      defaultPort = 80;
+    } else if ("https".equals(protocol)) {
+      defaultPort = 443;
+    } else if ("ftp".equals(protocol)) {
+      defaultPort = 21;
+    } else {
+      return false;
+    }
+    if (!urlString.startsWith(protocol) || url.getPort() == defaultPort
+        || url.getRef() != null)
+      return false;
+    String host = url.getRawHost();
+    if (!host.equals(host.toLowerCase()))
+      return false;
+    String path = url.getPath();
+    if (path.isEmpty() && url.getQuery() == null)
+      return false;
+    return !hasNormalizablePathPattern.matcher(path).find();
+  }
+
+  public String normalize(ParsedURL url, String scope)
+      throws MalformedURLException {
+    String urlString = url.toString();
+    // trim() returns the same string if there is nothing to remove
+    if (!urlString.isEmpty() && urlString.trim() == urlString
+        && isNormalized(urlString, url.parse()))
+      return urlString;
+    return normalize(urlString, scope);
+  }
+
   private String getFileWithNormalizedPath(URL url)
       throws MalformedURLException {
     String file;
@@ -22,13 +22,14 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.HashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.nutch.net.ParsedURL;
+import org.apache.nutch.net.ParsedURLNormalizer;
 import org.apache.nutch.net.URLNormalizer;
 import org.apache.nutch.plugin.Extension;
 import org.apache.nutch.plugin.PluginRepository;
@@ -45,7 +46,7 @@ import org.apache.nutch.util.URLUtil;
  * 
  * *.example.org www.example.org
  */
-public class HostURLNormalizer implements URLNormalizer {
+public class HostURLNormalizer implements ParsedURLNormalizer {
 
   private Configuration conf;
 
@@ -147,7 +148,13 @@ public class HostURLNormalizer implements URLNormalizer {
 
   public String normalize(String urlString, String scope)
       throws MalformedURLException {
-    String host = new URL(urlString).getHost();
+    return normalize(new ParsedURL(urlString), scope);
+  }
+
+  public String normalize(ParsedURL url, String scope)
+      throws MalformedURLException {
+    String urlString = url.toString();
+    String host = url.parse().getRawHost();
 
     // Test static hosts
     if (hostsMap.containsKey(host)) {
@@ -17,7 +17,6 @@
 package org.apache.nutch.net.urlnormalizer.querystring;
 
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -27,9 +26,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.nutch.net.URLNormalizer;
+import org.apache.nutch.net.ParsedURL;
+import org.apache.nutch.net.ParsedURLNormalizer;
 import org.apache.nutch.plugin.Extension;
 import org.apache.nutch.plugin.PluginRepository;
+import org.apache.nutch.util.URLParts;
 import org.apache.nutch.util.URLUtil;
 
 /**
@@ -38,7 +39,7 @@ import org.apache.nutch.util.URLUtil;
  * URL's such as ?a=x&b=y vs b=y&a=x.
  * 
  */
-public class QuerystringURLNormalizer implements URLNormalizer {
+public class QuerystringURLNormalizer implements ParsedURLNormalizer {
 
   private Configuration conf;
 
@@ -58,12 +59,17 @@ public class QuerystringURLNormalizer implements URLNormalizer {
 
   public String normalize(String urlString, String scope)
       throws MalformedURLException {
-    URL url = new URL(urlString);
+    return normalize(new ParsedURL(urlString), scope);
+  }
+
+  public String normalize(ParsedURL parsedUrl, String scope)
+      throws MalformedURLException {
+    URLParts url = parsedUrl.parse();
 
     String queryString = url.getQuery();
 
     if (queryString == null) {
-      return urlString;
+      return parsedUrl.toString();
     }
 
     List<String> queryStringParts = Arrays.asList(queryString.split("&"));
@@ -73,7 +79,7 @@ public class QuerystringURLNormalizer implements URLNormalizer {
 
     sb.append(url.getProtocol());
     sb.append("://");
-    sb.append(url.getHost());
+    sb.append(url.getRawHost());
     if (url.getPort() > -1) {
       sb.append(":");
       sb.append(url.getPort());
@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -38,6 +39,7 @@ import org.apache.hadoop.conf.Configured;
 import org.apache.nutch.net.URLNormalizer;
 import org.apache.nutch.net.URLNormalizers;
 import org.apache.nutch.util.NutchConfiguration;
+import org.apache.nutch.util.RegexLiterals;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -74,25 +76,43 @@ public class RegexURLNormalizer extends Configured implements URLNormalizer {
    * string.
    */
   private static class Rule {
-    public Pattern pattern;
+    public final Pattern pattern;
 
-    public String substitution;
-  }
+    public final String substitution;
 
-  private ThreadLocal<HashMap<String, List<Rule>>> scopedRulesThreadLocal = new ThreadLocal<HashMap<String, List<Rule>>>() {
-    protected java.util.HashMap<String, java.util.List<Rule>> initialValue() {
-      return new HashMap<String, List<Rule>>();
-    };
-  };
+    /**
+     * String contained in every match of the pattern, or null. The rule is
+     * skipped if the url does not contain it.
+     */
+    public final String literal;
 
-  public HashMap<String, List<Rule>> getScopedRules() {
-    return scopedRulesThreadLocal.get();
+    Rule(Pattern pattern, String substitution) {
+      this.pattern = pattern;
+      this.substitution = substitution;
+      this.literal = RegexLiterals.getRequiredLiteral(pattern.pattern());
+    }
   }
 
-  private List<Rule> defaultRules;
+  /** Prefix of the properties holding the rule files of the scopes. */
+  private static final String SCOPE_FILE_PREFIX = "urlnormalizer.regex.file.";
+
+  /**
+   * Rules by scope, read in {@link #setConf(Configuration)}. The map and the
+   * rule lists are never modified but replaced, so that all threads can use
+   * them without locking: rules only hold compiled patterns which are
+   * thread-safe.
+   */
+  private volatile Map<String, List<Rule>> scopedRules = Collections
+      .emptyMap();
+
+  public Map<String, List<Rule>> getScopedRules() {
+    return scopedRules;
+  }
 
   private static final List<Rule> EMPTY_RULES = Collections.emptyList();
 
+  private List<Rule> defaultRules = EMPTY_RULES;
+
   /**
    * The default constructor which is called from UrlNormalizerFactory
    * (normalizerClass.newInstance()) in method: getNormalizer()*
@@ -145,12 +165,37 @@ public class RegexURLNormalizer extends Configured implements URLNormalizer {
       }
     }
     defaultRules = rules;
+
+    // read the rules of all scopes now, not on the first url of a scope
+    Map<String, List<Rule>> rulesByScope = new HashMap<String, List<Rule>>();
+    for (Map.Entry<String, String> property : conf) {
+      if (!property.getKey().startsWith(SCOPE_FILE_PREFIX))
+        continue;
+      String scope = property.getKey().substring(SCOPE_FILE_PREFIX.length());
+      String configFile = conf.get(property.getKey());
+      LOG.debug("resource for scope '" + scope + "': " + configFile);
+      rules = EMPTY_RULES;
+      try {
+        rules = readConfiguration(conf.getConfResourceAsReader(configFile));
+      } catch (Exception e) {
+        LOG.warn("Couldn't load resource '" + configFile + "': " + e);
+      }
+      if (rules == EMPTY_RULES) {
+        LOG.info("can't find rules for scope '" + scope + "', using default");
+      } else {
+        rulesByScope.put(scope, rules);
+      }
+    }
+    scopedRules = Collections.unmodifiableMap(rulesByScope);
   }
 
   // used in JUnit test.
-  void setConfiguration(Reader reader, String scope) {
+  synchronized void setConfiguration(Reader reader, String scope) {
     List<Rule> rules = readConfiguration(reader);
-    getScopedRules().put(scope, rules);
+    Map<String, List<Rule>> rulesByScope = new HashMap<String, List<Rule>>(
+        scopedRules);
+    rulesByScope.put(scope, rules);
+    scopedRules = Collections.unmodifiableMap(rulesByScope);
     LOG.debug("Set config for scope '" + scope + "': " + rules.size()
         + " rules.");
   }
@@ -160,32 +205,15 @@ public class RegexURLNormalizer extends Configured implements URLNormalizer {
    * patterns. It accepts a string url as input and returns the altered string.
    */
   public String regexNormalize(String urlString, String scope) {
-    HashMap<String, List<Rule>> scopedRules = getScopedRules();
     List<Rule> curRules = scopedRules.get(scope);
-    if (curRules == null) {
-      // try to populate
-      String configFile = getConf().get("urlnormalizer.regex.file." + scope);
-      if (configFile != null) {
-        LOG.debug("resource for scope '" + scope + "': " + configFile);
-        try {
-          Reader reader = getConf().getConfResourceAsReader(configFile);
-          curRules = readConfiguration(reader);
-          scopedRules.put(scope, curRules);
-        } catch (Exception e) {
-          LOG.warn("Couldn't load resource '" + configFile + "': " + e);
-        }
-      }
-      if (curRules == EMPTY_RULES || curRules == null) {
-        LOG.info("can't find rules for scope '" + scope + "', using default");
-        scopedRules.put(scope, EMPTY_RULES);
-      }
-    }
-    if (curRules == EMPTY_RULES || curRules == null) {
+    if (curRules == null || curRules.isEmpty()) {
       curRules = defaultRules;
     }
-    Iterator<Rule> i = curRules.iterator();
-    while (i.hasNext()) {
-      Rule r = (Rule) i.next();
+    for (int i = 0; i < curRules.size(); i++) {
+      Rule r = curRules.get(i);
+      // cheap test whether the pattern can match at all
+      if (r.literal != null && urlString.indexOf(r.literal) < 0)
+        continue;
 
       Matcher matcher = r.pattern.matcher(urlString);
 
@@ -251,9 +279,9 @@ public class RegexURLNormalizer extends Configured implements URLNormalizer {
             subValue = "";
         }
         if (patternValue != null && subValue != null) {
-          Rule rule = new Rule();
+          Rule rule;
           try {
-            rule.pattern = Pattern.compile(patternValue);
+            rule = new Rule(Pattern.compile(patternValue), subValue);
           } catch (PatternSyntaxException e) {
             if (LOG.isErrorEnabled()) {
               LOG.error("skipped rule: " + patternValue + " -> " + subValue
@@ -261,7 +289,6 @@ public class RegexURLNormalizer extends Configured implements URLNormalizer {
             }
             continue;
           }
-          rule.substitution = subValue;
           rules.add(rule);
         }
       }
@@ -273,7 +300,7 @@ public class RegexURLNormalizer extends Configured implements URLNormalizer {
     }
     if (rules.size() == 0)
       return EMPTY_RULES;
-    return rules;
+    return Collections.unmodifiableList(rules);
   }
 
   /** Spits out patterns and substitutions that are in the configuration file. */
@@ -281,7 +308,7 @@ public class RegexURLNormalizer extends Configured implements URLNormalizer {
       IOException {
     RegexURLNormalizer normalizer = new RegexURLNormalizer();
     normalizer.setConf(NutchConfiguration.create());
-    HashMap<String, List<Rule>> scopedRules = normalizer.getScopedRules();
+    Map<String, List<Rule>> scopedRules = normalizer.getScopedRules();
     Iterator<Rule> i = normalizer.defaultRules.iterator();
     System.out.println("* Rules for 'DEFAULT' scope:");
     while (i.hasNext()) {
@@ -289,11 +316,7 @@ public class RegexURLNormalizer extends Configured implements URLNormalizer {
       System.out.print("  " + r.pattern.pattern() + " -> ");
       System.out.println(r.substitution);
     }
-    // load the scope
-    if (args.length > 1) {
-      normalizer.normalize("http://test.com", args[1]);
-    }
-    if (scopedRules.size() > 1) {
+    if (scopedRules.size() > 0) {
       Iterator<String> it = scopedRules.keySet().iterator();
       while (it.hasNext()) {
         String scope = it.next();
@@ -24,6 +24,8 @@ import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.*;
 
 import org.junit.Assert;
@@ -90,6 +92,73 @@ public class TestRegexURLNormalizer {
     }
   }
 
+  /** Default rules removing session ids, given by urlnormalizer.regex.rules. */
+  private static final String SESSION_RULES = "<regex-normalize><regex>"
+      + "<pattern>sessionid=[0-9]+&amp;?</pattern><substitution></substitution>"
+      + "</regex></regex-normalize>";
+
+  /**
+   * Normalizer configured by setConf, reading the rule files of the scopes
+   * from the sample directory.
+   */
+  private RegexURLNormalizer createNormalizer(String defaultRules,
+      String... scopeFiles) throws IOException {
+    Configuration conf = NutchConfiguration.create();
+    conf.setClassLoader(new URLClassLoader(new URL[] { new File(sampleDir)
+        .toURI().toURL() }, conf.getClassLoader()));
+    conf.set("urlnormalizer.regex.rules", defaultRules);
+    for (int i = 0; i < scopeFiles.length; i += 2) {
+      conf.set("urlnormalizer.regex.file." + scopeFiles[i], scopeFiles[i + 1]);
+    }
+    RegexURLNormalizer normalizer = new RegexURLNormalizer();
+    normalizer.setConf(conf);
+    return normalizer;
+  }
+
+  @Test
+  public void testScopeFile() throws Exception {
+    RegexURLNormalizer normalizer = createNormalizer(SESSION_RULES, "scope1",
+        "regex-normalize-scope1.xml");
+    Assert.assertTrue(normalizer.getScopedRules().containsKey("scope1"));
+    Assert.assertEquals("http://bar.com/",
+        normalizer.normalize("http://www.foo.bar.com/?sessionid=1", "scope1"));
+    Assert.assertEquals("http://www.foo.bar.com/?",
+        normalizer.normalize("http://www.foo.bar.com/?sessionid=1",
+            URLNormalizers.SCOPE_DEFAULT));
+  }
+
+  @Test
+  public void testEmptyScopeFile() throws Exception {
+    RegexURLNormalizer normalizer = createNormalizer(SESSION_RULES, "empty",
+        "regex-empty.xml");
+    Assert.assertFalse(normalizer.getScopedRules().containsKey("empty"));
+    Assert.assertEquals("http://example.com/?id=2",
+        normalizer.normalize("http://example.com/?sessionid=1&id=2", "empty"));
+  }
+
+  @Test
+  public void testRequiredLiteral() throws Exception {
+    RegexURLNormalizer normalizer = createNormalizer(SESSION_RULES);
+    // the rule is skipped, the url does not contain "sessionid="
+    Assert.assertEquals("http://example.com/?session=1&id=2",
+        normalizer.normalize("http://example.com/?session=1&id=2",
+            URLNormalizers.SCOPE_DEFAULT));
+    Assert.assertEquals("http://example.com/?id=2",
+        normalizer.normalize("http://example.com/?sessionid=1&id=2",
+            URLNormalizers.SCOPE_DEFAULT));
+  }
+
+  @Test
+  public void testCaseInsensitiveRule() throws Exception {
+    // no literal is derived from the pattern, the rule is always tried
+    RegexURLNormalizer normalizer = createNormalizer("<regex-normalize><regex>"
+        + "<pattern>(?i)SESSIONID=[0-9]+&amp;?</pattern>"
+        + "<substitution></substitution></regex></regex-normalize>");
+    Assert.assertEquals("http://example.com/?id=2",
+        normalizer.normalize("http://example.com/?sessionid=1&id=2",
+            URLNormalizers.SCOPE_DEFAULT));
+  }
+
   private void normalizeTest(NormalizedURL[] urls, String scope)
       throws Exception {
     for (int i = 0; i < urls.length; i++) {
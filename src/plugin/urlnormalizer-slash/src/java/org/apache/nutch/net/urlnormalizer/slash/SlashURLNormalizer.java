@@ -22,7 +22,6 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,15 +30,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.nutch.crawl.CrawlDatum;
+import org.apache.nutch.net.ParsedURL;
+import org.apache.nutch.net.ParsedURLNormalizer;
 import org.apache.nutch.net.URLNormalizer;
 import org.apache.nutch.plugin.Extension;
 import org.apache.nutch.plugin.PluginRepository;
+import org.apache.nutch.util.URLParts;
 import org.apache.nutch.util.URLUtil;
 
 /**
  * @author markus@openindex.io
  */
-public class SlashURLNormalizer implements URLNormalizer {
+public class SlashURLNormalizer implements ParsedURLNormalizer {
 
   private Configuration conf;
 
@@ -162,11 +164,17 @@ public class SlashURLNormalizer implements URLNormalizer {
   }
 
   public String normalize(String url, CrawlDatum crawlDatum, String scope) throws MalformedURLException {
+    return normalize(new ParsedURL(url), scope);
+  }
+
+  public String normalize(ParsedURL parsedUrl, String scope) throws MalformedURLException {
+    String url = parsedUrl.toString();
+
     // Get URL repr.
-    URL u = new URL(url);
+    URLParts u = parsedUrl.parse();
     
     // Get the host
-    String host = u.getHost();
+    String host = u.getRawHost();
 
     // Do we have a rule for this host?
     if (slashesMap.containsKey(host)) {
@@ -21,6 +21,8 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +31,15 @@ import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobClient;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.SequenceFileInputFormat;
+import org.apache.hadoop.mapred.lib.HashPartitioner;
+import org.apache.nutch.util.ReversedUrl;
 
 import org.mortbay.jetty.Server;
 import org.mortbay.jetty.bio.SocketConnector;
@@ -67,6 +77,108 @@ public class CrawlDBTestUtil {
     writer.close();
   }
 
+  /**
+   * Creates a run of a crawldb (<code>current</code> or a delta run) of
+   * MapFile parts, partitioned like the output of a job.
+   * 
+   * @param reversed
+   *          store the URLs reversed, see {@link CrawlDb#CRAWLDB_REVERSED_URLS},
+   *          with a host index as written by {@link CrawlDbOutputFormat}
+   * @param expected
+   *          URL -> fetch time, the written entries are added
+   */
+  public static void writeRun(Configuration conf, FileSystem fs, Path dir,
+      String[] urls, long fetchTime, boolean reversed, int numParts,
+      Map<String, Long> expected) throws Exception {
+    TreeMap<String, Long> sorted = new TreeMap<String, Long>();
+    for (String url : urls) {
+      sorted.put(reversed ? ReversedUrl.reverse(url) : url, fetchTime);
+      expected.put(url, fetchTime);
+    }
+    HashPartitioner<Text, CrawlDatum> partitioner = new HashPartitioner<Text, CrawlDatum>();
+    MapFile.Writer[] writers = new MapFile.Writer[numParts];
+    CrawlDbHostIndex.Writer[] indexes = new CrawlDbHostIndex.Writer[numParts];
+    for (int i = 0; i < numParts; i++) {
+      Path part = new Path(dir, "part-0000" + i);
+      writers[i] = new MapFile.Writer(conf, fs, part.toString(), Text.class,
+          CrawlDatum.class);
+      if (reversed)
+        indexes[i] = new CrawlDbHostIndex.Writer(conf, fs, part);
+    }
+    CrawlDatum datum = new CrawlDatum(CrawlDatum.STATUS_DB_UNFETCHED, 3600);
+    for (Map.Entry<String, Long> entry : sorted.entrySet()) {
+      Text key = new Text(entry.getKey());
+      // partitioned by the plain URL
+      Text url = new Text(reversed ? ReversedUrl.unreverse(entry.getKey())
+          : entry.getKey());
+      datum.setFetchTime(entry.getValue());
+      int part = partitioner.getPartition(url, datum, numParts);
+      writers[part].append(key, datum);
+      if (reversed)
+        indexes[part].add(key);
+    }
+    for (int i = 0; i < numParts; i++) {
+      writers[i].close();
+      if (reversed)
+        indexes[i].close();
+    }
+  }
+
+  /**
+   * Creates a crawldb with <code>current</code> (fetch time 1000) and two
+   * delta runs (2000 and 3000), all of <code>numParts</code> parts.
+   * 
+   * @param expected
+   *          URL -> fetch time of the most recent entries
+   */
+  public static void createDeltaCrawlDb(Configuration conf, FileSystem fs,
+      Path crawlDb, int numParts, Map<String, Long> expected) throws Exception {
+    writeRun(conf, fs, new Path(crawlDb, CrawlDb.CURRENT_NAME), new String[] {
+        "http://a.com/", "http://b.com/", "http://c.com/", "http://d.com/",
+        "http://e.com/" }, 1000L, false, numParts, expected);
+    Path delta = new Path(crawlDb, CrawlDb.DELTA_NAME);
+    // run names are ordered numerically
+    writeRun(conf, fs, new Path(delta, "99"), new String[] { "http://b.com/",
+        "http://f.com/" }, 2000L, false, numParts, expected);
+    writeRun(conf, fs, new Path(delta, "100"), new String[] {
+        "http://b.com/", "http://e.com/", "http://g.com/" }, 3000L, false,
+        numParts, expected);
+  }
+
+  /**
+   * Creates <code>current</code> of a crawldb with reversed URLs, written by a
+   * job through {@link CrawlDbOutputFormat}. The fetch time of an entry is the
+   * index of its URL.
+   * 
+   * @param expected
+   *          URL -> fetch time, the written entries are added
+   */
+  public static void createReversedCrawlDb(Configuration conf, FileSystem fs,
+      Path crawlDb, String[] urls, int numParts, Map<String, Long> expected)
+      throws Exception {
+    Path input = new Path(crawlDb, "input");
+    SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf,
+        new Path(input, "urls"), Text.class, CrawlDatum.class);
+    CrawlDatum datum = new CrawlDatum(CrawlDatum.STATUS_DB_UNFETCHED, 3600);
+    for (int i = 0; i < urls.length; i++) {
+      datum.setFetchTime(i);
+      writer.append(new Text(urls[i]), datum);
+      expected.put(urls[i], (long) i);
+    }
+    writer.close();
+
+    JobConf job = new JobConf(conf);
+    job.setBoolean(CrawlDb.CRAWLDB_REVERSED_URLS, true);
+    FileInputFormat.addInputPath(job, input);
+    job.setInputFormat(SequenceFileInputFormat.class);
+    job.setNumReduceTasks(numParts);
+    CrawlDbOutputFormat.setOutput(job);
+    FileOutputFormat.setOutputPath(job, new Path(crawlDb,
+        CrawlDb.CURRENT_NAME));
+    JobClient.runJob(job);
+    fs.delete(input, true);
+  }
+
   /**
    * For now we need to manually construct our Configuration, because we need to
    * override the default one and it is currently not possible to use
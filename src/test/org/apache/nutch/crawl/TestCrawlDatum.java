@@ -0,0 +1,221 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.nutch.metadata.HttpHeaders;
+import org.apache.nutch.metadata.Nutch;
+import org.apache.nutch.protocol.ProtocolStatus;
+import org.apache.nutch.util.WritableTestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests serialization of {@link CrawlDatum}, including reading of the previous
+ * format version.
+ */
+public class TestCrawlDatum {
+
+  private static CrawlDatum createDatum() {
+    CrawlDatum datum = new CrawlDatum(CrawlDatum.STATUS_DB_FETCHED, 3600, 1.5f);
+    datum.setFetchTime(1234567890123L);
+    datum.setModifiedTime(1234567000000L);
+    datum.setRetriesSinceFetch(2);
+    datum.setSignature(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+    MapWritable meta = datum.getMetaData();
+    meta.put(Nutch.WRITABLE_GENERATE_TIME_KEY, new LongWritable(1234567L));
+    meta.put(HttpHeaders.WRITABLE_CONTENT_TYPE, new Text("text/html"));
+    meta.put(new Text("custom"), new IntWritable(-42));
+    meta.put(new Text("float"), new FloatWritable(0.25f));
+    meta.put(new IntWritable(7), new BytesWritable(new byte[] { 9, 8 }));
+    return datum;
+  }
+
+  private static byte[] write(CrawlDatum datum) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    datum.write(out);
+    byte[] bytes = new byte[out.getLength()];
+    System.arraycopy(out.getData(), 0, bytes, 0, out.getLength());
+    return bytes;
+  }
+
+  private static CrawlDatum read(byte[] bytes) throws IOException {
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(bytes, bytes.length);
+    CrawlDatum datum = new CrawlDatum();
+    datum.readFields(in);
+    return datum;
+  }
+
+  /** Serialize a datum the way version 7 did it. */
+  private static byte[] writeVersion7(CrawlDatum datum) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    out.writeByte(7);
+    out.writeByte(datum.getStatus());
+    out.writeLong(datum.getFetchTime());
+    out.writeByte(datum.getRetriesSinceFetch());
+    out.writeInt(datum.getFetchInterval());
+    out.writeFloat(datum.getScore());
+    out.writeLong(datum.getModifiedTime());
+    out.writeByte(datum.getSignature().length);
+    out.write(datum.getSignature());
+    out.writeBoolean(true);
+    datum.getMetaData().write(out);
+    byte[] bytes = new byte[out.getLength()];
+    System.arraycopy(out.getData(), 0, bytes, 0, out.getLength());
+    return bytes;
+  }
+
+  @Test
+  public void testWritable() throws Exception {
+    WritableTestUtils.testWritable(createDatum());
+    WritableTestUtils.testWritable(new CrawlDatum());
+  }
+
+  @Test
+  public void testReadVersion7() throws Exception {
+    CrawlDatum datum = createDatum();
+    byte[] v7 = writeVersion7(datum);
+    CrawlDatum read = read(v7);
+    Assert.assertEquals(datum, read);
+    // rewritten in the current format, the record is smaller
+    Assert.assertTrue(write(read).length < v7.length);
+  }
+
+  @Test
+  public void testLazyMetaData() throws Exception {
+    CrawlDatum datum = createDatum();
+    byte[] bytes = write(datum);
+
+    // pass-through without accessing the metadata
+    CrawlDatum read = read(bytes);
+    Assert.assertArrayEquals(bytes, write(read));
+
+    // a copy must not share the reused read buffer
+    CrawlDatum copy = new CrawlDatum();
+    copy.set(read);
+    CrawlDatum clone = (CrawlDatum) read.clone();
+    DataInputBuffer in = new DataInputBuffer();
+    byte[] other = write(new CrawlDatum(CrawlDatum.STATUS_DB_UNFETCHED, 1));
+    in.reset(other, other.length);
+    read.readFields(in);
+    Assert.assertEquals(0, read.getMetaData().size());
+    Assert.assertEquals(datum, copy);
+    Assert.assertEquals(datum, clone);
+
+    // modifications after decoding are written
+    CrawlDatum modified = read(bytes);
+    modified.getMetaData().remove(Nutch.WRITABLE_GENERATE_TIME_KEY);
+    CrawlDatum reread = read(write(modified));
+    Assert.assertNull(reread.getMetaData().get(
+        Nutch.WRITABLE_GENERATE_TIME_KEY));
+    Assert.assertEquals(4, reread.getMetaData().size());
+  }
+
+  @Test
+  public void testWritableValue() throws Exception {
+    // ProtocolStatus does not implement hashCode(), compare the value only
+    CrawlDatum datum = createDatum();
+    ProtocolStatus pstatus = new ProtocolStatus(ProtocolStatus.MOVED,
+        "http://example.com/");
+    datum.getMetaData().put(Nutch.WRITABLE_PROTO_STATUS_KEY, pstatus);
+    CrawlDatum read = read(write(datum));
+    Assert.assertEquals(pstatus,
+        read.getMetaData().get(Nutch.WRITABLE_PROTO_STATUS_KEY));
+    Assert.assertEquals(6, read.getMetaData().size());
+    read = read(writeVersion7(datum));
+    Assert.assertEquals(pstatus,
+        read.getMetaData().get(Nutch.WRITABLE_PROTO_STATUS_KEY));
+  }
+
+  @Test
+  public void testRawAccessors() throws Exception {
+    CrawlDatum datum = createDatum();
+    for (byte[] bytes : new byte[][] { write(datum), writeVersion7(datum) }) {
+      // prepend some bytes, accessors take an offset
+      byte[] b = new byte[bytes.length + 3];
+      System.arraycopy(bytes, 0, b, 3, bytes.length);
+      Assert.assertEquals(datum.getStatus(), CrawlDatum.getStatus(b, 3));
+      Assert.assertEquals(datum.getFetchTime(), CrawlDatum.getFetchTime(b, 3));
+      Assert.assertEquals(datum.getRetriesSinceFetch(),
+          CrawlDatum.getRetriesSinceFetch(b, 3));
+      Assert.assertEquals(datum.getFetchInterval(),
+          CrawlDatum.getFetchInterval(b, 3));
+      Assert.assertEquals(datum.getScore(), CrawlDatum.getScore(b, 3), 0.0f);
+      Assert.assertEquals(datum.getModifiedTime(),
+          CrawlDatum.getModifiedTime(b, 3));
+    }
+  }
+
+  @Test
+  public void testRawComparator() throws Exception {
+    CrawlDatum.Comparator comparator = new CrawlDatum.Comparator();
+    CrawlDatum d1 = createDatum();
+    byte[] b1 = write(d1);
+    Assert.assertEquals(0, comparator.compare(b1, 0, b1.length, b1, 0,
+        b1.length));
+    CrawlDatum d2 = createDatum();
+    d2.setScore(d1.getScore() * 2);
+    byte[] b2 = write(d2);
+    // sorted by decreasing score
+    Assert.assertTrue(comparator.compare(b1, 0, b1.length, b2, 0, b2.length) > 0);
+    Assert.assertTrue(d1.compareTo(d2) > 0);
+    d2 = createDatum();
+    d2.setSignature(new byte[] { 1, 2, 3, 4, 5, 6, 7, 9 });
+    b2 = write(d2);
+    Assert.assertTrue(comparator.compare(b1, 0, b1.length, b2, 0, b2.length) < 0);
+  }
+
+  @Test
+  public void testMetaDataValue() throws Exception {
+    CrawlDatum datum = createDatum();
+    datum.getMetaData().put(Nutch.WRITABLE_PROTO_STATUS_KEY,
+        new ProtocolStatus(ProtocolStatus.GONE));
+    byte[] bytes = write(datum);
+    CrawlDatum read = read(bytes);
+    Assert.assertEquals(new LongWritable(1234567L),
+        read.getMetaDataValue(Nutch.WRITABLE_GENERATE_TIME_KEY));
+    Assert.assertEquals(new IntWritable(-42),
+        read.getMetaDataValue(new Text("custom")));
+    Assert.assertEquals(new FloatWritable(0.25f),
+        read.getMetaDataValue(new Text("float")));
+    Assert.assertEquals(new BytesWritable(new byte[] { 9, 8 }),
+        read.getMetaDataValue(new IntWritable(7)));
+    Assert.assertEquals(new Text("text/html"),
+        read.getMetaDataValue(HttpHeaders.WRITABLE_CONTENT_TYPE));
+    Assert.assertNull(read.getMetaDataValue(new Text("missing")));
+    Assert.assertNull(read.getMetaDataValue(Nutch.WRITABLE_REPR_URL_KEY));
+    // metadata not decoded, still passed through unchanged
+    Assert.assertArrayEquals(bytes, write(read));
+    // same results after decoding
+    read.getMetaData();
+    Assert.assertEquals(new IntWritable(-42),
+        read.getMetaDataValue(new Text("custom")));
+    Assert.assertNull(new CrawlDatum().getMetaDataValue(new Text("custom")));
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.nutch.util.HadoopFSUtil;
+import org.apache.nutch.util.NutchConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the host index written by {@link CrawlDbOutputFormat} (see
+ * {@link CrawlDbHostIndex}) and reading the entries of a host by
+ * {@link CrawlDbHostReader}.
+ */
+public class TestCrawlDbHostReader {
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path crawlDb;
+
+  /** URL -> fetch time of the most recent entry */
+  private TreeMap<String, Long> expected = new TreeMap<String, Long>();
+
+  @Before
+  public void setUp() throws Exception {
+    conf = NutchConfiguration.create();
+    fs = FileSystem.get(conf);
+    crawlDb = new Path("build/test/test-crawldb-host-"
+        + System.currentTimeMillis());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fs.delete(crawlDb, true);
+  }
+
+  private TreeMap<String, Long> readHost(String host) throws Exception {
+    CrawlDbHostReader reader = new CrawlDbHostReader(crawlDb, host, conf);
+    TreeMap<String, Long> result = new TreeMap<String, Long>();
+    Text url = new Text();
+    CrawlDatum datum = new CrawlDatum();
+    while (reader.next(url, datum)) {
+      Assert.assertNull("duplicate URL " + url,
+          result.put(url.toString(), datum.getFetchTime()));
+    }
+    reader.close();
+    return result;
+  }
+
+  @Test
+  public void testHostReader() throws Exception {
+    CrawlDBTestUtil.createReversedCrawlDb(conf, fs, crawlDb, new String[] {
+        "https://b.com/", "http://www.a.com/", "http://a.com/2",
+        "http://c.b.com/", "https://a.com/1", "http://a.com:8080/",
+        "http://aa.com/" }, 2, expected);
+    // the index of the part contains all hosts
+    Path part = new Path(new Path(crawlDb, CrawlDb.CURRENT_NAME), "part-00000");
+    MapFile.Reader index = new MapFile.Reader(fs, new Path(part,
+        CrawlDbHostIndex.HOST_INDEX_NAME).toString(), conf);
+    CrawlDbHostIndex.Entry entry = new CrawlDbHostIndex.Entry();
+    Assert.assertNotNull(index.get(CrawlDbHostIndex.getKey("A.com"), entry));
+    Assert.assertEquals(3, entry.getCount());
+    Assert.assertEquals("com.a:http/2", entry.getFirst().toString());
+    Assert.assertEquals("com.a:https/1", entry.getLast().toString());
+    Assert.assertNull(index.get(CrawlDbHostIndex.getKey("x.com"), entry));
+    index.close();
+
+    // delta run, partitioned as current
+    int numParts = fs.listStatus(new Path(crawlDb, CrawlDb.CURRENT_NAME),
+        HadoopFSUtil.getPassDirectoriesFilter(fs)).length;
+    CrawlDBTestUtil.writeRun(conf, fs, new Path(new Path(crawlDb,
+        CrawlDb.DELTA_NAME), "100"), new String[] { "http://a.com/2",
+        "http://a.com/3", "http://b.com/" }, 1000L, true, numParts, expected);
+    TreeMap<String, Long> a = readHost("a.com");
+    Assert.assertEquals(4, a.size());
+    Assert.assertEquals(1000L, a.get("http://a.com/2").longValue());
+    Assert.assertEquals(1000L, a.get("http://a.com/3").longValue());
+    Assert.assertEquals(4L, a.get("https://a.com/1").longValue());
+    Assert.assertEquals(5L, a.get("http://a.com:8080/").longValue());
+    Assert.assertEquals(1, readHost("www.a.com").size());
+    Assert.assertEquals(0, readHost("x.com").size());
+  }
+
+  @Test
+  public void testHostReaderPlain() throws Exception {
+    CrawlDBTestUtil.createDeltaCrawlDb(conf, fs, crawlDb, 2, expected);
+    TreeMap<String, Long> b = readHost("b.com");
+    Assert.assertEquals(1, b.size());
+    Assert.assertEquals(3000L, b.get("http://b.com/").longValue());
+  }
+
+}
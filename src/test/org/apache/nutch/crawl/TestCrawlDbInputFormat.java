@@ -0,0 +1,233 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileSplit;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MultiFileSplit;
+import org.apache.hadoop.mapred.RecordReader;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.nutch.util.NutchConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests reading a CrawlDb with delta runs, merged by {@link CrawlDbInputFormat}.
+ */
+public class TestCrawlDbInputFormat {
+
+  private static final int NUM_PARTS = 2;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path crawlDb;
+
+  /** URL -> fetch time of the most recent entry */
+  private TreeMap<String, Long> expected = new TreeMap<String, Long>();
+
+  @Before
+  public void setUp() throws Exception {
+    conf = NutchConfiguration.create();
+    fs = FileSystem.get(conf);
+    crawlDb = new Path("build/test/test-crawldb-delta-"
+        + System.currentTimeMillis());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fs.delete(crawlDb, true);
+  }
+
+  /** Write a run of MapFile parts, partitioned like the CrawlDb. */
+  private void writeRun(Path dir, String[] urls, long fetchTime,
+      boolean reversed, int numParts) throws Exception {
+    CrawlDBTestUtil.writeRun(conf, fs, dir, urls, fetchTime, reversed,
+        numParts, expected);
+  }
+
+  private void createCrawlDb() throws Exception {
+    CrawlDBTestUtil.createDeltaCrawlDb(conf, fs, crawlDb, NUM_PARTS, expected);
+  }
+
+  private TreeMap<String, Long> read(JobConf job, InputSplit[] splits)
+      throws Exception {
+    CrawlDbInputFormat format = new CrawlDbInputFormat();
+    TreeMap<String, Long> result = new TreeMap<String, Long>();
+    for (InputSplit split : splits) {
+      RecordReader<Writable, Writable> reader = format.getRecordReader(split,
+          job, Reporter.NULL);
+      Writable key = reader.createKey();
+      Writable value = reader.createValue();
+      while (reader.next(key, value)) {
+        Assert.assertNull("duplicate key " + key,
+            result.put(key.toString(), ((CrawlDatum) value).getFetchTime()));
+      }
+      reader.close();
+    }
+    return result;
+  }
+
+  @Test
+  public void testDeltaRuns() throws Exception {
+    createCrawlDb();
+    Path[] runs = CrawlDb.getDeltaRuns(fs, crawlDb);
+    Assert.assertEquals(2, runs.length);
+    Assert.assertEquals("99", runs[0].getName());
+    Assert.assertEquals("100", runs[1].getName());
+    Assert.assertEquals(0,
+        CrawlDb.getDeltaRuns(fs, new Path(crawlDb, "missing")).length);
+  }
+
+  @Test
+  public void testMergedRead() throws Exception {
+    createCrawlDb();
+    JobConf job = new JobConf(conf);
+    FileInputFormat.addInputPath(job, new Path(crawlDb, CrawlDb.CURRENT_NAME));
+    InputSplit[] splits = new CrawlDbInputFormat().getSplits(job, 1);
+    // one split per partition
+    Assert.assertEquals(NUM_PARTS, splits.length);
+    Assert.assertEquals(expected, read(job, splits));
+  }
+
+  @Test
+  public void testPlainRead() throws Exception {
+    writeRun(new Path(crawlDb, CrawlDb.CURRENT_NAME), new String[] {
+        "http://a.com/", "http://b.com/", "http://c.com/" }, 1000L, false,
+        NUM_PARTS);
+    JobConf job = new JobConf(conf);
+    FileInputFormat.addInputPath(job, new Path(crawlDb, CrawlDb.CURRENT_NAME));
+    InputSplit[] splits = new CrawlDbInputFormat().getSplits(job, 1);
+    for (InputSplit split : splits) {
+      Assert.assertTrue(split instanceof FileSplit);
+    }
+    Assert.assertEquals(expected, read(job, splits));
+  }
+
+  @Test
+  public void testReversedUrls() throws Exception {
+    writeRun(new Path(crawlDb, CrawlDb.CURRENT_NAME), new String[] {
+        "http://a.com/", "https://www.b.com/x", "http://c.com:8080/",
+        "http://www.a.com/y?q=http://d.com/" }, 1000L, true, NUM_PARTS);
+    writeRun(new Path(new Path(crawlDb, CrawlDb.DELTA_NAME), "100"),
+        new String[] { "http://a.com/", "http://e.com/" }, 2000L, true,
+        NUM_PARTS);
+    Assert.assertTrue(CrawlDb.hasReversedUrls(fs, new Path(crawlDb,
+        CrawlDb.CURRENT_NAME), conf));
+    JobConf job = new JobConf(conf);
+    FileInputFormat.addInputPath(job, new Path(crawlDb, CrawlDb.CURRENT_NAME));
+    Assert.assertEquals(expected,
+        read(job, new CrawlDbInputFormat().getSplits(job, 1)));
+    CrawlDbLookup lookup = new CrawlDbLookup(crawlDb, conf);
+    CrawlDatum datum = new CrawlDatum();
+    for (Map.Entry<String, Long> entry : expected.entrySet()) {
+      Assert.assertNotNull(lookup.get(new Text(entry.getKey()), datum));
+      Assert.assertEquals(entry.getValue().longValue(), datum.getFetchTime());
+    }
+    lookup.close();
+  }
+
+  /** URLs without authority, looking like reversed URLs */
+  private static final String[] OPAQUE_URLS = { "mailto:abc",
+      "news:comp.lang.java", "http://a.com/", "urn:isbn:0451450523" };
+
+  @Test
+  public void testOpaqueUrls() throws Exception {
+    Path current = new Path(crawlDb, CrawlDb.CURRENT_NAME);
+    writeRun(current, OPAQUE_URLS, 1000L, false, NUM_PARTS);
+    Assert.assertFalse(CrawlDb.hasReversedUrls(fs, current, conf));
+    JobConf job = new JobConf(conf);
+    FileInputFormat.addInputPath(job, current);
+    Assert.assertEquals(expected,
+        read(job, new CrawlDbInputFormat().getSplits(job, 1)));
+
+    // merged with a delta run
+    writeRun(new Path(new Path(crawlDb, CrawlDb.DELTA_NAME), "100"),
+        new String[] { "mailto:abc", "news:x.y" }, 2000L, false, NUM_PARTS);
+    InputSplit[] splits = new CrawlDbInputFormat().getSplits(job, 1);
+    Assert.assertTrue(splits[0] instanceof MultiFileSplit);
+    Assert.assertEquals(expected, read(job, splits));
+    CrawlDbLookup lookup = new CrawlDbLookup(crawlDb, conf);
+    CrawlDatum datum = new CrawlDatum();
+    for (Map.Entry<String, Long> entry : expected.entrySet()) {
+      Assert.assertNotNull(lookup.get(new Text(entry.getKey()), datum));
+      Assert.assertEquals(entry.getValue().longValue(), datum.getFetchTime());
+    }
+    lookup.close();
+  }
+
+  @Test
+  public void testOpaqueUrlsSegment() throws Exception {
+    // segment data read together with the CrawlDb, e.g. by updatedb
+    Path segment = new Path(crawlDb, "segment");
+    writeRun(new Path(segment, CrawlDatum.FETCH_DIR_NAME), OPAQUE_URLS, 1000L,
+        false, 1);
+    Path parse = new Path(segment, CrawlDatum.PARSE_DIR_NAME);
+    SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf, new Path(
+        parse, "part-00000"), Text.class, CrawlDatum.class);
+    CrawlDatum datum = new CrawlDatum(CrawlDatum.STATUS_LINKED, 3600);
+    datum.setFetchTime(2000L);
+    writer.append(new Text("mailto:def"), datum);
+    writer.close();
+    expected.put("mailto:def", 2000L);
+    JobConf job = new JobConf(conf);
+    FileInputFormat.addInputPath(job, new Path(segment,
+        CrawlDatum.FETCH_DIR_NAME));
+    FileInputFormat.addInputPath(job, parse);
+    Assert.assertEquals(expected,
+        read(job, new CrawlDbInputFormat().getSplits(job, 1)));
+  }
+
+  private void writeReversedCurrent(String[] urls) throws Exception {
+    CrawlDBTestUtil.createReversedCrawlDb(conf, fs, crawlDb, urls, NUM_PARTS,
+        expected);
+  }
+
+  @Test
+  public void testReversedOutput() throws Exception {
+    // plain URLs, unsorted
+    writeReversedCurrent(new String[] { "https://b.com/", "http://www.a.com/",
+        "http://a.com/2", "http://c.b.com/", "https://a.com/1" });
+    Path current = new Path(crawlDb, CrawlDb.CURRENT_NAME);
+    Assert.assertTrue(CrawlDb.hasReversedUrls(fs, current, conf));
+    JobConf readJob = new JobConf(conf);
+    FileInputFormat.addInputPath(readJob, current);
+    Assert.assertEquals(expected,
+        read(readJob, new CrawlDbInputFormat().getSplits(readJob, 1)));
+    CrawlDbLookup lookup = new CrawlDbLookup(crawlDb, conf);
+    CrawlDatum datum = new CrawlDatum();
+    for (Map.Entry<String, Long> entry : expected.entrySet()) {
+      Assert.assertNotNull(lookup.get(new Text(entry.getKey()), datum));
+      Assert.assertEquals(entry.getValue().longValue(), datum.getFetchTime());
+    }
+    lookup.close();
+  }
+
+}
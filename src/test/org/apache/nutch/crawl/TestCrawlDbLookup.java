@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.lib.HashPartitioner;
+import org.apache.nutch.util.NutchConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests looking up entries of a CrawlDb with delta runs by
+ * {@link CrawlDbLookup}.
+ */
+public class TestCrawlDbLookup {
+
+  private static final int NUM_PARTS = 2;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path crawlDb;
+
+  /** URL -> fetch time of the most recent entry */
+  private TreeMap<String, Long> expected = new TreeMap<String, Long>();
+
+  @Before
+  public void setUp() throws Exception {
+    conf = NutchConfiguration.create();
+    fs = FileSystem.get(conf);
+    crawlDb = new Path("build/test/test-crawldb-lookup-"
+        + System.currentTimeMillis());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fs.delete(crawlDb, true);
+  }
+
+  private void createCrawlDb() throws Exception {
+    CrawlDBTestUtil.createDeltaCrawlDb(conf, fs, crawlDb, NUM_PARTS, expected);
+  }
+
+  @Test
+  public void testLookup() throws Exception {
+    createCrawlDb();
+    CrawlDbLookup lookup = new CrawlDbLookup(crawlDb, conf);
+    CrawlDatum datum = new CrawlDatum();
+    for (Map.Entry<String, Long> entry : expected.entrySet()) {
+      Assert.assertNotNull(lookup.get(new Text(entry.getKey()), datum));
+      Assert.assertEquals(entry.getValue().longValue(), datum.getFetchTime());
+    }
+    Assert.assertNull(lookup.get(new Text("http://x.com/"), datum));
+    lookup.close();
+  }
+
+  @Test
+  public void testPartitionLookup() throws Exception {
+    createCrawlDb();
+    HashPartitioner<Text, CrawlDatum> partitioner = new HashPartitioner<Text, CrawlDatum>();
+    CrawlDbLookup lookup = new CrawlDbLookup(crawlDb, conf, 0, NUM_PARTS);
+    // the parts of partition 0 are opened at once, no other parts are needed
+    for (Path run : CrawlDb.getDeltaRuns(fs, crawlDb)) {
+      fs.delete(run, true);
+    }
+    fs.delete(new Path(crawlDb, CrawlDb.CURRENT_NAME), true);
+    CrawlDatum datum = new CrawlDatum();
+    int found = 0;
+    for (Map.Entry<String, Long> entry : expected.entrySet()) {
+      Text url = new Text(entry.getKey());
+      if (partitioner.getPartition(url, datum, NUM_PARTS) != 0)
+        continue;
+      Assert.assertNotNull(lookup.get(url, datum));
+      Assert.assertEquals(entry.getValue().longValue(), datum.getFetchTime());
+      found++;
+    }
+    Assert.assertTrue(found > 0);
+    lookup.close();
+  }
+
+  @Test
+  public void testPartitionLookupMismatch() throws Exception {
+    createCrawlDb();
+    // not partitioned as the CrawlDb, all parts are searched
+    CrawlDbLookup lookup = new CrawlDbLookup(crawlDb, conf, 0, 1);
+    CrawlDatum datum = new CrawlDatum();
+    for (Map.Entry<String, Long> entry : expected.entrySet()) {
+      Assert.assertNotNull(lookup.get(new Text(entry.getKey()), datum));
+      Assert.assertEquals(entry.getValue().longValue(), datum.getFetchTime());
+    }
+    lookup.close();
+  }
+
+  @Test
+  public void testCachedBatchLookup() throws Exception {
+    createCrawlDb();
+    CrawlDbLookup lookup = new CrawlDbLookup(crawlDb, conf, 100);
+    Text[] urls = new Text[expected.size() + 1];
+    int i = 0;
+    for (String url : expected.descendingKeySet()) {
+      urls[i++] = new Text(url);
+    }
+    urls[i] = new Text("http://x.com/");
+    for (int round = 0; round < 2; round++) {
+      CrawlDatum[] res = lookup.get(urls);
+      Assert.assertEquals(urls.length, res.length);
+      for (i = 0; i < urls.length - 1; i++) {
+        Assert.assertEquals(expected.get(urls[i].toString()).longValue(),
+            res[i].getFetchTime());
+      }
+      Assert.assertNull(res[urls.length - 1]);
+    }
+    // the second round, including the absent URL, is served from the cache
+    Assert.assertEquals(urls.length, lookup.getCacheMisses());
+    Assert.assertEquals(urls.length, lookup.getCacheHits());
+    lookup.close();
+  }
+
+  @Test
+  public void testReversedBatchLookup() throws Exception {
+    String[] urls = { "http://www.a.com/", "http://b.com/x", "http://a.b.com/",
+        "http://www.c.org/", "http://z.com/", "http://a.z.com/y" };
+    CrawlDBTestUtil.writeRun(conf, fs, new Path(crawlDb,
+        CrawlDb.CURRENT_NAME), urls, 1000L, true, NUM_PARTS, expected);
+    CrawlDBTestUtil.writeRun(conf, fs, new Path(new Path(crawlDb,
+        CrawlDb.DELTA_NAME), "1"), new String[] { "http://b.com/x" }, 2000L,
+        true, NUM_PARTS, expected);
+    CrawlDbLookup lookup = new CrawlDbLookup(crawlDb, conf);
+    Text[] keys = new Text[urls.length + 1];
+    for (int i = 0; i < urls.length; i++) {
+      keys[i] = new Text(urls[i]);
+    }
+    keys[urls.length] = new Text("http://x.com/");
+    CrawlDatum[] res = lookup.get(keys);
+    for (int i = 0; i < urls.length; i++) {
+      Assert.assertEquals(urls[i], expected.get(urls[i]).longValue(),
+          res[i].getFetchTime());
+    }
+    Assert.assertNull(res[urls.length]);
+    lookup.close();
+  }
+}
@@ -27,7 +27,9 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.MapFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.lib.HashPartitioner;
 import org.apache.nutch.util.NutchConfiguration;
 import org.junit.After;
 import org.junit.Assert;
@@ -127,6 +129,71 @@ public class TestCrawlDbMerger {
     fs.delete(testDir, true);
   }
 
+  /** Merge CrawlDb-s with several parts map-side. */
+  @Test
+  public void testMergeSortedParts() throws Exception {
+    Path crawldb1 = new Path(testDir, "crawldb1");
+    Path crawldb2 = new Path(testDir, "crawldb2");
+    Path crawldb3 = new Path(testDir, "crawldb3");
+    Path output = new Path(testDir, "output");
+    TreeSet<String> urls1 = new TreeSet<String>();
+    TreeSet<String> urls2 = new TreeSet<String>();
+    for (int i = 0; i < 20; i++) {
+      urls1.add("http://example.com/" + i);
+      urls2.add("http://example.com/" + (i + 10));
+    }
+    createCrawlDb(conf, fs, crawldb1, urls1, cd1, 3);
+    createCrawlDb(conf, fs, crawldb2, urls2, cd2, 3);
+    createCrawlDb(conf, fs, crawldb3, urls2, cd2, 2);
+
+    JobConf job = new JobConf(conf);
+    FileInputFormat.addInputPath(job, new Path(crawldb1, CrawlDb.CURRENT_NAME));
+    FileInputFormat.addInputPath(job, new Path(crawldb2, CrawlDb.CURRENT_NAME));
+    Assert.assertEquals(3,
+        new CrawlDbMerger.SortedInputFormat().getCompatibleParts(job));
+    FileInputFormat.addInputPath(job, new Path(crawldb3, CrawlDb.CURRENT_NAME));
+    Assert.assertEquals(-1,
+        new CrawlDbMerger.SortedInputFormat().getCompatibleParts(job));
+
+    CrawlDbMerger merger = new CrawlDbMerger(conf);
+    merger.merge(output, new Path[] { crawldb1, crawldb2 }, false, false);
+    HashPartitioner<Text, CrawlDatum> partitioner = new HashPartitioner<Text, CrawlDatum>();
+    Path current = new Path(output, CrawlDb.CURRENT_NAME);
+    int count = 0;
+    for (int i = 0; i < 3; i++) {
+      MapFile.Reader part = new MapFile.Reader(fs, new Path(current,
+          "part-0000" + i).toString(), conf);
+      Text key = new Text();
+      CrawlDatum datum = new CrawlDatum();
+      while (part.next(key, datum)) {
+        Assert.assertEquals(i, partitioner.getPartition(key, datum, 3));
+        CrawlDatum cd = urls2.contains(key.toString()) ? cd2 : cd1;
+        Assert.assertEquals(cd.getFetchTime(), datum.getFetchTime());
+        count++;
+      }
+      part.close();
+    }
+    Assert.assertEquals(30, count);
+  }
+
+  private void createCrawlDb(Configuration config, FileSystem fs, Path crawldb,
+      TreeSet<String> init, CrawlDatum cd, int numParts) throws Exception {
+    Path dir = new Path(crawldb, CrawlDb.CURRENT_NAME);
+    HashPartitioner<Text, CrawlDatum> partitioner = new HashPartitioner<Text, CrawlDatum>();
+    MapFile.Writer[] writers = new MapFile.Writer[numParts];
+    for (int i = 0; i < numParts; i++) {
+      writers[i] = new MapFile.Writer(config, fs, new Path(dir, "part-0000"
+          + i).toString(), Text.class, CrawlDatum.class);
+    }
+    for (String url : init) {
+      Text key = new Text(url);
+      writers[partitioner.getPartition(key, cd, numParts)].append(key, cd);
+    }
+    for (MapFile.Writer writer : writers) {
+      writer.close();
+    }
+  }
+
   private void createCrawlDb(Configuration config, FileSystem fs, Path crawldb,
       TreeSet<String> init, CrawlDatum cd) throws Exception {
     LOG.fine("* creating crawldb: " + crawldb);
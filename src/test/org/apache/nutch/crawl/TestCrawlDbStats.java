@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.io.IOException;
+import java.util.TreeMap;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.nutch.util.NutchConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the in-mapper aggregation of CrawlDb statistics in
+ * {@link CrawlDbReader.CrawlDbStatMapper}.
+ */
+public class TestCrawlDbStats {
+
+  private static class StatsCollector implements
+      OutputCollector<Text, LongWritable> {
+    TreeMap<String, LongWritable> stats = new TreeMap<String, LongWritable>();
+    int records = 0;
+
+    public void collect(Text key, LongWritable value) throws IOException {
+      records++;
+      String k = key.toString();
+      LongWritable val = stats.get(k);
+      if (val == null) {
+        stats.put(k, new LongWritable(value.get()));
+      } else {
+        val.set(CrawlDbReader.aggregate(k, val.get(), value.get()));
+      }
+    }
+  }
+
+  private void map(JobConf job, StatsCollector collector, int start, int n)
+      throws IOException {
+    CrawlDbReader.CrawlDbStatMapper mapper = new CrawlDbReader.CrawlDbStatMapper();
+    mapper.configure(job);
+    CrawlDatum datum = new CrawlDatum();
+    for (int i = start; i < start + n; i++) {
+      datum.setStatus(i % 3 == 0 ? CrawlDatum.STATUS_DB_FETCHED
+          : CrawlDatum.STATUS_DB_UNFETCHED);
+      datum.setScore(i / 1000.0f);
+      datum.setFetchInterval(i);
+      datum.setRetriesSinceFetch(i % 2);
+      mapper.map(new Text("http://host" + (i % 100) + ".example" + (i % 10)
+          + ".com/" + i), datum, collector, Reporter.NULL);
+    }
+    mapper.close();
+  }
+
+  @Test
+  public void testStats() throws Exception {
+    JobConf job = new JobConf(NutchConfiguration.create());
+    job.setBoolean("db.reader.stats.sort", true);
+    StatsCollector collector = new StatsCollector();
+    // two map tasks
+    map(job, collector, 1, 500);
+    map(job, collector, 501, 500);
+    TreeMap<String, LongWritable> stats = collector.stats;
+    CrawlDbReader.summarizeSketches(stats);
+
+    Assert.assertEquals(1000, stats.get("T").get());
+    Assert.assertEquals(333, stats.get("status " + CrawlDatum.STATUS_DB_FETCHED).get());
+    Assert.assertEquals(667,
+        stats.get("status " + CrawlDatum.STATUS_DB_UNFETCHED).get());
+    Assert.assertEquals(500, stats.get("retry 0").get());
+    Assert.assertEquals(500, stats.get("retry 1").get());
+    Assert.assertEquals(1, stats.get("scn").get());
+    Assert.assertEquals(1000, stats.get("scx").get());
+    // scores are truncated to 1/1000
+    Assert.assertEquals(500500, stats.get("sct").get(), 1000);
+    Assert.assertEquals(500, stats.get("score p50").get(), 500 * 0.125);
+    Assert.assertEquals(900, stats.get("fetch interval p90").get(), 900 * 0.125);
+    Assert.assertEquals(100, stats.get("hosts").get());
+    // depends on the domain suffixes available in conf/
+    long domains = stats.get("domains").get();
+    Assert.assertTrue(domains >= 1 && domains <= 10);
+    Assert.assertEquals(4, stats.get(
+        "status " + CrawlDatum.STATUS_DB_FETCHED + " host3.example3.com").get());
+    // sketches are replaced by their summaries
+    Assert.assertNull(stats.get("qs 1"));
+    Assert.assertTrue(stats.subMap("hh ", "hi").isEmpty());
+  }
+
+  /** Hosts are counted the same, whether the URLs are parsed or not. */
+  @Test
+  public void testHosts() throws Exception {
+    JobConf job = new JobConf(NutchConfiguration.create());
+    job.setBoolean("db.reader.stats.sort", true);
+    StatsCollector collector = new StatsCollector();
+    String[] urls = { "HTTP://a.com/0", "http://a.com", "http://a.com/1",
+        "http://a.com/2?q", "http://a.com:8080/", "http://a.com.br/",
+        "http://a.comx/", "http://user@b.com/", "http://b.com/",
+        "https://b.com/", "mailto:x@c.com", "malformed", "news:comp.lang" };
+    CrawlDbReader.CrawlDbStatMapper mapper = new CrawlDbReader.CrawlDbStatMapper();
+    mapper.configure(job);
+    CrawlDatum datum = new CrawlDatum();
+    datum.setStatus(CrawlDatum.STATUS_DB_UNFETCHED);
+    for (String url : urls) {
+      mapper.map(new Text(url), datum, collector, Reporter.NULL);
+    }
+    mapper.close();
+    TreeMap<String, LongWritable> stats = collector.stats;
+    CrawlDbReader.summarizeSketches(stats);
+    String status = "status " + CrawlDatum.STATUS_DB_UNFETCHED + " ";
+    Assert.assertEquals(5, stats.get(status + "a.com").get());
+    Assert.assertEquals(1, stats.get(status + "a.com.br").get());
+    Assert.assertEquals(1, stats.get(status + "a.comx").get());
+    Assert.assertEquals(3, stats.get(status + "b.com").get());
+    // mailto: URLs have no host, news: URLs are malformed (no handler)
+    Assert.assertEquals(1, stats.get(status).get());
+    // a.com, a.com.br, a.comx, b.com and none
+    Assert.assertEquals(5, stats.get("hosts").get());
+  }
+}
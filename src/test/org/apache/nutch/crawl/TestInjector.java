@@ -26,8 +26,14 @@ import java.util.Map;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reporter;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -137,6 +143,94 @@ public class TestInjector {
     }
   }
 
+  /** Injected URLs are merged with entries looked up in the CrawlDb. */
+  @Test
+  public void testDeltaReducer() throws IOException {
+    MapFile.Writer writer = new MapFile.Writer(conf, fs, new Path(crawldbPath,
+        CrawlDb.CURRENT_NAME + "/part-00000").toString(), Text.class,
+        CrawlDatum.class);
+    CrawlDatum fetched = new CrawlDatum(CrawlDatum.STATUS_DB_FETCHED, 1000,
+        5.0f);
+    writer.append(new Text("http://a.com/"), fetched);
+    writer.close();
+
+    JobConf job = new JobConf(conf);
+    job.set(CrawlDbDeltaReducer.CRAWLDB_PATH, crawldbPath.toString());
+    final Counters counters = new Counters();
+    Reporter reporter = new Reporter() {
+      public void progress() {
+      }
+
+      public void setStatus(String status) {
+      }
+
+      public Counters.Counter getCounter(Enum<?> name) {
+        return counters.findCounter(name);
+      }
+
+      public Counters.Counter getCounter(String group, String name) {
+        return counters.findCounter(group, name);
+      }
+
+      public void incrCounter(Enum<?> key, long amount) {
+        counters.incrCounter(key, amount);
+      }
+
+      public void incrCounter(String group, String counter, long amount) {
+        counters.incrCounter(group, counter, amount);
+      }
+
+      public InputSplit getInputSplit() {
+        throw new UnsupportedOperationException();
+      }
+
+      public float getProgress() {
+        return 0;
+      }
+    };
+    final Map<String, CrawlDatum> output = new HashMap<String, CrawlDatum>();
+    OutputCollector<Text, CrawlDatum> collector = new OutputCollector<Text, CrawlDatum>() {
+      public void collect(Text key, CrawlDatum value) {
+        CrawlDatum datum = new CrawlDatum();
+        datum.set(value);
+        output.put(key.toString(), datum);
+      }
+    };
+    CrawlDatum injected = new CrawlDatum(CrawlDatum.STATUS_INJECTED, 2000,
+        1.0f);
+    injected.getMetaData().put(new Text("key"), new Text("value"));
+
+    Injector.InjectDeltaReducer reducer = new Injector.InjectDeltaReducer();
+    reducer.configure(job);
+    reducer.reduce(new Text("http://a.com/"),
+        Collections.singletonList(injected).iterator(), collector, reporter);
+    reducer.reduce(new Text("http://b.com/"),
+        Collections.singletonList(injected).iterator(), collector, reporter);
+    reducer.close();
+    // known URLs are not written
+    Assert.assertEquals(1, output.size());
+    Assert.assertEquals(CrawlDatum.STATUS_DB_UNFETCHED,
+        output.get("http://b.com/").getStatus());
+    Assert.assertEquals(1, counters.findCounter("injector", "urls_merged")
+        .getValue());
+    Assert.assertEquals(1, counters.findCounter("injector", "urls_new")
+        .getValue());
+
+    // update existing entries
+    job.setBoolean("db.injector.update", true);
+    reducer = new Injector.InjectDeltaReducer();
+    reducer.configure(job);
+    reducer.reduce(new Text("http://a.com/"),
+        Collections.singletonList(injected).iterator(), collector, reporter);
+    reducer.close();
+    CrawlDatum updated = output.get("http://a.com/");
+    Assert.assertNotNull(updated);
+    Assert.assertEquals(CrawlDatum.STATUS_DB_FETCHED, updated.getStatus());
+    Assert.assertEquals(5.0f, updated.getScore(), 0.0001f);
+    Assert.assertEquals(new Text("value"),
+        updated.getMetaData().get(new Text("key")));
+  }
+
   private List<String> readCrawldb() throws IOException {
     Path dbfile = new Path(crawldbPath, CrawlDb.CURRENT_NAME
         + "/part-00000/data");
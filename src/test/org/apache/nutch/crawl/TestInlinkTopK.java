@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestInlinkTopK {
+
+  @Test
+  public void testSelection() {
+    InlinkTopK topK = new InlinkTopK(50);
+    CrawlDatum datum = new CrawlDatum(CrawlDatum.STATUS_LINKED, 0);
+    List<CrawlDatum> list = new ArrayList<CrawlDatum>();
+    // two keys, the pool is reused
+    for (int numLinks : new int[] { 1000, 20 }) {
+      for (int i = 0; i < numLinks; i++) {
+        // scores 0 .. numLinks-1 in random order
+        datum.setScore((i * 7919) % numLinks);
+        topK.insert(datum);
+      }
+      list.clear();
+      topK.drainTo(list);
+      Assert.assertEquals(0, topK.size());
+      Assert.assertEquals(Math.min(50, numLinks), list.size());
+      for (int i = 0; i < list.size(); i++) {
+        Assert.assertEquals(numLinks - 1 - i, list.get(i).getScore(), 0.0f);
+      }
+    }
+  }
+
+  @Test
+  public void testSingle() {
+    InlinkTopK topK = new InlinkTopK(1);
+    CrawlDatum datum = new CrawlDatum(CrawlDatum.STATUS_LINKED, 0);
+    for (float score : new float[] { 0.5f, 2.0f, 1.0f }) {
+      datum.setScore(score);
+      topK.insert(datum);
+    }
+    List<CrawlDatum> list = new ArrayList<CrawlDatum>();
+    topK.drainTo(list);
+    Assert.assertEquals(1, list.size());
+    Assert.assertEquals(2.0f, list.get(0).getScore(), 0.0f);
+    // copied, not referenced
+    Assert.assertNotSame(datum, list.get(0));
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.nutch.util.WritableTestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link Inlinks}. */
+public class TestInlinks {
+
+  private static Set<Inlink> toSet(Inlinks inlinks) {
+    Set<Inlink> set = new HashSet<Inlink>();
+    Iterator<Inlink> it = inlinks.iterator();
+    while (it.hasNext()) {
+      set.add(it.next());
+    }
+    return set;
+  }
+
+  @Test
+  public void testWritable() throws Exception {
+    Inlinks inlinks = new Inlinks();
+    inlinks.add(new Inlink("http://a.com/1.html", "anchor", 1.5f));
+    inlinks.add(new Inlink("http://a.com/2.html", "anchor", 2.0f));
+    inlinks.add(new Inlink("http://b.com:8080/", "other", 0.0f));
+    inlinks.add(new Inlink("http://c.com", "", 0.0f));
+    inlinks.add(new Inlink("mailto:x@c.com", "", 0.0f));
+    Inlinks read = (Inlinks) WritableTestUtils.writeRead(inlinks, null);
+    Assert.assertEquals(toSet(inlinks), toSet(read));
+    Map<String, Float> scores = new HashMap<String, Float>();
+    Iterator<Inlink> it = read.iterator();
+    while (it.hasNext()) {
+      Inlink inlink = it.next();
+      scores.put(inlink.getFromUrl(), inlink.getScore());
+    }
+    Assert.assertEquals(2.0f, scores.get("http://a.com/2.html"), 0.0f);
+    Assert.assertEquals(1.5f, scores.get("http://a.com/1.html"), 0.0f);
+  }
+
+  @Test
+  public void testReadOldFormat() throws Exception {
+    DataOutputBuffer out = new DataOutputBuffer();
+    out.writeInt(2);
+    new Inlink("http://a.com/", "a").write(out);
+    new Inlink("http://b.com/", "b").write(out);
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(out.getData(), out.getLength());
+    Inlinks inlinks = new Inlinks();
+    inlinks.readFields(in);
+    Set<Inlink> expected = new HashSet<Inlink>();
+    expected.add(new Inlink("http://a.com/", "a"));
+    expected.add(new Inlink("http://b.com/", "b"));
+    Assert.assertEquals(expected, toSet(inlinks));
+  }
+
+  @Test
+  public void testRetainTop() {
+    Inlinks inlinks = new Inlinks();
+    for (int i = 0; i < 10; i++) {
+      inlinks.add(new Inlink("http://a.com/" + i, "", 10 + i));
+    }
+    inlinks.add(new Inlink("http://b.com/", "", 1));
+    inlinks.add(new Inlink("http://c.com/", "", 2));
+
+    // one inlink per host, filled with the best of a.com
+    Inlinks diverse = new Inlinks();
+    diverse.add(inlinks);
+    diverse.retainTop(4, 1);
+    Set<Inlink> expected = new HashSet<Inlink>();
+    expected.add(new Inlink("http://a.com/9", ""));
+    expected.add(new Inlink("http://a.com/8", ""));
+    expected.add(new Inlink("http://b.com/", ""));
+    expected.add(new Inlink("http://c.com/", ""));
+    Assert.assertEquals(expected, toSet(diverse));
+
+    // by score only
+    inlinks.retainTop(2, 0);
+    expected.clear();
+    expected.add(new Inlink("http://a.com/9", ""));
+    expected.add(new Inlink("http://a.com/8", ""));
+    Assert.assertEquals(expected, toSet(inlinks));
+  }
+}
@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.crawl;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.lib.HashPartitioner;
+import org.apache.nutch.metadata.Metadata;
+import org.apache.nutch.parse.Outlink;
+import org.apache.nutch.parse.ParseData;
+import org.apache.nutch.parse.ParseStatus;
+import org.apache.nutch.util.LocalJobEngine;
+import org.apache.nutch.util.NutchConfiguration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for {@link LinkDb}. */
+public class TestLinkDb {
+
+  private static final int NUM_PARTS = 4;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path testDir;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = NutchConfiguration.create();
+    conf.setBoolean(LocalJobEngine.ENABLED, true);
+    conf.setInt("mapred.reduce.tasks", NUM_PARTS);
+    fs = FileSystem.get(conf);
+    testDir = new Path("build/test/test-linkdb-inc-"
+        + System.currentTimeMillis());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fs.delete(testDir, true);
+  }
+
+  /** Create a segment with one page linking to the given URLs. */
+  private Path createSegment(String name, String fromUrl, String... toUrls)
+      throws Exception {
+    Path segment = new Path(testDir, name);
+    Outlink[] outlinks = new Outlink[toUrls.length];
+    for (int i = 0; i < toUrls.length; i++) {
+      outlinks[i] = new Outlink(toUrls[i], "anchor");
+    }
+    MapFile.Writer writer = new MapFile.Writer(conf, fs, new Path(new Path(
+        segment, ParseData.DIR_NAME), "part-00000").toString(), Text.class,
+        ParseData.class);
+    writer.append(new Text(fromUrl), new ParseData(ParseStatus.STATUS_SUCCESS,
+        "title", outlinks, new Metadata()));
+    writer.close();
+    return segment;
+  }
+
+  private Set<String> getInlinks(LinkDbReader reader, String url)
+      throws Exception {
+    Set<String> links = new HashSet<String>();
+    Inlinks inlinks = reader.getInlinks(new Text(url));
+    if (inlinks != null) {
+      Iterator<Inlink> it = inlinks.iterator();
+      while (it.hasNext()) {
+        links.add(it.next().getFromUrl());
+      }
+    }
+    return links;
+  }
+
+  @Test
+  public void testIncremental() throws Exception {
+    Path linkDb = new Path(testDir, "linkdb");
+    Path current = new Path(linkDb, LinkDb.CURRENT_NAME);
+    String[] targets = new String[20];
+    for (int i = 0; i < targets.length; i++) {
+      targets[i] = "http://target" + i + ".com/";
+    }
+    LinkDb linkDbTool = new LinkDb(conf);
+    linkDbTool.invert(linkDb,
+        new Path[] { createSegment("seg1", "http://a.com/", targets) }, false,
+        false, false);
+
+    // mark all parts to detect which are rewritten
+    for (int i = 0; i < NUM_PARTS; i++) {
+      fs.createNewFile(new Path(new Path(current, String.format("part-%05d",
+          i)), "marker"));
+    }
+    conf.setBoolean(LinkDb.INCREMENTAL, true);
+    linkDbTool.invert(linkDb,
+        new Path[] { createSegment("seg2", "http://b.com/", targets[0]) },
+        false, false, false);
+
+    int part = new HashPartitioner<Text, Inlinks>().getPartition(new Text(
+        targets[0]), null, NUM_PARTS);
+    for (int i = 0; i < NUM_PARTS; i++) {
+      Path dir = new Path(current, String.format("part-%05d", i));
+      Assert.assertTrue(fs.exists(new Path(dir, MapFile.DATA_FILE_NAME)));
+      Assert.assertEquals(i != part, fs.exists(new Path(dir, "marker")));
+    }
+    Assert.assertFalse(fs.exists(new Path(linkDb, LinkDb.LOCK_NAME)));
+
+    LinkDbReader reader = new LinkDbReader(conf, linkDb);
+    try {
+      Set<String> expected = new HashSet<String>();
+      expected.add("http://a.com/");
+      for (int i = 1; i < targets.length; i++) {
+        Assert.assertEquals(expected, getInlinks(reader, targets[i]));
+      }
+      expected.add("http://b.com/");
+      Assert.assertEquals(expected, getInlinks(reader, targets[0]));
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * The local job runner runs a single reduce task, the incremental update
+   * falls back to a full merge.
+   */
+  @Test
+  public void testIncrementalLocalJobRunner() throws Exception {
+    Path linkDb = new Path(testDir, "linkdb");
+    String[] targets = new String[20];
+    for (int i = 0; i < targets.length; i++) {
+      targets[i] = "http://target" + i + ".com/";
+    }
+    LinkDb linkDbTool = new LinkDb(conf);
+    linkDbTool.invert(linkDb,
+        new Path[] { createSegment("seg1", "http://a.com/", targets) }, false,
+        false, false);
+
+    // a target not in the first part
+    String target = null;
+    for (String url : targets) {
+      if (new HashPartitioner<Text, Inlinks>().getPartition(new Text(url),
+          null, NUM_PARTS) != 0) {
+        target = url;
+        break;
+      }
+    }
+    conf.setBoolean(LocalJobEngine.ENABLED, false);
+    conf.setBoolean(LinkDb.INCREMENTAL, true);
+    linkDbTool.invert(linkDb,
+        new Path[] { createSegment("seg2", "http://b.com/", target) }, false,
+        false, false);
+    Assert.assertFalse(fs.exists(new Path(linkDb, LinkDb.LOCK_NAME)));
+
+    LinkDbReader reader = new LinkDbReader(conf, linkDb);
+    try {
+      Set<String> expected = new HashSet<String>();
+      expected.add("http://a.com/");
+      for (String url : targets) {
+        if (!url.equals(target))
+          Assert.assertEquals(expected, getInlinks(reader, url));
+      }
+      expected.add("http://b.com/");
+      Assert.assertEquals(expected, getInlinks(reader, target));
+    } finally {
+      reader.close();
+    }
+  }
+}
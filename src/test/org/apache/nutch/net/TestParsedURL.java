@@ -0,0 +1,51 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.net;
+
+import org.apache.nutch.util.URLUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link ParsedURL}. */
+public class TestParsedURL {
+
+  @Test
+  public void testParts() throws Exception {
+    String url = "http://WWW.Example.com:8080/a/B.html?q=1";
+    ParsedURL parsed = new ParsedURL(url);
+    Assert.assertSame(url, parsed.toString());
+    Assert.assertEquals("www.example.com", parsed.getHost());
+    Assert.assertEquals(URLUtil.getHost(url), parsed.getHost());
+    Assert.assertEquals(URLUtil.getDomainName(url).toLowerCase(),
+        parsed.getDomainName());
+    Assert.assertSame(URLUtil.getDomainSuffix(url), parsed.getDomainSuffix());
+    Assert.assertEquals("/a/B.html", parsed.getPath());
+    // parsed once
+    Assert.assertSame(parsed.getParts(), parsed.getParts());
+  }
+
+  @Test
+  public void testMalformed() {
+    ParsedURL parsed = new ParsedURL("foo:bar");
+    Assert.assertNull(parsed.getParts());
+    Assert.assertNull(parsed.getHost());
+    Assert.assertNull(parsed.getDomainName());
+    Assert.assertNull(parsed.getDomainSuffix());
+    Assert.assertNull(parsed.getPath());
+  }
+}
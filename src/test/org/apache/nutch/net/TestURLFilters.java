@@ -18,6 +18,7 @@ package org.apache.nutch.net;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.nutch.util.NutchConfiguration;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class TestURLFilters {
@@ -38,4 +39,89 @@ public class TestURLFilters {
     normalizers.filter("http://someurl/");
   }
 
+  /** Rejects URLs containing a string, fails on URLs containing "fail". */
+  private static class RejectingFilter implements URLFilter {
+    private final String reject;
+
+    RejectingFilter(String reject) {
+      this.reject = reject;
+    }
+
+    public String filter(String url) {
+      if (url.contains("fail"))
+        throw new IllegalArgumentException("failed on " + url);
+      return url.contains(reject) ? null : url;
+    }
+
+    public void setConf(Configuration conf) {
+    }
+
+    public Configuration getConf() {
+      return null;
+    }
+  }
+
+  /** Rejects URLs with a query, on the whole batch. */
+  private static class QueryBatchFilter implements BatchURLFilter {
+    int batches = 0;
+
+    public void filter(String[] urls) {
+      batches++;
+      for (int i = 0; i < urls.length; i++) {
+        urls[i] = filter(urls[i]);
+      }
+    }
+
+    public String filter(String url) {
+      return url == null || url.contains("?") ? null : url;
+    }
+
+    public void setConf(Configuration conf) {
+    }
+
+    public Configuration getConf() {
+      return null;
+    }
+  }
+
+  @Test
+  public void testBatch() throws URLFilterException {
+    QueryBatchFilter batchFilter = new QueryBatchFilter();
+    URLFilters filters = new URLFilters(new URLFilter[] {
+        new RejectingFilter(".gif"), batchFilter });
+    String[] urls = { "http://example.com/", null, "http://example.com/a.gif",
+        "http://example.com/?q", "http://example.com/fail",
+        "http://example.com/b" };
+    String[] expected = new String[urls.length];
+    for (int i = 0; i < urls.length; i++) {
+      try {
+        expected[i] = urls[i] == null ? null : filters.filter(urls[i]);
+      } catch (IllegalArgumentException e) {
+        expected[i] = null;
+      }
+    }
+    batchFilter.batches = 0;
+    filters.filter(urls);
+    Assert.assertArrayEquals(expected, urls);
+    Assert.assertEquals(1, batchFilter.batches);
+    Assert.assertEquals("http://example.com/", urls[0]);
+    Assert.assertNull(urls[4]);
+  }
+
+  @Test
+  public void testBatchCache() {
+    URLResultCache cache = new URLResultCache(10);
+    URLFilters filters = new URLFilters(
+        new URLFilter[] { new RejectingFilter(".gif") }, cache);
+    String[] urls = { "http://example.com/", "http://example.com/a.gif",
+        "http://example.com/fail" };
+    filters.filter(urls);
+    Assert.assertArrayEquals(new String[] { "http://example.com/", null, null },
+        urls);
+    Assert.assertEquals("http://example.com/", cache.get("http://example.com/"));
+    Assert.assertNull(cache.get("http://example.com/a.gif"));
+    // a failure is not cached, as the single-URL filter throws
+    Assert.assertSame(URLResultCache.MISSING,
+        cache.get("http://example.com/fail"));
+  }
 }
@@ -17,6 +17,8 @@
 package org.apache.nutch.net;
 
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.nutch.util.NutchConfiguration;
@@ -80,4 +82,175 @@ public class TestURLNormalizers {
           pos1 < pos2);
     }
   }
+
+  /** Removes one superfluous slash per call. */
+  private static class SlashNormalizer implements URLNormalizer {
+    int calls = 0;
+
+    public String normalize(String url, String scope) {
+      calls++;
+      int i = url.indexOf("//", "http://".length());
+      return i < 0 ? url : url.substring(0, i) + url.substring(i + 1);
+    }
+
+    public void setConf(Configuration conf) {
+    }
+
+    public Configuration getConf() {
+      return null;
+    }
+  }
+
+  /** Records the parsed URLs passed to it, never changes URLs. */
+  private static class RecordingNormalizer implements ParsedURLNormalizer {
+    final List<ParsedURL> seen;
+
+    RecordingNormalizer(List<ParsedURL> seen) {
+      this.seen = seen;
+    }
+
+    public String normalize(ParsedURL url, String scope) {
+      seen.add(url);
+      return url.toString();
+    }
+
+    public String normalize(String url, String scope) {
+      return normalize(new ParsedURL(url), scope);
+    }
+
+    public void setConf(Configuration conf) {
+    }
+
+    public Configuration getConf() {
+      return null;
+    }
+  }
+
+  @Test
+  public void testLoop() throws Exception {
+    String scope = URLNormalizers.SCOPE_DEFAULT;
+    SlashNormalizer slash = new SlashNormalizer();
+    List<ParsedURL> seen = new ArrayList<ParsedURL>();
+    URLNormalizer[] chain = { slash, new RecordingNormalizer(seen),
+        new RecordingNormalizer(seen) };
+
+    // stops as soon as every normalizer has seen the url unchanged
+    URLNormalizers normalizers = new URLNormalizers(chain, 5, scope);
+    Assert.assertEquals("http://example.com/a/b",
+        normalizers.normalize("http://example.com/a//b", scope));
+    Assert.assertEquals(2, slash.calls);
+    Assert.assertEquals(2, seen.size());
+    // parsed once for all normalizers
+    Assert.assertSame(seen.get(0), seen.get(1));
+
+    // loop count
+    slash.calls = 0;
+    seen.clear();
+    normalizers = new URLNormalizers(chain, 1, scope);
+    Assert.assertEquals("http://example.com/a/b//c",
+        normalizers.normalize("http://example.com/a//b//c", scope));
+    Assert.assertEquals(1, slash.calls);
+    normalizers = new URLNormalizers(chain, 3, scope);
+    Assert.assertEquals("http://example.com/a/b/c",
+        normalizers.normalize("http://example.com/a//b//c", scope));
+
+    // nothing to do
+    slash.calls = 0;
+    seen.clear();
+    Assert.assertEquals("http://example.com/",
+        normalizers.normalize("http://example.com/", scope));
+    Assert.assertEquals(1, slash.calls);
+    Assert.assertEquals(2, seen.size());
+  }
+
+  /** Lowercases URLs on the whole batch, fails on URLs containing "fail". */
+  private static class LowerCaseBatchNormalizer implements BatchURLNormalizer {
+    int batches = 0;
+
+    public void normalize(String[] urls, String scope) {
+      batches++;
+      for (int i = 0; i < urls.length; i++) {
+        if (urls[i] != null)
+          urls[i] = urls[i].contains("fail") ? null : urls[i].toLowerCase();
+      }
+    }
+
+    public String normalize(String url, String scope)
+        throws MalformedURLException {
+      if (url.contains("fail"))
+        throw new MalformedURLException(url);
+      return url.toLowerCase();
+    }
+
+    public void setConf(Configuration conf) {
+    }
+
+    public Configuration getConf() {
+      return null;
+    }
+  }
+
+  @Test
+  public void testBatch() throws Exception {
+    String scope = URLNormalizers.SCOPE_DEFAULT;
+    List<ParsedURL> seen = new ArrayList<ParsedURL>();
+    LowerCaseBatchNormalizer lowerCase = new LowerCaseBatchNormalizer();
+    URLNormalizer[] chain = { new SlashNormalizer(),
+        new RecordingNormalizer(seen), lowerCase };
+    URLNormalizers normalizers = new URLNormalizers(chain, 4, scope);
+    String[] urls = { "http://example.com/", null,
+        "http://example.com/A//B//C", "http://example.com//fail",
+        "http://Example.com/a//b" };
+    String[] expected = new String[urls.length];
+    for (int i = 0; i < urls.length; i++) {
+      try {
+        expected[i] = urls[i] == null ? null : normalizers.normalize(urls[i],
+            scope);
+      } catch (MalformedURLException e) {
+        expected[i] = null;
+      }
+    }
+    lowerCase.batches = 0;
+    normalizers.normalize(urls, scope);
+    Assert.assertArrayEquals(expected, urls);
+    Assert.assertEquals("http://example.com/a/b/c", urls[2]);
+    Assert.assertNull(urls[3]);
+    // one call per pass over the chain, the third pass ends at the slash
+    // normalizer
+    Assert.assertEquals(2, lowerCase.batches);
+  }
+
+  /** Fails on URLs containing "fail", never changes URLs. */
+  private static class FailingNormalizer implements URLNormalizer {
+    public String normalize(String url, String scope)
+        throws MalformedURLException {
+      if (url.contains("fail"))
+        throw new MalformedURLException(url);
+      return url;
+    }
+
+    public void setConf(Configuration conf) {
+    }
+
+    public Configuration getConf() {
+      return null;
+    }
+  }
+
+  @Test
+  public void testBatchCache() {
+    String scope = URLNormalizers.SCOPE_DEFAULT;
+    URLResultCache cache = new URLResultCache(10);
+    URLNormalizers normalizers = new URLNormalizers(new URLNormalizer[] {
+        new SlashNormalizer(), new FailingNormalizer() }, 1, scope, cache);
+    String[] urls = { "http://example.com//a", "http://example.com//fail" };
+    normalizers.normalize(urls, scope);
+    Assert.assertArrayEquals(new String[] { "http://example.com/a", null },
+        urls);
+    Assert.assertEquals("http://example.com/a",
+        cache.get("http://example.com//a"));
+    // a failure is not cached, as the single-URL normalize throws
+    Assert.assertSame(URLResultCache.MISSING,
+        cache.get("http://example.com//fail"));
+  }
 }
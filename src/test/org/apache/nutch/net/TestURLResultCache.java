@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.net;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.nutch.util.NutchConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link URLResultCache}. */
+public class TestURLResultCache {
+
+  @Test
+  public void testCache() {
+    URLResultCache cache = new URLResultCache(3);
+    Assert.assertSame(URLResultCache.MISSING, cache.get("http://a.com/"));
+    cache.put("http://a.com/", "http://a.com/");
+    cache.put("http://b.com/", null);
+    Assert.assertEquals("http://a.com/", cache.get("http://a.com/"));
+    Assert.assertNull(cache.get("http://b.com/"));
+    Assert.assertEquals(2, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+
+    // the third entry fills the first generation, which becomes the old one
+    cache.put("http://c.com/", "http://c.com/");
+    Assert.assertEquals("http://c.com/", cache.get("http://c.com/"));
+    cache.put("http://d.com/", "http://d.com/");
+    Assert.assertEquals("http://a.com/", cache.get("http://a.com/"));
+    // c.com, d.com and a.com fill the second generation, b.com is dropped
+    Assert.assertSame(URLResultCache.MISSING, cache.get("http://b.com/"));
+    cache.put("http://e.com/", "http://e.com/");
+    cache.put("http://f.com/", "http://f.com/");
+    Assert.assertEquals("http://d.com/", cache.get("http://d.com/"));
+    // only the recently used d.com is kept
+    cache.put("http://g.com/", "http://g.com/");
+    Assert.assertSame(URLResultCache.MISSING, cache.get("http://a.com/"));
+    Assert.assertSame(URLResultCache.MISSING, cache.get("http://c.com/"));
+    Assert.assertEquals("http://d.com/", cache.get("http://d.com/"));
+    Assert.assertEquals("http://e.com/", cache.get("http://e.com/"));
+  }
+
+  @Test
+  public void testShared() {
+    Configuration conf = NutchConfiguration.create();
+    URLResultCache cache = URLResultCache.get(conf, "test", 10);
+    Assert.assertSame(cache, URLResultCache.get(conf, "test", 10));
+    Assert.assertNotSame(cache, URLResultCache.get(conf, "other", 10));
+    Assert.assertNotSame(cache, URLResultCache.get(
+        NutchConfiguration.create(), "test", 10));
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.parse;
+
+import java.util.Random;
+
+import org.apache.oro.text.regex.Pattern;
+import org.apache.oro.text.regex.PatternMatcher;
+import org.apache.oro.text.regex.PatternMatcherInput;
+import org.apache.oro.text.regex.Perl5Compiler;
+import org.apache.oro.text.regex.Perl5Matcher;
+
+/**
+ * Compares the URL scanner of {@link OutlinkExtractor} with the previous
+ * extraction, which compiled {@link OutlinkExtractor#URL_PATTERN} with ORO for
+ * every text. Texts are generated from words and URLs.
+ *
+ * <pre>
+ * OutlinkExtractorBenchmark [&lt;texts&gt;] [&lt;rounds&gt;]
+ * </pre>
+ */
+public class OutlinkExtractorBenchmark {
+
+  private static final String[] WORDS = { "the", "crawler", "fetches",
+      "http://www.example.com/index.html", "ftp://ftp.apache.org/dist/",
+      "mailto:dev@nutch.apache.org", "note:", "a.b:c", "https://x.org/a?b=c#d",
+      "10:30", "%20", "and", "of", "page", "(see", "http://nutch.apache.org)" };
+
+  /** The extraction of OutlinkExtractor before the scanner. */
+  static int getUrlsOro(String text) throws Exception {
+    Pattern pattern = new Perl5Compiler().compile(
+        OutlinkExtractor.URL_PATTERN, Perl5Compiler.CASE_INSENSITIVE_MASK
+            | Perl5Compiler.READ_ONLY_MASK | Perl5Compiler.MULTILINE_MASK);
+    PatternMatcher matcher = new Perl5Matcher();
+    PatternMatcherInput input = new PatternMatcherInput(text);
+    int n = 0;
+    while (matcher.contains(input, pattern)) {
+      n += matcher.getMatch().group(0).length();
+    }
+    return n;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int numTexts = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    Random random = new Random(42);
+    String[] texts = new String[numTexts];
+    long chars = 0;
+    for (int i = 0; i < numTexts; i++) {
+      StringBuilder text = new StringBuilder();
+      int numWords = 100 + random.nextInt(1000);
+      for (int j = 0; j < numWords; j++) {
+        text.append(WORDS[random.nextInt(WORDS.length)]);
+        text.append(random.nextInt(10) == 0 ? '\n' : ' ');
+      }
+      texts[i] = text.toString();
+      chars += texts[i].length();
+    }
+
+    int mismatches = 0;
+    for (String text : texts) {
+      int n = 0;
+      for (String url : OutlinkExtractor.getUrls(text, Long.MAX_VALUE)) {
+        n += url.length();
+      }
+      if (n != getUrlsOro(text))
+        mismatches++;
+    }
+    System.out.println(numTexts + " texts, " + chars + " chars, "
+        + mismatches + " mismatches");
+
+    for (int r = 0; r < rounds; r++) {
+      long sum = 0;
+      long start = System.nanoTime();
+      for (String text : texts) {
+        sum += getUrlsOro(text);
+      }
+      long oro = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (String text : texts) {
+        sum += OutlinkExtractor.getUrls(text, Long.MAX_VALUE).size();
+      }
+      long scanner = System.nanoTime() - start;
+      System.out.printf("round %2d: ORO %6.2f ns/char, scanner %6.2f ns/char "
+          + "(%d)%n", r, oro / (double) chars, scanner / (double) chars, sum);
+    }
+  }
+}
@@ -17,6 +17,12 @@
 
 package org.apache.nutch.parse;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.apache.nutch.parse.Outlink;
 import org.apache.nutch.parse.OutlinkExtractor;
 import org.apache.hadoop.conf.Configuration;
@@ -96,4 +102,38 @@ public class TestOutlinkExtractor {
     Assert.assertEquals("Wrong URL", "ftp://www.google.de",
         outlinks[1].getToUrl());
   }
+
+  /** The scanner must find the same URLs as {@link OutlinkExtractor#URL_PATTERN}. */
+  @Test
+  public void testSameAsPattern() {
+    Pattern pattern = Pattern.compile(OutlinkExtractor.URL_PATTERN,
+        Pattern.CASE_INSENSITIVE);
+    String[] parts = { "http", "HTTPS", "ftp", "x", "a1", "+", ".", "-", ":",
+        "://", "/", "//", "www", "example", ".com", "%", "%2F", "%a", "%zz",
+        "#", "#a", "#%", "?q=1", "&", "~", "@", " ", "\n", "\u00e9", "\"", "<",
+        "1", "::", "a:b", ":/", ":%20" };
+    Random random = new Random(42);
+    for (int n = 0; n < 5000; n++) {
+      StringBuilder text = new StringBuilder();
+      int length = random.nextInt(30);
+      for (int i = 0; i < length; i++) {
+        if (random.nextInt(20) == 0) {
+          // long runs to hit the length limits
+          char c = parts[random.nextInt(parts.length)].charAt(0);
+          for (int j = random.nextInt(1200); j > 0; j--) {
+            text.append(c);
+          }
+        } else {
+          text.append(parts[random.nextInt(parts.length)]);
+        }
+      }
+      List<String> expected = new ArrayList<String>();
+      Matcher matcher = pattern.matcher(text);
+      while (matcher.find()) {
+        expected.add(matcher.group());
+      }
+      Assert.assertEquals(text.toString(), expected,
+          OutlinkExtractor.getUrls(text, Long.MAX_VALUE));
+    }
+  }
 }
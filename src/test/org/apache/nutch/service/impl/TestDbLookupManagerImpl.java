@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.nutch.crawl.CrawlDBTestUtil;
+import org.apache.nutch.crawl.CrawlDatum;
+import org.apache.nutch.crawl.CrawlDb;
+import org.apache.nutch.service.resources.ConfigResource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for {@link DbLookupManagerImpl}. */
+public class TestDbLookupManagerImpl {
+
+  private ConfManagerImpl confManager;
+  private FileSystem fs;
+  private Path crawlId;
+
+  /** URL -> fetch time of the most recent entry */
+  private TreeMap<String, Long> expected = new TreeMap<String, Long>();
+
+  @Before
+  public void setUp() throws Exception {
+    confManager = new ConfManagerImpl();
+    // check for updates on every lookup
+    confManager.setProperty(ConfigResource.DEFAULT,
+        DbLookupManagerImpl.CHECK_INTERVAL, "0");
+    Configuration conf = confManager.get(ConfigResource.DEFAULT);
+    fs = FileSystem.get(conf);
+    crawlId = new Path("build/test/test-lookup-manager-"
+        + System.currentTimeMillis());
+    CrawlDBTestUtil.createDeltaCrawlDb(conf, fs, new Path(crawlId, "crawldb"),
+        2, expected);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fs.delete(crawlId, true);
+  }
+
+  /** Lookups in progress must not be affected by a concurrent reopen. */
+  @Test
+  public void testConcurrentReopen() throws Exception {
+    final DbLookupManagerImpl manager = new DbLookupManagerImpl(confManager);
+    final String[] urls = expected.keySet().toArray(
+        new String[expected.size()]);
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    List<Thread> readers = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      Thread reader = new Thread() {
+        public void run() {
+          try {
+            for (int i = 0; i < 200 && error.get() == null; i++) {
+              CrawlDatum[] res = manager.get(crawlId.toString(),
+                  ConfigResource.DEFAULT, urls);
+              for (int j = 0; j < urls.length; j++) {
+                Assert.assertNotNull(urls[j], res[j]);
+                Assert.assertEquals(expected.get(urls[j]).longValue(),
+                    res[j].getFetchTime());
+              }
+            }
+          } catch (Throwable e) {
+            error.compareAndSet(null, e);
+          }
+        }
+      };
+      reader.start();
+      readers.add(reader);
+    }
+    // changes the version of the CrawlDb, causing reopens
+    Thread updater = new Thread() {
+      public void run() {
+        Path dir = new Path(new Path(new Path(crawlId, "crawldb"),
+            CrawlDb.DELTA_NAME), "tmp");
+        try {
+          while (!done.get()) {
+            fs.mkdirs(dir);
+            fs.delete(dir, true);
+            Thread.sleep(1);
+          }
+        } catch (Throwable e) {
+          error.compareAndSet(null, e);
+        }
+      }
+    };
+    updater.start();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    done.set(true);
+    updater.join();
+    manager.close();
+    if (error.get() != null) {
+      throw new AssertionError(error.get());
+    }
+  }
+}
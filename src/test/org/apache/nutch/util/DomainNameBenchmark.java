@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.nutch.util.domain.DomainSuffixes;
+
+/**
+ * Compares the domain name lookup of {@link URLUtil#getDomainNameStart} with
+ * the previous lookup of every possible suffix in {@link DomainSuffixes}.
+ * Hosts are read from a file with one URL per line, or generated.
+ *
+ * <pre>
+ * DomainNameBenchmark [&lt;url_file&gt;] [&lt;rounds&gt;]
+ * </pre>
+ */
+public class DomainNameBenchmark {
+
+  private static final String[] LABELS = { "www", "news", "example", "apache",
+      "lucene", "co", "uk", "com", "org", "net", "de", "ac", "jp", "blogspot",
+      "2000", "hu", "xyz" };
+
+  /** The lookup of URLUtil before the trie. */
+  static String getDomainName(DomainSuffixes tlds, String host) {
+    int index = 0;
+    String candidate = host;
+    for (; index >= 0;) {
+      index = candidate.indexOf('.');
+      String subCandidate = candidate.substring(index + 1);
+      if (tlds.isDomainSuffix(subCandidate)) {
+        return candidate;
+      }
+      candidate = subCandidate;
+    }
+    return candidate;
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> hosts = new ArrayList<String>();
+    if (args.length > 0) {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(
+          new FileInputStream(args[0]), "UTF-8"));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        hosts.add(new URL(line.trim()).getHost());
+      }
+      reader.close();
+    } else {
+      Random random = new Random(42);
+      for (int i = 0; i < 100000; i++) {
+        StringBuilder host = new StringBuilder();
+        int numLabels = 2 + random.nextInt(4);
+        for (int j = 0; j < numLabels; j++) {
+          if (j > 0)
+            host.append('.');
+          host.append(LABELS[random.nextInt(LABELS.length)]);
+        }
+        hosts.add(host.toString());
+      }
+    }
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    DomainSuffixes tlds = DomainSuffixes.getInstance();
+    if (!tlds.isDomainSuffix("com")) {
+      System.err.println("WARN: domain-suffixes.xml not found on classpath");
+    }
+
+    int mismatches = 0;
+    for (String host : hosts) {
+      String domain = host.substring(URLUtil.getDomainNameStart(host, 0,
+          host.length()));
+      if (!domain.equals(getDomainName(tlds, host)))
+        mismatches++;
+    }
+    System.out.println(hosts.size() + " hosts, " + mismatches + " mismatches");
+
+    for (int r = 0; r < rounds; r++) {
+      long sum = 0;
+      long start = System.nanoTime();
+      for (String host : hosts) {
+        sum += getDomainName(tlds, host).length();
+      }
+      long hashMap = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (String host : hosts) {
+        sum += URLUtil.getDomainNameStart(host, 0, host.length());
+      }
+      long trie = System.nanoTime() - start;
+      System.out.printf("round %2d: suffix lookups %6.1f ns/host, "
+          + "trie %6.1f ns/host (%d)%n", r, hashMap / (double) hosts.size(),
+          trie / (double) hosts.size(), sum);
+    }
+  }
+}
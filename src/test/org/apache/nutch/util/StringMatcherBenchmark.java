@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.Random;
+
+/**
+ * Compares memory and lookup time of {@link SuffixStringMatcher} with the
+ * previous trie of {@link TrieStringMatcher.TrieNode} objects, for generated
+ * host name suffixes.
+ *
+ * <pre>
+ * StringMatcherBenchmark [&lt;suffixes&gt;] [&lt;rounds&gt;]
+ * </pre>
+ */
+public class StringMatcherBenchmark {
+
+  private static final String[] LABELS = { "www", "news", "example", "apache",
+      "lucene", "co", "uk", "com", "org", "net", "de", "ac", "jp", "blogspot",
+      "2000", "hu", "xyz" };
+
+  /** The SuffixStringMatcher before the compact trie. */
+  static class TrieNodeSuffixMatcher extends TrieStringMatcher {
+
+    TrieNodeSuffixMatcher(String[] suffixes) {
+      for (String suffix : suffixes)
+        addPatternBackward(suffix);
+    }
+
+    public boolean matches(String input) {
+      return longestMatch(input) != null;
+    }
+
+    public String shortestMatch(String input) {
+      TrieNode node = root;
+      for (int i = input.length() - 1; i >= 0; i--) {
+        node = node.getChild(input.charAt(i));
+        if (node == null)
+          return null;
+        if (node.isTerminal())
+          return input.substring(i);
+      }
+      return null;
+    }
+
+    public String longestMatch(String input) {
+      TrieNode node = root;
+      String result = null;
+      for (int i = input.length() - 1; i >= 0; i--) {
+        node = node.getChild(input.charAt(i));
+        if (node == null)
+          break;
+        if (node.isTerminal())
+          result = input.substring(i);
+      }
+      return result;
+    }
+  }
+
+  private static String randomHost(Random random, int maxLabels) {
+    StringBuilder host = new StringBuilder();
+    int numLabels = 1 + random.nextInt(maxLabels);
+    for (int j = 0; j < numLabels; j++) {
+      if (j > 0)
+        host.append('.');
+      host.append(LABELS[random.nextInt(LABELS.length)]);
+      if (random.nextInt(3) == 0)
+        host.append(random.nextInt(100000));
+    }
+    return host.toString();
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++)
+      System.gc();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  public static void main(String[] args) throws Exception {
+    int numSuffixes = args.length > 0 ? Integer.parseInt(args[0]) : 300000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    Random random = new Random(42);
+    String[] suffixes = new String[numSuffixes];
+    for (int i = 0; i < numSuffixes; i++) {
+      suffixes[i] = "." + randomHost(random, 3);
+    }
+    String[] hosts = new String[100000];
+    for (int i = 0; i < hosts.length; i++) {
+      hosts[i] = i % 2 == 0 ? randomHost(random, 5) : randomHost(random, 2)
+          + suffixes[random.nextInt(numSuffixes)];
+    }
+
+    long before = usedMemory();
+    TrieStringMatcher trieNodes = new TrieNodeSuffixMatcher(suffixes);
+    // nodes are compacted into arrays on the first lookup
+    trieNodes.matches("");
+    for (String host : hosts)
+      trieNodes.longestMatch(host);
+    long trieNodesMemory = usedMemory() - before;
+    before = usedMemory();
+    TrieStringMatcher compact = new SuffixStringMatcher(suffixes);
+    long compactMemory = usedMemory() - before;
+    System.out.printf("%d suffixes: TrieNodes %.1f MB, compact %.1f MB%n",
+        numSuffixes, trieNodesMemory / 1e6, compactMemory / 1e6);
+
+    int mismatches = 0;
+    for (String host : hosts) {
+      String expected = trieNodes.longestMatch(host);
+      String actual = compact.longestMatch(host);
+      if (expected == null ? actual != null : !expected.equals(actual))
+        mismatches++;
+    }
+    System.out.println(hosts.length + " hosts, " + mismatches + " mismatches");
+
+    for (int r = 0; r < rounds; r++) {
+      long sum = 0;
+      long start = System.nanoTime();
+      for (String host : hosts) {
+        String match = trieNodes.longestMatch(host);
+        sum += match == null ? 0 : match.length();
+      }
+      long nodes = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (String host : hosts) {
+        String match = compact.longestMatch(host);
+        sum += match == null ? 0 : match.length();
+      }
+      long arrays = System.nanoTime() - start;
+      System.out.printf("round %2d: TrieNodes %6.1f ns/host, "
+          + "compact %6.1f ns/host (%d)%n", r, nodes / (double) hosts.length,
+          arrays / (double) hosts.length, sum);
+    }
+  }
+}
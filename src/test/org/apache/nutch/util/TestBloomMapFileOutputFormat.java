@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.IOException;
+import java.util.TreeSet;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BloomMapFile;
+import org.apache.hadoop.io.MapFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapFileOutputFormat;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.lib.HashPartitioner;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for {@link BloomMapFileOutputFormat}. */
+public class TestBloomMapFileOutputFormat {
+
+  private static final int NUM_PARTS = 2;
+
+  private JobConf job;
+  private FileSystem fs;
+  private Path dir;
+  private HashPartitioner<Text, Text> partitioner = new HashPartitioner<Text, Text>();
+
+  @Before
+  public void setUp() throws Exception {
+    job = new JobConf(NutchConfiguration.create());
+    fs = FileSystem.get(job);
+    dir = new Path("build/test/test-bloom-" + System.currentTimeMillis());
+    job.set("mapred.output.dir", dir.toString());
+    job.set("mapred.task.id", "attempt_200707121733_0001_r_000000_0");
+    fs.mkdirs(new Path(dir, "_temporary"));
+    job.setOutputKeyClass(Text.class);
+    job.setOutputValueClass(Text.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fs.delete(dir, true);
+  }
+
+  /** Write the parts and return the task output directory. */
+  private Path write(int numKeys) throws Exception {
+    TreeSet<String> keys = new TreeSet<String>();
+    for (int i = 0; i < numKeys; i++) {
+      keys.add("http://www.example.com/" + i);
+    }
+    BloomMapFileOutputFormat format = new BloomMapFileOutputFormat();
+    @SuppressWarnings("unchecked")
+    RecordWriter<Text, Text>[] writers = new RecordWriter[NUM_PARTS];
+    for (int i = 0; i < NUM_PARTS; i++) {
+      writers[i] = (RecordWriter) format.getRecordWriter(fs, job, "part-0000"
+          + i, Reporter.NULL);
+    }
+    for (String url : keys) {
+      Text key = new Text(url);
+      Text value = new Text("value of " + url);
+      writers[partitioner.getPartition(key, value, NUM_PARTS)].write(key,
+          value);
+    }
+    for (RecordWriter<Text, Text> writer : writers) {
+      writer.close(Reporter.NULL);
+    }
+    return FileOutputFormat.getTaskOutputPath(job, "part-00000").getParent();
+  }
+
+  private void checkEntries(MapFile.Reader[] readers, int numKeys)
+      throws Exception {
+    Text value = new Text();
+    for (int i = 0; i < numKeys; i++) {
+      Text key = new Text("http://www.example.com/" + i);
+      Assert.assertNotNull(MapFileOutputFormat.getEntry(readers, partitioner,
+          key, value));
+      Assert.assertEquals("value of " + key, value.toString());
+    }
+    for (int i = 0; i < numKeys; i++) {
+      Text key = new Text("http://www.example.org/" + i);
+      Assert.assertNull(MapFileOutputFormat.getEntry(readers, partitioner,
+          key, value));
+    }
+  }
+
+  @Test
+  public void testBloomFilter() throws Exception {
+    int numKeys = 1000;
+    Path output = write(numKeys);
+    MapFile.Reader[] readers = BloomMapFileOutputFormat.getReaders(fs, output,
+        job);
+    Assert.assertEquals(NUM_PARTS, readers.length);
+    checkEntries(readers, numKeys);
+
+    // absent keys are (almost always) rejected by the filter
+    int falsePositives = 0;
+    for (int i = 0; i < numKeys; i++) {
+      Text key = new Text("http://www.example.org/" + i);
+      BloomMapFile.Reader reader = (BloomMapFile.Reader) readers[partitioner
+          .getPartition(key, null, NUM_PARTS)];
+      if (reader.probablyHasKey(key))
+        falsePositives++;
+    }
+    Assert.assertTrue("false positives: " + falsePositives,
+        falsePositives < numKeys / 20);
+    for (MapFile.Reader reader : readers) {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    job.setBoolean(BloomMapFileOutputFormat.BLOOM_FILTER, false);
+    Path output = write(100);
+    MapFile.Reader[] readers = BloomMapFileOutputFormat.getReaders(fs, output,
+        job);
+    for (MapFile.Reader reader : readers) {
+      Assert.assertFalse(reader instanceof BloomMapFile.Reader);
+    }
+    checkEntries(readers, 100);
+    for (MapFile.Reader reader : readers) {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testLazyReaders() throws Exception {
+    Path output = write(100);
+    BloomMapFileOutputFormat.LazyReaders readers = new BloomMapFileOutputFormat.LazyReaders(
+        fs, output, job);
+    Assert.assertEquals(NUM_PARTS, readers.size());
+    Text key = new Text("http://www.example.com/1");
+    int part = partitioner.getPartition(key, null, NUM_PARTS);
+
+    // only the part of the key is opened
+    fs.delete(new Path(output, "part-0000" + (1 - part)), true);
+    Text value = new Text();
+    Assert.assertNotNull(readers.getEntry(partitioner, key, value));
+    Assert.assertEquals("value of " + key, value.toString());
+    Assert.assertTrue(readers.get(part) instanceof BloomMapFile.Reader);
+    try {
+      readers.get(1 - part);
+      Assert.fail("deleted part opened");
+    } catch (IOException e) {
+      // expected
+    }
+    readers.close();
+  }
+
+}
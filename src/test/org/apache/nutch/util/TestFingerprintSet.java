@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link FingerprintSet}. */
+public class TestFingerprintSet {
+
+  @Test
+  public void testAdd() {
+    FingerprintSet set = new FingerprintSet(1000);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertTrue(set.add("http://example.com/" + i));
+    }
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertFalse(set.add("http://example.com/" + i));
+    }
+    Assert.assertEquals(1000, set.size());
+    // the fingerprint 0 is a valid value
+    Assert.assertTrue(set.add(0L));
+    Assert.assertFalse(set.add(0L));
+  }
+
+  @Test
+  public void testBounded() {
+    FingerprintSet set = new FingerprintSet(100);
+    for (int i = 0; i < 250; i++) {
+      set.add("http://example.com/" + i);
+      Assert.assertTrue(set.size() <= 100);
+    }
+    // cleared when full, the last URLs are still contained
+    Assert.assertFalse(set.add("http://example.com/249"));
+  }
+
+  @Test
+  public void testSize() {
+    FingerprintSet set = new FingerprintSet(1);
+    Assert.assertTrue(set.add(1L));
+    Assert.assertTrue(set.add(2L));
+    Assert.assertEquals(1, set.size());
+    // the table size would overflow
+    for (int size : new int[] { 0, FingerprintSet.MAX_SIZE + 1,
+        Integer.MAX_VALUE }) {
+      try {
+        new FingerprintSet(size);
+        Assert.fail("size " + size + " accepted");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+}
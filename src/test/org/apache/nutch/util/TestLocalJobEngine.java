@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileOutputCommitter;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapReduceBase;
+import org.apache.hadoop.mapred.Mapper;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.SequenceFileInputFormat;
+import org.apache.hadoop.mapred.SequenceFileOutputFormat;
+import org.apache.hadoop.mapred.lib.LongSumReducer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Unit tests for {@link LocalJobEngine}. */
+public class TestLocalJobEngine {
+
+  private static final int NUM_KEYS = 50;
+
+  private JobConf conf;
+  private FileSystem fs;
+  private Path dir;
+  private Path input;
+  private Path output;
+  private Map<String, Long> expected = new HashMap<String, Long>();
+  private long numRecords = 0;
+
+  public static class CountingMapper extends MapReduceBase implements
+      Mapper<Text, LongWritable, Text, LongWritable> {
+    public void map(Text key, LongWritable value,
+        OutputCollector<Text, LongWritable> output, Reporter reporter)
+        throws IOException {
+      reporter.incrCounter("test", "records", 1);
+      output.collect(key, value);
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new JobConf(NutchConfiguration.create());
+    conf.setBoolean(LocalJobEngine.ENABLED, true);
+    conf.setInt(LocalJobEngine.THREADS, 3);
+    fs = FileSystem.get(conf);
+    dir = new Path("build/test/test-engine-" + System.currentTimeMillis());
+    input = new Path(dir, "input");
+    output = new Path(dir, "output");
+    Random random = new Random(42);
+    for (int i = 0; i < 4; i++) {
+      SequenceFile.Writer writer = SequenceFile.createWriter(fs, conf,
+          new Path(input, "file-" + i), Text.class, LongWritable.class);
+      for (int j = 0; j < 200; j++) {
+        // the first file is sorted
+        String key = "key-"
+            + (i == 0 ? String.format("%03d", j / 4) : random
+                .nextInt(NUM_KEYS));
+        long value = random.nextInt(1000);
+        writer.append(new Text(key), new LongWritable(value));
+        Long sum = expected.get(key);
+        expected.put(key, (sum == null ? 0 : sum) + value);
+        numRecords++;
+      }
+      writer.close();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fs.delete(dir, true);
+  }
+
+  private JobConf createJob(int numReduceTasks) {
+    JobConf job = new NutchJob(conf);
+    FileInputFormat.addInputPath(job, input);
+    job.setInputFormat(SequenceFileInputFormat.class);
+    job.setMapperClass(CountingMapper.class);
+    job.setReducerClass(LongSumReducer.class);
+    job.setNumReduceTasks(numReduceTasks);
+    FileOutputFormat.setOutputPath(job, output);
+    job.setOutputFormat(SequenceFileOutputFormat.class);
+    job.setOutputKeyClass(Text.class);
+    job.setOutputValueClass(LongWritable.class);
+    return job;
+  }
+
+  @Test
+  public void testSortedGroups() throws Exception {
+    Counters counters = NutchJob.runJob(createJob(3));
+    Assert.assertEquals(numRecords, counters.findCounter("test", "records")
+        .getValue());
+    Assert.assertTrue(fs.exists(new Path(output,
+        FileOutputCommitter.SUCCEEDED_FILE_NAME)));
+    Assert.assertFalse(fs.exists(new Path(output,
+        FileOutputCommitter.TEMP_DIR_NAME)));
+
+    Map<String, Long> sums = new HashMap<String, Long>();
+    for (int p = 0; p < 3; p++) {
+      SequenceFile.Reader reader = new SequenceFile.Reader(fs, new Path(
+          output, "part-0000" + p), conf);
+      Text key = new Text();
+      LongWritable value = new LongWritable();
+      Text last = null;
+      while (reader.next(key, value)) {
+        if (last != null) {
+          // sorted, one record per key
+          Assert.assertTrue(last.compareTo(key) < 0);
+        }
+        last = new Text(key);
+        sums.put(key.toString(), value.get());
+      }
+      reader.close();
+    }
+    Assert.assertEquals(expected, sums);
+  }
+
+  @Test
+  public void testMapOnly() throws Exception {
+    NutchJob.runJob(createJob(0));
+    FileStatus[] parts = fs.listStatus(output,
+        HadoopFSUtil.getPassAllFilter());
+    long count = 0;
+    int numParts = 0;
+    for (FileStatus part : parts) {
+      if (!part.getPath().getName().startsWith("part-"))
+        continue;
+      numParts++;
+      SequenceFile.Reader reader = new SequenceFile.Reader(fs,
+          part.getPath(), conf);
+      Text key = new Text();
+      LongWritable value = new LongWritable();
+      while (reader.next(key, value)) {
+        count++;
+      }
+      reader.close();
+    }
+    Assert.assertEquals(4, numParts);
+    Assert.assertEquals(numRecords, count);
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link LogHistogram} and {@link HyperLogLog}. */
+public class TestLogHistogram {
+
+  @Test
+  public void testBuckets() {
+    Assert.assertEquals(0, LogHistogram.getBucket(0));
+    Assert.assertEquals(0, LogHistogram.getBucket(-5));
+    long[] values = { 1, 2, 3, 7, 8, 9, 15, 16, 17, 1000, 123456789L,
+        Long.MAX_VALUE };
+    for (long v : values) {
+      int bucket = LogHistogram.getBucket(v);
+      Assert.assertTrue(v + " >= lower bound",
+          v >= LogHistogram.getLowerBound(bucket));
+      Assert.assertTrue(v + " <= upper bound",
+          v <= LogHistogram.getUpperBound(bucket));
+    }
+    // buckets are ordered
+    for (long v = 1; v < 100000; v++) {
+      Assert.assertTrue(LogHistogram.getBucket(v) >= LogHistogram
+          .getBucket(v - 1));
+    }
+  }
+
+  @Test
+  public void testQuantiles() {
+    LogHistogram histogram = new LogHistogram();
+    Assert.assertEquals(0, histogram.getQuantile(0.5));
+    for (int i = 1; i <= 10000; i++) {
+      histogram.add(i);
+    }
+    Assert.assertEquals(10000, histogram.getTotal());
+    for (double q : new double[] { 0.1, 0.5, 0.9, 0.99 }) {
+      double expected = q * 10000;
+      double actual = histogram.getQuantile(q);
+      Assert.assertEquals(expected, actual, expected * 0.125);
+    }
+    // merge by adding bucket counts
+    LogHistogram merged = new LogHistogram();
+    for (int i = 0; i < LogHistogram.NUM_BUCKETS; i++) {
+      merged.add(i, histogram.getCount(i));
+      merged.add(i, histogram.getCount(i));
+    }
+    Assert.assertEquals(histogram.getQuantile(0.5), merged.getQuantile(0.5));
+  }
+
+  @Test
+  public void testHyperLogLog() {
+    Random random = new Random(42);
+    HyperLogLog hll1 = new HyperLogLog();
+    HyperLogLog hll2 = new HyperLogLog();
+    int n = 100000;
+    for (int i = 0; i < n; i++) {
+      String host = "host" + random.nextInt() + ".example.com";
+      hll1.add(host);
+      // duplicates do not count
+      hll1.add(host);
+      if (i % 2 == 0)
+        hll2.add(host);
+    }
+    Assert.assertEquals(n, hll1.getEstimate(), n * 0.03);
+    Assert.assertEquals(n / 2, hll2.getEstimate(), n / 2 * 0.03);
+    for (int i = 0; i < HyperLogLog.NUM_REGISTERS; i++) {
+      hll2.setRegister(i, hll1.getRegister(i));
+    }
+    Assert.assertEquals(hll1.getEstimate(), hll2.getEstimate());
+    // small cardinalities are exact or almost
+    HyperLogLog small = new HyperLogLog();
+    for (int i = 0; i < 10; i++) {
+      small.add("host" + i);
+    }
+    Assert.assertEquals(10, small.getEstimate());
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link RegexLiterals}. */
+public class TestRegexLiterals {
+
+  private static void check(String regex, String... expected) {
+    Assert.assertEquals(regex, Arrays.asList(expected),
+        RegexLiterals.getRequiredLiterals(regex));
+  }
+
+  @Test
+  public void testLiterals() {
+    check("^https?://([a-z0-9]*\\.)*example\\.com/", "http", "://",
+        "example.com/");
+    check("^http://([a-z0-9]*\\.)+example\\.com/", "http://", ".",
+        "example.com/");
+    check("[?*!@=]");
+    check("\\.(gif|GIF|jpg)$", ".");
+    check("^(file|ftp|mailto):", ":");
+    check(".*(/.+?)/.*?\\1/.*?\\1/", "/", "/", "/", "/");
+    check("abc|def");
+    check("(?i)abc");
+    check("ab(?i:cd)ef");
+    check("a(?:bc)+d", "a", "bc", "d");
+    check("a(?=bc)d", "a", "d");
+    check("a(?<name>bc)d", "a", "bc", "d");
+    check("ab{0,2}c", "a", "c");
+    check("ab{2}c", "ab", "c");
+    check("ab*?c+d", "a", "c", "d");
+    check("\\Qa.b\\E*c", "a.", "c");
+    check("a\\u0041b", "a", "b");
+    check("a\\x41b\\x{42}c", "a", "b", "c");
+    check("a\\12b", "a", "b");
+    check("a[(]b[x[)]]c", "a", "b", "c");
+    check("a\\p{L}b", "a", "b");
+    check("a(b");
+    check("a)b");
+    Assert.assertEquals("example.com/",
+        RegexLiterals.getRequiredLiteral("^https?://([a-z]*\\.)*example\\.com/"));
+    Assert.assertNull(RegexLiterals.getRequiredLiteral("[a-z]+"));
+  }
+
+  @Test
+  public void testRandom() {
+    String[] atoms = { "a", "b", "c", ".", "[ab]", "\\.", "(ab|c)", "(?:ab)",
+        "(a)", "\\1", "^", "$", "\\b", "x", "\\Qa.\\E" };
+    String[] quantifiers = { "", "", "", "*", "+", "?", "{0,2}", "{1,2}",
+        "*?" };
+    String alphabet = "abc.x";
+    Random random = new Random(42);
+    for (int n = 0; n < 2000; n++) {
+      StringBuilder regex = new StringBuilder();
+      int numAtoms = 1 + random.nextInt(6);
+      for (int i = 0; i < numAtoms; i++) {
+        regex.append(atoms[random.nextInt(atoms.length)]);
+        regex.append(quantifiers[random.nextInt(quantifiers.length)]);
+      }
+      Pattern pattern;
+      try {
+        pattern = Pattern.compile(regex.toString());
+      } catch (PatternSyntaxException e) {
+        continue;
+      }
+      List<String> literals = RegexLiterals.getRequiredLiterals(regex
+          .toString());
+      for (int m = 0; m < 50; m++) {
+        StringBuilder s = new StringBuilder();
+        int length = random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+          s.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        Matcher matcher = pattern.matcher(s);
+        if (!matcher.find())
+          continue;
+        String match = matcher.group();
+        for (String literal : literals) {
+          Assert.assertTrue(regex + " matched " + match + " without "
+              + literal, match.contains(literal));
+        }
+      }
+    }
+    Assert.assertEquals(Collections.emptyList(),
+        RegexLiterals.getRequiredLiterals(""));
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestReversedUrl {
+
+  private static final String[] URLS = { "http://www.example.com/index.html",
+      "https://example.com", "http://example.com:8080/a?b=c#d",
+      "http://sub.example.com/?q=http://other.org/",
+      "http://www.bücher.de/", "ftp://a.b.c.d/e",
+      // not reversed
+      "http://user@example.com/", "http://[::1]/", "file:/tmp/x",
+      "http://example.com:8a/", "" };
+
+  @Test
+  public void testReverse() {
+    Assert.assertEquals("com.example.www:http/index.html",
+        ReversedUrl.reverse(URLS[0]));
+    Assert.assertEquals("com.example:https", ReversedUrl.reverse(URLS[1]));
+    Assert.assertEquals("com.example:http:8080/a?b=c#d",
+        ReversedUrl.reverse(URLS[2]));
+    Assert.assertEquals("file:/tmp/x", ReversedUrl.reverse("file:/tmp/x"));
+    for (String url : URLS) {
+      String reversed = ReversedUrl.reverse(url);
+      Assert.assertEquals(url, ReversedUrl.unreverse(reversed));
+      // plain URLs are kept
+      Assert.assertEquals(url, ReversedUrl.unreverse(url));
+      Assert.assertEquals(!url.equals(reversed),
+          ReversedUrl.isReversed(new Text(reversed)));
+    }
+  }
+
+  @Test
+  public void testComparator() throws Exception {
+    final ReversedUrl.Comparator comparator = new ReversedUrl.Comparator();
+    String[] sorted = URLS.clone();
+    Arrays.sort(sorted, new Comparator<String>() {
+      public int compare(String s1, String s2) {
+        return new Text(ReversedUrl.reverse(s1)).compareTo(new Text(
+            ReversedUrl.reverse(s2)));
+      }
+    });
+    DataOutputBuffer b1 = new DataOutputBuffer();
+    DataOutputBuffer b2 = new DataOutputBuffer();
+    for (int i = 0; i < sorted.length; i++) {
+      for (int j = 0; j < sorted.length; j++) {
+        Text t1 = new Text(sorted[i]);
+        Text t2 = new Text(sorted[j]);
+        b1.reset();
+        t1.write(b1);
+        b2.reset();
+        t2.write(b2);
+        int expected = Integer.signum(Integer.compare(i, j));
+        Assert.assertEquals(expected, Integer.signum(comparator.compare(t1, t2)));
+        Assert.assertEquals(expected, Integer.signum(comparator.compare(
+            b1.getData(), 0, b1.getLength(), b2.getData(), 0, b2.getLength())));
+      }
+    }
+    // http and https pages of a host are adjacent
+    Assert.assertTrue(comparator.compare(new Text("http://a.com/x"), new Text(
+        "https://a.com/")) < 0);
+    // and next to the subdomains of the host
+    Assert.assertTrue(comparator.compare(new Text("http://b.a.com/"), new Text(
+        "https://a.com/")) < 0);
+    Assert.assertTrue(comparator.compare(new Text("https://a.com/"), new Text(
+        "http://ab.com/")) < 0);
+  }
+}
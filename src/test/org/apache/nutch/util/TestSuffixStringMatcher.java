@@ -111,4 +111,19 @@ public class TestSuffixStringMatcher {
         + numInputsTested + " tests");
   }
 
+  @Test
+  public void testDuplicatesAndSurrogates() {
+    SuffixStringMatcher matcher = new SuffixStringMatcher(new String[] { "",
+        ".org", ".org", "\ud83d\ude00", "apache.org" });
+    Assert.assertEquals(".org", matcher.shortestMatch("nutch.apache.org"));
+    Assert.assertEquals("apache.org", matcher.longestMatch("nutch.apache.org"));
+    Assert.assertEquals("\ud83d\ude00", matcher.longestMatch("a\ud83d\ude00"));
+    Assert.assertFalse(matcher.matches("\ude00"));
+    Assert.assertFalse(matcher.matches(""));
+
+    // a single long pattern with its terminal node far beyond the first nodes
+    String longSuffix = makeRandString(200, 201);
+    matcher = new SuffixStringMatcher(new String[] { longSuffix });
+    Assert.assertEquals(longSuffix, matcher.shortestMatch("x" + longSuffix));
+  }
 }
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link URLParts}. */
+public class TestURLParts {
+
+  private static final String[] URLS = { "http://www.example.com/",
+      "http://www.example.com", "HTTP://WWW.Example.COM/Index.html",
+      "https://example.com:8443/a/b?x=1&y=2#top",
+      "http://example.com:/path", "http://example.com?q", "http://example.com#r",
+      "http://example.com/a?b#c?d", "http://example.com/a#b?c",
+      "http://example.com/a/./b/../c", "http://example.com/a/.hidden",
+      "http://example.com/a/..", "http://user:pw@example.com/",
+      "http://a@b@example.com/", "http://[::1]:8080/x", "http://[::1/",
+      "http://example.com:80x/", "http://example.com:-1/",
+      "http://example.com:99999999999/", "http://example.com:+80/",
+      "http:///path", "http:////unc/path", "http:foo", "http:/foo",
+      "ftp://ftp.example.com/pub/", "file:/tmp/file.txt",
+      "file:///tmp/file.txt", "mailto:user@example.com",
+      "  http://example.com/ ", "url:http://example.com/", "foo://bar/",
+      "example.com/", "/relative", "", ":", "http://ex ample.com/",
+      "http://example.com./", "http://1.2.3.4/", "http://www.example.co.uk/",
+      "http://EXAMPLE.com/%20a b?c d", "http://exa_mple.com/" };
+
+  @Test
+  public void testSameAsURL() {
+    for (String s : URLS) {
+      URL url;
+      try {
+        url = new URL(s);
+      } catch (MalformedURLException e) {
+        url = null;
+      }
+      URLParts parts = URLParts.parseOrNull(s);
+      if (url == null) {
+        Assert.assertNull(s, parts);
+        continue;
+      }
+      Assert.assertNotNull(s, parts);
+      Assert.assertEquals(s, s, parts.toString());
+      Assert.assertEquals(s, url.getProtocol(), parts.getProtocol());
+      Assert.assertEquals(s, url.getHost(), parts.getRawHost());
+      Assert.assertEquals(s, url.getHost().toLowerCase(), parts.getHost());
+      Assert.assertEquals(s, URLUtil.getDomainName(url),
+          parts.getDomainName());
+      Assert.assertEquals(s, url.getPort(), parts.getPort());
+      Assert.assertEquals(s, url.getPath(), parts.getPath());
+      Assert.assertEquals(s, url.getQuery(), parts.getQuery());
+      Assert.assertEquals(s, url.getFile(), parts.getFile());
+      Assert.assertEquals(s, url.getRef(), parts.getRef());
+    }
+    Assert.assertNull(URLParts.parseOrNull(null));
+  }
+
+  @Test
+  public void testSameHost() throws Exception {
+    Assert.assertTrue(URLParts.parse("http://Example.com/a").isSameHost(
+        URLParts.parse("https://example.COM:8443/b")));
+    Assert.assertFalse(URLParts.parse("http://www.example.com/a").isSameHost(
+        URLParts.parse("http://example.com/a")));
+  }
+}
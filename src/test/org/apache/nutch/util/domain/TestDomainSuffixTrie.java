@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.nutch.util.domain;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/** Unit tests for {@link DomainSuffixTrie}. */
+public class TestDomainSuffixTrie {
+
+  private static final String[] SUFFIXES = { "com", "org", "uk", "co.uk",
+      "se", "c.se", "im", "co.im", "plc.co.im", "hu", "2000.hu", "tw",
+      "商業.tw", "edu.tr", "a.b.c" };
+
+  private static final String[] LABELS = { "com", "org", "uk", "co", "se",
+      "c", "im", "plc", "hu", "2000", "tw", "商業", "edu", "tr", "a", "b",
+      "www", "example", "nn", "" };
+
+  private Map<String, DomainSuffix> map = new HashMap<String, DomainSuffix>();
+  private DomainSuffixTrie trie;
+
+  public TestDomainSuffixTrie() {
+    List<DomainSuffix> suffixes = new ArrayList<DomainSuffix>();
+    for (String suffix : SUFFIXES) {
+      suffixes.add(new DomainSuffix(suffix));
+      map.put(suffix, suffixes.get(suffixes.size() - 1));
+    }
+    trie = new DomainSuffixTrie(suffixes);
+  }
+
+  /** The lookup of URLUtil before the trie. */
+  private String getDomainName(String host) {
+    int index = 0;
+    String candidate = host;
+    for (; index >= 0;) {
+      index = candidate.indexOf('.');
+      String subCandidate = candidate.substring(index + 1);
+      if (map.containsKey(subCandidate)) {
+        return candidate;
+      }
+      candidate = subCandidate;
+    }
+    return candidate;
+  }
+
+  private DomainSuffix getDomainSuffix(String host) {
+    int index = 0;
+    String candidate = host;
+    for (; index >= 0;) {
+      index = candidate.indexOf('.');
+      String subCandidate = candidate.substring(index + 1);
+      DomainSuffix d = map.get(subCandidate);
+      if (d != null) {
+        return d;
+      }
+      candidate = subCandidate;
+    }
+    return null;
+  }
+
+  private void check(String host) {
+    // embed the host name to check the offsets
+    String s = "<" + host + ">";
+    int end = s.length() - 1;
+    Assert.assertEquals(host, getDomainName(host),
+        s.substring(trie.getDomainNameStart(s, 1, end), end));
+    Assert.assertSame(host, getDomainSuffix(host),
+        trie.getDomainSuffix(s, 1, end));
+  }
+
+  @Test
+  public void testLookup() {
+    check("www.example.co.uk");
+    check("example.co.uk");
+    check("co.uk");
+    check("uk");
+    check("com");
+    check("www.example.co.uk.com");
+    check("example.com.nn");
+    check("nn");
+    check("");
+    check(".");
+    check(".com");
+    check("www..com");
+    check("www.edu.tr.xyz");
+    check("www.example.c.se");
+    check("www.example.plc.co.im");
+    check("www.example.商業.tw");
+    check("www.b.c");
+    check("x.a.b.c");
+    Assert.assertEquals("example.co.uk",
+        "www.example.co.uk".substring(trie.getDomainNameStart(
+            "www.example.co.uk", 0, 17)));
+  }
+
+  @Test
+  public void testRandomHosts() {
+    Random random = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      StringBuilder host = new StringBuilder();
+      int numLabels = 1 + random.nextInt(5);
+      for (int j = 0; j < numLabels; j++) {
+        if (j > 0)
+          host.append('.');
+        host.append(LABELS[random.nextInt(LABELS.length)]);
+      }
+      check(host.toString());
+    }
+  }
+}